@@ -100,5 +100,10 @@ public interface Request extends AdminObject, DomainAware {
      * @return The thread state
      */
 	ThreadState getThreadState();
+	
+    /**  
+     * @return The time in milliseconds spent planning the request, or -1 if it has not been planned
+     */
+	long getPlanningTime();
     
 }
@@ -42,6 +42,7 @@ public class RequestMetadata extends AdminObjectImpl implements Request {
     private String transactionId;
     private ProcessingState processingState = ProcessingState.PROCESSING;
     private ThreadState threadState = ThreadState.RUNNING;
+    private long planningTime = -1;
     
     @Override
     public long getExecutionId() {
@@ -69,6 +70,15 @@ public class RequestMetadata extends AdminObjectImpl implements Request {
 	public void setThreadState(ThreadState threadState) {
 		this.threadState = threadState;
 	}
+	
+	@Override
+	public long getPlanningTime() {
+		return planningTime;
+	}
+	
+	public void setPlanningTime(long planningTime) {
+		this.planningTime = planningTime;
+	}
     
     @Override
     public String getSessionId() {
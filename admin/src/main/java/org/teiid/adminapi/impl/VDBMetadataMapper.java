@@ -1020,6 +1020,7 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 		private static final String EXECUTION_ID = "execution-id"; //$NON-NLS-1$
 		private static final String STATE = "processing-state"; //$NON-NLS-1$
 		private static final String THREAD_STATE = "thread-state"; //$NON-NLS-1$
+		private static final String PLANNING_TIME = "planning-time"; //$NON-NLS-1$
 		
 		public static RequestMetadataMapper INSTANCE = new RequestMetadataMapper();
 		
@@ -1041,6 +1042,7 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			}
 			node.get(STATE).set(request.getState().name());
 			node.get(THREAD_STATE).set(request.getThreadState().name());
+			node.get(PLANNING_TIME).set(request.getPlanningTime());
 			
 			wrapDomain(request, node);
 			return node;
@@ -1064,6 +1066,9 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			}
 			request.setState(ProcessingState.valueOf(node.get(STATE).asString()));
 			request.setThreadState(ThreadState.valueOf(node.get(THREAD_STATE).asString()));
+			if (node.has(PLANNING_TIME)) {
+				request.setPlanningTime(node.get(PLANNING_TIME).asLong());
+			}
 			
 			unwrapDomain(request, node);
 			return request;
@@ -1079,6 +1084,7 @@ public class VDBMetadataMapper implements MetadataMapper<VDBMetaData> {
 			addAttribute(node, TRANSACTION_ID, ModelType.STRING, false);
 			addAttribute(node, STATE, ModelType.STRING, true);
 			addAttribute(node, THREAD_STATE, ModelType.STRING, true);
+			addAttribute(node, PLANNING_TIME, ModelType.LONG, false);
 			return node; 		
 		}
 	}
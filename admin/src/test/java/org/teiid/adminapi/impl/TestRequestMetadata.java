@@ -40,6 +40,7 @@ public class TestRequestMetadata {
 		
 		assertEquals(request, actual);
 		assertEquals(request.getState(), actual.getState());
+		assertEquals(request.getPlanningTime(), actual.getPlanningTime());
 	}
 
 	private RequestMetadata buildRequest() {
@@ -53,6 +54,7 @@ public class TestRequestMetadata {
 		request.setStartTime(12345L);
 		request.setTransactionId("transaction-id");//$NON-NLS-1$
 		request.setThreadState(ThreadState.RUNNING);
+		request.setPlanningTime(15);
 		//request.setNodeId(1);
 		return request;
 	}
@@ -120,6 +122,13 @@ public class TestRequestMetadata {
 			"        },\n" + 
 			"        \"description\" : \"Thread state\",\n" + 
 			"        \"required\" : true\n" + 
+			"    },\n" + 
+			"    \"planning-time\" : {\n" + 
+			"        \"type\" : {\n" + 
+			"            \"TYPE_MODEL_VALUE\" : \"LONG\"\n" + 
+			"        },\n" + 
+			"        \"description\" : \"Time in milliseconds spent planning the request, or -1 if it has not been planned\",\n" + 
+			"        \"required\" : false\n" + 
 			"    }\n" + 
 			"}";
 	@Test public void testDescribe() {
@@ -58,6 +58,23 @@ public interface EventDistributor {
 	 */
 	@Replicated(remoteOnly=true)
 	void dataModification(String vdbName, int vdbVersion, String schema, String... tableNames);
+	
+	/**
+	 * Notify that a row of the given table has changed.
+	 * Updatable internal materialized views with a primary key that reference the table will 
+	 * be incrementally maintained prior to their next use.
+	 * The tuple is expected to be in table order and should be the full row for both inserts and deletes.
+	 * An update should be sent as the delete of the old row followed by the insert of the new row.
+	 * 
+	 * @param vdbName
+	 * @param vdbVersion
+	 * @param schema
+	 * @param tableName
+	 * @param tuple
+	 * @param delete
+	 */
+	@Replicated(remoteOnly=true)
+	void dataModification(String vdbName, int vdbVersion, String schema, String tableName, List<?> tuple, boolean delete);
 
 	/**
 	 * Set the column stats
@@ -130,6 +130,7 @@ public class SQLConstants {
 		public static final String RAISE = "RAISE"; //$NON-NLS-1$
 		public static final String CHAIN = "CHAIN"; //$NON-NLS-1$
 		public static final String JSONOBJECT = "JSONOBJECT"; //$NON-NLS-1$
+		public static final String JSONTABLE = "JSONTABLE"; //$NON-NLS-1$
 	}
 	
 	public interface Reserved {
@@ -22,6 +22,8 @@
 
 package org.teiid.metadata;
 
+import java.util.List;
+
 import org.teiid.core.types.DataTypeManager;
 
 /**
@@ -63,6 +65,7 @@ public class Column extends BaseColumn implements Comparable<Column> {
     private int charOctetLength;
     private int distinctValues = -1;
     private int nullValues = -1;
+    private List<String> histogram;
     private ColumnSet<?> parent;
     
     
@@ -161,6 +164,14 @@ public class Column extends BaseColumn implements Comparable<Column> {
     public int getNullValues() {
         return this.nullValues;
     }
+    
+    /**
+     * @return the equi-depth histogram boundaries or null if unknown
+     * @see ColumnStats#getHistogram()
+     */
+    public List<String> getHistogram() {
+		return histogram;
+	}
 
     /**
      * @param b
@@ -261,6 +272,10 @@ public class Column extends BaseColumn implements Comparable<Column> {
     public void setNullValues(int nullValues) {
         this.nullValues = nullValues;
     }
+    
+    public void setHistogram(List<String> histogram) {
+		this.histogram = histogram;
+	}
 
     /**
      * @param nativeType The nativeType to set.
@@ -283,6 +298,9 @@ public class Column extends BaseColumn implements Comparable<Column> {
 		if (stats.getMinimumValue() != null) {
 			setMinimumValue(stats.getMinimumValue());
 		}
+		if (stats.getHistogram() != null) {
+			setHistogram(stats.getHistogram());
+		}
     }
 
 }
\ No newline at end of file
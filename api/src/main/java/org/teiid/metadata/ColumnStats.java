@@ -23,6 +23,7 @@
 package org.teiid.metadata;
 
 import java.io.Serializable;
+import java.util.List;
 
 public class ColumnStats implements Serializable {
 
@@ -32,6 +33,7 @@ public class ColumnStats implements Serializable {
     private Integer nullValues;
     private String minimumValue;
     private String maximumValue;
+    private List<String> histogram;
 	
 	public String getMinimumValue() {
 		return minimumValue;
@@ -64,5 +66,19 @@ public class ColumnStats implements Serializable {
 	public void setNullValues(Integer numNullValues) {
 		this.nullValues = numNullValues;
 	}
+	
+	/**
+	 * Get the equi-depth histogram bucket boundaries in ascending order.  
+	 * Each of the buckets between adjacent boundaries holds roughly the same 
+	 * number of non-null values.
+	 * @return the boundaries or null if unknown
+	 */
+	public List<String> getHistogram() {
+		return histogram;
+	}
+	
+	public void setHistogram(List<String> histogram) {
+		this.histogram = histogram;
+	}
     
 }
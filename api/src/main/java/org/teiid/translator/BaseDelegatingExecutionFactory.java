@@ -120,6 +120,10 @@ public class BaseDelegatingExecutionFactory<F, C> extends ExecutionFactory<F, C>
 		return delegate.getDefaultNullOrder();
 	}
 	@Override
+	public String getCollationLocale() {
+		return delegate.getCollationLocale();
+	}
+	@Override
 	public LanguageFactory getLanguageFactory() {
 		return delegate.getLanguageFactory();
 	}
@@ -90,6 +90,10 @@ public class ExecutionFactory<F, C> {
 	}
 
 	public static final int DEFAULT_MAX_FROM_GROUPS = -1;
+	/**
+	 * The collation of the engine when no collation locale is set, which orders strings by their UTF-16 code units
+	 */
+	public static final String UCS_BASIC_COLLATION = "UCS_BASIC"; //$NON-NLS-1$
 	public static final int DEFAULT_MAX_IN_CRITERIA_SIZE = -1;
 
 	private static final TypeFacility TYPE_FACILITY = new TypeFacility();
@@ -117,6 +121,7 @@ public class ExecutionFactory<F, C> {
 	private boolean supportsNativeQueries;
 	private LinkedList<FunctionMethod> pushdownFunctionMethods = new LinkedList<FunctionMethod>();
 	private String nativeProcedureName = "native"; //$NON-NLS-1$
+	private String collationLocale;
 	
 	/**
 	 * Initialize the connector with supplied configuration
@@ -547,6 +552,22 @@ public class ExecutionFactory<F, C> {
     	return NullOrder.UNKNOWN;
     }
     
+    /**
+     * Returns the collation used by the source to order string values.  This is either a locale string in 
+     * the same form as the org.teiid.collationLocale system property, or {@link #UCS_BASIC_COLLATION}.  The
+     * engine relies on the source ordering of string values only if the collation matches its own.
+     * @since 8.3
+     * @return the collation or null if unknown
+     */
+    @TranslatorProperty(display="Collation Locale", description="The collation used by the source to order strings, either a locale or UCS_BASIC for the engine default. Leave unset if unknown.", advanced=true)
+    public String getCollationLocale() {
+    	return collationLocale;
+    }
+    
+    public void setCollationLocale(String collationLocale) {
+    	this.collationLocale = collationLocale;
+    }
+    
 	/**
 	 * Returns whether the database supports explicit join ordering.
 	 * @since 7.1
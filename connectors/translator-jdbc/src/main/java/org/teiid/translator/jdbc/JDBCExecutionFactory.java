@@ -28,6 +28,7 @@ import java.sql.*;
 import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -35,11 +36,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.sql.DataSource;
 
 import org.teiid.core.types.BinaryType;
+import org.teiid.core.util.NamedThreadFactory;
 import org.teiid.core.util.PropertiesUtils;
 import org.teiid.language.*;
 import org.teiid.language.Argument.Direction;
@@ -133,6 +141,12 @@ public class JDBCExecutionFactory extends ExecutionFactory<DataSource, Connectio
 
 	private AtomicBoolean initialConnection = new AtomicBoolean(true);
 	
+	private int partitionedReads;
+	private int maxPartitionedReadThreads = 32;
+	private Semaphore partitionedReadThreads;
+	private Map<Connection, DataSource> partitionedReadSources = Collections.synchronizedMap(new WeakHashMap<Connection, DataSource>());
+	private ExecutorService partitionedReadExecutor;
+	
 	public JDBCExecutionFactory() {
 		setSupportsFullOuterJoins(true);
 		setSupportsOrderBy(true);
@@ -204,6 +218,12 @@ public class JDBCExecutionFactory extends ExecutionFactory<DataSource, Connectio
     		throws TranslatorException {
     	//TODO: This is not correct; this should be only called once for connection creation    	
     	obtainedConnection(conn);
+    	if (this.partitionedReads > 1 && !executionContext.isTransactional() && JDBCPartitionedQueryExecution.getPartitionColumn(command) != null) {
+    		DataSource ds = this.partitionedReadSources.get(conn);
+    		if (ds != null) {
+    			return new JDBCPartitionedQueryExecution(command, conn, ds, executionContext, this);
+    		}
+    	}
     	return new JDBCQueryExecution(command, conn, executionContext, this);
     }
     
@@ -235,7 +255,12 @@ public class JDBCExecutionFactory extends ExecutionFactory<DataSource, Connectio
     public Connection getConnection(DataSource ds)
     		throws TranslatorException {
 		try {
-	    	return ds.getConnection();
+	    	Connection conn = ds.getConnection();
+	    	if (this.partitionedReads > 1) {
+	    		//remember the source so that partitioned reads can obtain more connections
+	    		this.partitionedReadSources.put(conn, ds);
+	    	}
+	    	return conn;
 		} catch (SQLException e) {
 			 throw new TranslatorException(JDBCPlugin.Event.TEIID11009, e);
 		}
@@ -246,6 +271,7 @@ public class JDBCExecutionFactory extends ExecutionFactory<DataSource, Connectio
     	if (connection == null) {
     		return;
     	}
+    	this.partitionedReadSources.remove(connection);
     	try {
 			connection.close();
 		} catch (SQLException e) {
@@ -467,6 +493,55 @@ public class JDBCExecutionFactory extends ExecutionFactory<DataSource, Connectio
 		this.maxInsertBatchSize = maxInsertBatchSize;
 	}
     
+    /**
+     * Get the number of partitions to use when reading a table with the 
+     * {@link JDBCPartitionedQueryExecution#TEIID_PARTITION_COLUMN} extension property.
+     * @return
+     */
+    @TranslatorProperty(display="Partitioned Reads", description="The number of connections to read in parallel when scanning a table with a partition-column extension property.  Default 0 - partitioned reads are not used.", advanced=true)
+    public int getPartitionedReads() {
+    	return partitionedReads;
+    }
+    
+    public void setPartitionedReads(int partitionedReads) {
+		this.partitionedReads = partitionedReads;
+	}
+    
+    @TranslatorProperty(display="Max Partitioned Read Threads", description="The maximum number of threads used by all partitioned reads of this translator.  Reads that cannot obtain a thread for each partition are not partitioned.  Default 32.", advanced=true)
+    public int getMaxPartitionedReadThreads() {
+		return maxPartitionedReadThreads;
+	}
+    
+    public void setMaxPartitionedReadThreads(int maxPartitionedReadThreads) {
+		this.maxPartitionedReadThreads = maxPartitionedReadThreads;
+	}
+    
+    /**
+     * Reserve a reader thread for each partition.
+     * @return false if the threads are not available, in which case the read should not be partitioned 
+     */
+    synchronized boolean reservePartitionedReadThreads(int count) {
+    	if (this.partitionedReadExecutor == null) {
+    		this.partitionedReadThreads = new Semaphore(this.maxPartitionedReadThreads);
+    		//there are no core threads, so idle threads are not retained after the translator is no longer used
+    		//a permit is released before its thread completes, so allow for that thread still being active 
+    		this.partitionedReadExecutor = new ThreadPoolExecutor(0, 2 * this.maxPartitionedReadThreads, 60, TimeUnit.SECONDS, 
+    				new SynchronousQueue<Runnable>(), new NamedThreadFactory("JDBC Partitioned Read ")); //$NON-NLS-1$
+    	}
+    	return this.partitionedReadThreads.tryAcquire(count);
+    }
+    
+    void releasePartitionedReadThread() {
+    	this.partitionedReadThreads.release();
+    }
+    
+    /**
+     * Must only be called after reserving a thread with {@link #reservePartitionedReadThreads(int)}
+     */
+    synchronized ExecutorService getPartitionedReadExecutor() {
+    	return this.partitionedReadExecutor;
+    }
+    
     /**
      * Gets the database calendar.  This will be set to the time zone
      * specified by the property {@link JDBCPropertyNames#DATABASE_TIME_ZONE}, or
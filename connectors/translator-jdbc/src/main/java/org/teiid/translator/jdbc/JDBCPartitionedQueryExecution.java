@@ -0,0 +1,441 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator.jdbc;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.types.TransformationException;
+import org.teiid.language.AggregateFunction;
+import org.teiid.language.AndOr;
+import org.teiid.language.ColumnReference;
+import org.teiid.language.Command;
+import org.teiid.language.Comparison;
+import org.teiid.language.Condition;
+import org.teiid.language.DerivedColumn;
+import org.teiid.language.Expression;
+import org.teiid.language.Function;
+import org.teiid.language.In;
+import org.teiid.language.IsNull;
+import org.teiid.language.Literal;
+import org.teiid.language.NamedTable;
+import org.teiid.language.QueryExpression;
+import org.teiid.language.Select;
+import org.teiid.language.Comparison.Operator;
+import org.teiid.language.visitor.CollectorVisitor;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.metadata.AbstractMetadataRecord;
+import org.teiid.metadata.Column;
+import org.teiid.metadata.Table;
+import org.teiid.translator.DataNotAvailableException;
+import org.teiid.translator.ExecutionContext;
+import org.teiid.translator.SourceSystemFunctions;
+import org.teiid.translator.TranslatorException;
+
+/**
+ * Reads a single table scan as several partitions over separate connections.
+ * <br>
+ * The table must have the {@link #TEIID_PARTITION_COLUMN} extension property naming an integral column.
+ * The {@link #TEIID_PARTITION_METHOD} extension property may be set to <code>range</code> to split on the
+ * min/max of the column, otherwise the rows are split by the column value modulo the number of partitions.
+ * <br>
+ * Each partition is read by its own thread into a shared queue, so the rows are returned in no particular order.
+ * The connections and source queries are obtained and translated on the engine thread, so that the {@link ExecutionContext} 
+ * and any per-user connection logic are only used as with a normal execution.  If a reader thread is not available for 
+ * each partition, the query is executed without partitioning.  Queries projecting lob or object values are not partitioned.
+ */
+public class JDBCPartitionedQueryExecution extends JDBCQueryExecution {
+
+	public static final String TEIID_PARTITION_COLUMN = AbstractMetadataRecord.RELATIONAL_URI + "partition-column"; //$NON-NLS-1$
+	public static final String TEIID_PARTITION_METHOD = AbstractMetadataRecord.RELATIONAL_URI + "partition-method"; //$NON-NLS-1$
+	public static final String RANGE = "range"; //$NON-NLS-1$
+
+	private static final List<?> END = Arrays.asList();
+
+	private DataSource dataSource;
+	private int partitionCount;
+	private List<Select> partitions;
+	private List<Future<?>> readers = new ArrayList<Future<?>>();
+	private LinkedBlockingQueue<List<?>> queue;
+	private int ended;
+	private volatile Throwable failure;
+	private volatile boolean closed;
+	private AtomicBoolean waiting = new AtomicBoolean();
+	private List<JDBCQueryExecution> executions = new ArrayList<JDBCQueryExecution>();
+	private List<Connection> connections;
+	private boolean partitioned;
+	private ConcurrentLinkedQueue<SQLWarning> warnings = new ConcurrentLinkedQueue<SQLWarning>();
+
+	public JDBCPartitionedQueryExecution(QueryExpression command, Connection connection, DataSource dataSource, ExecutionContext context, JDBCExecutionFactory env) {
+		super(command, connection, context, env);
+		this.dataSource = dataSource;
+		this.partitionCount = env.getPartitionedReads();
+	}
+
+	/**
+	 * Return the partition column if the command is a simple scan of a table with a usable partition column,
+	 * or null if the command cannot be partitioned
+	 */
+	static Column getPartitionColumn(QueryExpression command) {
+		if (!(command instanceof Select)) {
+			return null;
+		}
+		Select select = (Select)command;
+		if (select.isDistinct() || select.getGroupBy() != null || select.getHaving() != null
+				|| select.getOrderBy() != null || select.getLimit() != null
+				|| select.getFrom().size() != 1 || !(select.getFrom().get(0) instanceof NamedTable)
+				|| !CollectorVisitor.collectObjects(AggregateFunction.class, select).isEmpty()) {
+			return null;
+		}
+		for (DerivedColumn dc : select.getDerivedColumns()) {
+			//lob values reference the partition result set, which is closed once the partition has been read
+			Class<?> type = dc.getExpression().getType();
+			if (DataTypeManager.isLOB(type) || type == DataTypeManager.DefaultDataClasses.OBJECT) {
+				return null;
+			}
+		}
+		Table table = ((NamedTable)select.getFrom().get(0)).getMetadataObject();
+		if (table == null) {
+			return null;
+		}
+		Column column = table.getColumnByName(table.getProperty(TEIID_PARTITION_COLUMN, false));
+		if (column == null) {
+			return null;
+		}
+		Class<?> type = column.getJavaType();
+		if (type != DataTypeManager.DefaultDataClasses.INTEGER && type != DataTypeManager.DefaultDataClasses.LONG
+				&& type != DataTypeManager.DefaultDataClasses.SHORT && type != DataTypeManager.DefaultDataClasses.BYTE) {
+			return null;
+		}
+		return column;
+	}
+
+	@Override
+	public void execute() throws TranslatorException {
+		this.partitions = createPartitions();
+		if (this.partitions.size() < 2 || !this.executionFactory.reservePartitionedReadThreads(this.partitions.size())) {
+			LogManager.logDetail(LogConstants.CTX_CONNECTOR, "Not using a partitioned read for", this.command); //$NON-NLS-1$
+			super.execute();
+			return;
+		}
+		this.partitioned = true;
+		int started = 0;
+		try {
+			this.connections = new ArrayList<Connection>(partitions.size());
+			this.connections.add(this.connection);
+			for (int i = 1; i < partitions.size(); i++) {
+				this.connections.add(this.executionFactory.getConnection(this.dataSource, this.context));
+			}
+			this.queue = new LinkedBlockingQueue<List<?>>(Math.max(1, this.context.getBatchSize()) * partitions.size());
+			for (int i = 0; i < partitions.size(); i++) {
+				Select partition = partitions.get(i);
+				this.executions.add(new PartitionExecution(partition, connections.get(i), translateCommand(partition)));
+			}
+			for (; started < partitions.size(); started++) {
+				this.readers.add(this.executionFactory.getPartitionedReadExecutor().submit(new PartitionReader(this.executions.get(started))));
+			}
+		} finally {
+			//release the threads that will not be used, the remaining cleanup is performed by close
+			for (int i = started; i < partitions.size(); i++) {
+				this.executionFactory.releasePartitionedReadThread();
+			}
+		}
+	}
+
+	List<Select> getPartitions() {
+		return partitions;
+	}
+
+	List<Select> createPartitions() throws TranslatorException {
+		Select select = (Select)this.command;
+		NamedTable table = (NamedTable)select.getFrom().get(0);
+		Column column = getPartitionColumn(select);
+		ColumnReference ref = new ColumnReference(table, column.getName(), column, column.getJavaType());
+		List<Condition> conditions = new ArrayList<Condition>(this.partitionCount);
+		if (RANGE.equalsIgnoreCase(table.getMetadataObject().getProperty(TEIID_PARTITION_METHOD, false))) {
+			long[] range = getRange(select, ref);
+			List<Literal> bounds = new ArrayList<Literal>(this.partitionCount - 1);
+			if (range != null && range[1] >= range[0]) {
+				//use BigInteger arithmetic so that extreme min/max values do not overflow
+				BigInteger min = BigInteger.valueOf(range[0]);
+				BigInteger max = BigInteger.valueOf(range[1]);
+				BigInteger step = max.subtract(min).divide(BigInteger.valueOf(this.partitionCount)).add(BigInteger.ONE);
+				for (int i = 1; i < this.partitionCount; i++) {
+					BigInteger value = min.add(step.multiply(BigInteger.valueOf(i)));
+					if (value.compareTo(max) > 0) {
+						break;
+					}
+					bounds.add(createLiteral(value.longValue(), ref.getType()));
+				}
+			}
+			//the first partition is unbounded below and includes nulls, the last is unbounded above
+			Literal lower = null;
+			for (int i = 0; i <= bounds.size(); i++) {
+				Literal upper = i < bounds.size()?bounds.get(i):null;
+				Condition condition = null;
+				if (lower != null) {
+					condition = new Comparison(ref, lower, Operator.GE);
+				}
+				if (upper != null) {
+					condition = and(condition, new Comparison(ref, upper, Operator.LT));
+					if (lower == null) {
+						condition = new AndOr(condition, new IsNull(ref, false), AndOr.Operator.OR);
+					}
+				}
+				conditions.add(condition);
+				lower = upper;
+			}
+		} else {
+			Literal count = createLiteral(this.partitionCount, ref.getType());
+			Function mod = new Function(SourceSystemFunctions.MOD, Arrays.asList(ref, count), ref.getType());
+			conditions.add(new AndOr(new Comparison(mod, createLiteral(0, ref.getType()), Operator.EQ), new IsNull(ref, false), AndOr.Operator.OR));
+			for (int i = 1; i < this.partitionCount; i++) {
+				//the sign of mod follows the dividend in most sources
+				conditions.add(new In(mod, Arrays.asList((Expression)createLiteral(i, ref.getType()), createLiteral(-i, ref.getType())), false));
+			}
+		}
+		List<Select> result = new ArrayList<Select>(conditions.size());
+		for (Condition condition : conditions) {
+			result.add(new Select(select.getDerivedColumns(), false, select.getFrom(), and(select.getWhere(), condition), null, null, null));
+		}
+		return result;
+	}
+
+	private static Literal createLiteral(long value, Class<?> type) throws TranslatorException {
+		try {
+			return new Literal(DataTypeManager.transformValue(value, type), type);
+		} catch (TransformationException e) {
+			throw new TranslatorException(e);
+		}
+	}
+
+	/**
+	 * Query the current min/max of the partition column
+	 * @return the bounds or null if there are no values
+	 */
+	private long[] getRange(Select select, ColumnReference ref) throws TranslatorException {
+		List<Expression> params = Arrays.asList((Expression)ref);
+		Select minMax = new Select(Arrays.asList(new DerivedColumn(null, new AggregateFunction(AggregateFunction.MIN, false, params, ref.getType())),
+				new DerivedColumn(null, new AggregateFunction(AggregateFunction.MAX, false, params, ref.getType()))),
+				false, select.getFrom(), select.getWhere(), null, null, null);
+		JDBCQueryExecution execution = new JDBCQueryExecution(minMax, this.connection, this.context, this.executionFactory);
+		try {
+			execution.execute();
+			List<?> row = execution.next();
+			if (row == null || row.get(0) == null || row.get(1) == null) {
+				return null;
+			}
+			return new long[] {((Number)row.get(0)).longValue(), ((Number)row.get(1)).longValue()};
+		} finally {
+			execution.close();
+		}
+	}
+
+	private static Condition and(Condition left, Condition right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		return new AndOr(left, right, AndOr.Operator.AND);
+	}
+
+	@Override
+	public List<?> next() throws TranslatorException, DataNotAvailableException {
+		if (!this.partitioned) {
+			return super.next();
+		}
+		while (true) {
+			SQLWarning warning = null;
+			while ((warning = this.warnings.poll()) != null) {
+				this.context.addWarning(warning);
+			}
+			checkFailure();
+			if (this.ended == this.readers.size()) {
+				return null;
+			}
+			List<?> row = this.queue.poll();
+			if (row == null) {
+				//set waiting before checking again, so that a reader will signal the engine
+				this.waiting.set(true);
+				row = this.queue.poll();
+				if (row == null) {
+					throw DataNotAvailableException.NO_POLLING;
+				}
+			}
+			if (row == END) {
+				this.ended++;
+				continue;
+			}
+			return row;
+		}
+	}
+
+	private void checkFailure() throws TranslatorException {
+		Throwable t = this.failure;
+		if (t == null) {
+			return;
+		}
+		if (t instanceof TranslatorException) {
+			throw (TranslatorException)t;
+		}
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException)t;
+		}
+		throw new TranslatorException(t);
+	}
+
+	@Override
+	public void cancel() throws TranslatorException {
+		if (!this.partitioned) {
+			super.cancel();
+			return;
+		}
+		for (JDBCQueryExecution execution : this.executions) {
+			execution.cancel();
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!this.partitioned) {
+			super.close();
+			return;
+		}
+		this.closed = true;
+		try {
+			for (JDBCQueryExecution execution : this.executions) {
+				try {
+					execution.cancel();
+				} catch (TranslatorException e) {
+					LogManager.logDetail(LogConstants.CTX_CONNECTOR, e, "Exception cancelling"); //$NON-NLS-1$
+				}
+			}
+			//the reader closes its execution, wait so that the connections are not closed while in use
+			for (Future<?> reader : this.readers) {
+				try {
+					reader.get();
+				} catch (Exception e) {
+					LogManager.logDetail(LogConstants.CTX_CONNECTOR, e, "Exception closing"); //$NON-NLS-1$
+				}
+			}
+			if (this.connections != null) {
+				for (int i = 1; i < this.connections.size(); i++) {
+					this.executionFactory.closeConnection(this.connections.get(i), this.dataSource);
+				}
+			}
+		} finally {
+			super.close();
+		}
+	}
+
+	/**
+	 * An execution of a partition query that is translated ahead of time and that 
+	 * holds its warnings for the engine thread, so that the reader thread does not use the context.
+	 */
+	private class PartitionExecution extends JDBCQueryExecution {
+		
+		private TranslatedCommand translatedCommand;
+		
+		public PartitionExecution(Select partition, Connection partitionConnection, TranslatedCommand translatedCommand) {
+			super(partition, partitionConnection, JDBCPartitionedQueryExecution.this.context, JDBCPartitionedQueryExecution.this.executionFactory);
+			this.translatedCommand = translatedCommand;
+		}
+		
+		@Override
+		protected TranslatedCommand translateCommand(Command command) {
+			return this.translatedCommand;
+		}
+		
+		@Override
+		public void addStatementWarnings() throws SQLException {
+			SQLWarning warning = this.statement.getWarnings();
+			if (warning != null) {
+				warnings.add(warning);
+			}
+			this.statement.clearWarnings();
+		}
+	}
+
+	private class PartitionReader implements Runnable {
+
+		private JDBCQueryExecution execution;
+
+		public PartitionReader(JDBCQueryExecution execution) {
+			this.execution = execution;
+		}
+
+		@Override
+		public void run() {
+			try {
+				execution.execute();
+				List<?> row = null;
+				while (!closed && (row = execution.next()) != null) {
+					add(row);
+				}
+			} catch (Throwable t) {
+				if (!closed) {
+					LogManager.logDetail(LogConstants.CTX_CONNECTOR, t, "Partitioned read failed"); //$NON-NLS-1$
+					failure = t;
+				}
+			} finally {
+				try {
+					execution.close();
+				} finally {
+					executionFactory.releasePartitionedReadThread();
+					add(END);
+				}
+			}
+		}
+
+		private void add(List<?> row) {
+			try {
+				while (!closed && !queue.offer(row, 100, TimeUnit.MILLISECONDS)) {
+					//wait for the engine to consume
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				closed = true;
+			}
+			if (waiting.compareAndSet(true, false)) {
+				context.dataAvailable();
+			}
+		}
+	}
+
+}
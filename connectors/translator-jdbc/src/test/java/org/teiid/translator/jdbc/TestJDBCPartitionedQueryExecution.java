@@ -0,0 +1,227 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.translator.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.teiid.language.NamedTable;
+import org.teiid.language.Select;
+import org.teiid.metadata.Table;
+import org.teiid.translator.DataNotAvailableException;
+import org.teiid.translator.ExecutionContext;
+
+@SuppressWarnings("nls")
+public class TestJDBCPartitionedQueryExecution {
+
+	private Table helpGetTable(Select select) {
+		return ((NamedTable)select.getFrom().get(0)).getMetadataObject();
+	}
+
+	private JDBCPartitionedQueryExecution helpGetExecution(Select command, Connection connection, DataSource ds, int partitions) throws Exception {
+		JDBCExecutionFactory ef = new JDBCExecutionFactory();
+		ef.setPartitionedReads(partitions);
+		ef.start();
+		return new JDBCPartitionedQueryExecution(command, connection, ds, Mockito.mock(ExecutionContext.class), ef);
+	}
+
+	@Test public void testHashPartitions() throws Exception {
+		Select command = (Select)TranslationHelper.helpTranslate(TranslationHelper.BQT_VDB, "select IntKey, StringKey from BQT1.SmallA where IntNum > 1");
+		Table table = helpGetTable(command);
+		table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, "IntKey");
+		try {
+			JDBCPartitionedQueryExecution execution = helpGetExecution(command, Mockito.mock(Connection.class), Mockito.mock(DataSource.class), 3);
+			List<Select> partitions = execution.createPartitions();
+			assertEquals(3, partitions.size());
+			JDBCExecutionFactory ef = new JDBCExecutionFactory();
+			TranslationHelper.helpTestVisitor("SELECT SmallA.IntKey, SmallA.StringKey FROM SmallA WHERE SmallA.IntNum > 1 AND (mod(SmallA.IntKey, 3) = 0 OR SmallA.IntKey IS NULL)", ef, partitions.get(0));
+			TranslationHelper.helpTestVisitor("SELECT SmallA.IntKey, SmallA.StringKey FROM SmallA WHERE SmallA.IntNum > 1 AND mod(SmallA.IntKey, 3) IN (1, -1)", ef, partitions.get(1));
+			TranslationHelper.helpTestVisitor("SELECT SmallA.IntKey, SmallA.StringKey FROM SmallA WHERE SmallA.IntNum > 1 AND mod(SmallA.IntKey, 3) IN (2, -2)", ef, partitions.get(2));
+		} finally {
+			table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, null);
+		}
+	}
+
+	@Test public void testRangePartitions() throws Exception {
+		Select command = (Select)TranslationHelper.helpTranslate(TranslationHelper.BQT_VDB, "select IntKey from BQT1.SmallA");
+		Table table = helpGetTable(command);
+		table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, "IntKey");
+		table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_METHOD, JDBCPartitionedQueryExecution.RANGE);
+		try {
+			Connection connection = Mockito.mock(Connection.class);
+			PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+			ResultSet rs = Mockito.mock(ResultSet.class);
+			Mockito.stub(connection.prepareStatement("SELECT MIN(SmallA.IntKey), MAX(SmallA.IntKey) FROM SmallA")).toReturn(ps);
+			Mockito.stub(ps.executeQuery()).toReturn(rs);
+			Mockito.when(rs.next()).thenReturn(true, false);
+			Mockito.when(rs.getInt(1)).thenReturn(1);
+			Mockito.when(rs.getInt(2)).thenReturn(10);
+			JDBCPartitionedQueryExecution execution = helpGetExecution(command, connection, Mockito.mock(DataSource.class), 3);
+			List<Select> partitions = execution.createPartitions();
+			assertEquals(3, partitions.size());
+			JDBCExecutionFactory ef = new JDBCExecutionFactory();
+			TranslationHelper.helpTestVisitor("SELECT SmallA.IntKey FROM SmallA WHERE SmallA.IntKey < 5 OR SmallA.IntKey IS NULL", ef, partitions.get(0));
+			TranslationHelper.helpTestVisitor("SELECT SmallA.IntKey FROM SmallA WHERE SmallA.IntKey >= 5 AND SmallA.IntKey < 9", ef, partitions.get(1));
+			TranslationHelper.helpTestVisitor("SELECT SmallA.IntKey FROM SmallA WHERE SmallA.IntKey >= 9", ef, partitions.get(2));
+		} finally {
+			table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, null);
+			table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_METHOD, null);
+		}
+	}
+
+	@Test public void testRangePartitionsExtremeValues() throws Exception {
+		Select command = (Select)TranslationHelper.helpTranslate(TranslationHelper.BQT_VDB, "select LongNum from BQT1.SmallA");
+		Table table = helpGetTable(command);
+		table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, "LongNum");
+		table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_METHOD, JDBCPartitionedQueryExecution.RANGE);
+		try {
+			Connection connection = Mockito.mock(Connection.class);
+			PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+			ResultSet rs = Mockito.mock(ResultSet.class);
+			Mockito.stub(connection.prepareStatement("SELECT MIN(SmallA.LongNum), MAX(SmallA.LongNum) FROM SmallA")).toReturn(ps);
+			Mockito.stub(ps.executeQuery()).toReturn(rs);
+			Mockito.when(rs.next()).thenReturn(true, false);
+			Mockito.when(rs.getLong(1)).thenReturn(Long.MIN_VALUE);
+			Mockito.when(rs.getLong(2)).thenReturn(Long.MAX_VALUE);
+			JDBCPartitionedQueryExecution execution = helpGetExecution(command, connection, Mockito.mock(DataSource.class), 3);
+			List<Select> partitions = execution.createPartitions();
+			assertEquals(3, partitions.size());
+			JDBCExecutionFactory ef = new JDBCExecutionFactory();
+			TranslationHelper.helpTestVisitor("SELECT SmallA.LongNum FROM SmallA WHERE SmallA.LongNum < -3074457345618258602 OR SmallA.LongNum IS NULL", ef, partitions.get(0));
+			TranslationHelper.helpTestVisitor("SELECT SmallA.LongNum FROM SmallA WHERE SmallA.LongNum >= -3074457345618258602 AND SmallA.LongNum < 3074457345618258604", ef, partitions.get(1));
+			TranslationHelper.helpTestVisitor("SELECT SmallA.LongNum FROM SmallA WHERE SmallA.LongNum >= 3074457345618258604", ef, partitions.get(2));
+		} finally {
+			table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, null);
+			table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_METHOD, null);
+		}
+	}
+
+	@Test public void testPartitionedRead() throws Exception {
+		Select command = (Select)TranslationHelper.helpTranslate(TranslationHelper.BQT_VDB, "select IntKey from BQT1.SmallA");
+		Table table = helpGetTable(command);
+		table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, "IntKey");
+		try {
+			DataSource ds = Mockito.mock(DataSource.class);
+			Connection connection = helpGetConnection();
+			Connection other = helpGetConnection();
+			Mockito.stub(ds.getConnection()).toReturn(other);
+			JDBCPartitionedQueryExecution execution = helpGetExecution(command, connection, ds, 2);
+			execution.execute();
+			int rows = 0;
+			for (int i = 0; i < 1000; i++) {
+				try {
+					List<?> row = execution.next();
+					if (row == null) {
+						break;
+					}
+					assertEquals(1, row.size());
+					rows++;
+				} catch (DataNotAvailableException e) {
+					Thread.sleep(10);
+				}
+			}
+			//each connection returns 3 rows
+			assertEquals(6, rows);
+			execution.close();
+			Mockito.verify(other).close();
+			Mockito.verify(connection, Mockito.never()).close();
+		} finally {
+			table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, null);
+		}
+	}
+
+	@Test public void testPartitionedReadThreadsUnavailable() throws Exception {
+		Select command = (Select)TranslationHelper.helpTranslate(TranslationHelper.BQT_VDB, "select IntKey from BQT1.SmallA");
+		Table table = helpGetTable(command);
+		table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, "IntKey");
+		try {
+			DataSource ds = Mockito.mock(DataSource.class);
+			Connection connection = helpGetConnection();
+			JDBCExecutionFactory ef = new JDBCExecutionFactory();
+			ef.setPartitionedReads(2);
+			ef.setMaxPartitionedReadThreads(1);
+			ef.start();
+			JDBCPartitionedQueryExecution execution = new JDBCPartitionedQueryExecution(command, connection, ds, Mockito.mock(ExecutionContext.class), ef);
+			execution.execute();
+			int rows = 0;
+			while (execution.next() != null) {
+				rows++;
+			}
+			//read without partitioning from only the engine connection
+			assertEquals(3, rows);
+			execution.close();
+			Mockito.verify(ds, Mockito.never()).getConnection();
+			Mockito.verify(connection, Mockito.never()).close();
+		} finally {
+			table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, null);
+		}
+	}
+
+	@Test public void testNotPartitioned() throws Exception {
+		Select command = (Select)TranslationHelper.helpTranslate(TranslationHelper.BQT_VDB, "select IntKey from BQT1.SmallA order by IntKey");
+		Table table = helpGetTable(command);
+		table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, "IntKey");
+		try {
+			assertNull(JDBCPartitionedQueryExecution.getPartitionColumn(command));
+			command.setOrderBy(null);
+			assertNotNull(JDBCPartitionedQueryExecution.getPartitionColumn(command));
+			table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, "StringKey");
+			assertNull(JDBCPartitionedQueryExecution.getPartitionColumn(command));
+		} finally {
+			table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, null);
+		}
+	}
+
+	@Test public void testNotPartitionedWithLobs() throws Exception {
+		Select command = (Select)TranslationHelper.helpTranslate(TranslationHelper.BQT_VDB, "select IntKey, cast(StringKey as clob) from BQT1.SmallA");
+		Table table = helpGetTable(command);
+		table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, "IntKey");
+		try {
+			assertNull(JDBCPartitionedQueryExecution.getPartitionColumn(command));
+			command = (Select)TranslationHelper.helpTranslate(TranslationHelper.BQT_VDB, "select IntKey, ObjectValue from BQT1.SmallA");
+			assertNull(JDBCPartitionedQueryExecution.getPartitionColumn(command));
+		} finally {
+			table.setProperty(JDBCPartitionedQueryExecution.TEIID_PARTITION_COLUMN, null);
+		}
+	}
+
+	private Connection helpGetConnection() throws Exception {
+		Connection connection = Mockito.mock(Connection.class);
+		PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+		ResultSet rs = Mockito.mock(ResultSet.class);
+		Mockito.stub(connection.prepareStatement(Mockito.anyString())).toReturn(ps);
+		Mockito.stub(ps.executeQuery()).toReturn(rs);
+		Mockito.when(rs.next()).thenReturn(true, true, true, false);
+		Mockito.when(rs.getInt(1)).thenReturn(1);
+		return connection;
+	}
+
+}
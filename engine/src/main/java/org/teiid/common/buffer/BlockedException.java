@@ -37,6 +37,12 @@ import org.teiid.logging.MessageLevel;
 public class BlockedException extends TeiidComponentException {
 
     public static final BlockedException INSTANCE = new BlockedException();
+    
+    private static final ThreadLocal<int[]> BLOCK_COUNT = new ThreadLocal<int[]>() {
+    	protected int[] initialValue() {
+    		return new int[1];
+    	}
+    };
 
     /**
      * No-arg costructor required by Externalizable semantics
@@ -45,7 +51,16 @@ public class BlockedException extends TeiidComponentException {
         super();
     }
     
+    /**
+     * Get the number of times that the current thread has blocked.  
+     * Useful for determining what blocked during a unit of processing.
+     */
+    public static int getBlockCount() {
+    	return BLOCK_COUNT.get()[0];
+    }
+    
     public static BlockedException block(Object... msg) {
+    	BLOCK_COUNT.get()[0]++;
     	if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
     		LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, msg); 
     	}
@@ -53,6 +68,7 @@ public class BlockedException extends TeiidComponentException {
     }
 
 	public static BlockedException blockWithTrace(Object... msg) {
+		BLOCK_COUNT.get()[0]++;
 		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
     		BlockedException be = new BlockedException();
     		if (be.getStackTrace().length > 0) {
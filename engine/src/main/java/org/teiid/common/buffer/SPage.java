@@ -97,6 +97,8 @@ class SPage implements Cloneable {
 	protected Object trackingObject;
 	protected List<List<?>> values;
 	protected List<SPage> children;
+	//lazily computed by browsing, cleared with any change to the values
+	protected volatile ZoneMap zoneMap;
 	
 	SPage(STree stree, boolean leaf) {
 		this.stree = stree;
@@ -182,6 +184,7 @@ class SPage implements Cloneable {
 	}
 	
 	protected void setValues(List<List<?>> values) throws TeiidComponentException {
+		this.zoneMap = null;
 		if (values instanceof LightWeightCopyOnWriteList<?>) {
 			values = ((LightWeightCopyOnWriteList<List<?>>)values).getList();
 		}
@@ -199,6 +202,7 @@ class SPage implements Cloneable {
 	}
 
 	private void setDirectValues(List<List<?>> values) {
+		this.zoneMap = null;
 		if (managedBatch != null && trackingObject == null) {
 			stree.getBatchManager(children == null).remove(managedBatch);
 			managedBatch = null;
@@ -208,6 +212,7 @@ class SPage implements Cloneable {
 	}
 	
 	protected void remove(boolean force) {
+		zoneMap = null;
 		if (managedBatch != null) {
 			if (force || trackingObject == null) {
 				stree.getBatchManager(children == null).remove(managedBatch);
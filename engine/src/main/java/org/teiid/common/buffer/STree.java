@@ -527,6 +527,10 @@ public class STree implements Cloneable {
 		return result.toString();
 	}
 	
+	public String[] getTypes() {
+		return leafManager.getTypes();
+	}
+	
 	public int getKeyLength() {
 		return keyLength;
 	}
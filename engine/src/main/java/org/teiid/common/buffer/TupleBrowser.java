@@ -56,6 +56,9 @@ public class TupleBrowser implements TupleSource {
 	private List<Object> cachedBound;
 	
 	private ArrayList<SearchResult> places = new ArrayList<SearchResult>();
+	
+	private List<ZoneMap.Predicate> predicates;
+	private boolean[] zoneMapColumns;
 
 	/**
 	 * Construct a value based browser.  The {@link TupleSource} should already be in the
@@ -85,6 +88,19 @@ public class TupleBrowser implements TupleSource {
 		init(lowerBound, upperBound, false);
 	}
 
+	/**
+	 * Skip leaf pages that cannot match the predicates.  The {@link ZoneMap} for a page 
+	 * is computed the first time it is read by a browser with predicates.
+	 * The rows of the remaining pages are returned unfiltered.
+	 */
+	public void setZoneMapPredicates(List<ZoneMap.Predicate> predicates) {
+		if (predicates.isEmpty() || valueSet != null) {
+			return;
+		}
+		this.predicates = predicates;
+		this.zoneMapColumns = ZoneMap.getComparable(tree.getTypes());
+	}
+
 	private void init(List<Object> lowerBound,
 			List<?> upperBound, boolean isPartialKey)
 			throws TeiidComponentException {
@@ -220,7 +236,23 @@ public class TupleBrowser implements TupleSource {
 				return null;
 			}
 			if (values == null) {
+				if (predicates != null) {
+					ZoneMap zoneMap = page.zoneMap;
+					if (zoneMap != null && !zoneMap.mayMatch(predicates)) {
+						if (page == bound) {
+							page = null;
+						} else if (direction) {
+							page = page.next;
+						} else {
+							page = page.prev;
+						}
+						continue;
+					}
+				}
 				values = page.getValues();
+				if (predicates != null && page.zoneMap == null) {
+					page.zoneMap = ZoneMap.create(values, zoneMapColumns);
+				}
 				if (direction) {
 					index = 0;
 				} else {
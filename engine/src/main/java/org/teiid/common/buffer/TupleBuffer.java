@@ -80,6 +80,9 @@ public class TupleBuffer {
 	private String uuid;
 	private Object rowSourceLock;
 	
+	private boolean[] zoneMapColumns;
+	private TreeMap<Integer, ZoneMap> zoneMaps;
+	
 	public TupleBuffer(BatchManager manager, String id, List<? extends Expression> schema, LobManager lobManager, int batchSize) {
 		this.manager = manager;
 		this.tupleSourceID = id;
@@ -116,6 +119,20 @@ public class TupleBuffer {
 		this.uuid = uuid;
 	}
 	
+	/**
+	 * Record a {@link ZoneMap} for each batch as it is saved, so that a filtered scan 
+	 * may skip batches without reading them.  Should be set prior to adding tuples.
+	 */
+	public void setZoneMaps(boolean zoneMaps) {
+		if (zoneMaps) {
+			this.zoneMapColumns = ZoneMap.getComparable(getTypes());
+			this.zoneMaps = new TreeMap<Integer, ZoneMap>();
+		} else {
+			this.zoneMapColumns = null;
+			this.zoneMaps = null;
+		}
+	}
+	
 	public boolean isLobs() {
 		return lobManager != null;
 	}
@@ -176,6 +193,9 @@ public class TupleBuffer {
 			this.lobManager.remove();
 		}
 		this.batches.clear();
+		if (this.zoneMaps != null) {
+			this.zoneMaps.clear();
+		}
 	}
 	
 	public void persistLobs() throws TeiidComponentException {
@@ -197,6 +217,9 @@ public class TupleBuffer {
 		if (batchBuffer == null || batchBuffer.isEmpty() || (!force && batchBuffer.size() < Math.max(1, batchSize / 32))) {
 			return;
 		}
+		if (this.zoneMaps != null) {
+			this.zoneMaps.put(rowCount - batchBuffer.size() + 1, ZoneMap.create(batchBuffer, zoneMapColumns));
+		}
 		Long mbatch = manager.createManagedBatch(batchBuffer, null, false);
 		this.batches.put(rowCount - batchBuffer.size() + 1, mbatch);
         batchBuffer = null;
@@ -242,6 +265,9 @@ public class TupleBuffer {
 	    	}
 	    	if (forwardOnly) {
 				batches.remove(entry.getKey());
+				if (zoneMaps != null) {
+					zoneMaps.remove(entry.getKey());
+				}
 			}
 		}
 		if (isFinal && result.getEndRow() == rowCount) {
@@ -369,6 +395,74 @@ public class TupleBuffer {
 		};
 	}
 	
+	/**
+	 * Create a scan that skips the saved batches whose {@link ZoneMap} cannot match the predicates.
+	 * The rows of the remaining batches are returned unfiltered.  If zone maps are not recorded or 
+	 * the buffer is not final, all rows are returned.
+	 */
+	public TupleSource createFilteredTupleSource(final List<ZoneMap.Predicate> predicates) {
+		if (zoneMaps == null || predicates.isEmpty() || !isFinal || forwardOnly) {
+			return createIndexedTupleSource();
+		}
+		return new TupleSource() {
+			private int row = 1;
+			private TupleBatch batch;
+			private int skipped;
+			
+			@Override
+			public List<?> nextTuple() throws TeiidComponentException,
+					TeiidProcessingException {
+				for (;;) {
+					if (batch != null && row >= batch.getBeginRow() && row <= batch.getEndRow()) {
+						return batch.getTuple(row++);
+					}
+					if (row > rowCount) {
+						if (skipped > 0 && LogManager.isMessageToBeRecorded(LogConstants.CTX_BUFFER_MGR, MessageLevel.DETAIL)) {
+							LogManager.logDetail(LogConstants.CTX_BUFFER_MGR, "Skipped", skipped, "batches of", tupleSourceID, "using zone maps"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						}
+						return null;
+					}
+					batch = null;
+					ZoneMap zoneMap = zoneMaps.get(row);
+					if (zoneMap != null && !zoneMap.mayMatch(predicates)) {
+						skipped++;
+						row = getNextBatchRow(row);
+						continue;
+					}
+					batch = getBatch(row);
+					if (batch.getRowCount() == 0) {
+						return null;
+					}
+					if (batch.getBeginRow() > row) {
+						row = batch.getBeginRow();
+					} else if (batch.getEndRow() < row) {
+						//a gap in the row offsets
+						row = getNextBatchRow(row);
+					}
+				}
+			}
+			
+			@Override
+			public void closeSource() {
+				batch = null;
+			}
+		};
+	}
+	
+	/**
+	 * @return the first row of the batch following the one that contains row
+	 */
+	private int getNextBatchRow(int row) {
+		Integer next = batches.higherKey(row);
+		if (next != null) {
+			return next;
+		}
+		if (batchBuffer != null && !batchBuffer.isEmpty() && rowCount - batchBuffer.size() + 1 > row) {
+			return rowCount - batchBuffer.size() + 1;
+		}
+		return rowCount + 1;
+	}
+	
 	@Override
 	public String toString() {
 		return this.tupleSourceID;
@@ -416,6 +510,9 @@ public class TupleBuffer {
 			if (id != null) {
 				this.manager.remove(id);
 			}
+			if (this.zoneMaps != null) {
+				this.zoneMaps.remove(begin);
+			}
 			if (this.lobManager != null) {
 				for (List<?> tuple : tb.getTuples()) {
 					this.lobManager.updateReferences(tuple, ReferenceMode.REMOVE);
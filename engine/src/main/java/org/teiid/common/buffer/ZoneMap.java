@@ -0,0 +1,270 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.common.buffer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.lang.AbstractCompareCriteria;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * The min and max values and the null count of each column for a set of rows.
+ * <br/>
+ * Zone maps are checked against the simple {@link Predicate}s of a criteria to 
+ * skip sets of rows, such as batches or pages, that cannot match without reading them.
+ * The min and max are only kept for comparable types. 
+ */
+public class ZoneMap {
+	
+	/**
+	 * A simple conjunct of a criteria - a comparison of a column to a constant, 
+	 * an IN list of constants, or IS NULL
+	 */
+	public static class Predicate {
+		private int column;
+		private int operator;
+		private Object value;
+		private Collection<?> values;
+		private boolean isNull;
+		
+		boolean mayMatch(ZoneMap zoneMap) {
+			if (isNull) {
+				return zoneMap.nullCount[column] > 0;
+			}
+			Object min = zoneMap.min[column];
+			Object max = zoneMap.max[column];
+			if (min == null) {
+				//only nulls
+				return false;
+			}
+			if (values != null) {
+				for (Object v : values) {
+					if (Constant.COMPARATOR.compare(v, min) >= 0 && Constant.COMPARATOR.compare(v, max) <= 0) {
+						return true;
+					}
+				}
+				return false;
+			}
+			switch (operator) {
+			case AbstractCompareCriteria.EQ:
+				return Constant.COMPARATOR.compare(value, min) >= 0 && Constant.COMPARATOR.compare(value, max) <= 0;
+			case AbstractCompareCriteria.LT:
+				return Constant.COMPARATOR.compare(min, value) < 0;
+			case AbstractCompareCriteria.LE:
+				return Constant.COMPARATOR.compare(min, value) <= 0;
+			case AbstractCompareCriteria.GT:
+				return Constant.COMPARATOR.compare(max, value) > 0;
+			case AbstractCompareCriteria.GE:
+				return Constant.COMPARATOR.compare(max, value) >= 0;
+			}
+			return true;
+		}
+		
+		@Override
+		public String toString() {
+			return column + (isNull?" IS NULL":values != null?" IN " + values:" " + operator + " " + value); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+	}
+	
+	private boolean[] comparable;
+	private Object[] min;
+	private Object[] max;
+	private int[] nullCount;
+	
+	/**
+	 * @param comparable the columns to track min and max values for
+	 */
+	public ZoneMap(boolean[] comparable) {
+		this.comparable = comparable;
+		this.min = new Object[comparable.length];
+		this.max = new Object[comparable.length];
+		this.nullCount = new int[comparable.length];
+	}
+	
+	public static ZoneMap create(List<? extends List<?>> rows, boolean[] comparable) {
+		ZoneMap result = new ZoneMap(comparable);
+		for (List<?> row : rows) {
+			for (int i = 0; i < comparable.length; i++) {
+				result.addValue(i, row.get(i));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @return the comparable flags for the given type names 
+	 */
+	public static boolean[] getComparable(String[] types) {
+		boolean[] result = new boolean[types.length];
+		for (int i = 0; i < types.length; i++) {
+			result[i] = !DataTypeManager.isNonComparable(types[i]);
+		}
+		return result;
+	}
+	
+	public void addValue(int column, Object value) {
+		if (value == null) {
+			nullCount[column]++;
+		} else if (comparable[column]) {
+			if (min[column] == null || Constant.COMPARATOR.compare(value, min[column]) < 0) {
+				min[column] = value;
+			}
+			if (max[column] == null || Constant.COMPARATOR.compare(value, max[column]) > 0) {
+				max[column] = value;
+			}
+		}
+	}
+	
+	public int getNullCount(int column) {
+		return nullCount[column];
+	}
+	
+	/**
+	 * @return false if no row can satisfy all of the predicates
+	 */
+	public boolean mayMatch(List<Predicate> predicates) {
+		for (Predicate predicate : predicates) {
+			if (!predicate.mayMatch(this)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Get the predicates from the conjuncts of the condition that may be checked against zone maps.
+	 * @param columnMap the map of the columns to their positions in the rows
+	 * @param types the type names of the columns
+	 * @return the predicates, which may be empty
+	 */
+	public static List<Predicate> getPredicates(Criteria condition, Map<? extends Expression, Integer> columnMap, String[] types) {
+		if (condition == null) {
+			return Collections.emptyList();
+		}
+		List<Predicate> result = new ArrayList<Predicate>(2);
+		for (Criteria crit : Criteria.separateCriteriaByAnd(condition)) {
+			Predicate predicate = getPredicate(crit, columnMap, types);
+			if (predicate != null) {
+				result.add(predicate);
+			}
+		}
+		return result;
+	}
+
+	private static Predicate getPredicate(Criteria crit, Map<? extends Expression, Integer> columnMap, String[] types) {
+		Predicate predicate = new Predicate();
+		Expression expr = null;
+		if (crit instanceof CompareCriteria) {
+			CompareCriteria cc = (CompareCriteria)crit;
+			predicate.operator = cc.getOperator();
+			expr = cc.getLeftExpression();
+			Expression other = cc.getRightExpression();
+			if (!(other instanceof Constant)) {
+				expr = other;
+				other = cc.getLeftExpression();
+				predicate.operator = reverse(predicate.operator);
+			}
+			if (!(other instanceof Constant) || ((Constant)other).isMultiValued()) {
+				return null;
+			}
+			predicate.value = ((Constant)other).getValue();
+			if (predicate.value == null || predicate.operator == AbstractCompareCriteria.NE) {
+				return null;
+			}
+		} else if (crit instanceof SetCriteria) {
+			SetCriteria sc = (SetCriteria)crit;
+			if (sc.isNegated()) {
+				return null;
+			}
+			expr = sc.getExpression();
+			List<Object> values = new ArrayList<Object>(sc.getValues().size());
+			for (Object value : sc.getValues()) {
+				if (!(value instanceof Constant) || ((Constant)value).getValue() == null) {
+					return null;
+				}
+				values.add(((Constant)value).getValue());
+			}
+			predicate.values = values;
+		} else if (crit instanceof IsNullCriteria) {
+			IsNullCriteria inc = (IsNullCriteria)crit;
+			if (inc.isNegated()) {
+				return null;
+			}
+			expr = inc.getExpression();
+			predicate.isNull = true;
+		} else {
+			return null;
+		}
+		if (!(expr instanceof ElementSymbol)) {
+			return null;
+		}
+		Integer index = columnMap.get(expr);
+		if (index == null) {
+			return null;
+		}
+		predicate.column = index;
+		if (predicate.isNull) {
+			return predicate;
+		}
+		if (DataTypeManager.isNonComparable(types[index])) {
+			return null;
+		}
+		//the values must be of the column type for the comparison to be valid
+		if (predicate.values != null) {
+			for (Object value : predicate.values) {
+				if (!types[index].equals(DataTypeManager.getDataTypeName(value.getClass()))) {
+					return null;
+				}
+			}
+		} else if (!types[index].equals(DataTypeManager.getDataTypeName(predicate.value.getClass()))) {
+			return null;
+		}
+		return predicate;
+	}
+	
+	private static int reverse(int operator) {
+		switch (operator) {
+		case AbstractCompareCriteria.LT:
+			return AbstractCompareCriteria.GT;
+		case AbstractCompareCriteria.LE:
+			return AbstractCompareCriteria.GE;
+		case AbstractCompareCriteria.GT:
+			return AbstractCompareCriteria.LT;
+		case AbstractCompareCriteria.GE:
+			return AbstractCompareCriteria.LE;
+		}
+		return operator;
+	}
+
+}
@@ -190,6 +190,7 @@ public class DQPCore implements DQP {
     private TempTableDataManager dataTierMgr;
     private SessionAwareCache<PreparedPlan> prepPlanCache;
     private SessionAwareCache<CachedResults> rsCache;
+    private SemanticCacheLookup semanticCacheLookup = new SemanticCacheLookup();
     private TransactionService transactionService;
     private EventDistributor eventDistributor;
     
@@ -271,6 +272,7 @@ public class DQPCore implements DQP {
             	req.setSessionId(holder.requestID.getConnectionID());
             	req.setCommand(holder.requestMsg.getCommandString());
             	req.setStartTime(holder.getProcessingTimestamp());
+            	req.setPlanningTime(holder.getPlanningTime());
             	req.setState(holder.isCanceled()?ProcessingState.CANCELED:holder.isDoneProcessing()?ProcessingState.DONE:ProcessingState.PROCESSING);
             	switch (holder.getThreadState()) {
             	case DONE:
@@ -329,6 +331,10 @@ public class DQPCore implements DQP {
 		Request request = null;
 	    if ( requestMsg.isPreparedStatement() || requestMsg.isCallableStatement()) {
 	    	request = new PreparedStatementRequest(prepPlanCache);
+	    } else if (options != null && options.isAutoParameterize() && !requestMsg.isBatchedUpdate() && requestMsg.getCommand() == null) {
+	    	PreparedStatementRequest psr = new PreparedStatementRequest(prepPlanCache);
+	    	psr.setAutoParameterize(true);
+	    	request = psr;
 	    } else {
 	    	request = new Request();
 	    }
@@ -648,6 +654,14 @@ public class DQPCore implements DQP {
 		return rsCache;
 	}
 	
+	SemanticCacheLookup getSemanticCacheLookup() {
+		return semanticCacheLookup;
+	}
+	
+	Options getOptions() {
+		return options;
+	}
+	
 	int getProcessorTimeSlice() {
 		return this.config.getTimeSliceInMilli();
 	}	
@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.WeakHashMap;
 
 import org.teiid.adminapi.impl.ModelMetaData;
 import org.teiid.adminapi.impl.VDBMetaData;
@@ -54,6 +55,7 @@ import org.teiid.core.types.BlobType;
 import org.teiid.core.types.ClobImpl;
 import org.teiid.core.types.ClobType;
 import org.teiid.core.types.SQLXMLImpl;
+import org.teiid.core.types.TransformationException;
 import org.teiid.core.types.XMLType;
 import org.teiid.core.util.Assertion;
 import org.teiid.core.util.ObjectConverterUtil;
@@ -94,12 +96,15 @@ import org.teiid.query.sql.lang.UnaryFromClause;
 import org.teiid.query.sql.navigator.PreOrPostOrderNavigator;
 import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.sql.visitor.GroupCollectorVisitor;
 import org.teiid.query.tempdata.BaseIndexInfo;
 import org.teiid.query.tempdata.GlobalTableStore;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 import org.teiid.translator.CacheDirective;
 import org.teiid.translator.CacheDirective.Scope;
 import org.teiid.translator.TranslatorException;
@@ -168,6 +173,9 @@ public class DataTierManagerImpl implements ProcessorDataManager {
     private EventDistributor eventDistributor;
     private boolean detectChangeEvents;
     
+    private SharedSourceQueries sharedSourceQueries;
+    private Map<Table, Long> statisticsCollectionTimes = new WeakHashMap<Table, Long>();
+    
     private Map<SystemTables, BaseExtractionTable<?>> systemTables = new HashMap<SystemTables, BaseExtractionTable<?>>();
     private Map<SystemAdminTables, BaseExtractionTable<?>> systemAdminTables = new HashMap<SystemAdminTables, BaseExtractionTable<?>>();
     
@@ -177,6 +185,7 @@ public class DataTierManagerImpl implements ProcessorDataManager {
 		this.requestMgr = requestMgr;
         this.bufferManager = bufferMgr;
         this.detectChangeEvents = detectChangeEvents;
+        this.sharedSourceQueries = new SharedSourceQueries(bufferMgr);
         MetadataStore ms = SystemMetadata.getInstance().getSystemStore();
         TransformationMetadata tm = new TransformationMetadata(null, new CompositeMetadataStore(ms), null, null, null);
         String name = SystemTables.SCHEMAS.name();
@@ -660,6 +669,28 @@ public class DataTierManagerImpl implements ProcessorDataManager {
 				context.accessedDataObject(gs.getMetadataID());
 			}
 		}
+		if (context.getOptions().isSharedSourceQueries()) {
+			CacheID sharedId = sharedSourceQueries.getSharedId(workItem, aqr, parameterObject);
+			if (sharedId != null) {
+				final RequestWorkItem item = workItem;
+				final AtomicRequestMessage request = aqr;
+				final Collection<GroupSymbol> groups = accessedGroups;
+				return sharedSourceQueries.getSharedTupleSource(sharedId, command, workItem, new SharedSourceQueries.SourceFactory() {
+					@Override
+					public TupleSource createSource() throws TeiidComponentException,
+							TeiidProcessingException {
+						return registerRequest(item, request, parameterObject, groups);
+					}
+				}, context.getOptions().getSharedSourceQueryMaxWait());
+			}
+		}
+		return registerRequest(workItem, aqr, parameterObject, accessedGroups);
+	}
+
+	private TupleSource registerRequest(RequestWorkItem workItem, AtomicRequestMessage aqr, 
+			final RegisterRequestParameter parameterObject, Collection<GroupSymbol> accessedGroups)
+			throws TeiidComponentException, TeiidProcessingException {
+		Command command = aqr.getCommand();
 		ConnectorManagerRepository cmr = workItem.getDqpWorkContext().getVDB().getAttachment(ConnectorManagerRepository.class);
 		ConnectorManager connectorManager = cmr.getConnectorManager(aqr.getConnectorName());
 		ConnectorWork work = connectorManager.registerRequest(aqr);
@@ -703,6 +734,13 @@ public class DataTierManagerImpl implements ProcessorDataManager {
 		}
 		work.setRequestWorkItem(workItem);
 		DataTierTupleSource dtts = new DataTierTupleSource(aqr, workItem, work, this, parameterObject.limit);
+		Options options = aqr.getCommandContext().getOptions();
+		if (options.isCollectSourceStatistics()) {
+			TableStatisticsCollector collector = getStatisticsCollector(command, parameterObject);
+			if (collector != null && reserveStatisticsCollection(collector.getTable(), options.getCollectSourceStatisticsInterval())) {
+				dtts.setStatisticsCollector(collector);
+			}
+		}
         if (cid != null) {
         	TupleBuffer tb = getBufferManager().createTupleBuffer(aqr.getCommand().getProjectedSymbols(), aqr.getCommandContext().getConnectionId(), TupleSourceType.PROCESSOR);
         	return new CachingTupleSource(this, tb, dtts, cid, parameterObject, cd, accessedGroups);
@@ -830,26 +868,14 @@ public class DataTierManagerImpl implements ProcessorDataManager {
 				columnStats.setNullValues(nullVals);
 				columnStats.setMaximumValue(max);
 				columnStats.setMinimumValue(min);
-				if (getMetadataRepository(table, vdb) != null) {
-					getMetadataRepository(table, vdb).setColumnStats(vdbName, vdbVersion, c, columnStats);
-				}
-				c.setColumnStats(columnStats);
-				if (eventDistributor != null) {
-					eventDistributor.setColumnStats(vdbName, vdbVersion, table.getParent().getName(), table.getName(), columnName, columnStats);
-				}
+				setColumnStats(vdb, table, c, columnStats);
 				break;
 			case SETTABLESTATS:
 				Constant val = (Constant)proc.getParameter(2).getExpression();
 				int cardinality = (Integer)val.getValue();
 				TableStats tableStats = new TableStats();
 				tableStats.setCardinality(cardinality);
-				if (getMetadataRepository(table, vdb) != null) {
-					getMetadataRepository(table, vdb).setTableStats(vdbName, vdbVersion, table, tableStats);
-				}
-				table.setCardinality(cardinality);
-				if (eventDistributor != null) {
-					eventDistributor.setTableStats(vdbName, vdbVersion, table.getParent().getName(), table.getName(), tableStats);
-				}
+				setTableStats(vdb, table, tableStats);
 				break;
 			}
 			table.setLastModified(System.currentTimeMillis());
@@ -872,6 +898,93 @@ public class DataTierManagerImpl implements ProcessorDataManager {
 		return new CollectionTupleSource(rows.iterator());
 	}
 	
+	private void setColumnStats(VDBMetaData vdb, Table table, Column c, ColumnStats columnStats) {
+		if (getMetadataRepository(table, vdb) != null) {
+			getMetadataRepository(table, vdb).setColumnStats(vdb.getName(), vdb.getVersion(), c, columnStats);
+		}
+		c.setColumnStats(columnStats);
+		if (eventDistributor != null) {
+			eventDistributor.setColumnStats(vdb.getName(), vdb.getVersion(), table.getParent().getName(), table.getName(), c.getName(), columnStats);
+		}
+	}
+
+	private void setTableStats(VDBMetaData vdb, Table table, TableStats tableStats) {
+		if (getMetadataRepository(table, vdb) != null) {
+			getMetadataRepository(table, vdb).setTableStats(vdb.getName(), vdb.getVersion(), table, tableStats);
+		}
+		table.setCardinality(tableStats.getCardinality());
+		if (eventDistributor != null) {
+			eventDistributor.setTableStats(vdb.getName(), vdb.getVersion(), table.getParent().getName(), table.getName(), tableStats);
+		}
+	}
+	
+	/**
+	 * Statistics are only collected from unfiltered scans of a single physical table 
+	 * that will be fully read.
+	 */
+	static TableStatisticsCollector getStatisticsCollector(Command command, RegisterRequestParameter parameterObject) {
+		if (!(command instanceof Query) || parameterObject.limit > 0 || parameterObject.connectorBindingId != null) {
+			return null;
+		}
+		Query query = (Query)command;
+		if (query.getFrom() == null || query.getFrom().getClauses().size() != 1 
+				|| !(query.getFrom().getClauses().get(0) instanceof UnaryFromClause)
+				|| query.getCriteria() != null || query.getGroupBy() != null || query.getHaving() != null 
+				|| query.getLimit() != null || query.getSelect().isDistinct()) {
+			return null;
+		}
+		GroupSymbol group = ((UnaryFromClause)query.getFrom().getClauses().get(0)).getGroup();
+		if (!(group.getMetadataID() instanceof Table)) {
+			return null;
+		}
+		List<Column> columns = new ArrayList<Column>();
+		for (Expression ex : query.getProjectedSymbols()) {
+			ex = SymbolMap.getExpression(ex);
+			if (!(ex instanceof ElementSymbol) || !(((ElementSymbol)ex).getMetadataID() instanceof Column)) {
+				return null;
+			}
+			columns.add((Column)((ElementSymbol)ex).getMetadataID());
+		}
+		return new TableStatisticsCollector((Table)group.getMetadataID(), columns);
+	}
+	
+	/**
+	 * Statistics for a given table are collected at most once per interval, 
+	 * which is measured from the start of the previous collection.
+	 * @return true if the statistics should be collected
+	 */
+	boolean reserveStatisticsCollection(Table table, long interval) {
+		long now = System.currentTimeMillis();
+		synchronized (statisticsCollectionTimes) {
+			Long last = statisticsCollectionTimes.get(table);
+			if (last != null && now - last < interval) {
+				return false;
+			}
+			statisticsCollectionTimes.put(table, now);
+			return true;
+		}
+	}
+	
+	/**
+	 * Update the table and column stats from a completed scan
+	 */
+	void updateStatistics(VDBMetaData vdb, TableStatisticsCollector collector) {
+		Table table = collector.getTable();
+		List<ColumnStats> columnStats = null;
+		try {
+			columnStats = collector.getColumnStats();
+		} catch (TransformationException e) {
+			LogManager.logDetail(LogConstants.CTX_DQP, e, "Could not collect the column statistics for", table.getFullName()); //$NON-NLS-1$
+			return;
+		}
+		LogManager.logDetail(LogConstants.CTX_DQP, "Updating statistics for", table.getFullName(), "from a scan of", collector.getRowCount(), "rows"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		setTableStats(vdb, table, collector.getTableStats());
+		for (int i = 0; i < columnStats.size(); i++) {
+			setColumnStats(vdb, table, collector.getColumns().get(i), columnStats.get(i));
+		}
+		table.setLastModified(System.currentTimeMillis());
+	}
+	
 	public MetadataRepository getMetadataRepository(AbstractMetadataRecord target, VDBMetaData vdb) {
 		String modelName = null;
 		while (target.getParent() != null) {
@@ -30,8 +30,10 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.activation.DataSource;
 import javax.xml.stream.XMLStreamException;
@@ -42,6 +44,7 @@ import javax.xml.transform.stream.StreamSource;
 import org.teiid.client.SourceWarning;
 import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.BufferReserveMode;
 import org.teiid.common.buffer.FileStore;
 import org.teiid.common.buffer.FileStoreInputStreamFactory;
 import org.teiid.common.buffer.TupleSource;
@@ -75,6 +78,7 @@ import org.teiid.query.sql.lang.Command;
 import org.teiid.query.sql.lang.ProcedureContainer;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.util.CommandContext.BlockedCondition;
 import org.teiid.translator.CacheDirective.Scope;
 import org.teiid.translator.DataNotAvailableException;
 import org.teiid.translator.TranslatorException;
@@ -89,9 +93,9 @@ import org.teiid.util.XMLInputStream;
  * In the multi-threaded case we'd like to not even
  * notify the parent plan and just schedule the next poll. 
  */
-public class DataTierTupleSource implements TupleSource, CompletionListener<AtomicResultsMessage> {
+public class DataTierTupleSource implements TupleSource, CompletionListener<AtomicResultsMessage>, BlockedCondition {
 	
-	private static final class MoreWorkTask implements Runnable {
+	static final class MoreWorkTask implements Runnable {
 
 		WeakReference<RequestWorkItem> ref;
 
@@ -143,6 +147,16 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
 	
 	private long waitUntil;
 	private ScheduledFuture<?> scheduledFuture;
+	
+	//prefetch state
+	private int prefetchBatches;
+	private ConcurrentLinkedQueue<AtomicResultsMessage> prefetched = new ConcurrentLinkedQueue<AtomicResultsMessage>();
+	private AtomicInteger prefetchReserved = new AtomicInteger();
+	private int prefetchSchemaSize;
+	private int prefetchRows;
+	private int prefetchLimit;
+	
+	private TableStatisticsCollector statisticsCollector;
     
     public DataTierTupleSource(AtomicRequestMessage aqr, RequestWorkItem workItem, ConnectorWork cwi, DataTierManagerImpl dtm, int limit) {
         this.aqr = aqr;
@@ -163,6 +177,10 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
 			this.isLob[i] = DataTypeManager.isLOB(this.schema[i]);
 		}
         
+        if (aqr.getCommandContext() != null) {
+        	this.prefetchBatches = aqr.getCommandContext().getOptions().getSourcePrefetchBatches();
+        }
+        this.prefetchLimit = limit;
     	Assertion.isNull(workItem.getConnectorRequest(aqr.getAtomicRequestID()));
         workItem.addConnectorRequest(aqr.getAtomicRequestID(), this);
         if (!aqr.isSerial()) {
@@ -170,15 +188,82 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
         }
     }
 
+	void setStatisticsCollector(TableStatisticsCollector statisticsCollector) {
+		this.statisticsCollector = statisticsCollector;
+	}
+
 	private void addWork() {
 		this.canAsynchClose = true;
 		futureResult = workItem.addWork(new Callable<AtomicResultsMessage>() {
 			@Override
 			public AtomicResultsMessage call() throws Exception {
-				return getResults();
+				AtomicResultsMessage results = getResults();
+				//keep the source busy while the engine processes
+				while (results != null && results.getFinalRow() < 0 && reservePrefetch(results)) {
+					prefetched.add(results);
+					workItem.moreWork();
+					results = getResults();
+				}
+				return results;
 			}
 		}, this, 100);
 	}
+	
+	/**
+	 * Determine if another batch should be fetched ahead of the processor.  
+	 * Each queued batch holds a buffer reservation until it is consumed.
+	 */
+	private boolean reservePrefetch(AtomicResultsMessage results) {
+		if (cancelAsynch || prefetched.size() + 1 >= prefetchBatches) {
+			return false;
+		}
+		prefetchRows += results.getResults().length;
+		if (prefetchLimit >= 0 && prefetchRows >= prefetchLimit) {
+			return false;
+		}
+		BufferManager bm = dtm.getBufferManager();
+		if (prefetchSchemaSize == 0) {
+			prefetchSchemaSize = Math.max(1, bm.getSchemaSize(this.aqr.getCommand().getProjectedSymbols()));
+		}
+		int reserved = bm.reserveBuffers(prefetchSchemaSize, BufferReserveMode.NO_WAIT);
+		if (reserved < prefetchSchemaSize) {
+			bm.releaseBuffers(reserved);
+			return false;
+		}
+		prefetchReserved.addAndGet(reserved);
+		if (cancelAsynch) {
+			releasePrefetch(reserved);
+			return false;
+		}
+		return true;
+	}
+	
+	private AtomicResultsMessage pollPrefetched() {
+		AtomicResultsMessage results = prefetched.poll();
+		if (results != null) {
+			releasePrefetch(prefetchSchemaSize);
+		}
+		return results;
+	}
+
+	private void releasePrefetch(int count) {
+		while (true) {
+			int current = prefetchReserved.get();
+			int toRelease = Math.min(count, current);
+			if (toRelease <= 0) {
+				return;
+			}
+			if (prefetchReserved.compareAndSet(current, current - toRelease)) {
+				dtm.getBufferManager().releaseBuffers(toRelease);
+				return;
+			}
+		}
+	}
+	
+	private void clearPrefetched() {
+		prefetched.clear();
+		releasePrefetch(Integer.MAX_VALUE);
+	}
 
 	private List<?> correctTypes(List<Object> row) throws TransformationException, TeiidComponentException {
 		//TODO: add a proper intermediate schema
@@ -338,13 +423,22 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
 	    	if (index < arm.getResults().length) {
 	    		if (limit-- == 0) {
 	    			this.done = true;
+	    			this.statisticsCollector = null;
 	    			arm = null;
 	    			return null;
 	    		}
-	            return correctTypes(this.arm.getResults()[index++]);
+	            List<?> tuple = correctTypes(this.arm.getResults()[index++]);
+	            if (statisticsCollector != null) {
+	            	statisticsCollector.addTuple(tuple);
+	            }
+	            return tuple;
 	        }
 	    	arm = null;
 	    	if (isDone()) {
+	    		if (statisticsCollector != null && !errored && !canceled) {
+	    			dtm.updateStatistics(workItem.getDqpWorkContext().getVDB(), statisticsCollector);
+	    		}
+	    		statisticsCollector = null;
 	    		return null;
 	    	}
     	}
@@ -417,12 +511,24 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
 	private AtomicResultsMessage asynchGet()
 			throws BlockedException, TeiidProcessingException,
 			TeiidComponentException, TranslatorException {
+		AtomicResultsMessage prefetchedResults = pollPrefetched();
+		if (prefetchedResults != null) {
+			return prefetchedResults;
+		}
 		if (futureResult == null) {
 			addWork();
 		}
 		if (!futureResult.isDone()) {
+			if (aqr.getCommandContext() != null) {
+				aqr.getCommandContext().addBlockedCondition(this);
+			}
 			throw BlockedException.block(aqr.getAtomicRequestID(), "Blocking on source query", aqr.getAtomicRequestID()); //$NON-NLS-1$
 		}
+		//the prefetched results precede the result of the future 
+		prefetchedResults = pollPrefetched();
+		if (prefetchedResults != null) {
+			return prefetchedResults;
+		}
 		FutureWork<AtomicResultsMessage> currentResults = futureResult;
 		futureResult = null;
 		AtomicResultsMessage results = null;
@@ -483,6 +589,7 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
     
     public void fullyCloseSource() {
 		cancelAsynch = true;
+		clearPrefetched();
     	if (closed.compareAndSet(false, true)) {
 	    	workItem.closeAtomicRequest(this.aqr.getAtomicRequestID());
 	    	if (aqr.isSerial()) {
@@ -517,6 +624,7 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
     	lobBuffer = null;
     	lobStore = null; //can still be referenced by lobs and will be cleaned-up by reference
     	cancelAsynch = true;
+    	clearPrefetched();
     	if (!explicitClose) {
         	fullyCloseSource();
     	}
@@ -578,6 +686,15 @@ public class DataTierTupleSource implements TupleSource, CompletionListener<Atom
 		return this.aqr.isTransactional();
 	}
 
+	/**
+	 * Ready for another pass of processing if there are results or the asynch work is no longer pending
+	 */
+	@Override
+	public boolean isReady() {
+		FutureWork<AtomicResultsMessage> current = futureResult;
+		return current == null || current.isDone() || cancelAsynch || !prefetched.isEmpty();
+	}
+	
 	@Override
 	public void onCompletion(FutureWork<AtomicResultsMessage> future) {
 		if (!cancelAsynch) {
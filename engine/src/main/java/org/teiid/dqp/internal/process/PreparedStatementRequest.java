@@ -23,12 +23,16 @@
 package org.teiid.dqp.internal.process;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.teiid.api.exception.query.ExpressionEvaluationException;
 import org.teiid.api.exception.query.QueryMetadataException;
+import org.teiid.api.exception.query.QueryParserException;
 import org.teiid.api.exception.query.QueryPlannerException;
 import org.teiid.api.exception.query.QueryResolverException;
 import org.teiid.api.exception.query.QueryValidatorException;
@@ -57,6 +61,8 @@ import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.Reference;
 import org.teiid.query.sql.util.VariableContext;
+import org.teiid.query.sql.visitor.ParameterizeLiteralsVisitor;
+import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
 import org.teiid.query.util.CommandContext;
 
 
@@ -66,14 +72,39 @@ import org.teiid.query.util.CommandContext;
 public class PreparedStatementRequest extends Request {
     private SessionAwareCache<PreparedPlan> prepPlanCache;
     private PreparedPlan prepPlan;
+    private boolean autoParameterize;
+    private Command parameterizedCommand;
     
     public PreparedStatementRequest(SessionAwareCache<PreparedPlan> prepPlanCache) {
     	this.prepPlanCache = prepPlanCache;
     }
     
+    /**
+     * Treat the request as a statement, rather than a prepared statement, and 
+     * replace the literal predicate values with references so that the plan may be
+     * cached and reused for other values.
+     */
+    public void setAutoParameterize(boolean autoParameterize) {
+		this.autoParameterize = autoParameterize;
+	}
+    
+    @Override
+    protected Command parseCommand() throws QueryParserException {
+    	if (parameterizedCommand != null) {
+    		Command result = parameterizedCommand;
+    		parameterizedCommand = null;
+    		return result;
+    	}
+    	return super.parseCommand();
+    }
+    
     @Override
     protected void checkReferences(List<Reference> references)
     		throws QueryValidatorException {
+    	if (prepPlan == null) {
+    		super.checkReferences(references);
+    		return;
+    	}
     	for (Iterator<Reference> i = references.iterator(); i.hasNext();) {
     		if (i.next().isOptional()) {
     			i.remove(); //remove any optional parameter, which accounts for out params - the client does not send any bindings
@@ -82,6 +113,42 @@ public class PreparedStatementRequest extends Request {
         prepPlan.setReferences(references);
     }
     
+    /**
+     * The key is the parameterized command and the literal types
+     */
+    private static String getAutoParameterizedKey(Command command, List<Constant> literals) {
+    	List<String> types = new ArrayList<String>(literals.size());
+    	for (Constant constant : literals) {
+			types.add(DataTypeManager.getDataTypeName(constant.getType()));
+		}
+    	return command.toString() + " " + types; //$NON-NLS-1$
+    }
+    
+    /**
+     * A literal is only parameterized if its reference resolves to the same type, otherwise the 
+     * literal is left inline so that the command resolves as it would have without references.
+     * @return the command with the converted literals left inline, or the same command if there were none 
+     */
+    private Command inlineConvertedLiterals(Command command, List<Constant> literals) throws QueryParserException, QueryResolverException, TeiidComponentException {
+    	Set<Integer> inline = new HashSet<Integer>();
+    	while (true) {
+	    	Command copy = (Command)command.clone();
+	    	resolveCommand(copy);
+	    	boolean converted = false;
+	    	for (Reference reference : ReferenceCollectorVisitor.getReferences(copy)) {
+	    		if (reference.getType() != literals.get(reference.getIndex()).getType()) {
+	    			converted |= inline.add(reference.getIndex());
+	    		}
+	    	}
+	    	if (!converted) {
+	    		return command;
+	    	}
+	    	//inlining a literal may change the type of the other references, so resolve again
+	    	command = super.parseCommand();
+	    	ParameterizeLiteralsVisitor.parameterize(command, inline);
+    	}
+    }
+    
     /** 
      * @throws TeiidComponentException 
      * @throws TeiidProcessingException 
@@ -90,9 +157,36 @@ public class PreparedStatementRequest extends Request {
 	@Override
     protected void generatePlan(boolean addLimit) throws TeiidComponentException, TeiidProcessingException {
     	String sqlQuery = requestMsg.getCommands()[0];
+    	List<?> values = requestMsg.getParameterValues();
+    	List<Constant> literals = null;
+    	if (autoParameterize) {
+    		Command command = super.parseCommand();
+    		literals = ParameterizeLiteralsVisitor.parameterize(command, Collections.<Integer>emptySet());
+    		this.parameterizedCommand = command;
+    		if (literals == null) {
+    			super.generatePlan(addLimit);
+    			return;
+    		}
+    		sqlQuery = getAutoParameterizedKey(command, literals);
+    	}
     	CacheID id = new CacheID(this.workContext, Request.createParseInfo(this.requestMsg), sqlQuery);
         prepPlan = prepPlanCache.get(id);
         
+        if (prepPlan == null && literals != null) {
+        	//the key includes the literal types, so a cached plan will already have references of the same types
+        	Command command = inlineConvertedLiterals(this.parameterizedCommand, literals);
+        	if (command != this.parameterizedCommand) {
+        		this.parameterizedCommand = command;
+        		if (ReferenceCollectorVisitor.getReferences(command).isEmpty()) {
+        			super.generatePlan(addLimit);
+        			return;
+        		}
+        		sqlQuery = getAutoParameterizedKey(command, literals);
+        		id = new CacheID(this.workContext, Request.createParseInfo(this.requestMsg), sqlQuery);
+        		prepPlan = prepPlanCache.get(id);
+        	}
+        }
+        
         if (prepPlan != null) {
         	//already in cache. obtain the values from cache
             analysisRecord = prepPlan.getAnalysisRecord();
@@ -113,6 +207,7 @@ public class PreparedStatementRequest extends Request {
             prepPlan = new PreparedPlan();
             LogManager.logTrace(LogConstants.CTX_DQP, new Object[] { "Query does not exist in cache: ", sqlQuery}); //$NON-NLS-1$
             super.generatePlan(false);
+            this.parameterizedCommand = null;
         	prepPlan.setCommand(this.userCommand);
         	
         	//there's no need to cache the plan if it's a stored procedure, since we already do that in the optimizer
@@ -137,7 +232,13 @@ public class PreparedStatementRequest extends Request {
 	        handlePreparedBatchUpdate();
         } else {
 	        List<Reference> params = prepPlan.getReferences();
-	        List<?> values = requestMsg.getParameterValues();
+	        if (literals != null) {
+	        	List<Object> literalValues = new ArrayList<Object>(params.size());
+	        	for (Reference reference : params) {
+					literalValues.add(literals.get(reference.getIndex()).getValue());
+				}
+	        	values = literalValues;
+	        }
 	
 	    	PreparedStatementRequest.resolveParameterValues(params, values, this.context, this.metadata);
         }
@@ -35,6 +35,8 @@ import org.teiid.api.exception.query.QueryValidatorException;
 import org.teiid.client.RequestMessage;
 import org.teiid.client.RequestMessage.ResultsMode;
 import org.teiid.client.RequestMessage.ShowPlan;
+import org.teiid.client.plan.Annotation;
+import org.teiid.client.plan.Annotation.Priority;
 import org.teiid.client.xa.XATransactionException;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.core.TeiidComponentException;
@@ -113,6 +115,7 @@ public class Request implements SecurityFunctionEvaluator {
 
     // internal results
     protected boolean addedLimit;
+    protected long planningTime;
     protected ProcessorPlan processPlan;
     // external results
     protected AnalysisRecord analysisRecord;
@@ -284,7 +287,7 @@ public class Request implements SecurityFunctionEvaluator {
         validateWithVisitor(visitor, metadata, command);
     }
     
-    private Command parseCommand() throws QueryParserException {
+    protected Command parseCommand() throws QueryParserException {
     	if (requestMsg.getCommand() != null) {
     		return (Command)requestMsg.getCommand();
     	}
@@ -420,10 +423,25 @@ public class Request implements SecurityFunctionEvaluator {
 			analysisRecord.println("\n============================================================================"); //$NON-NLS-1$
             analysisRecord.println("USER COMMAND:\n" + command);		 //$NON-NLS-1$
         }
+        int budget = this.context.getOptions().getPlanningTimeBudget();
+        if (budget > 0) {
+        	this.context.setPlanningEnd(System.currentTimeMillis() + budget);
+        }
         // Run the optimizer
         try {
             processPlan = QueryOptimizer.optimizePlan(command, metadata, idGenerator, capabilitiesFinder, analysisRecord, context);
         } finally {
+        	if (budget > 0 && this.context.isPlanningTimeExceeded()) {
+        		LogManager.logDetail(LogConstants.CTX_QUERY_PLANNER, requestId, "Planning time budget of", budget, "ms was exceeded, cheaper join ordering and dependent join heuristics were used"); //$NON-NLS-1$ //$NON-NLS-2$
+        		if (analysisRecord.recordAnnotations()) {
+        			analysisRecord.addAnnotation(Annotation.RELATIONAL_PLANNER, "Planning time budget of " + budget + " ms was exceeded", "Cheaper join ordering and dependent join heuristics were used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        		}
+        	}
+        	this.context.setPlanningEnd(Long.MAX_VALUE);
+        	String ruleProfile = analysisRecord.getRuleProfileSummary();
+        	if (ruleProfile != null) {
+        		analysisRecord.addAnnotation(Annotation.RELATIONAL_PLANNER, "Planner rule profile: " + ruleProfile, null, Priority.LOW); //$NON-NLS-1$
+        	}
             String debugLog = analysisRecord.getDebugLog();
             if(debugLog != null && debugLog.length() > 0) {
                 LogManager.log(requestMsg.getShowPlan()==ShowPlan.DEBUG?MessageLevel.INFO:MessageLevel.TRACE, LogConstants.CTX_QUERY_PLANNER, debugLog);               
@@ -449,7 +467,12 @@ public class Request implements SecurityFunctionEvaluator {
     	
         initMetadata();
         
-        generatePlan(true);
+        long start = System.currentTimeMillis();
+        try {
+        	generatePlan(true);
+        } finally {
+        	this.planningTime = System.currentTimeMillis() - start;
+        }
         
         postProcessXML();
         
@@ -34,6 +34,8 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledFuture;
 
+import org.teiid.api.exception.query.QueryParserException;
+import org.teiid.api.exception.query.QueryResolverException;
 import org.teiid.client.RequestMessage;
 import org.teiid.client.RequestMessage.ShowPlan;
 import org.teiid.client.ResultsMessage;
@@ -73,14 +75,17 @@ import org.teiid.query.parser.ParseInfo;
 import org.teiid.query.parser.QueryParser;
 import org.teiid.query.processor.BatchCollector;
 import org.teiid.query.processor.QueryProcessor;
+import org.teiid.query.resolver.QueryResolver;
 import org.teiid.query.sql.lang.CacheHint;
 import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.SPParameter;
 import org.teiid.query.sql.lang.StoredProcedure;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.Symbol;
 import org.teiid.query.util.CommandContext;
 import org.teiid.query.util.GeneratedKeysImpl;
+import org.teiid.vdb.runtime.VDBKey;
 
 public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunnable {
 	
@@ -156,6 +161,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
     private TransactionContext transactionContext;
     TupleBuffer resultsBuffer;
     private boolean returnsUpdateCount;
+    private boolean derivedResults;
+    private int blockedPassesSkipped;
+    private long planningTime = -1;
     
     /*
      * maintained during processing
@@ -397,7 +405,26 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 			}
 			this.processor.getContext().setTimeSliceEnd(System.currentTimeMillis() + this.processorTimeslice);
 			sendResultsIfNeeded(null);
-			this.resultsBuffer = collector.collectTuples();
+			CommandContext context = this.processor.getContext();
+			if (!isCanceled() && context.isBlockedOnConditions()) {
+				//nothing that we blocked on is ready, so don't bother walking the plan again
+				this.blockedPassesSkipped++;
+				throw BlockedException.block(requestID, "Blocked sources are not ready"); //$NON-NLS-1$
+			}
+			context.clearBlockedConditions();
+			int blockCount = BlockedException.getBlockCount();
+			boolean blockedOnConditions = false;
+			try {
+				this.resultsBuffer = collector.collectTuples();
+			} catch (BlockedException e) {
+				blockedOnConditions = BlockedException.getBlockCount() - blockCount == context.getBlockedConditionCount();
+				throw e;
+			} finally {
+				if (!blockedOnConditions) {
+					//something else blocked or interrupted processing, so we have to walk the plan on the next pass
+					context.clearBlockedConditions();
+				}
+			}
 			if (!doneProducingBatches) {
 				done();
 			}
@@ -438,6 +465,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 				
 					if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
 				        LogManager.logDetail(LogConstants.CTX_DQP, "Removing tuplesource for the request " + requestID); //$NON-NLS-1$
+				        LogManager.logDetail(LogConstants.CTX_DQP, "Request", requestID, "blocked by node type", this.processor.getContext().getBlockedCounts(), "skipped processing passes", this.blockedPassesSkipped); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 				    }
 					rowcount = resultsBuffer.getRowCount();
 					if (this.cid == null || !this.doneProducingBatches) {
@@ -456,6 +484,8 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 					
 					CommandContext cc = this.processor.getContext();
 					cc.close();
+				} else if (this.derivedResults) {
+					resultsBuffer.remove();
 				}
 	
 				this.resultsBuffer = null;
@@ -548,7 +578,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 							return;
 						}
 						LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Cached result command to be modified, will not use the cached results", cacheId); //$NON-NLS-1$
-					} 
+					} else if (cr == null && useSubsumingCachedResults(rsCache, pi)) {
+						return;
+					}
 				} else {
 					LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Parameters are not serializable - cache cannot be used for", cacheId); //$NON-NLS-1$
 				}
@@ -558,6 +590,7 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 			request.processRequest();
 		} finally {
 			analysisRecord = request.analysisRecord;
+			planningTime = request.planningTime;
 		}
 		originalCommand = request.userCommand;
         if (cachable && (requestMsg.useResultSetCache() || originalCommand.getCacheHint() != null) && rsCache != null && originalCommand.areResultsCachable()) {
@@ -616,6 +649,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 			//TODO: this is based upon continuous being an embedded connection otherwise we have to do something like
 			//forcing inlining, but truncating or erroring over a given size (similar to odbc handling)
 			resultsBuffer.removeLobTracking();
+		} else if (this.cid != null && originalCommand instanceof Query && SemanticCacheLookup.isEligible((Query)originalCommand)) {
+			//allow subsumed lookups against the cached results to skip batches
+			resultsBuffer.setZoneMaps(true);
 		}
 		initTransactionState(request.transactionContext);
 		if (requestMsg.isNoExec()) {
@@ -640,6 +676,45 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		}
 	}
 
+	/**
+	 * Attempt to answer the request from a cached result that subsumes it.
+	 * @return true if the results have been produced
+	 */
+	private boolean useSubsumingCachedResults(SessionAwareCache<CachedResults> rsCache, ParseInfo pi) throws TeiidComponentException, TeiidProcessingException {
+		if (!dqpCore.getOptions().isSubsumptionCacheLookup() 
+				|| (requestMsg.getParameterValues() != null && !requestMsg.getParameterValues().isEmpty())) {
+			return false;
+		}
+		SemanticCacheLookup lookup = dqpCore.getSemanticCacheLookup();
+		if (!lookup.hasCandidates(new VDBKey(this.dqpWorkContext.getVdbName(), this.dqpWorkContext.getVdbVersion()), pi)) {
+			return false;
+		}
+		request.initMetadata();
+		Command command = null;
+		try {
+			command = QueryParser.getQueryParser().parseCommand(requestMsg.getCommandString(), pi);
+			QueryResolver.resolveCommand(command, request.metadata);
+		} catch (QueryParserException e) {
+			return false; //let normal processing report the error
+		} catch (QueryResolverException e) {
+			return false;
+		}
+		TupleBuffer results = lookup.lookup(rsCache, this.dqpWorkContext, pi, command, request.metadata, dqpCore.getBufferManager(), requestMsg.getRowLimit());
+		if (results == null) {
+			return false;
+		}
+		if (request.validateAccess(requestMsg.getCommands(), command, CommandType.CACHED)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, requestID, "Cached result command to be modified, will not use the subsuming cached results"); //$NON-NLS-1$
+			results.remove();
+			return false;
+		}
+		this.resultsBuffer = results;
+		this.derivedResults = true;
+		this.originalCommand = command;
+		doneProducingBatches();
+		return true;
+	}
+	
 	private CacheHint getCacheHint() {
 		if (requestMsg.getCommand() != null) {
 			return ((Command)requestMsg.getCommand()).getCacheHint();
@@ -676,6 +751,9 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 			LogManager.logInfo(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30008, originalCommand));
 		}
         dqpCore.getRsCache().put(cid, determinismLevel, cr, originalCommand.getCacheHint() != null?originalCommand.getCacheHint().getTtl():null);
+        if (dqpCore.getOptions().isSubsumptionCacheLookup() && (requestMsg.getParameterValues() == null || requestMsg.getParameterValues().isEmpty())) {
+        	dqpCore.getSemanticCacheLookup().register(cid.getVDBKey(), Request.createParseInfo(requestMsg), requestMsg.getCommandString(), originalCommand);
+        }
 	}
 	
 	public SessionAwareCache<CachedResults> getRsCache() {
@@ -1019,6 +1097,13 @@ public class RequestWorkItem extends AbstractWorkItem implements PrioritizedRunn
 		return processingTimestamp;
 	}
 	
+	/**
+	 * @return the time in milliseconds spent planning the request, or -1 if not yet planned
+	 */
+	public long getPlanningTime() {
+		return planningTime;
+	}
+	
 	@Override
 	public void release() {
 		try {
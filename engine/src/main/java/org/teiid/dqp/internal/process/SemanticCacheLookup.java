@@ -0,0 +1,415 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.common.buffer.ZoneMap;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.EquivalenceUtil;
+import org.teiid.core.util.LRUCache;
+import org.teiid.dqp.internal.process.SessionAwareCache.CacheID;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.metadata.FunctionMethod.Determinism;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.function.aggregate.AggregateFunction;
+import org.teiid.query.function.aggregate.Max;
+import org.teiid.query.function.aggregate.Min;
+import org.teiid.query.function.aggregate.Sum;
+import org.teiid.query.metadata.QueryMetadataInterface;
+import org.teiid.query.parser.ParseInfo;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.FromClause;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.lang.UnaryFromClause;
+import org.teiid.query.sql.symbol.AggregateSymbol;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
+import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
+import org.teiid.query.util.CommandContext;
+import org.teiid.vdb.runtime.VDBKey;
+
+/**
+ * Answers result set cache misses from a cached result that subsumes the new query.
+ * <br>
+ * Only simple single group queries are considered.  A cached entry can answer a new query over the
+ * same group if the cached criteria are a subset of the new criteria and the remaining
+ * criteria and projection can be evaluated over the cached columns.  A cached grouping can
+ * additionally be rolled up to a coarser grouping for COUNT, SUM, MIN, and MAX.
+ * <br>
+ * The index only holds the cached sql strings - the entries are always retrieved through the
+ * result set cache so that eviction, invalidation, and the session/user scoping still apply.
+ */
+class SemanticCacheLookup {
+
+	private static final int MAX_GROUPS = 256;
+	private static final int MAX_ENTRIES_PER_GROUP = 16;
+
+	private LRUCache<String, LRUCache<String, Boolean>> index = new LRUCache<String, LRUCache<String, Boolean>>(MAX_GROUPS);
+
+	/**
+	 * Add the cached command to the index if it's of a shape that can be used for subsumption
+	 */
+	void register(VDBKey vdbKey, ParseInfo pi, String sql, Command command) {
+		if (!(command instanceof Query)) {
+			return;
+		}
+		Query query = (Query)command;
+		if (!isEligible(query)) {
+			return;
+		}
+		String key = getKey(vdbKey, pi, query);
+		synchronized (index) {
+			LRUCache<String, Boolean> entries = index.get(key);
+			if (entries == null) {
+				entries = new LRUCache<String, Boolean>(MAX_ENTRIES_PER_GROUP);
+				index.put(key, entries);
+			}
+			entries.put(sql, Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Quick check to avoid parsing the new command when nothing has been registered for the vdb
+	 */
+	boolean hasCandidates(VDBKey vdbKey, ParseInfo pi) {
+		String prefix = getPrefix(vdbKey, pi);
+		synchronized (index) {
+			for (String key : index.keySet()) {
+				if (key.startsWith(prefix)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Attempt to produce the results for the resolved command from a subsuming cache entry.
+	 * @return the results or null if no cache entry could be used
+	 */
+	TupleBuffer lookup(SessionAwareCache<CachedResults> rsCache, DQPWorkContext workContext, ParseInfo pi, Command command,
+			QueryMetadataInterface metadata, BufferManager bufferManager, int rowLimit) throws TeiidComponentException, TeiidProcessingException {
+		if (!(command instanceof Query)) {
+			return null;
+		}
+		Query query = (Query)command;
+		if (!isEligible(query) || query.getOrderBy() != null) {
+			return null;
+		}
+		List<String> candidates = null;
+		synchronized (index) {
+			LRUCache<String, Boolean> entries = index.get(getKey(new VDBKey(workContext.getVdbName(), workContext.getVdbVersion()), pi, query));
+			if (entries == null) {
+				return null;
+			}
+			candidates = new ArrayList<String>(entries.keySet());
+		}
+		for (String sql : candidates) {
+			CachedResults cr = rsCache.get(new CacheID(workContext, pi, sql));
+			//the entry is visible before its results are closed, don't block on a partial buffer
+			if (cr == null || cr.getRowLimit() != 0 || !cr.getResults().isFinal()) {
+				continue;
+			}
+			Command cachedCommand = cr.getCommand(sql, metadata, pi);
+			if (!(cachedCommand instanceof Query)) {
+				continue;
+			}
+			TupleBuffer result = deriveResults((Query)cachedCommand, query, cr.getResults(), bufferManager, workContext.getSessionId(), rowLimit);
+			if (result != null) {
+				LogManager.logDetail(LogConstants.CTX_DQP, "Answered", query, "from the subsuming cached results for", sql); //$NON-NLS-1$ //$NON-NLS-2$
+				return result;
+			}
+		}
+		return null;
+	}
+
+	static boolean isEligible(Query query) {
+		if (query.getFrom() == null || query.getFrom().getClauses().size() != 1
+				|| query.getInto() != null || query.getLimit() != null || query.getHaving() != null
+				|| query.getSelect().isDistinct() || query.getWith() != null || query.getIsXML()
+				|| query.getOption() != null) {
+			return false;
+		}
+		FromClause clause = query.getFrom().getClauses().get(0);
+		if (!(clause instanceof UnaryFromClause)) {
+			return false;
+		}
+		GroupSymbol group = ((UnaryFromClause)clause).getGroup();
+		if (group.isTempTable() || group.isProcedure()) {
+			return false;
+		}
+		return ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(query).isEmpty()
+			&& ReferenceCollectorVisitor.getReferences(query).isEmpty()
+			&& isDeterministic(query);
+	}
+	
+	/**
+	 * The residual criteria and projection are evaluated without the request context, 
+	 * so only fully deterministic functions are allowed - not user(), session_id(), hasRole(), etc.
+	 */
+	private static boolean isDeterministic(Query query) {
+		for (Function function : FunctionCollectorVisitor.getFunctions(query, true, false)) {
+			if (function.getFunctionDescriptor().getDeterministic() != Determinism.DETERMINISTIC) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String getPrefix(VDBKey vdbKey, ParseInfo pi) {
+		return vdbKey.toString() + pi.ansiQuotedIdentifiers + " "; //$NON-NLS-1$
+	}
+
+	private static String getKey(VDBKey vdbKey, ParseInfo pi, Query query) {
+		GroupSymbol group = ((UnaryFromClause)query.getFrom().getClauses().get(0)).getGroup();
+		return getPrefix(vdbKey, pi) + group.getNonCorrelationName().toUpperCase() + " " + group.getName().toUpperCase(); //$NON-NLS-1$
+	}
+
+	/**
+	 * Filter, project, and possibly roll up the cached results.
+	 * @return the new results, or null if the cached command does not subsume the query
+	 */
+	static TupleBuffer deriveResults(Query cached, Query query, TupleBuffer cachedResults, BufferManager bufferManager, String connectionId, int rowLimit) throws TeiidComponentException, TeiidProcessingException {
+		GroupSymbol cachedGroup = ((UnaryFromClause)cached.getFrom().getClauses().get(0)).getGroup();
+		GroupSymbol group = ((UnaryFromClause)query.getFrom().getClauses().get(0)).getGroup();
+		if (!cachedGroup.equals(group) || !EquivalenceUtil.areEqual(cachedGroup.getMetadataID(), group.getMetadataID())
+				|| !EquivalenceUtil.areEqual(cachedGroup.getDefinition(), group.getDefinition())) {
+			return null;
+		}
+		List<Criteria> cachedConjuncts = Criteria.separateCriteriaByAnd(cached.getCriteria());
+		List<Criteria> residual = new ArrayList<Criteria>(Criteria.separateCriteriaByAnd(query.getCriteria()));
+		if (!residual.containsAll(cachedConjuncts)) {
+			return null;
+		}
+		residual.removeAll(cachedConjuncts);
+		Criteria filter = Criteria.combineCriteria(residual);
+
+		boolean cachedGrouped = cached.getGroupBy() != null || cached.hasAggregates();
+		boolean grouped = query.getGroupBy() != null || query.hasAggregates();
+		if (grouped != cachedGrouped) {
+			return null;
+		}
+
+		//map the plain element columns of the cached results
+		List<Expression> cachedProjected = cached.getProjectedSymbols();
+		Map<ElementSymbol, Integer> elementMap = new HashMap<ElementSymbol, Integer>();
+		Map<AggregateSymbol, Integer> aggMap = new HashMap<AggregateSymbol, Integer>();
+		for (int i = 0; i < cachedProjected.size(); i++) {
+			Expression ex = SymbolMap.getExpression(cachedProjected.get(i));
+			if (ex instanceof ElementSymbol) {
+				if (!elementMap.containsKey(ex)) {
+					elementMap.put((ElementSymbol)ex, i);
+				}
+			} else if (ex instanceof AggregateSymbol && !aggMap.containsKey(ex)) {
+				aggMap.put((AggregateSymbol)ex, i);
+			}
+		}
+		if (filter != null && !elementMap.keySet().containsAll(ElementCollectorVisitor.getElements(filter, true))) {
+			return null;
+		}
+
+		List<Expression> projected = query.getProjectedSymbols();
+		CommandContext context = new CommandContext();
+		context.setBufferManager(bufferManager);
+		Evaluator eval = new Evaluator(elementMap, null, context);
+		List<ZoneMap.Predicate> predicates = ZoneMap.getPredicates(filter, elementMap, cachedResults.getTypes());
+		TupleBuffer result = null;
+		if (!grouped) {
+			List<Expression> expressions = new ArrayList<Expression>(projected.size());
+			for (Expression symbol : projected) {
+				Expression ex = SymbolMap.getExpression(symbol);
+				if (!elementMap.keySet().containsAll(ElementCollectorVisitor.getElements(ex, true))) {
+					return null;
+				}
+				expressions.add(ex);
+			}
+			result = bufferManager.createTupleBuffer(projected, connectionId, TupleSourceType.FINAL);
+			TupleSource ts = cachedResults.createFilteredTupleSource(predicates);
+			try {
+				List<?> tuple = null;
+				while ((tuple = ts.nextTuple()) != null && (rowLimit == 0 || result.getRowCount() < rowLimit)) {
+					if (filter != null && !eval.evaluate(filter, tuple)) {
+						continue;
+					}
+					List<Object> row = new ArrayList<Object>(expressions.size());
+					for (Expression ex : expressions) {
+						row.add(eval.evaluate(ex, tuple));
+					}
+					result.addTuple(row);
+				}
+			} finally {
+				ts.closeSource();
+			}
+		} else {
+			//roll up to the new grouping
+			List<Integer> groupingIndexes = new ArrayList<Integer>();
+			if (query.getGroupBy() != null) {
+				for (Expression ex : query.getGroupBy().getSymbols()) {
+					Integer index = elementMap.get(ex);
+					if (index == null) {
+						return null;
+					}
+					groupingIndexes.add(index);
+				}
+			}
+			//each output column is either a grouping column or a rolled up aggregate
+			int[] groupingColumns = new int[projected.size()];
+			int[] aggIndexes = new int[projected.size()];
+			for (int i = 0; i < projected.size(); i++) {
+				Expression ex = SymbolMap.getExpression(projected.get(i));
+				if (ex instanceof ElementSymbol) {
+					Integer index = elementMap.get(ex);
+					if (index == null || !groupingIndexes.contains(index)) {
+						return null;
+					}
+					groupingColumns[i] = groupingIndexes.indexOf(index);
+				} else if (ex instanceof AggregateSymbol) {
+					Integer index = aggMap.get(ex);
+					if (index == null || getRollupFunction((AggregateSymbol)ex) == null) {
+						return null;
+					}
+					aggIndexes[i] = index + 1;
+				} else {
+					return null;
+				}
+			}
+			Map<List<Object>, AggregateFunction[]> groups = new LinkedHashMap<List<Object>, AggregateFunction[]>();
+			TupleSource ts = cachedResults.createFilteredTupleSource(predicates);
+			try {
+				List<?> tuple = null;
+				while ((tuple = ts.nextTuple()) != null) {
+					if (filter != null && !eval.evaluate(filter, tuple)) {
+						continue;
+					}
+					List<Object> key = new ArrayList<Object>(groupingIndexes.size());
+					for (Integer index : groupingIndexes) {
+						key.add(tuple.get(index));
+					}
+					AggregateFunction[] accumulators = groups.get(key);
+					if (accumulators == null) {
+						accumulators = newAccumulators(query, aggIndexes);
+						groups.put(key, accumulators);
+					}
+					for (AggregateFunction function : accumulators) {
+						if (function != null) {
+							function.addInput(tuple, context);
+						}
+					}
+				}
+			} finally {
+				ts.closeSource();
+			}
+			if (groups.isEmpty() && query.getGroupBy() == null) {
+				//an ungrouped aggregate always produces a row
+				groups.put(new ArrayList<Object>(0), newAccumulators(query, aggIndexes));
+			}
+			result = bufferManager.createTupleBuffer(projected, connectionId, TupleSourceType.FINAL);
+			for (Iterator<Map.Entry<List<Object>, AggregateFunction[]>> iter = groups.entrySet().iterator(); iter.hasNext() && (rowLimit == 0 || result.getRowCount() < rowLimit);) {
+				Map.Entry<List<Object>, AggregateFunction[]> entry = iter.next();
+				List<Object> row = new ArrayList<Object>(projected.size());
+				for (int i = 0; i < projected.size(); i++) {
+					AggregateFunction function = entry.getValue()[i];
+					if (function == null) {
+						row.add(entry.getKey().get(groupingColumns[i]));
+						continue;
+					}
+					Object value = function.getResult(context);
+					if (((AggregateSymbol)SymbolMap.getExpression(projected.get(i))).getAggregateFunction() == AggregateSymbol.Type.COUNT) {
+						value = value == null?0:((Number)value).intValue();
+					}
+					row.add(value);
+				}
+				result.addTuple(row);
+			}
+		}
+		result.close();
+		return result;
+	}
+
+	/**
+	 * @param aggIndexes the 1-based cached column index of each aggregate output column, or 0 for grouping columns
+	 */
+	private static AggregateFunction[] newAccumulators(Query query, int[] aggIndexes) {
+		AggregateFunction[] accumulators = new AggregateFunction[aggIndexes.length];
+		List<Expression> projected = query.getProjectedSymbols();
+		for (int i = 0; i < aggIndexes.length; i++) {
+			if (aggIndexes[i] != 0) {
+				accumulators[i] = getRollupFunction((AggregateSymbol)SymbolMap.getExpression(projected.get(i)));
+				accumulators[i].setArgIndexes(new int[] {aggIndexes[i] - 1});
+			}
+		}
+		return accumulators;
+	}
+
+	/**
+	 * @return the function that combines the partial values of the aggregate or null if it cannot be rolled up
+	 */
+	private static AggregateFunction getRollupFunction(AggregateSymbol agg) {
+		if (agg.isDistinct() || agg.isWindowed() || agg.getCondition() != null || agg.getOrderBy() != null) {
+			return null;
+		}
+		switch (agg.getAggregateFunction()) {
+		case COUNT: {
+			Sum sum = new Sum();
+			sum.initialize(DataTypeManager.DefaultDataClasses.LONG, DataTypeManager.DefaultDataClasses.INTEGER);
+			return sum;
+		}
+		case SUM: {
+			Class<?> type = agg.getType();
+			if (type != DataTypeManager.DefaultDataClasses.LONG && type != DataTypeManager.DefaultDataClasses.DOUBLE
+					&& type != DataTypeManager.DefaultDataClasses.BIG_DECIMAL) {
+				return null;
+			}
+			Sum sum = new Sum();
+			sum.initialize(type, type);
+			return sum;
+		}
+		case MIN:
+			return new Min();
+		case MAX:
+			return new Max();
+		}
+		return null;
+	}
+
+}
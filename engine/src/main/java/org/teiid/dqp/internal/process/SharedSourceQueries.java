@@ -0,0 +1,288 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.dqp.internal.process.DataTierTupleSource.MoreWorkTask;
+import org.teiid.dqp.internal.process.SessionAwareCache.CacheID;
+import org.teiid.dqp.internal.process.TupleSourceCache.CachableVisitor;
+import org.teiid.dqp.message.AtomicRequestMessage;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.query.parser.ParseInfo;
+import org.teiid.query.processor.RegisterRequestParameter;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.navigator.PreOrPostOrderNavigator;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
+
+/**
+ * Shares in-flight source queries across requests.
+ * <br>
+ * The first request to issue a given source query becomes the owner and 
+ * buffers the results of its source query as it reads them.  Other requests issuing the same 
+ * deterministic query (same source, sql, parameters, vdb and user) while it is in-flight 
+ * attach to the owner and read the shared buffer once the owner has read it to completion.
+ * <br>
+ * Attached requests do not consume any rows until the results are complete, so if the owner 
+ * stops early, fails, or does not finish within the max wait, they simply issue their own 
+ * source query instead.
+ */
+public class SharedSourceQueries {
+	
+	interface SourceFactory {
+		TupleSource createSource() throws TeiidComponentException, TeiidProcessingException;
+	}
+	
+	private static class SharedState {
+		CacheID id;
+		TupleBuffer tb;
+		int readers = 1;
+		boolean complete;
+		boolean abandoned;
+		RequestWorkItem owner;
+		Set<RequestWorkItem> waiting = new LinkedHashSet<RequestWorkItem>(4);
+	}
+	
+	private class OwnerTupleSource extends TupleSourceCache.BufferedTupleSource {
+		private SharedState state;
+		
+		public OwnerTupleSource(SharedState state, TupleSource ts) {
+			super(state.tb, ts);
+			this.state = state;
+		}
+		
+		@Override
+		public List<?> nextTuple() throws TeiidComponentException,
+				TeiidProcessingException {
+			List<?> tuple = super.nextTuple();
+			if (tuple == null) {
+				finish(state, true);
+			}
+			return tuple;
+		}
+		
+		@Override
+		public void closeSource() {
+			try {
+				ts.closeSource();
+			} finally {
+				finish(state, false);
+				release(state);
+			}
+		}
+	}
+	
+	private class AttachedTupleSource implements TupleSource {
+		private SharedState state;
+		private RequestWorkItem workItem;
+		private SourceFactory factory;
+		private int maxWait;
+		private long waitStart;
+		private ScheduledFuture<?> scheduledFuture;
+		private TupleSource ts;
+		private boolean attached = true;
+		
+		public AttachedTupleSource(SharedState state, RequestWorkItem workItem, SourceFactory factory, int maxWait) {
+			this.state = state;
+			this.workItem = workItem;
+			this.factory = factory;
+			this.maxWait = maxWait;
+		}
+
+		@Override
+		public List<?> nextTuple() throws TeiidComponentException,
+				TeiidProcessingException {
+			if (ts == null) {
+				synchronized (state) {
+					if (state.complete) {
+						ts = state.tb.createIndexedTupleSource();
+					} else if (!state.abandoned) {
+						long now = System.currentTimeMillis();
+						if (waitStart == 0) {
+							waitStart = now;
+							scheduledFuture = workItem.scheduleWork(new MoreWorkTask(workItem), 10, maxWait);
+						}
+						if (now - waitStart < maxWait) {
+							state.waiting.add(workItem);
+							throw BlockedException.block(state.id, "Blocking on shared source query"); //$NON-NLS-1$
+						}
+					}
+				}
+				if (ts == null) {
+					LogManager.logDetail(LogConstants.CTX_DQP, "Shared source query did not complete, issuing an independent source query", state.id); //$NON-NLS-1$
+					cancelWakeup();
+					detach();
+					ts = factory.createSource();
+				}
+			}
+			return ts.nextTuple();
+		}
+		
+		private void detach() {
+			if (attached) {
+				attached = false;
+				release(state);
+			}
+		}
+		
+		private void cancelWakeup() {
+			if (scheduledFuture != null) {
+				scheduledFuture.cancel(false);
+				scheduledFuture = null;
+			}
+		}
+
+		@Override
+		public void closeSource() {
+			cancelWakeup();
+			try {
+				if (ts != null) {
+					ts.closeSource();
+				}
+			} finally {
+				detach();
+			}
+		}
+	}
+	
+	private ConcurrentHashMap<CacheID, SharedState> inFlight = new ConcurrentHashMap<CacheID, SharedState>();
+	private BufferManager bufferManager;
+	
+	public SharedSourceQueries(BufferManager bufferManager) {
+		this.bufferManager = bufferManager;
+	}
+	
+	/**
+	 * Get the key for sharing the given request, or null if the request cannot be shared
+	 */
+	CacheID getSharedId(RequestWorkItem workItem, AtomicRequestMessage aqr, RegisterRequestParameter parameterObject) {
+		Command command = aqr.getCommand();
+		if (!(command instanceof Query) || aqr.isTransactional() || aqr.getHint() != null || aqr.getGeneralHint() != null 
+				|| !command.areResultsCachable() || FunctionCollectorVisitor.isNonDeterministic(command)) {
+			return null;
+		}
+		for (Expression ex : command.getProjectedSymbols()) {
+			if (DataTypeManager.isLOB(ex.getType())) {
+				return null;
+			}
+		}
+		CachableVisitor cv = new CachableVisitor();
+		PreOrPostOrderNavigator.doVisit(command, cv, PreOrPostOrderNavigator.PRE_ORDER, true);
+		if (!cv.cacheable) {
+			return null;
+		}
+		String cmdString = command.toString();
+		if (cmdString.length() >= 100000) {
+			return null;
+		}
+		CacheID id = new CacheID(workItem.getDqpWorkContext(), ParseInfo.DEFAULT_INSTANCE, aqr.getConnectorName() + " " + parameterObject.limit + " " + cmdString); //$NON-NLS-1$ //$NON-NLS-2$
+		if (!id.setParameters(cv.parameters)) {
+			return null;
+		}
+		id.setUserName(workItem.getDqpWorkContext().getUserName());
+		return id;
+	}
+	
+	/**
+	 * Get a {@link TupleSource} for the shared query.  If the query is already in-flight, 
+	 * the returned source will wait up to maxWait milliseconds for the owner to complete, otherwise
+	 * the source created by the factory will be shared. 
+	 */
+	TupleSource getSharedTupleSource(CacheID id, Command command, RequestWorkItem workItem, SourceFactory factory, int maxWait) throws TeiidComponentException, TeiidProcessingException {
+		SharedState state = new SharedState();
+		state.id = id;
+		state.owner = workItem;
+		SharedState existing = inFlight.putIfAbsent(id, state);
+		if (existing != null) {
+			synchronized (existing) {
+				//a request cannot wait on its own source query, such as with a self join
+				if (!existing.complete && !existing.abandoned && existing.owner != workItem) {
+					existing.readers++;
+					LogManager.logDetail(LogConstants.CTX_DQP, workItem, "attaching to in-flight source query", id); //$NON-NLS-1$
+					return new AttachedTupleSource(existing, workItem, factory, maxWait);
+				}
+			}
+			//just missed it
+			return factory.createSource();
+		}
+		TupleSource ts = null;
+		try {
+			ts = factory.createSource();
+		} finally {
+			if (ts == null) {
+				finish(state, false);
+			}
+		}
+		state.tb = bufferManager.createTupleBuffer(command.getProjectedSymbols(), "shared", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		return new OwnerTupleSource(state, ts);
+	}
+	
+	private void finish(SharedState state, boolean complete) {
+		Set<RequestWorkItem> waiting = null;
+		synchronized (state) {
+			if (state.complete || state.abandoned) {
+				return;
+			}
+			if (complete) {
+				state.complete = true;
+			} else {
+				state.abandoned = true;
+			}
+			inFlight.remove(state.id, state);
+			waiting = state.waiting;
+			state.waiting = null;
+		}
+		for (RequestWorkItem workItem : waiting) {
+			workItem.moreWork();
+		}
+	}
+	
+	private void release(SharedState state) {
+		synchronized (state) {
+			if (--state.readers == 0 && state.tb != null) {
+				state.tb.remove();
+				state.tb = null;
+			}
+		}
+	}
+	
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+}
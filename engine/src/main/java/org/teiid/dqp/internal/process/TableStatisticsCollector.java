@@ -0,0 +1,226 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.dqp.internal.process;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.types.TransformationException;
+import org.teiid.metadata.Column;
+import org.teiid.metadata.ColumnStats;
+import org.teiid.metadata.Table;
+import org.teiid.metadata.TableStats;
+import org.teiid.query.sql.symbol.Constant;
+
+/**
+ * Collects the {@link TableStats} and {@link ColumnStats} for a table from a full scan.
+ * <br/>
+ * The row count, null counts, and minimum/maximum values are exact.  The number of
+ * distinct values and the equi-depth histograms are computed from a reservoir sample of the rows.
+ * Only the values of the comparable columns are sampled, so lobs and other non-comparable values are not retained.
+ */
+class TableStatisticsCollector {
+
+	static final int DEFAULT_SAMPLE_SIZE = 10000;
+	static final int DEFAULT_BUCKETS = 20;
+
+	private Table table;
+	private List<Column> columns;
+	private boolean[] comparable;
+	private int sampleSize;
+	private int buckets;
+	private Random random = new Random();
+
+	private List<Object>[] samples;
+	private int rowCount;
+	private int[] nullCounts;
+	private Object[] minimums;
+	private Object[] maximums;
+
+	public TableStatisticsCollector(Table table, List<Column> columns) {
+		this(table, columns, DEFAULT_SAMPLE_SIZE, DEFAULT_BUCKETS);
+	}
+
+	@SuppressWarnings("unchecked")
+	public TableStatisticsCollector(Table table, List<Column> columns, int sampleSize, int buckets) {
+		this.table = table;
+		this.columns = columns;
+		this.sampleSize = sampleSize;
+		this.buckets = buckets;
+		this.nullCounts = new int[columns.size()];
+		this.minimums = new Object[columns.size()];
+		this.maximums = new Object[columns.size()];
+		this.comparable = new boolean[columns.size()];
+		this.samples = new List[columns.size()];
+		for (int i = 0; i < columns.size(); i++) {
+			this.comparable[i] = !DataTypeManager.isNonComparable(columns.get(i).getRuntimeType());
+			if (this.comparable[i]) {
+				this.samples[i] = new ArrayList<Object>();
+			}
+		}
+	}
+
+	public Table getTable() {
+		return table;
+	}
+
+	public List<Column> getColumns() {
+		return columns;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public void addTuple(List<?> tuple) {
+		rowCount++;
+		int sampleIndex = -1;
+		if (rowCount <= sampleSize) {
+			sampleIndex = rowCount - 1;
+		} else {
+			int index = random.nextInt(rowCount);
+			if (index < sampleSize) {
+				sampleIndex = index;
+			}
+		}
+		for (int i = 0; i < columns.size(); i++) {
+			if (!comparable[i]) {
+				if (tuple.get(i) == null) {
+					nullCounts[i]++;
+				}
+				continue;
+			}
+			Object value = tuple.get(i);
+			if (sampleIndex == samples[i].size()) {
+				samples[i].add(value);
+			} else if (sampleIndex >= 0) {
+				samples[i].set(sampleIndex, value);
+			}
+			if (value == null) {
+				nullCounts[i]++;
+				continue;
+			}
+			if (minimums[i] == null || Constant.COMPARATOR.compare(value, minimums[i]) < 0) {
+				minimums[i] = value;
+			}
+			if (maximums[i] == null || Constant.COMPARATOR.compare(value, maximums[i]) > 0) {
+				maximums[i] = value;
+			}
+		}
+	}
+
+	public TableStats getTableStats() {
+		TableStats stats = new TableStats();
+		stats.setCardinality(rowCount);
+		return stats;
+	}
+
+	/**
+	 * @return the stats for each of the columns in the same order
+	 * @throws TransformationException
+	 */
+	public List<ColumnStats> getColumnStats() throws TransformationException {
+		List<ColumnStats> result = new ArrayList<ColumnStats>(columns.size());
+		for (int i = 0; i < columns.size(); i++) {
+			ColumnStats stats = new ColumnStats();
+			stats.setNullValues(nullCounts[i]);
+			if (comparable[i]) {
+				if (minimums[i] != null) {
+					stats.setMinimumValue(toStatString(minimums[i]));
+					stats.setMaximumValue(toStatString(maximums[i]));
+				}
+				computeSampleStats(i, stats);
+			}
+			result.add(stats);
+		}
+		return result;
+	}
+
+	private void computeSampleStats(int column, ColumnStats stats) throws TransformationException {
+		List<Object> values = new ArrayList<Object>(samples[column].size());
+		for (Object value : samples[column]) {
+			if (value != null) {
+				values.add(value);
+			}
+		}
+		int nonNull = rowCount - nullCounts[column];
+		if (values.isEmpty()) {
+			stats.setDistinctValues(0);
+			return;
+		}
+		Collections.sort(values, Constant.COMPARATOR);
+		stats.setDistinctValues(estimateDistinctValues(values, nonNull));
+		if (values.size() < 2) {
+			return;
+		}
+		int bucketCount = Math.min(buckets, values.size() - 1);
+		List<String> histogram = new ArrayList<String>(bucketCount + 1);
+		//the end points are exact
+		histogram.add(toStatString(minimums[column]));
+		for (int i = 1; i < bucketCount; i++) {
+			histogram.add(toStatString(values.get((int)((long)i * values.size() / bucketCount))));
+		}
+		histogram.add(toStatString(maximums[column]));
+		stats.setHistogram(histogram);
+	}
+
+	/**
+	 * Uses the Guaranteed-Error Estimator when the sample does not include all values:
+	 * sqrt(N/n)*f1 + (d - f1), where f1 is the number of values seen only once in the sample.
+	 */
+	static int estimateDistinctValues(List<Object> sortedValues, int total) {
+		int distinct = 0;
+		int singletons = 0;
+		int count = 0;
+		for (int i = 0; i < sortedValues.size(); i++) {
+			count++;
+			if (i == sortedValues.size() - 1 || Constant.COMPARATOR.compare(sortedValues.get(i), sortedValues.get(i + 1)) != 0) {
+				distinct++;
+				if (count == 1) {
+					singletons++;
+				}
+				count = 0;
+			}
+		}
+		if (sortedValues.size() >= total) {
+			return distinct;
+		}
+		double estimate = Math.sqrt(total / (double)sortedValues.size()) * singletons + (distinct - singletons);
+		return (int)Math.min(total, Math.max(distinct, Math.round(estimate)));
+	}
+
+	/**
+	 * Dates use the timestamp format expected by the costing logic
+	 */
+	static String toStatString(Object value) throws TransformationException {
+		if (value instanceof java.sql.Date) {
+			return new Timestamp(((java.sql.Date)value).getTime()).toString();
+		}
+		return DataTypeManager.transformValue(value, DataTypeManager.DefaultDataClasses.STRING);
+	}
+
+}
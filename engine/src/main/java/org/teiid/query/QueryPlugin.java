@@ -548,5 +548,16 @@ public class QueryPlugin { // extends Plugin {
     	TEIID31133, 
     	TEIID31134,
     	TEIID31135,
+    	TEIID31136,
+    	TEIID31137,
+    	TEIID31138,
+    	TEIID31139,
+    	TEIID31140,
+    	TEIID31141,
+    	TEIID31142,
+    	TEIID31143,
+    	TEIID31144,
+    	TEIID31145,
+    	TEIID31146,
 	}
 }
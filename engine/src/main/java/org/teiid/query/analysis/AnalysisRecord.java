@@ -27,8 +27,11 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 import org.teiid.client.plan.Annotation;
 import org.teiid.client.plan.Annotation.Priority;
@@ -53,6 +56,7 @@ import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
  * <LI>Query plan, if requested</LI>
  * <LI>Annotations indicating important decisions, if requested</li>
  * <li>Debug trace information, if requested</LI>
+ * <li>Planner rule timings, if the query plan is requested</li>
  * </ul>
  */
 public class AnalysisRecord {
@@ -115,6 +119,9 @@ public class AnalysisRecord {
     // Annotations
     private Collection<Annotation> annotations;
     
+    // Planner rule name to executions, elapsed nanos, max plan nodes
+    private Map<String, long[]> ruleProfile;
+    
     // Debug trace log
     private StringWriter stringWriter;  // inner
     private PrintWriter debugWriter;    // public
@@ -209,6 +216,61 @@ public class AnalysisRecord {
         return null;
     }
     
+    /**
+     * Record the execution of a planner rule.  This can only be used if {@link #recordQueryPlan} 
+     * returns true.
+     * @param rule
+     * @param elapsedNanos
+     * @param nodeCount the number of plan nodes after the rule was executed
+     */
+    public void addRuleProfile(String rule, long elapsedNanos, int nodeCount) {
+    	if (this.ruleProfile == null) {
+    		this.ruleProfile = new LinkedHashMap<String, long[]>();
+    	}
+    	long[] profile = this.ruleProfile.get(rule);
+    	if (profile == null) {
+    		profile = new long[3];
+    		this.ruleProfile.put(rule, profile);
+    	}
+    	profile[0]++;
+    	profile[1] += elapsedNanos;
+    	profile[2] = Math.max(profile[2], nodeCount);
+    }
+    
+    /**
+     * Get the planner rule profile.
+     * @return a map of rule name to the number of executions, the total elapsed nanos, and the max 
+     * plan node count, or null if no rules have been recorded
+     */
+    public Map<String, long[]> getRuleProfile() {
+		return ruleProfile;
+	}
+    
+    /**
+     * @return a summary of the rule profile with the most expensive rules first, or null if no rules have been recorded
+     */
+    public String getRuleProfileSummary() {
+    	if (this.ruleProfile == null) {
+    		return null;
+    	}
+    	List<Map.Entry<String, long[]>> entries = new ArrayList<Map.Entry<String, long[]>>(this.ruleProfile.entrySet());
+    	Collections.sort(entries, new Comparator<Map.Entry<String, long[]>>() {
+    		@Override
+    		public int compare(Map.Entry<String, long[]> o1, Map.Entry<String, long[]> o2) {
+    			return Long.signum(o2.getValue()[1] - o1.getValue()[1]);
+    		}
+		});
+    	StringBuilder sb = new StringBuilder();
+    	for (Map.Entry<String, long[]> entry : entries) {
+    		if (sb.length() > 0) {
+    			sb.append(", "); //$NON-NLS-1$
+    		}
+    		long[] profile = entry.getValue();
+    		sb.append(entry.getKey()).append(' ').append(profile[1]/1000000).append(" ms ").append(profile[0]).append("x ").append(profile[2]).append(" nodes"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+    	return sb.toString();
+    }
+    
     public void stopDebugLog() {
     	this.stringWriter = null;
     	this.recordDebug = false;
@@ -108,6 +108,11 @@ public class Evaluator {
 				 throw new TeiidRuntimeException(e);
 			}
 		}
+		
+		@Override
+		public boolean requiresDetachedRows() {
+			return false;
+		}
 	}
 
 	private final class SequenceReader extends Reader {
@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.function.aggregate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * APPROX_COUNT_DISTINCT implementation using a HyperLogLog sketch.
+ * <br/>
+ * The state is a fixed 2^{@link #PRECISION} byte register array regardless of the number of input rows,
+ * which gives a standard error of roughly 0.8%.  Small cardinalities are estimated with linear counting and
+ * are effectively exact.
+ */
+public class ApproxCountDistinct extends SingleArgumentAggregateFunction {
+	
+	static final int PRECISION = 14;
+	private static final int REGISTERS = 1 << PRECISION;
+	private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+	
+	private byte[] registers;
+	
+	@Override
+	public void reset() {
+		if (registers != null) {
+			Arrays.fill(registers, (byte)0);
+		}
+	}
+	
+	@Override
+	public void addInputDirect(Object input, List<?> tuple, CommandContext commandContext)
+			throws TeiidProcessingException, TeiidComponentException {
+		if (registers == null) {
+			registers = new byte[REGISTERS];
+		}
+		long hash = hash(input);
+		int index = (int)(hash >>> (64 - PRECISION));
+		//the sentinel bit bounds the rank when the remaining bits are all zero
+		byte rank = (byte)(Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+		if (rank > registers[index]) {
+			registers[index] = rank;
+		}
+	}
+	
+	@Override
+	public Object getResult(CommandContext commandContext) {
+		if (registers == null) {
+			return Long.valueOf(0);
+		}
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1d / (1L << register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+		if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+			estimate = REGISTERS * Math.log((double)REGISTERS / zeros);
+		}
+		return Long.valueOf(Math.round(estimate));
+	}
+	
+	/**
+	 * A 64 bit hash consistent with the engine's notion of equality for the 
+	 * common runtime types.  Other types fall back to a mix of their hashCode.
+	 */
+	static long hash(Object value) {
+		long result = 0;
+		if (value instanceof String) {
+			String s = (String)value;
+			result = s.length();
+			for (int i = 0; i < s.length(); i++) {
+				result = (result + s.charAt(i)) * 0x9E3779B97F4A7C15L;
+			}
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			result = ((Number)value).longValue();
+		} else if (value instanceof Double || value instanceof Float) {
+			result = Double.doubleToLongBits(((Number)value).doubleValue());
+		} else if (value instanceof BigDecimal) {
+			result = ((BigDecimal)value).stripTrailingZeros().hashCode();
+		} else {
+			result = value.hashCode();
+		}
+		//murmur3 finalizer
+		result ^= result >>> 33;
+		result *= 0xff51afd7ed558ccdL;
+		result ^= result >>> 33;
+		result *= 0xc4ceb9fe1a85ec53L;
+		result ^= result >>> 33;
+		return result;
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.function.aggregate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * APPROX_PERCENTILE(value, percentile) implementation using a KLL style compactor sketch.
+ * <br/>
+ * Values are kept in levels of at most {@link #CAPACITY} entries.  When a level fills it is sorted and
+ * every other value is promoted to the next level with double the weight, so the state grows only
+ * logarithmically with the number of rows.  Inputs smaller than the capacity give the exact nearest rank percentile.
+ */
+public class ApproxPercentile extends AggregateFunction {
+	
+	static final int CAPACITY = 256;
+	
+	private List<double[]> levels = new ArrayList<double[]>();
+	private int[] sizes = new int[0];
+	//alternate the retained half at each level so that compaction is not biased
+	private boolean[] offsets = new boolean[0];
+	private long count;
+	private double percentile;
+	
+	@Override
+	public void reset() {
+		levels.clear();
+		sizes = new int[0];
+		offsets = new boolean[0];
+		count = 0;
+	}
+	
+	@Override
+	public void addInputDirect(List<?> tuple, CommandContext commandContext)
+			throws TeiidComponentException, TeiidProcessingException {
+		if (count++ == 0) {
+			percentile = ((Number)tuple.get(argIndexes[1])).doubleValue();
+		}
+		add(0, ((Number)tuple.get(argIndexes[0])).doubleValue());
+	}
+	
+	private void add(int level, double value) {
+		if (level == levels.size()) {
+			levels.add(new double[CAPACITY]);
+			sizes = Arrays.copyOf(sizes, level + 1);
+			offsets = Arrays.copyOf(offsets, level + 1);
+		}
+		double[] values = levels.get(level);
+		values[sizes[level]++] = value;
+		if (sizes[level] < CAPACITY) {
+			return;
+		}
+		Arrays.sort(values);
+		int start = offsets[level]?1:0;
+		offsets[level] = !offsets[level];
+		sizes[level] = 0;
+		for (int i = start; i < CAPACITY; i+=2) {
+			add(level + 1, values[i]);
+		}
+	}
+	
+	@Override
+	public Object getResult(CommandContext commandContext) {
+		if (count == 0) {
+			return null;
+		}
+		double[][] sorted = new double[sizes.length][];
+		long weightTotal = 0;
+		for (int level = 0; level < sizes.length; level++) {
+			sorted[level] = Arrays.copyOf(levels.get(level), sizes[level]);
+			Arrays.sort(sorted[level]);
+			weightTotal += (long)sizes[level] << level;
+		}
+		double rank = percentile * weightTotal;
+		//merge the sorted levels until the rank is reached
+		int[] positions = new int[sizes.length];
+		long cumulative = 0;
+		double result = 0;
+		while (true) {
+			int min = -1;
+			for (int level = 0; level < sorted.length; level++) {
+				if (positions[level] < sorted[level].length && (min == -1 || sorted[level][positions[level]] < sorted[min][positions[min]])) {
+					min = level;
+				}
+			}
+			if (min == -1) {
+				return result;
+			}
+			result = sorted[min][positions[min]++];
+			cumulative += 1L << min;
+			if (cumulative >= rank) {
+				return result;
+			}
+		}
+	}
+	
+}
@@ -159,6 +159,11 @@ public class BasicQueryMetadata implements QueryMetadataInterface {
         return -1;
     }
     
+    public List<String> getHistogram(Object elementID) throws TeiidComponentException,
+                                              QueryMetadataException {
+        return null;
+    }
+    
     public int getPosition(Object elementID) throws TeiidComponentException, QueryMetadataException {
         return 0;
     }
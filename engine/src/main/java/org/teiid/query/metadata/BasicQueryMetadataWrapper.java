@@ -213,6 +213,11 @@ public class BasicQueryMetadataWrapper implements QueryMetadataInterface {
 			throws TeiidComponentException, QueryMetadataException {
 		return actualMetadata.getNullValues(elementID);
 	}
+	
+	public List<String> getHistogram(Object elementID)
+			throws TeiidComponentException, QueryMetadataException {
+		return actualMetadata.getHistogram(elementID);
+	}
 
 	public int getPosition(Object elementID)
 			throws TeiidComponentException, QueryMetadataException {
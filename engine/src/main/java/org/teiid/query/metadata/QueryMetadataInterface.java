@@ -260,6 +260,17 @@ public interface QueryMetadataInterface {
     int getNullValues(Object elementID)
         throws TeiidComponentException, QueryMetadataException;        
 
+    /**
+     * Get the equi-depth histogram boundaries for this column as canonical strings in ascending order.  
+     * Only applicable for physical columns.
+     * @param elementID The element ID
+     * @return The histogram boundaries or null if unknown
+     * @throws QueryMetadataException Metadata implementation detected a problem during the request
+     * @throws TeiidComponentException Unexpected internal system problem during request
+     */
+    List<String> getHistogram(Object elementID)
+        throws TeiidComponentException, QueryMetadataException;        
+
 	/**
 	 * Determine whether a group is virtual or not.
 	 * @param symbol Group symbol
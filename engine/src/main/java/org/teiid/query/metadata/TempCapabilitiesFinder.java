@@ -27,6 +27,7 @@ import org.teiid.query.optimizer.capabilities.BasicSourceCapabilities;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
+import org.teiid.query.optimizer.relational.rules.CapabilitiesUtil;
 import org.teiid.translator.ExecutionFactory.NullOrder;
 
 public class TempCapabilitiesFinder implements CapabilitiesFinder {
@@ -49,6 +50,7 @@ public class TempCapabilitiesFinder implements CapabilitiesFinder {
 		tempCaps.setSourceProperty(Capability.MAX_IN_CRITERIA_SIZE, 100000);
 		tempCaps.setSourceProperty(Capability.MAX_DEPENDENT_PREDICATES, 1);
 		tempCaps.setSourceProperty(Capability.QUERY_ORDERBY_DEFAULT_NULL_ORDER, NullOrder.LOW);
+		tempCaps.setSourceProperty(Capability.COLLATION_LOCALE, CapabilitiesUtil.getEngineCollation());
 	}
 	
 	private final CapabilitiesFinder delegate;
@@ -298,6 +298,17 @@ public class TempMetadataAdapter extends BasicQueryMetadataWrapper {
         }         
         return this.actualMetadata.getNullValues(elementID);
     }
+    
+    public List<String> getHistogram(Object elementID) throws TeiidComponentException, QueryMetadataException {
+        if (elementID instanceof TempMetadataID) {
+            TempMetadataID id = (TempMetadataID)elementID;
+            elementID = id.getOriginalMetadataID();
+            if (elementID == null) {
+                return null;
+            }
+        }         
+        return this.actualMetadata.getHistogram(elementID);
+    }
 
     public QueryNode getVirtualPlan(Object groupID)
         throws TeiidComponentException, QueryMetadataException {
@@ -58,6 +58,7 @@ import org.teiid.query.mapping.relational.QueryNode;
 import org.teiid.query.mapping.xml.MappingDocument;
 import org.teiid.query.mapping.xml.MappingLoader;
 import org.teiid.query.mapping.xml.MappingNode;
+import org.teiid.query.optimizer.relational.rules.CardinalityFeedback;
 import org.teiid.query.sql.lang.ObjectTable;
 import org.teiid.query.sql.lang.SPParameter;
 
@@ -162,6 +163,7 @@ public class TransformationMetadata extends BasicQueryMetadata implements Serial
      */
     private Map<String, Object> metadataCache = Collections.synchronizedMap(new LRUCache<String, Object>(250));
     private Map<String, Object> groupInfoCache = Collections.synchronizedMap(new LRUCache<String, Object>(250));
+    private Map<String, Object> cardinalityFeedbackCache = Collections.synchronizedMap(new LRUCache<String, Object>(1000));
     private Map<String, Collection<Table>> partialNameToFullNameCache = Collections.synchronizedMap(new LRUCache<String, Collection<Table>>(1000));
     private Map<String, Collection<StoredProcedureInfo>> procedureCache = Collections.synchronizedMap(new LRUCache<String, Collection<StoredProcedureInfo>>(200));
     /**
@@ -952,6 +954,16 @@ public class TransformationMetadata extends BasicQueryMetadata implements Serial
             throw createInvalidRecordTypeException(elementID);            
         }
     }
+    
+    public List<String> getHistogram(final Object elementID) throws TeiidComponentException, QueryMetadataException {
+        if(elementID instanceof Column) {
+            return ((Column) elementID).getHistogram();
+        } else if(elementID instanceof ProcedureParameter) {
+            return null;            
+        } else {
+            throw createInvalidRecordTypeException(elementID);            
+        }
+    }
 
     public String getNativeType(final Object elementID) throws TeiidComponentException, QueryMetadataException {
         if(elementID instanceof Column) {
@@ -1061,24 +1073,28 @@ public class TransformationMetadata extends BasicQueryMetadata implements Serial
 	@Override
 	public Object addToMetadataCache(Object metadataID, String key, Object value) {
         ArgCheck.isInstanceOf(AbstractMetadataRecord.class, metadataID);
-        boolean groupInfo = key.startsWith(GroupInfo.CACHE_PREFIX);
-        key = getCacheKey(key, (AbstractMetadataRecord)metadataID);
-        if (groupInfo) {
-        	return this.groupInfoCache.put(key, value); 
-        }
-    	return this.metadataCache.put(key, value); 
+        return getCache(key).put(getCacheKey(key, (AbstractMetadataRecord)metadataID), value); 
 	}
 
 	@Override
 	public Object getFromMetadataCache(Object metadataID, String key)
 			throws TeiidComponentException, QueryMetadataException {
         ArgCheck.isInstanceOf(AbstractMetadataRecord.class, metadataID);
-        boolean groupInfo = key.startsWith(GroupInfo.CACHE_PREFIX);
-        key = getCacheKey(key, (AbstractMetadataRecord)metadataID);
-        if (groupInfo) {
-        	return this.groupInfoCache.get(key); 
-        }
-    	return this.metadataCache.get(key);
+        return getCache(key).get(getCacheKey(key, (AbstractMetadataRecord)metadataID));
+	}
+	
+	/**
+	 * Group info and cardinality feedback are kept separately so that they 
+	 * do not evict the other cached entries
+	 */
+	private Map<String, Object> getCache(String key) {
+		if (key.startsWith(GroupInfo.CACHE_PREFIX)) {
+			return this.groupInfoCache;
+		}
+		if (key.startsWith(CardinalityFeedback.CACHE_PREFIX)) {
+			return this.cardinalityFeedbackCache;
+		}
+		return this.metadataCache;
 	}
 
 	private String getCacheKey(String key, AbstractMetadataRecord record) {
@@ -1102,6 +1118,7 @@ public class TransformationMetadata extends BasicQueryMetadata implements Serial
 		TransformationMetadata tm = new TransformationMetadata(store, functionLibrary);
 		tm.groupInfoCache = this.groupInfoCache;
 		tm.metadataCache = this.metadataCache;
+		tm.cardinalityFeedbackCache = this.cardinalityFeedbackCache;
 		tm.partialNameToFullNameCache = this.partialNameToFullNameCache;
 		tm.procedureCache = this.procedureCache; 
 		tm.scriptEngineManager = this.scriptEngineManager;
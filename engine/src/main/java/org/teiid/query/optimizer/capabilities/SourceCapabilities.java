@@ -333,7 +333,11 @@ public interface SourceCapabilities {
         ONLY_FORMAT_LITERALS,
         CRITERIA_ON_SUBQUERY,
         ARRAY_TYPE, 
-        QUERY_SUBQUERIES_ONLY_CORRELATED;
+        QUERY_SUBQUERIES_ONLY_CORRELATED,
+        /**
+         * The collation of string values used by the source ordering (String), see {@link org.teiid.translator.ExecutionFactory#getCollationLocale()}
+         */
+        COLLATION_LOCALE;
         
         private final String toString;
         
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -58,9 +59,11 @@ import org.teiid.query.optimizer.relational.plantree.NodeConstants;
 import org.teiid.query.optimizer.relational.plantree.NodeConstants.Info;
 import org.teiid.query.optimizer.relational.plantree.PlanNode;
 import org.teiid.query.optimizer.relational.rules.CapabilitiesUtil;
+import org.teiid.query.optimizer.relational.rules.CardinalityFeedback;
 import org.teiid.query.optimizer.relational.rules.FrameUtil;
 import org.teiid.query.optimizer.relational.rules.RuleAssignOutputElements;
 import org.teiid.query.optimizer.relational.rules.RuleChooseJoinStrategy;
+import org.teiid.query.optimizer.relational.rules.RulePlanSorts;
 import org.teiid.query.processor.ProcessorPlan;
 import org.teiid.query.processor.RegisterRequestParameter;
 import org.teiid.query.processor.relational.*;
@@ -81,6 +84,7 @@ import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.ExpressionSymbol;
 import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.sql.symbol.WindowFunction;
+import org.teiid.query.sql.symbol.WindowSpecification;
 import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.sql.visitor.EvaluatableVisitor;
 import org.teiid.query.sql.visitor.EvaluatableVisitor.EvaluationLevel;
@@ -242,6 +246,14 @@ public class PlanToProcessConverter {
 						}
             			wfpn.setElements(outputElements);
             			wfpn.init();
+            			Set<WindowSpecification> specs = new HashSet<WindowSpecification>();
+            			for (WindowFunction windowFunction : windowFunctions) {
+            				specs.add(windowFunction.getWindowSpecification());
+            			}
+            			if (specs.size() == 1 && RulePlanSorts.isOrderedForWindow(node.getFirstChild(), specs.iterator().next(), metadata, capFinder)) {
+            				//the input is already in window order
+            				wfpn.setStreaming(true);
+            			}
             			pnode.addChild(wfpn);
             		}
                 }
@@ -289,6 +301,7 @@ public class PlanToProcessConverter {
                 processNode = jnode;
                 
                 jnode.setDependentValueSource(depValueSource);
+                jnode.setDependentForced(node.hasBooleanProperty(NodeConstants.Info.IS_DEPENDENT_FORCED));
                 
 				break;
 
@@ -528,6 +541,14 @@ public class PlanToProcessConverter {
 					processNode = atn;
 					break;
 				}
+				if (source instanceof JsonTable) {
+					JsonTableNode jtn = new JsonTableNode(getID());
+					JsonTable jt = (JsonTable)source;
+					updateGroupName(node, jt);
+					jtn.setTable(jt);
+					processNode = jtn;
+					break;
+				}
 			    SymbolMap symbolMap = (SymbolMap) node.getProperty(NodeConstants.Info.SYMBOL_MAP);
 				if(symbolMap != null) {
 					PlanNode child = node.getLastChild();
@@ -681,6 +702,17 @@ public class PlanToProcessConverter {
         processNode.setEstimateDepJoinCost(estimateDepJoinCost);
         Number estimateJoinCost = (Number) node.getProperty(NodeConstants.Info.EST_JOIN_COST);
         processNode.setEstimateJoinCost(estimateJoinCost);
+        if (context != null && context.getOptions().isCardinalityFeedback()) {
+        	CardinalityFeedback feedback = null;
+        	if (node.getType() == NodeConstants.Types.ACCESS) {
+        		feedback = (CardinalityFeedback)node.getProperty(NodeConstants.Info.EST_FEEDBACK);
+        	} else if (node.getType() == NodeConstants.Types.JOIN) {
+        		feedback = CardinalityFeedback.getFeedback(node);
+        	}
+        	if (feedback != null && !feedback.isDependent()) {
+        		processNode.setCardinalityFeedback(feedback);
+        	}
+        }
        
         return processNode;
     }
@@ -483,6 +483,7 @@ public class RelationalPlanner {
         throws QueryPlannerException, QueryMetadataException, TeiidComponentException {
 
         boolean debug = analysisRecord.recordDebug();
+        boolean profile = analysisRecord.recordQueryPlan();
         while(! rules.isEmpty()) {
             if(debug) {
                 analysisRecord.println("\n============================================================================"); //$NON-NLS-1$
@@ -493,13 +494,30 @@ public class RelationalPlanner {
                 analysisRecord.println("EXECUTING " + rule); //$NON-NLS-1$
             }
 
+            long start = profile?System.nanoTime():0;
             plan = rule.execute(plan, metadata, capFinder, rules, analysisRecord, context);
+            if (profile) {
+            	long elapsed = System.nanoTime() - start;
+            	int nodeCount = countNodes(plan);
+            	analysisRecord.addRuleProfile(rule.toString(), elapsed, nodeCount);
+            	if (debug) {
+            		analysisRecord.println("\nEXECUTION TIME: " + elapsed/1000 + " us, PLAN NODES: " + nodeCount); //$NON-NLS-1$ //$NON-NLS-2$
+            	}
+            }
             if(debug) {
                 analysisRecord.println("\nAFTER: \n" + plan.nodeToString(true)); //$NON-NLS-1$
             }
         }
         return plan;
     }
+    
+    private static int countNodes(PlanNode node) {
+    	int count = 1;
+    	for (PlanNode child : node.getChildren()) {
+			count += countNodes(child);
+		}
+    	return count;
+    }
 	
 	public PlanNode generatePlan(Command cmd, boolean useSourceHint) throws TeiidComponentException, TeiidProcessingException {
     	if (useSourceHint && cmd.getSourceHint() != null && sourceHint == null) {
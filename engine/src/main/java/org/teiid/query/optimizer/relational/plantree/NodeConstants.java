@@ -96,6 +96,7 @@ public final class NodeConstants {
         IS_LEFT_DISTINCT, 	// Boolean
         IS_RIGHT_DISTINCT, 	// Boolean
         IS_SEMI_DEP,		// Boolean
+        IS_DEPENDENT_FORCED, // Boolean - the dependent join was required by a hint or access pattern
         PRESERVE,
 
         // Project node properties
@@ -146,6 +147,7 @@ public final class NodeConstants {
         EST_CARDINALITY,     // Float represents the estimated cardinality (amount of rows) produced by this node
         EST_COL_STATS,
         EST_SELECTIVITY,     // Float that represents the selectivity of a criteria node
+        EST_FEEDBACK,        // CardinalityFeedback for a collapsed access node
         
         // Tuple limit and offset
         MAX_TUPLE_LIMIT,     // Expression that evaluates to the max number of tuples generated
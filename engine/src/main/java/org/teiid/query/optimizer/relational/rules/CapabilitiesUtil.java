@@ -44,10 +44,12 @@ import org.teiid.query.sql.lang.OrderByItem;
 import org.teiid.query.sql.lang.SetQuery.Operation;
 import org.teiid.query.sql.symbol.AggregateSymbol;
 import org.teiid.query.sql.symbol.AggregateSymbol.Type;
+import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.Function;
 import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.translator.ExecutionFactory;
 import org.teiid.translator.ExecutionFactory.NullOrder;
 import org.teiid.translator.ExecutionFactory.SupportedJoinCriteria;
 import org.teiid.translator.SourceSystemFunctions;
@@ -388,6 +390,27 @@ public class CapabilitiesUtil {
         return order;
     }
     
+    /**
+     * @return the collation of the engine in the form of {@link Capability#COLLATION_LOCALE}
+     */
+    public static String getEngineCollation() {
+    	if (Constant.COLLATION_LOCALE == null) {
+    		return ExecutionFactory.UCS_BASIC_COLLATION;
+    	}
+    	return Constant.COLLATION_LOCALE;
+    }
+    
+    /**
+     * Determine if the source orders string values the same as the engine.
+     */
+    public static boolean isSameCollation(Object modelID, QueryMetadataInterface metadata, CapabilitiesFinder capFinder) throws QueryMetadataException, TeiidComponentException {
+        if (metadata.isVirtualModel(modelID)){
+            return false;
+        }
+        SourceCapabilities caps = getCapabilities(modelID, metadata, capFinder);
+        return getEngineCollation().equals(caps.getSourceProperty(Capability.COLLATION_LOCALE));
+    }
+    
     public static boolean supportsRowLimit(Object modelID, QueryMetadataInterface metadata, CapabilitiesFinder capFinder) 
     throws QueryMetadataException, TeiidComponentException {
         return supports(Capability.ROW_LIMIT, modelID, metadata, capFinder);
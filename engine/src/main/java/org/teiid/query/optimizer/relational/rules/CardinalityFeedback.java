@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.optimizer.relational.rules;
+
+import java.util.List;
+
+import org.teiid.api.exception.query.QueryMetadataException;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.metadata.QueryMetadataInterface;
+import org.teiid.query.optimizer.relational.plantree.NodeConstants;
+import org.teiid.query.optimizer.relational.plantree.NodeConstants.Info;
+import org.teiid.query.optimizer.relational.plantree.PlanNode;
+import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
+
+/**
+ * Observed cardinalities for access and join nodes.
+ * <br/>
+ * The key is the normalized shape of the node - the groups, criteria, and joins beneath it.
+ * Shapes with references are not supported, since the cardinality depends upon the parameter values.
+ * Observations are kept in a separate bounded cache of the vdb metadata, so they are retained for the
+ * life of the vdb and are used by {@link NewCalculateCostUtil} in place of the estimate when
+ * the same shape is planned again.
+ */
+public final class CardinalityFeedback {
+
+	public static final String CACHE_PREFIX = "cardinality-feedback/"; //$NON-NLS-1$
+
+	private Object metadataID;
+	private String key;
+	private boolean dependent;
+
+	private CardinalityFeedback(Object metadataID, String key, boolean dependent) {
+		this.metadataID = metadataID;
+		this.key = key;
+		this.dependent = dependent;
+	}
+
+	/**
+	 * Create the feedback for the given access or join node
+	 * @return the feedback or null if the node shape is not supported
+	 */
+	public static CardinalityFeedback getFeedback(PlanNode node) {
+		Object metadataID = getMetadataID(node);
+		if (metadataID == null) {
+			return null;
+		}
+		StringBuilder key = new StringBuilder();
+		boolean[] dependent = new boolean[1];
+		if (!appendKey(node, key, dependent, true)) {
+			return null;
+		}
+		return new CardinalityFeedback(metadataID, key.toString(), dependent[0]);
+	}
+
+	/**
+	 * Get the cardinality last observed for the shape of the given node
+	 * @return the cardinality or null if none has been observed
+	 */
+	static Float getObservedCardinality(PlanNode node, QueryMetadataInterface metadata) throws TeiidComponentException, QueryMetadataException {
+		Object metadataID = getMetadataID(node);
+		//quick check if any feedback has been recorded before building the key
+		//the marker is read on every lookup, so it is the last entry to be evicted
+		if (metadataID == null || metadata.getFromMetadataCache(metadataID, CACHE_PREFIX) == null) {
+			return null;
+		}
+		CardinalityFeedback feedback = getFeedback(node);
+		if (feedback == null || feedback.isDependent()) {
+			return null;
+		}
+		return (Float)metadata.getFromMetadataCache(metadataID, CACHE_PREFIX + feedback.key);
+	}
+
+	public void recordCardinality(QueryMetadataInterface metadata, Number estimate, int actual) throws TeiidComponentException, QueryMetadataException {
+		if (dependent) {
+			return;
+		}
+		metadata.addToMetadataCache(metadataID, CACHE_PREFIX + key, Float.valueOf(actual));
+		metadata.addToMetadataCache(metadataID, CACHE_PREFIX, Boolean.TRUE);
+		if (LogManager.isMessageToBeRecorded(LogConstants.CTX_QUERY_PLANNER, MessageLevel.DETAIL)) {
+			LogManager.logDetail(LogConstants.CTX_QUERY_PLANNER, "Observed cardinality", actual, "estimated", estimate, "for", key); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return true if the node is constrained by dependent criteria, which means the
+	 * observed cardinality is not representative of the shape
+	 */
+	public boolean isDependent() {
+		return dependent;
+	}
+
+	private static Object getMetadataID(PlanNode node) {
+		if (node.getType() == NodeConstants.Types.ACCESS && node.getChildCount() == 0) {
+			CardinalityFeedback feedback = (CardinalityFeedback)node.getProperty(Info.EST_FEEDBACK);
+			if (feedback != null) {
+				return feedback.metadataID;
+			}
+			return null;
+		}
+		if (node.getType() == NodeConstants.Types.SOURCE && node.getChildCount() == 0) {
+			if (node.getGroups().size() != 1) {
+				return null;
+			}
+			GroupSymbol group = node.getGroups().iterator().next();
+			return group.getMetadataID();
+		}
+		if (node.getChildCount() == 0) {
+			return null;
+		}
+		return getMetadataID(node.getFirstChild());
+	}
+
+	/**
+	 * Dependent criteria beneath a nested access node do not affect the cardinality of the parent join,
+	 * so only dependent criteria under the root are tracked.
+	 */
+	@SuppressWarnings("unchecked")
+	private static boolean appendKey(PlanNode node, StringBuilder key, boolean[] dependent, boolean root) {
+		switch (node.getType()) {
+		case NodeConstants.Types.ACCESS:
+			if (node.getChildCount() == 0) {
+				CardinalityFeedback feedback = (CardinalityFeedback)node.getProperty(Info.EST_FEEDBACK);
+				if (feedback == null) {
+					return false;
+				}
+				key.append(feedback.key);
+				return true;
+			}
+			key.append("ACCESS("); //$NON-NLS-1$
+			if (!appendKey(node.getFirstChild(), key, root?dependent:new boolean[1], false)) {
+				return false;
+			}
+			key.append(')');
+			return true;
+		case NodeConstants.Types.SOURCE:
+			key.append(node.getGroups());
+			if (hasReferences((LanguageObject)node.getProperty(Info.NESTED_COMMAND)) 
+					|| hasReferences((LanguageObject)node.getProperty(Info.TABLE_FUNCTION))) {
+				return false;
+			}
+			if (node.hasProperty(Info.NESTED_COMMAND)) {
+				key.append(' ').append(node.getProperty(Info.NESTED_COMMAND));
+			}
+			if (node.hasProperty(Info.TABLE_FUNCTION)) {
+				key.append(' ').append(node.getProperty(Info.TABLE_FUNCTION));
+			}
+			if (node.getChildCount() == 0) {
+				return true;
+			}
+			key.append(' ');
+			return appendKey(node.getFirstChild(), key, dependent, false);
+		case NodeConstants.Types.SELECT:
+			if (node.hasBooleanProperty(Info.IS_DEPENDENT_SET)) {
+				dependent[0] = true;
+			} else if (!node.hasBooleanProperty(Info.IS_PHANTOM)) {
+				if (hasReferences((LanguageObject)node.getProperty(Info.SELECT_CRITERIA))) {
+					return false;
+				}
+				key.append("WHERE ").append(node.getProperty(Info.SELECT_CRITERIA)).append(' '); //$NON-NLS-1$
+			}
+			return appendKey(node.getFirstChild(), key, dependent, false);
+		case NodeConstants.Types.JOIN:
+			key.append(node.getProperty(Info.JOIN_TYPE));
+			if (node.hasCollectionProperty(Info.JOIN_CRITERIA)) {
+				for (LanguageObject crit : (List<LanguageObject>)node.getProperty(Info.JOIN_CRITERIA)) {
+					if (hasReferences(crit)) {
+						return false;
+					}
+				}
+				key.append(" ON ").append(node.getProperty(Info.JOIN_CRITERIA)); //$NON-NLS-1$
+			}
+			key.append('(');
+			if (!appendKey(node.getFirstChild(), key, dependent, false)) {
+				return false;
+			}
+			key.append(", "); //$NON-NLS-1$
+			if (!appendKey(node.getLastChild(), key, dependent, false)) {
+				return false;
+			}
+			key.append(')');
+			return true;
+		case NodeConstants.Types.PROJECT:
+		case NodeConstants.Types.SORT:
+			if (node.getChildCount() == 0) {
+				return false;
+			}
+			return appendKey(node.getFirstChild(), key, dependent, false);
+		}
+		return false;
+	}
+	
+	private static boolean hasReferences(LanguageObject obj) {
+		return obj != null && !ReferenceCollectorVisitor.getReferences(obj).isEmpty();
+	}
+
+}
@@ -33,6 +33,7 @@ import org.teiid.api.exception.query.QueryPlannerException;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.types.TransformationException;
 import org.teiid.language.Like.MatchMode;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
@@ -179,6 +180,12 @@ public class NewCalculateCostUtil {
                 //Simply record the cost of the only child
                 PlanNode child = node.getFirstChild();
                 Float childCost = (Float)child.getProperty(NodeConstants.Info.EST_CARDINALITY);
+                if (node.getType() == NodeConstants.Types.ACCESS) {
+                	Float observed = CardinalityFeedback.getObservedCardinality(node, metadata);
+                	if (observed != null) {
+                		childCost = observed;
+                	}
+                }
                 setCardinalityEstimate(node, childCost, true, metadata);
                 break;
             }
@@ -319,6 +326,12 @@ public class NewCalculateCostUtil {
     private static void estimateJoinNodeCost(PlanNode node, QueryMetadataInterface metadata)
         throws QueryMetadataException, TeiidComponentException {
 
+        Float observed = CardinalityFeedback.getObservedCardinality(node, metadata);
+        if (observed != null) {
+        	setCardinalityEstimate(node, observed, true, metadata);
+        	return;
+        }
+        
         Iterator<PlanNode> children = node.getChildren().iterator();
         PlanNode child1 = children.next();
         float childCost1 = child1.getCardinality();
@@ -823,6 +836,12 @@ public class NewCalculateCostUtil {
                     return UNKNOWN_VALUE;
                 }
                 cost = childCost / ndv;
+                if (!unknownChildCost) {
+                	float selectivity = getHistogramSelectivity(metadata, compCrit);
+                	if (selectivity != UNKNOWN_VALUE) {
+                		cost = childCost * selectivity;
+                	}
+                }
                 if (compCrit.getOperator() == CompareCriteria.NE) {
                     isNegatedPredicateCriteria = true;
                 }
@@ -904,6 +923,129 @@ public class NewCalculateCostUtil {
         return cost;
     }
 
+    /**
+     * Use the equi-depth histogram of the compared element to estimate the fraction of 
+     * rows that satisfy the comparison.  Equality is only estimated for values that span
+     * multiple buckets, otherwise the ndv estimate is at least as good.
+     * @return the selectivity or {@link #UNKNOWN_VALUE} if the histogram cannot be used
+     */
+    static float getHistogramSelectivity(QueryMetadataInterface metadata, CompareCriteria compCrit) 
+    		throws TeiidComponentException, QueryMetadataException {
+    	if (!(compCrit.getLeftExpression() instanceof ElementSymbol) || !(compCrit.getRightExpression() instanceof Constant)) {
+    		return UNKNOWN_VALUE;
+    	}
+    	ElementSymbol element = (ElementSymbol)compCrit.getLeftExpression();
+    	Constant constant = (Constant)compCrit.getRightExpression();
+    	Object value = constant.getValue();
+    	if (value == null || constant.isMultiValued() || element.getMetadataID() == null) {
+    		return UNKNOWN_VALUE;
+    	}
+    	List<String> histogram = metadata.getHistogram(element.getMetadataID());
+    	if (histogram == null || histogram.size() < 2) {
+    		return UNKNOWN_VALUE;
+    	}
+    	List<Object> bounds = new ArrayList<Object>(histogram.size());
+    	try {
+	    	for (String bound : histogram) {
+	    		bounds.add(parseStatValue(bound, constant.getType()));
+	    	}
+    	} catch (IllegalArgumentException e) {
+    		return UNKNOWN_VALUE;
+    	} catch (TransformationException e) {
+    		return UNKNOWN_VALUE;
+    	}
+    	int buckets = bounds.size() - 1;
+    	int first = -1;
+    	int last = -1;
+    	int below = -1;
+    	for (int i = 0; i < bounds.size(); i++) {
+    		int compare = Constant.COMPARATOR.compare(bounds.get(i), value);
+    		if (compare < 0) {
+    			below = i;
+    		} else if (compare == 0) {
+    			if (first == -1) {
+    				first = i;
+    			}
+    			last = i;
+    		} else {
+    			break;
+    		}
+    	}
+    	float equal = 0;
+    	if (last > first) {
+    		equal = (last - first)/(float)buckets;
+    	} else if (compCrit.getOperator() == CompareCriteria.EQ || compCrit.getOperator() == CompareCriteria.NE) {
+    		return UNKNOWN_VALUE;
+    	}
+    	float less = 0;
+    	if (below == buckets) {
+    		less = 1;
+    	} else if (below >= 0) {
+    		less = (below + interpolate(bounds.get(below), bounds.get(below + 1), value))/buckets;
+    	}
+    	float fraction = 0;
+    	switch (compCrit.getOperator()) {
+    	case CompareCriteria.EQ:
+    	case CompareCriteria.NE:
+    		fraction = equal;
+    		break;
+    	case CompareCriteria.LT:
+    		fraction = less;
+    		break;
+    	case CompareCriteria.LE:
+    		fraction = less + equal;
+    		break;
+    	case CompareCriteria.GT:
+    		fraction = 1 - less - equal;
+    		break;
+    	case CompareCriteria.GE:
+    		fraction = 1 - less;
+    		break;
+    	}
+    	fraction = Math.min(Math.max(fraction, 0), 1);
+    	//the histogram only covers the non-null values
+    	int nnv = metadata.getNullValues(element.getMetadataID());
+    	int cardinality = metadata.getCardinality(element.getGroupSymbol().getMetadataID());
+    	if (nnv > 0 && cardinality > 0) {
+    		fraction *= Math.max(0, 1 - nnv/(float)cardinality);
+    	}
+    	return fraction;
+    }
+
+    /**
+     * Parse a stat value, which for dates is expected in timestamp format
+     */
+	static Object parseStatValue(String value, Class<?> type) throws TransformationException {
+		if (type == DataTypeManager.DefaultDataClasses.DATE) {
+			return new Date(Timestamp.valueOf(value).getTime());
+		}
+		return DataTypeManager.transformValue(value, type);
+	}
+    
+    /**
+     * @return the relative position of the value between the lower and upper bounds
+     */
+    private static float interpolate(Object lower, Object upper, Object value) {
+    	double low = 0;
+    	double high = 0;
+    	double val = 0;
+    	if (value instanceof Number) {
+    		low = ((Number)lower).doubleValue();
+    		high = ((Number)upper).doubleValue();
+    		val = ((Number)value).doubleValue();
+    	} else if (value instanceof java.util.Date) {
+    		low = ((java.util.Date)lower).getTime();
+    		high = ((java.util.Date)upper).getTime();
+    		val = ((java.util.Date)value).getTime();
+    	} else {
+    		return .5f;
+    	}
+    	if (high <= low) {
+    		return 1;
+    	}
+    	return (float)Math.min(Math.max((val - low)/(high - low), 0), 1);
+    }
+
     /** 
      * TODO: does not check for escape char
      * or if it will contain single match chars
@@ -936,6 +1078,13 @@ public class NewCalculateCostUtil {
         }
         ElementSymbol element = (ElementSymbol)compCrit.getLeftExpression();
         Class<?> dataType = compCrit.getRightExpression().getType();
+        
+        if (!unknownChildCost) {
+        	float selectivity = getHistogramSelectivity(metadata, compCrit);
+        	if (selectivity != UNKNOWN_VALUE) {
+        		return childCost * selectivity;
+        	}
+        }
     
         String max = (String)metadata.getMaximumValue(element.getMetadataID());
         String min = (String)metadata.getMinimumValue(element.getMetadataID());
@@ -975,8 +1124,8 @@ public class NewCalculateCostUtil {
                     return childCost/3;
                 }
                 compareValue = ((Number)value.getValue()).floatValue();
-                maxValue = Integer.parseInt(max);
-                minValue = Integer.parseInt(min);
+                maxValue = Float.parseFloat(max);
+                minValue = Float.parseFloat(min);
             }
             float range = Math.max(maxValue - minValue, 1);
             
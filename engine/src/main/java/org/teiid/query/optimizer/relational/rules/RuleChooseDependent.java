@@ -92,20 +92,26 @@ public final class RuleChooseDependent implements OptimizerRule {
             PlanNode chosenNode = chooseDepWithoutCosting(sourceNode, bothCandidates?siblingNode:null, analysisRecord);
             if(chosenNode != null) {
                 pushCriteria |= markDependent(chosenNode, joinNode, metadata, null, false);
+                joinNode.setProperty(NodeConstants.Info.IS_DEPENDENT_FORCED, Boolean.TRUE);
                 continue;
             }   
             
-            DependentCostAnalysis dca = NewCalculateCostUtil.computeCostForDepJoin(joinNode, !entry.leftCandidate, metadata, capFinder, context);
+            DependentCostAnalysis dca = null;
             PlanNode dependentNode = sourceNode;
             
-            if (bothCandidates && dca.expectedCardinality == null) {
-                dca = NewCalculateCostUtil.computeCostForDepJoin(joinNode, true, metadata, capFinder, context);
-                if (dca.expectedCardinality != null) {
-                    dependentNode = siblingNode;
-                }
+            //past the planning time budget only the cardinality heuristics are used
+            if (context == null || !context.isPlanningTimeExceeded()) {
+	            dca = NewCalculateCostUtil.computeCostForDepJoin(joinNode, !entry.leftCandidate, metadata, capFinder, context);
+	            
+	            if (bothCandidates && dca.expectedCardinality == null) {
+	                dca = NewCalculateCostUtil.computeCostForDepJoin(joinNode, true, metadata, capFinder, context);
+	                if (dca.expectedCardinality != null) {
+	                    dependentNode = siblingNode;
+	                }
+	            }
             }
             
-            if (dca.expectedCardinality != null) {
+            if (dca != null && dca.expectedCardinality != null) {
                 pushCriteria |= markDependent(dependentNode, joinNode, metadata, dca, null);
             } else {
             	float sourceCost = NewCalculateCostUtil.computeCostForTree(sourceNode, metadata);
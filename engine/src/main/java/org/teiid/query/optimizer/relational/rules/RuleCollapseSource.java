@@ -113,6 +113,9 @@ public final class RuleCollapseSource implements OptimizerRule {
             }
             if (command != null) {
             	accessNode.setProperty(NodeConstants.Info.ATOMIC_REQUEST, command);
+            }
+            if (context != null && context.getOptions().isCardinalityFeedback()) {
+            	accessNode.setProperty(NodeConstants.Info.EST_FEEDBACK, CardinalityFeedback.getFeedback(accessNode));
             }
     		accessNode.removeAllChildren();
         }
@@ -95,7 +95,10 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
 	        }
     	}
 
-        for (PlanNode joinNode : NodeEditor.findAllNodes(plan, NodeConstants.Types.JOIN, NodeConstants.Types.ACCESS)) {
+        List<PlanNode> joinNodes = NodeEditor.findAllNodes(plan, NodeConstants.Types.JOIN, NodeConstants.Types.ACCESS);
+        //process the joins bottom up so that the ordering of nested merge joins is known
+        Collections.reverse(joinNodes);
+        for (PlanNode joinNode : joinNodes) {
             JoinStrategyType stype = (JoinStrategyType) joinNode.getProperty(NodeConstants.Info.JOIN_STRATEGY);
             if (!JoinStrategyType.MERGE.equals(stype)) {
             	continue;
@@ -180,7 +183,27 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
         		}
             }
 
-			boolean pushedLeft = insertSort(joinNode.getFirstChild(), leftExpressions, joinNode, metadata, capabilitiesFinder, pushLeft);	
+            //check if either side is already in the needed order
+            boolean leftOrdered = false;
+            boolean rightOrdered = false;
+            int[] reorder = RulePlanSorts.getOrderingIndexes(RulePlanSorts.getOrdering(joinNode.getFirstChild(), metadata, capabilitiesFinder), leftExpressions);
+            if (reorder != null) {
+            	leftOrdered = true;
+            } else {
+            	reorder = RulePlanSorts.getOrderingIndexes(RulePlanSorts.getOrdering(joinNode.getLastChild(), metadata, capabilitiesFinder), rightExpressions);
+            	rightOrdered = reorder != null;
+            }
+            if (reorder != null) {
+            	leftExpressions = RelationalNode.projectTuple(reorder, leftExpressions);
+            	rightExpressions = RelationalNode.projectTuple(reorder, rightExpressions);
+            	joinNode.setProperty(NodeConstants.Info.LEFT_EXPRESSIONS, leftExpressions);
+            	joinNode.setProperty(NodeConstants.Info.RIGHT_EXPRESSIONS, rightExpressions);
+            	if (leftOrdered) {
+            		rightOrdered = RulePlanSorts.isOrderedBy(RulePlanSorts.getOrdering(joinNode.getLastChild(), metadata, capabilitiesFinder), rightExpressions);
+            	}
+            }
+
+			boolean pushedLeft = leftOrdered || insertSort(joinNode.getFirstChild(), leftExpressions, joinNode, metadata, capabilitiesFinder, pushLeft);	
 			
 	        if (origExpressionCount == 1 
 	        		&& joinNode.getProperty(NodeConstants.Info.JOIN_TYPE) == JoinType.JOIN_INNER 
@@ -194,7 +217,7 @@ public class RuleImplementJoinStrategy implements OptimizerRule {
 	        	}
 			}
 
-			boolean pushedRight = insertSort(joinNode.getLastChild(), rightExpressions, joinNode, metadata, capabilitiesFinder, pushRight);
+			boolean pushedRight = rightOrdered || insertSort(joinNode.getLastChild(), rightExpressions, joinNode, metadata, capabilitiesFinder, pushRight);
 			
         	if (joinNode.getProperty(NodeConstants.Info.JOIN_TYPE) == JoinType.JOIN_INNER && (!pushedRight || !pushedLeft)) {
         		joinNode.setProperty(NodeConstants.Info.JOIN_STRATEGY, JoinStrategyType.ENHANCED_SORT);
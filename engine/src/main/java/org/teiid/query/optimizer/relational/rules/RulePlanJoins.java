@@ -79,12 +79,17 @@ import org.teiid.translator.ExecutionFactory.SupportedJoinCriteria;
  *         with a single access node.
  *         
  *  Stage 5.  The remaining join regions will be ordered in a left linear tree based
- *  upon a an exhaustive, or random, algorithm that considers costing and criteria information.
+ *  upon a an exhaustive, dynamic programming, or greedy algorithm that considers costing and criteria information.
  *   
  */
 public class RulePlanJoins implements OptimizerRule {
     
     public static final int EXHAUSTIVE_SEARCH_GROUPS = 6;
+    
+    /**
+     * Bound on the subset masks used by the dynamic programming search
+     */
+    private static final int MAX_ENUMERATION_GROUPS = 30;
                 
     /** 
      * @see org.teiid.query.optimizer.relational.OptimizerRule#execute(org.teiid.query.optimizer.relational.plantree.PlanNode, org.teiid.query.metadata.QueryMetadataInterface, org.teiid.query.optimizer.capabilities.CapabilitiesFinder, org.teiid.query.optimizer.relational.RuleStack, org.teiid.query.analysis.AnalysisRecord, org.teiid.query.util.CommandContext)
@@ -505,7 +510,13 @@ public class RulePlanJoins implements OptimizerRule {
      * regions up to the exhaustive search group size all possible left linear join
      * trees will be searched in O(n!) time.
      * 
+     * Up to the join enumeration max groups option, {@link #enumerateJoinOrders(JoinRegion, QueryMetadataInterface, CapabilitiesFinder, CommandContext)}
+     * will be used.
+     * 
      * Beyond this number, every join will be determined greedily in O(n^2) time.
+     * 
+     * If the planning time budget has been exceeded, then enumeration is skipped and 
+     * regions larger than the exhaustive search group size are planned greedily.
      *  
      * TODO: this method together with scoreRegion have not been optimized 
      * 
@@ -517,6 +528,16 @@ public class RulePlanJoins implements OptimizerRule {
     Object[] findBestJoinOrder(JoinRegion region, QueryMetadataInterface metadata, CapabilitiesFinder capFinder, CommandContext context) throws QueryMetadataException, TeiidComponentException, QueryPlannerException {
         int regionCount = region.getJoinSourceNodes().size();
         
+        boolean budgetExceeded = context != null && context.isPlanningTimeExceeded();
+        
+        if (regionCount > EXHAUSTIVE_SEARCH_GROUPS && context != null && !budgetExceeded
+        		&& regionCount <= Math.min(MAX_ENUMERATION_GROUPS, context.getOptions().getJoinEnumerationMaxGroups())) {
+        	Object[] result = enumerateJoinOrders(region, metadata, capFinder, context);
+        	if (result != null) {
+        		return result;
+        	}
+        }
+        
         List<Integer> orderList = new ArrayList<Integer>(regionCount);
         for(int i=0; i<regionCount; i++) {
             orderList.add(new Integer(i));
@@ -532,7 +553,11 @@ public class RulePlanJoins implements OptimizerRule {
         //after 16 sources this will be completely greedy. before that it will try to strike a compromise between the exhaustive
         //and non-exhaustive searches
         if (regionCount > EXHAUSTIVE_SEARCH_GROUPS) {
-            exhaustive = Math.max(2, EXHAUSTIVE_SEARCH_GROUPS - (int)Math.ceil(Math.sqrt((regionCount - EXHAUSTIVE_SEARCH_GROUPS))));
+            if (budgetExceeded) {
+            	exhaustive = 2;
+            } else {
+            	exhaustive = Math.max(2, EXHAUSTIVE_SEARCH_GROUPS - (int)Math.ceil(Math.sqrt((regionCount - EXHAUSTIVE_SEARCH_GROUPS))));
+            }
         } 
         
         Iterator permIter = perms.generate(exhaustive);
@@ -560,6 +585,7 @@ public class RulePlanJoins implements OptimizerRule {
         //remove the joins that have already been placed
         for(int i=0; i<bestSubOrder.length; i++) {
             result[i] = (Integer)bestSubOrder[i];
+            orderList.remove(bestSubOrder[i]);
         }
         
         while(!orderList.isEmpty()) {
@@ -573,7 +599,7 @@ public class RulePlanJoins implements OptimizerRule {
                 List order = new ArrayList(Arrays.asList(bestSubOrder));
                 order.add(index);
                 
-                double partialScore = region.scoreRegion(order.toArray(), bestSubOrder.length, metadata, capFinder, context);
+                double partialScore = region.scoreRegion(order.toArray(), 0, metadata, capFinder, context);
                 
                 if (partialScore < bestPartialScore) {
                     bestPartialScore = partialScore;
@@ -594,6 +620,52 @@ public class RulePlanJoins implements OptimizerRule {
         return result;
     }
     
+    /**
+     * Dynamic programming search over the subsets of the join sources restricted to the left 
+     * linear trees that the region will be reconstructed as.
+     * 
+     * The best order for each subset of size k is extended by each remaining source to produce the 
+     * best orders of size k+1.  Cross joins are still considered since joining several small sources
+     * before a large one is often the best plan for a star schema.  This requires O(n*2^n) scoring 
+     * calls rather than O(n!).
+     * 
+     * @return the best order or null if no valid order was found
+     */
+    Object[] enumerateJoinOrders(JoinRegion region, QueryMetadataInterface metadata, CapabilitiesFinder capFinder, CommandContext context) throws QueryMetadataException, TeiidComponentException, QueryPlannerException {
+    	int regionCount = region.getJoinSourceNodes().size();
+    	int all = (1 << regionCount) - 1;
+    	Map<Integer, Object[]> bestOrders = new HashMap<Integer, Object[]>();
+    	for (int i = 0; i < regionCount; i++) {
+    		bestOrders.put(1 << i, new Object[] {Integer.valueOf(i)});
+    	}
+    	for (int size = 1; size < regionCount; size++) {
+    		Map<Integer, Object[]> nextOrders = new HashMap<Integer, Object[]>();
+    		Map<Integer, Double> nextScores = new HashMap<Integer, Double>();
+    		for (Map.Entry<Integer, Object[]> entry : bestOrders.entrySet()) {
+    			int set = entry.getKey();
+    			for (int i = 0; i < regionCount; i++) {
+    				if ((set & (1 << i)) != 0) {
+    					continue;
+    				}
+    				Object[] order = Arrays.copyOf(entry.getValue(), size + 1);
+    				order[size] = Integer.valueOf(i);
+    				double score = region.scoreRegion(order, 0, metadata, capFinder, context);
+    				if (score == Double.MAX_VALUE) {
+    					continue;
+    				}
+    				Integer key = set | (1 << i);
+    				Double bestScore = nextScores.get(key);
+    				if (bestScore == null || score < bestScore) {
+    					nextScores.put(key, score);
+    					nextOrders.put(key, order);
+    				}
+    			}
+    		}
+    		bestOrders = nextOrders;
+    	}
+    	return bestOrders.get(all);
+    }
+    
     /** 
      * @see java.lang.Object#toString()
      */
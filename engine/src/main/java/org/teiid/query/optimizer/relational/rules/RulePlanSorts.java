@@ -23,14 +23,20 @@
 package org.teiid.query.optimizer.relational.rules;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.teiid.api.exception.query.QueryMetadataException;
 import org.teiid.api.exception.query.QueryPlannerException;
 import org.teiid.core.TeiidComponentException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.language.SortSpecification.NullOrdering;
 import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
+import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
 import org.teiid.query.optimizer.relational.OptimizerRule;
 import org.teiid.query.optimizer.relational.RuleStack;
 import org.teiid.query.optimizer.relational.plantree.NodeConstants;
@@ -39,16 +45,20 @@ import org.teiid.query.optimizer.relational.plantree.NodeEditor;
 import org.teiid.query.optimizer.relational.plantree.PlanNode;
 import org.teiid.query.processor.relational.JoinNode.JoinStrategyType;
 import org.teiid.query.processor.relational.MergeJoinStrategy.SortOption;
+import org.teiid.query.sql.lang.JoinType;
 import org.teiid.query.sql.lang.OrderBy;
 import org.teiid.query.sql.lang.OrderByItem;
+import org.teiid.query.sql.lang.Query;
 import org.teiid.query.sql.lang.SetQuery;
 import org.teiid.query.sql.symbol.AggregateSymbol;
 import org.teiid.query.sql.symbol.AliasSymbol;
 import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.ExpressionSymbol;
+import org.teiid.query.sql.symbol.WindowSpecification;
 import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.util.CommandContext;
+import org.teiid.translator.ExecutionFactory.NullOrder;
 
 
 /**
@@ -84,6 +94,18 @@ public class RulePlanSorts implements OptimizerRule {
 			if (node.hasBooleanProperty(NodeConstants.Info.IS_DUP_REMOVAL)) {
 				break;
 			}
+			if (!node.hasBooleanProperty(Info.UNRELATED_SORT) 
+					&& isOrdered(getOrdering(node.getFirstChild(), metadata, capFinder), ((OrderBy)node.getProperty(NodeConstants.Info.SORT_ORDER)).getOrderByItems())) {
+				//the tuples are already in the needed order
+				PlanNode child = node.getFirstChild();
+				if (node.getParent() == null) {
+					root = child;
+					root.removeFromParent();
+				} else {
+					NodeEditor.removeChildNode(node.getParent(), node);
+				}
+				return optimizeSorts(false, child, root, metadata, capFinder, record, context);
+			}
 			if (mergeSortWithDupRemoval(node)) {
 				node.setProperty(NodeConstants.Info.IS_DUP_REMOVAL, true);
 			} else {
@@ -333,6 +355,316 @@ public class RulePlanSorts implements OptimizerRule {
 		return false;
 	}
 	
+	/**
+	 * Determine the order, if any, in which the node produces its tuples.
+	 * <br/>
+	 * The ordering is derived from sort nodes, the top level order by pushed to a source, 
+	 * and merge joins and is mapped through projection and view boundaries.
+	 * <br/>
+	 * The null ordering of a source ordering is determined from the source capabilities 
+	 * and the ordering is only known up to the first item with an unknown null ordering.
+	 * @return the ordering items in terms of the node output or an empty list if the order is not known
+	 */
+	static List<OrderByItem> getOrdering(PlanNode node, QueryMetadataInterface metadata, CapabilitiesFinder capFinder) throws QueryMetadataException, TeiidComponentException {
+		return getOrdering(node, false, metadata, capFinder);
+	}
+	
+	private static List<OrderByItem> getOrdering(PlanNode node, boolean pushed, QueryMetadataInterface metadata, CapabilitiesFinder capFinder) throws QueryMetadataException, TeiidComponentException {
+		switch (node.getType()) {
+		case NodeConstants.Types.SORT:
+			if (node.hasBooleanProperty(Info.IS_DUP_REMOVAL) || node.hasBooleanProperty(Info.UNRELATED_SORT)) {
+				break;
+			}
+			OrderBy orderBy = (OrderBy)node.getProperty(Info.SORT_ORDER);
+			if (orderBy == null) {
+				break;
+			}
+			return orderBy.getOrderByItems();
+		case NodeConstants.Types.ACCESS:
+			if (pushed) {
+				break;
+			}
+			//the results from multiple sources are not ordered with respect to each other
+			if (node.hasBooleanProperty(Info.IS_MULTI_SOURCE)) {
+				break;
+			}
+			if (node.getChildCount() == 0) {
+				return getSourceOrdering(node, getPushedOrdering(node), metadata, capFinder);
+			}
+			//dependent queries are ordered only within each independent set of values
+			if (hasDependentCriteria(node)) {
+				break;
+			}
+			return getSourceOrdering(node, getOrdering(node.getFirstChild(), true, metadata, capFinder), metadata, capFinder);
+		case NodeConstants.Types.TUPLE_LIMIT:
+			return getOrdering(node.getFirstChild(), pushed, metadata, capFinder);
+		case NodeConstants.Types.DUP_REMOVE:
+			if (!pushed) {
+				break;
+			}
+			return getOrdering(node.getFirstChild(), pushed, metadata, capFinder);
+		case NodeConstants.Types.SELECT:
+			if (pushed) {
+				break;
+			}
+			return getOrdering(node.getFirstChild(), pushed, metadata, capFinder);
+		case NodeConstants.Types.PROJECT:
+			if (node.getChildCount() == 0 || node.hasBooleanProperty(Info.HAS_WINDOW_FUNCTIONS)) {
+				break;
+			}
+			List<Expression> projectCols = (List<Expression>)node.getProperty(Info.PROJECT_COLS);
+			List<Expression> expressions = new ArrayList<Expression>(projectCols.size());
+			for (Expression ex : projectCols) {
+				expressions.add(SymbolMap.getExpression(ex));
+			}
+			return mapOrdering(getOrdering(node.getFirstChild(), pushed, metadata, capFinder), expressions, projectCols);
+		case NodeConstants.Types.SOURCE:
+			if (pushed || node.getChildCount() == 0) {
+				break;
+			}
+			SymbolMap symbolMap = (SymbolMap)node.getProperty(Info.SYMBOL_MAP);
+			if (symbolMap == null) {
+				break;
+			}
+			List<ElementSymbol> keys = symbolMap.getKeys();
+			return mapOrdering(getOrdering(node.getFirstChild(), pushed, metadata, capFinder), symbolMap.getValues(), keys);
+		case NodeConstants.Types.JOIN:
+			if (pushed || node.getProperty(Info.JOIN_STRATEGY) != JoinStrategyType.MERGE) {
+				break;
+			}
+			JoinType joinType = (JoinType)node.getProperty(Info.JOIN_TYPE);
+			if (joinType != JoinType.JOIN_INNER && joinType != JoinType.JOIN_LEFT_OUTER) {
+				break;
+			}
+			List<Expression> leftExpressions = (List<Expression>)node.getProperty(Info.LEFT_EXPRESSIONS);
+			List<OrderByItem> result = new ArrayList<OrderByItem>(leftExpressions.size());
+			//an inner join will not output null keys, but the outer join retains the null ordering of an unsorted left side
+			List<OrderByItem> leftOrdering = null;
+			if (joinType == JoinType.JOIN_LEFT_OUTER && node.getProperty(Info.SORT_LEFT) != SortOption.SORT) {
+				leftOrdering = getOrdering(node.getFirstChild(), pushed, metadata, capFinder);
+			}
+			for (int i = 0; i < leftExpressions.size(); i++) {
+				Expression ex = leftExpressions.get(i);
+				OrderByItem item = new OrderByItem(ex, OrderBy.ASC);
+				if (leftOrdering != null) {
+					if (leftOrdering.size() <= i || !SymbolMap.getExpression(leftOrdering.get(i).getSymbol()).equals(SymbolMap.getExpression(ex))) {
+						break;
+					}
+					item.setNullOrdering(getNullOrdering(leftOrdering.get(i)));
+				}
+				result.add(item);
+			}
+			return result;
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Get the ordering of an access node that has already been collapsed into its atomic request
+	 */
+	private static List<OrderByItem> getPushedOrdering(PlanNode accessNode) {
+		Object command = accessNode.getProperty(Info.ATOMIC_REQUEST);
+		if (accessNode.hasBooleanProperty(Info.IS_DEPENDENT_SET) || !(command instanceof Query)) {
+			return Collections.emptyList();
+		}
+		OrderBy orderBy = ((Query)command).getOrderBy();
+		List<Expression> outputCols = (List<Expression>)accessNode.getProperty(Info.OUTPUT_COLS);
+		if (orderBy == null || outputCols == null) {
+			return Collections.emptyList();
+		}
+		List<OrderByItem> result = new ArrayList<OrderByItem>(orderBy.getOrderByItems().size());
+		for (OrderByItem item : orderBy.getOrderByItems()) {
+			int index = item.getExpressionPosition();
+			if (index < 0 || index >= outputCols.size()) {
+				break;
+			}
+			OrderByItem mapped = new OrderByItem(outputCols.get(index), item.isAscending());
+			mapped.setNullOrdering(item.getNullOrdering());
+			result.add(mapped);
+		}
+		return result;
+	}
+
+	/**
+	 * Set the null ordering of the source ordering.  Without null ordering support the source 
+	 * will use its default, which may not be known.  String values are ordered by the source 
+	 * collation, which must also match the engine's.
+	 * @return the source ordering up to the first item with an unknown null ordering or collation
+	 */
+	private static List<OrderByItem> getSourceOrdering(PlanNode accessNode, List<OrderByItem> ordering, QueryMetadataInterface metadata, CapabilitiesFinder capFinder) throws QueryMetadataException, TeiidComponentException {
+		if (ordering.isEmpty()) {
+			return ordering;
+		}
+		Object modelID = RuleRaiseAccess.getModelIDFromAccess(accessNode, metadata);
+		if (modelID == null) {
+			return Collections.emptyList();
+		}
+		boolean supportsNullOrdering = CapabilitiesUtil.supports(Capability.QUERY_ORDERBY_NULL_ORDERING, modelID, metadata, capFinder);
+		NullOrder defaultNullOrder = CapabilitiesUtil.getDefaultNullOrder(modelID, metadata, capFinder);
+		Boolean sameCollation = null;
+		List<OrderByItem> result = new ArrayList<OrderByItem>(ordering.size());
+		for (OrderByItem item : ordering) {
+			Class<?> type = item.getSymbol().getType();
+			if (type == DataTypeManager.DefaultDataClasses.STRING || type == DataTypeManager.DefaultDataClasses.CHAR) {
+				if (sameCollation == null) {
+					sameCollation = CapabilitiesUtil.isSameCollation(modelID, metadata, capFinder);
+				}
+				if (!sameCollation) {
+					return result;
+				}
+			}
+			NullOrdering nullOrdering = item.getNullOrdering();
+			if (nullOrdering == null || !supportsNullOrdering) {
+				switch (defaultNullOrder) {
+				case LOW:
+					nullOrdering = item.isAscending()?NullOrdering.FIRST:NullOrdering.LAST;
+					break;
+				case HIGH:
+					nullOrdering = item.isAscending()?NullOrdering.LAST:NullOrdering.FIRST;
+					break;
+				case FIRST:
+					nullOrdering = NullOrdering.FIRST;
+					break;
+				case LAST:
+					nullOrdering = NullOrdering.LAST;
+					break;
+				default:
+					return result;
+				}
+			}
+			OrderByItem sourceItem = new OrderByItem(item.getSymbol(), item.isAscending());
+			sourceItem.setNullOrdering(nullOrdering);
+			result.add(sourceItem);
+		}
+		return result;
+	}
+
+	private static boolean hasDependentCriteria(PlanNode accessNode) {
+		for (PlanNode select : NodeEditor.findAllNodes(accessNode, NodeConstants.Types.SELECT)) {
+			if (select.hasBooleanProperty(Info.IS_DEPENDENT_SET)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Map the ordering from the child expressions to the symbols of the parent.  
+	 * Only the prefix of the ordering that can be mapped is retained.
+	 */
+	private static List<OrderByItem> mapOrdering(List<OrderByItem> ordering, List<? extends Expression> childExpressions, List<? extends Expression> symbols) {
+		List<OrderByItem> result = new ArrayList<OrderByItem>(ordering.size());
+		for (OrderByItem item : ordering) {
+			int index = childExpressions.indexOf(SymbolMap.getExpression(item.getSymbol()));
+			if (index < 0) {
+				break;
+			}
+			OrderByItem mapped = new OrderByItem(symbols.get(index), item.isAscending());
+			mapped.setNullOrdering(item.getNullOrdering());
+			result.add(mapped);
+		}
+		return result;
+	}
+	
+	/**
+	 * @return true if the node output is grouped by the partition and then ordered by the order by
+	 * of the window specification, so that the window functions may be computed as the tuples are read
+	 */
+	public static boolean isOrderedForWindow(PlanNode node, WindowSpecification spec, QueryMetadataInterface metadata, CapabilitiesFinder capFinder) throws QueryMetadataException, TeiidComponentException {
+		List<OrderByItem> ordering = getOrdering(node, metadata, capFinder);
+		int partitionSize = 0;
+		if (spec.getPartition() != null) {
+			//any direction and order of the partition expressions will group the partitions
+			Set<Expression> partition = new HashSet<Expression>();
+			for (Expression ex : spec.getPartition()) {
+				partition.add(SymbolMap.getExpression(ex));
+			}
+			partitionSize = partition.size();
+			if (ordering.size() < partitionSize) {
+				return false;
+			}
+			for (int i = 0; i < partitionSize; i++) {
+				if (!partition.remove(SymbolMap.getExpression(ordering.get(i).getSymbol()))) {
+					return false;
+				}
+			}
+		}
+		if (spec.getOrderBy() == null) {
+			return true;
+		}
+		return isOrdered(ordering.subList(partitionSize, ordering.size()), spec.getOrderBy().getOrderByItems());
+	}
+	
+	/**
+	 * @return true if the ordering satisfies the required order items
+	 */
+	static boolean isOrdered(List<OrderByItem> ordering, List<OrderByItem> required) {
+		if (ordering.size() < required.size()) {
+			return false;
+		}
+		for (int i = 0; i < required.size(); i++) {
+			OrderByItem item = ordering.get(i);
+			OrderByItem requiredItem = required.get(i);
+			if (item.isAscending() != requiredItem.isAscending() 
+					|| getNullOrdering(item) != getNullOrdering(requiredItem)
+					|| !SymbolMap.getExpression(item.getSymbol()).equals(SymbolMap.getExpression(requiredItem.getSymbol()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Find the positions of the expressions that match the ascending ordering prefix
+	 * @return the reorder indexes or null if a prefix of the ordering does not contain all of the expressions
+	 */
+	static int[] getOrderingIndexes(List<OrderByItem> ordering, List<Expression> expressions) {
+		if (ordering.size() < expressions.size()) {
+			return null;
+		}
+		int[] reorder = new int[expressions.size()];
+		boolean[] found = new boolean[expressions.size()];
+		for (int i = 0; i < reorder.length; i++) {
+			OrderByItem item = ordering.get(i);
+			if (!item.isAscending() || getNullOrdering(item) != NullOrdering.FIRST) {
+				return null;
+			}
+			int index = expressions.indexOf(SymbolMap.getExpression(item.getSymbol()));
+			if (index < 0 || found[index] || expressions.lastIndexOf(SymbolMap.getExpression(item.getSymbol())) != index) {
+				return null;
+			}
+			found[index] = true;
+			reorder[i] = index;
+		}
+		return reorder;
+	}
+
+	/**
+	 * @return true if the ordering is ascending by the expressions in the same order
+	 */
+	static boolean isOrderedBy(List<OrderByItem> ordering, List<Expression> expressions) {
+		int[] reorder = getOrderingIndexes(ordering, expressions);
+		if (reorder == null) {
+			return false;
+		}
+		for (int i = 0; i < reorder.length; i++) {
+			if (reorder[i] != i) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Nulls are treated as low by the engine  
+	 */
+	private static NullOrdering getNullOrdering(OrderByItem item) {
+		if (item.getNullOrdering() != null) {
+			return item.getNullOrdering();
+		}
+		return item.isAscending()?NullOrdering.FIRST:NullOrdering.LAST;
+	}
+	
 	@Override
 	public String toString() {
 		return "PlanSorts"; //$NON-NLS-1$
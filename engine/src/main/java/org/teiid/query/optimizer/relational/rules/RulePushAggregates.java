@@ -257,13 +257,19 @@ public class RulePushAggregates implements
 		
 		List<AggregateSymbol> copy = new ArrayList<AggregateSymbol>(aggregates);
 		aggregates.clear();
+		
+		//distinct aggregates are not decomposable, instead the distinct values from each branch are passed through to the final aggregate 
+		Set<Expression> stagedGroupingSymbols = new LinkedHashSet<Expression>(groupingExpressions);
+		stageDistinctAggregates(copy, stagedGroupingSymbols);
+		List<Expression> stagedGroupingExpressions = new ArrayList<Expression>(stagedGroupingSymbols);
+		
 		Map<AggregateSymbol, Expression> aggMap = buildAggregateMap(copy, metadata, aggregates);
 		
 		boolean shouldPushdown = false;
 		List<Boolean> pushdownList = new ArrayList<Boolean>(unionChildren.size());
 		
 		for (PlanNode planNode : unionChildren) {
-			boolean pushdown = canPushGroupByToUnionChild(metadata, capFinder, groupingExpressions, aggregates, planNode, record, groupNode); 
+			boolean pushdown = canPushGroupByToUnionChild(metadata, capFinder, stagedGroupingExpressions, aggregates, planNode, record, groupNode); 
 			pushdownList.add(pushdown);
 			shouldPushdown |= pushdown;
 		}
@@ -277,7 +283,7 @@ public class RulePushAggregates implements
 		Iterator<Boolean> pushdownIterator = pushdownList.iterator();
 		boolean first = true;
 		for (PlanNode planNode : unionChildren) {
-			addUnionGroupBy(groupingExpressions, aggregates, parentMap, metadata, capFinder, group, first, planNode, !pushdownIterator.next());
+			addUnionGroupBy(stagedGroupingExpressions, aggregates, parentMap, metadata, capFinder, group, first, planNode, !pushdownIterator.next());
 			first = false;
 		}
 		
@@ -291,7 +297,7 @@ public class RulePushAggregates implements
 		//correct the parent frame
 		Map<Expression, ElementSymbol> mapping = new HashMap<Expression, ElementSymbol>();
 		Iterator<ElementSymbol> elemIter = symbolMap.getKeys().iterator();
-		for (Expression expr : groupingExpressions) {
+		for (Expression expr : stagedGroupingExpressions) {
 			mapping.put(expr, elemIter.next());
 		}
 		for (AggregateSymbol agg : aggregates) {
@@ -833,6 +839,8 @@ public class RulePushAggregates implements
             }
         } 
         
+        stageDistinctAggregates(aggregates, stagedGroupingSymbols);
+        
         if (aggregates.isEmpty()) {
         	return Collections.emptySet();
         }
@@ -848,6 +856,24 @@ public class RulePushAggregates implements
         return newAggs;
     }
     
+    /**
+     * Distinct aggregates cannot be recombined from partial results, e.g. SUM(COUNT(DISTINCT x)) 
+     * over-counts values seen by more than one staged group.  Instead the argument is added to the 
+     * staged grouping so that each stage contributes only its distinct values, and the aggregate 
+     * is computed only by the final grouping.  APPROX_COUNT_DISTINCT is staged the same way.
+     * <br/>
+     * The distinct aggregates are removed from the collection.
+     */
+    static void stageDistinctAggregates(Collection<AggregateSymbol> aggregates, Set<Expression> stagedGroupingSymbols) {
+    	for (Iterator<AggregateSymbol> iterator = aggregates.iterator(); iterator.hasNext();) {
+    		AggregateSymbol symbol = iterator.next();
+			if (symbol.isDistinct() || symbol.getAggregateFunction() == Type.APPROX_COUNT_DISTINCT) {
+				stagedGroupingSymbols.add(symbol.getArg(0));
+				iterator.remove();
+			}
+		}
+    }
+    
     private void collectSymbolsFromOtherAggregates(Collection<AggregateSymbol> allAggregates,
                                                       Collection<AggregateSymbol> aggregates,
                                                       PlanNode current,
@@ -983,7 +1009,7 @@ public class RulePushAggregates implements
             	continue; //don't perform intermediate grouping
             }
             
-            if (aggs && ((AggregateSymbol)aggregateSymbol).isDistinct()) {
+            if (aggs && (((AggregateSymbol)aggregateSymbol).isDistinct() || ((AggregateSymbol)aggregateSymbol).getAggregateFunction() == Type.APPROX_COUNT_DISTINCT)) {
             	//TODO: support distinct
             	continue;
             }
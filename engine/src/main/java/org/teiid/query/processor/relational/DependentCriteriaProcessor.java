@@ -114,6 +114,16 @@ public class DependentCriteriaProcessor {
             	for (SetState setState : dependentSetStates) {
                     setState.valueIterator = dvs.getValueIterator(setState.valueExpression);
                     int distinctCount = dvs.getTupleBuffer().getRowCount();
+                    if (!setState.overMax && !originalVs.isForced()) {
+                    	//the row count is an upper bound for the distinct values of a composite source 
+                    	long queries = getQueryCount(distinctCount * setState.valueCount);
+                    	int maxQueries = dependentNode.getContext().getOptions().getMaxDependentQueries();
+                    	if (maxQueries > 0 && queries > maxQueries) {
+                    		LogManager.logWarning(LogConstants.CTX_DQP, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31136, valueSource, queries, setState.valueExpression, maxQueries));
+                    		setState.overMax = true;
+                    		continue;
+                    	}
+                    }
                     if (setState.maxNdv <= 0 || setState.maxNdv >= distinctCount) {
                     	continue;
                     }
@@ -421,6 +431,20 @@ public class DependentCriteriaProcessor {
         return hasNextCommand;
     }
     
+    /**
+     * Get the number of source queries needed for the given number of values
+     */
+    long getQueryCount(long values) {
+    	if (this.maxSetSize <= 0) {
+    		return 1;
+    	}
+    	long predicates = values/this.maxSetSize + (values%this.maxSetSize!=0?1:0);
+    	if (this.maxPredicates <= 0) {
+    		return predicates;
+    	}
+    	return predicates/this.maxPredicates + (predicates%this.maxPredicates!=0?1:0);
+    }
+    
     public Criteria replaceDependentCriteria(AbstractSetCriteria crit, SetState state) throws TeiidComponentException {
     	if (state.overMax) {
             DependentValueSource originalVs = (DependentValueSource)dependentNode.getContext().getVariableContext().getGlobalValue(((DependentSetCriteria)crit).getContextSymbol());
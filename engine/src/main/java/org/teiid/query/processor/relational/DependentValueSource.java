@@ -53,6 +53,7 @@ public class DependentValueSource implements
     private Map<Expression, Set<Object>> cachedSets;
     private boolean unused; //TODO: use this value instead of the context
     private boolean distinct;
+    private boolean forced;
 
     public DependentValueSource(TupleBuffer tb) {
     	this(tb, tb.getSchema());
@@ -167,5 +168,13 @@ public class DependentValueSource implements
     public void setDistinct(boolean distinct) {
 		this.distinct = distinct;
 	}
+    
+    public boolean isForced() {
+		return forced;
+	}
+    
+    public void setForced(boolean forced) {
+		this.forced = forced;
+	}
            
 }
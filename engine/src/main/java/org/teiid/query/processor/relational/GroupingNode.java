@@ -247,6 +247,12 @@ public class GroupingNode extends SubqueryAwareRelationalNode {
 		case TEXTAGG:
 			result = new TextAgg((TextLine)args[0]);
 			break;     
+		case APPROX_COUNT_DISTINCT:
+			result = new ApproxCountDistinct();
+			break;
+		case APPROX_PERCENTILE:
+			result = new ApproxPercentile();
+			break;
 		case USER_DEFINED:
 			result = new UserDefined(aggSymbol.getFunctionDescriptor());
 			break;
@@ -67,6 +67,7 @@ public class JoinNode extends SubqueryAwareRelationalNode {
     private JoinStrategy joinStrategy;
     private JoinType joinType;
     private String dependentValueSource;
+    private boolean dependentForced;
    
     private List leftExpressions;
     private List rightExpressions;
@@ -165,6 +166,7 @@ public class JoinNode extends SubqueryAwareRelationalNode {
         
         clonedNode.rightExpressions = rightExpressions;
         clonedNode.dependentValueSource = this.dependentValueSource;
+        clonedNode.dependentForced = this.dependentForced;
         clonedNode.rightDistinct = rightDistinct;
         clonedNode.leftDistinct = leftDistinct;
         
@@ -190,6 +192,7 @@ public class JoinNode extends SubqueryAwareRelationalNode {
 	                //the tuplebuffer may be from a lower node, so pass in the schema
 	                dvs = new DependentValueSource(buffer, this.joinStrategy.leftSource.getSource().getElements());
 	                dvs.setDistinct(this.joinStrategy.leftSource.isDistinct());
+	                dvs.setForced(this.dependentForced);
 	                this.getContext().getVariableContext().setGlobalValue(this.dependentValueSource, dvs);
 	            }
 	            state = State.LOAD_RIGHT;
@@ -299,6 +302,14 @@ public class JoinNode extends SubqueryAwareRelationalNode {
 		return dependentValueSource;
 	}
     
+    /**
+     * @param dependentForced true if the dependent join was required by a hint or access pattern
+     * and should not be abandoned at runtime
+     */
+    public void setDependentForced(boolean dependentForced) {
+		this.dependentForced = dependentForced;
+	}
+    
     public void closeDirect() {
         super.closeDirect();
         joinStrategy.close();
@@ -0,0 +1,393 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.processor.relational;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.common.buffer.BlockedException;
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.TupleBatch;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.ClobType;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.types.TransformationException;
+import org.teiid.json.simple.ContentHandler;
+import org.teiid.json.simple.JSONParser;
+import org.teiid.json.simple.ParseException;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.processor.ProcessorDataManager;
+import org.teiid.query.sql.LanguageObject;
+import org.teiid.query.sql.lang.JsonTable;
+import org.teiid.query.sql.lang.JsonTable.JsonColumn;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Handles json table processing.
+ * <br/>
+ * The json value is streamed through a resumable {@link JSONParser} - parsing is paused 
+ * after each row is completed, so only the current row is held in memory.  Only the projected 
+ * columns are tracked and nested objects or arrays targeted by a column are captured as json text.
+ */
+public class JsonTableNode extends SubqueryAwareRelationalNode {
+
+	private JsonTable table;
+	
+	//initialized state
+	private int[] projectionIndexes;
+	private JsonColumn[] projectedColumns;
+	
+	//per value state
+	private Reader reader;
+	private JSONParser parser;
+	private RowHandler handler;
+	
+	private static class Capture {
+		int column;
+		int depth;
+		StringWriter json = new StringWriter();
+		
+		Capture(int column, int depth) {
+			this.column = column;
+			this.depth = depth;
+		}
+		
+		void prepareValue() {
+			StringBuffer buffer = json.getBuffer();
+			if (buffer.length() == 0) {
+				return;
+			}
+			char c = buffer.charAt(buffer.length() - 1);
+			if (c != '[' && c != '{' && c != ':') {
+				json.append(',');
+			}
+		}
+	}
+	
+	/**
+	 * Tracks the path of the current json value and builds rows as values matching 
+	 * the row path are completed.  Row values are relative to the path of the row.
+	 */
+	private class RowHandler implements ContentHandler {
+		
+		//a null entry represents an array element
+		private List<String> path = new ArrayList<String>();
+		private LinkedList<List<?>> rows = new LinkedList<List<?>>();
+		private boolean end;
+		
+		//current row state
+		private int rowDepth = -1;
+		private int ordinal;
+		private Object[] values;
+		private boolean[] set;
+		private List<Capture> captures = new ArrayList<Capture>(2);
+		private TeiidProcessingException exception;
+		
+		@Override
+		public void startJSON() throws ParseException, IOException {
+			
+		}
+		
+		@Override
+		public void endJSON() throws ParseException, IOException {
+			end = true;
+		}
+		
+		@Override
+		public boolean startObject() throws ParseException, IOException {
+			startValue(true);
+			for (int i = 0; i < captures.size(); i++) {
+				Capture capture = captures.get(i);
+				capture.prepareValue();
+				capture.json.append('{');
+			}
+			return rows.isEmpty();
+		}
+		
+		@Override
+		public boolean endObject() throws ParseException, IOException {
+			for (int i = 0; i < captures.size(); i++) {
+				captures.get(i).json.append('}');
+			}
+			endValue();
+			return rows.isEmpty();
+		}
+		
+		@Override
+		public boolean startArray() throws ParseException, IOException {
+			startValue(true);
+			for (int i = 0; i < captures.size(); i++) {
+				Capture capture = captures.get(i);
+				capture.prepareValue();
+				capture.json.append('[');
+			}
+			path.add(null);
+			return rows.isEmpty();
+		}
+		
+		@Override
+		public boolean endArray() throws ParseException, IOException {
+			path.remove(path.size() - 1);
+			for (int i = 0; i < captures.size(); i++) {
+				captures.get(i).json.append(']');
+			}
+			endValue();
+			return rows.isEmpty();
+		}
+		
+		@Override
+		public boolean startObjectEntry(String key) throws ParseException,
+				IOException {
+			for (int i = 0; i < captures.size(); i++) {
+				Capture capture = captures.get(i);
+				capture.prepareValue();
+				capture.json.append('"');
+				JSONParser.escape(key, capture.json);
+				capture.json.append("\":"); //$NON-NLS-1$
+			}
+			path.add(key);
+			return rows.isEmpty();
+		}
+		
+		@Override
+		public boolean endObjectEntry() throws ParseException, IOException {
+			path.remove(path.size() - 1);
+			return rows.isEmpty();
+		}
+		
+		@Override
+		public boolean primitive(Object value) throws ParseException,
+				IOException {
+			startValue(false);
+			if (rowDepth >= 0) {
+				for (int i = 0; i < projectedColumns.length; i++) {
+					if (!set[i] && matches(projectedColumns[i].getSteps(), rowDepth)) {
+						set[i] = true;
+						values[i] = value;
+					}
+				}
+			}
+			for (int i = 0; i < captures.size(); i++) {
+				Capture capture = captures.get(i);
+				capture.prepareValue();
+				if (value == null) {
+					capture.json.append("null"); //$NON-NLS-1$
+				} else if (value instanceof String) {
+					capture.json.append('"');
+					JSONParser.escape((String)value, capture.json);
+					capture.json.append('"');
+				} else {
+					capture.json.write(value.toString());
+				}
+			}
+			endValue();
+			//the parser will not end the object entry if paused on a pair value
+			return rows.isEmpty() || (!path.isEmpty() && path.get(path.size() - 1) != null);
+		}
+		
+		private void startValue(boolean container) {
+			int depth = path.size();
+			if (rowDepth < 0) {
+				if (!matches(table.getRowSteps(), 0)) {
+					return;
+				}
+				rowDepth = depth;
+				ordinal++;
+				values = new Object[projectedColumns.length];
+				set = new boolean[projectedColumns.length];
+				for (int i = 0; i < projectedColumns.length; i++) {
+					if (projectedColumns[i].isOrdinal()) {
+						set[i] = true;
+						values[i] = ordinal;
+					}
+				}
+			}
+			if (!container) {
+				return;
+			}
+			for (int i = 0; i < projectedColumns.length; i++) {
+				if (!set[i] && matches(projectedColumns[i].getSteps(), rowDepth)) {
+					set[i] = true;
+					captures.add(new Capture(i, depth));
+				}
+			}
+		}
+		
+		private void endValue() {
+			int depth = path.size();
+			for (int i = captures.size() - 1; i >= 0; i--) {
+				Capture capture = captures.get(i);
+				if (capture.depth == depth) {
+					values[capture.column] = capture.json.toString();
+					captures.remove(i);
+				}
+			}
+			if (depth != rowDepth) {
+				return;
+			}
+			rowDepth = -1;
+			List<Object> tuple = new ArrayList<Object>(projectedColumns.length);
+			for (int i = 0; i < projectedColumns.length; i++) {
+				JsonColumn col = projectedColumns[i];
+				try {
+					tuple.add(DataTypeManager.transformValue(values[i], col.getSymbol().getType()));
+				} catch (TransformationException e) {
+					//defer the exception so that it is not handled by the parser
+					if (exception == null) {
+						exception = new TeiidProcessingException(QueryPlugin.Event.TEIID30190, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30190, col.getName()));
+					}
+				}
+			}
+			rows.add(tuple);
+		}
+
+		/**
+		 * @return true if the current path relative to the offset matches the steps 
+		 */
+		private boolean matches(String[] steps, int offset) {
+			if (path.size() - offset != steps.length) {
+				return false;
+			}
+			for (int i = 0; i < steps.length; i++) {
+				String step = steps[i];
+				String actual = path.get(i + offset);
+				if (step == null ? actual != null : !step.equals(actual)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	public JsonTableNode(int nodeID) {
+		super(nodeID);
+	}
+	
+	@Override
+	public void initialize(CommandContext context, BufferManager bufferManager,
+			ProcessorDataManager dataMgr) {
+		super.initialize(context, bufferManager, dataMgr);
+		if (projectionIndexes != null) {
+			return;
+		}
+		Map<Expression, Integer> elementMap = createLookupMap(table.getProjectedSymbols());
+		this.projectionIndexes = getProjectionIndexes(elementMap, getElements());
+		this.projectedColumns = new JsonColumn[projectionIndexes.length];
+		for (int i = 0; i < projectionIndexes.length; i++) {
+			projectedColumns[i] = table.getColumns().get(projectionIndexes[i]);
+		}
+	}
+	
+	@Override
+	public void closeDirect() {
+		super.closeDirect();
+		reset();
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		if (this.reader != null) {
+			try {
+				this.reader.close();
+			} catch (IOException e) {
+			}
+			this.reader = null;
+		}
+		this.parser = null;
+		this.handler = null;
+	}
+	
+	public void setTable(JsonTable table) {
+		this.table = table;
+	}
+
+	@Override
+	public JsonTableNode clone() {
+		JsonTableNode clone = new JsonTableNode(getID());
+		this.copyTo(clone);
+		clone.setTable(table);
+		return clone;
+	}
+
+	@Override
+	protected TupleBatch nextBatchDirect() throws BlockedException,
+			TeiidComponentException, TeiidProcessingException {
+		if (handler == null) {
+			setReferenceValues(this.table);
+			ClobType json = (ClobType)getEvaluator(Collections.emptyMap()).evaluate(table.getJson(), null);
+			if (json == null) {
+				terminateBatches();
+				return pullBatch();
+			}
+			try {
+				reader = json.getCharacterStream();
+			} catch (SQLException e) {
+				throw new TeiidProcessingException(QueryPlugin.Event.TEIID31145, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31145, table.getName()));
+			}
+			parser = new JSONParser();
+			handler = new RowHandler();
+		}
+		
+		while (!isBatchFull()) {
+			if (handler.exception != null) {
+				throw handler.exception;
+			}
+			if (!handler.rows.isEmpty()) {
+				addBatchRow(handler.rows.removeFirst());
+				continue;
+			}
+			if (handler.end) {
+				terminateBatches();
+				break;
+			}
+			try {
+				parser.parse(reader, handler, true);
+			} catch (IOException e) {
+				throw new TeiidProcessingException(QueryPlugin.Event.TEIID31145, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31145, table.getName()));
+			} catch (ParseException e) {
+				throw new TeiidProcessingException(QueryPlugin.Event.TEIID31145, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31145, table.getName()));
+			}
+		}
+		
+		return pullBatch();
+	}
+	
+	@Override
+	protected Collection<? extends LanguageObject> getObjects() {
+		return Arrays.asList(this.table.getJson());
+	}
+
+}
@@ -42,6 +42,7 @@ import org.teiid.core.util.Assertion;
 import org.teiid.logging.LogManager;
 import org.teiid.logging.MessageLevel;
 import org.teiid.query.analysis.AnalysisRecord;
+import org.teiid.query.optimizer.relational.rules.CardinalityFeedback;
 import org.teiid.query.processor.BatchCollector.BatchProducer;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.QueryProcessor;
@@ -60,6 +61,7 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
 		Number depAccessEstimate;
 		Number estimateDepJoinCost;
 		Number estimateJoinCost;
+		CardinalityFeedback cardinalityFeedback;
 	}
 
 	static class ProcessingState {
@@ -294,6 +296,7 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
                 //this processing style however against the spirit of batch processing (but was already utilized by Sort and Grouping nodes)
                 if (batch.getRowCount() != 0 || batch.getTerminationFlag()) {
                     if (batch.getTerminationFlag()) {
+                    	recordCardinalityFeedback(batch.getEndRow());
                         close();
                     }
                     return batch;
@@ -305,6 +308,9 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
                 this.getProcessingState().nodeStatistics.stopBatchTimer();
                 this.getProcessingState().nodeStatistics.collectCumulativeNodeStats(null, RelationalNodeStatistics.BLOCKEDEXCEPTION_STOP);
             }
+            if (this.getProcessingState().context != null) {
+            	this.getProcessingState().context.recordBlocked(getClassName());
+            }
             throw e;
         } catch (QueryProcessor.ExpiredTimeSliceException e) {
         	if(recordStats && this.getProcessingState().context.getCollectNodeStatistics()) {
@@ -571,6 +577,19 @@ public abstract class RelationalNode implements Cloneable, BatchProducer {
         this.data.estimateJoinCost = estimateJoinCost;
     }
     
+    public void setCardinalityFeedback(CardinalityFeedback cardinalityFeedback) {
+		this.data.cardinalityFeedback = cardinalityFeedback;
+	}
+    
+    private void recordCardinalityFeedback(int rowCount) throws TeiidComponentException {
+    	CommandContext context = this.getProcessingState().context;
+    	if (this.data.cardinalityFeedback == null || context == null || context.getMetadata() == null 
+    			|| !context.getOptions().isCardinalityFeedback()) {
+    		return;
+    	}
+    	this.data.cardinalityFeedback.recordCardinality(context.getMetadata(), this.data.estimateNodeCardinality, rowCount);
+    }
+    
     private List<String> getCostEstimates() {
         List<String> costEstimates = new ArrayList<String>();
         if(this.data.estimateNodeCardinality != null) {
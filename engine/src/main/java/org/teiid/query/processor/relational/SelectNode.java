@@ -26,6 +26,7 @@ import static org.teiid.query.analysis.AnalysisRecord.*;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -35,11 +36,20 @@ import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.TupleBatch;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
 import org.teiid.query.analysis.AnalysisRecord;
 import org.teiid.query.processor.ProcessorDataManager;
+import org.teiid.query.rewriter.QueryRewriter;
 import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.symbol.ElementSymbol;
 import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Reference;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+import org.teiid.query.sql.visitor.ExpressionMappingVisitor;
+import org.teiid.query.sql.visitor.ReferenceCollectorVisitor;
+import org.teiid.query.sql.visitor.ValueIteratorProviderCollectorVisitor;
 import org.teiid.query.util.CommandContext;
 
 
@@ -55,6 +65,10 @@ public class SelectNode extends SubqueryAwareRelationalNode {
     // State if blocked on evaluating a criteria
     private TupleBatch currentBatch;
     private int currentRow = 1;
+    
+    //criteria values known only at runtime - parameters and correlated references
+    private Map<ElementSymbol, Reference> runtimeReferences;
+    private boolean pruned;
 
 	protected SelectNode() {
 		super();
@@ -69,6 +83,7 @@ public class SelectNode extends SubqueryAwareRelationalNode {
         
         currentBatch = null;
         currentRow = 1;
+        pruned = false;
     }
 
 	public void setCriteria(Criteria criteria) { 
@@ -92,6 +107,53 @@ public class SelectNode extends SubqueryAwareRelationalNode {
             this.elementMap = createLookupMap(this.getChildren()[0].getElements());
             this.projectionIndexes = getProjectionIndexes(this.elementMap, projectedExpressions!=null?projectedExpressions:getElements());
         }
+        if (this.runtimeReferences == null) {
+        	this.runtimeReferences = getRuntimeReferences(this.criteria, this.elementMap);
+        }
+	}
+	
+	/**
+	 * @return the mapping of correlated references, which are the elements not supplied by the child, 
+	 * to be evaluated prior to processing or null if the criteria does not depend upon runtime values
+	 */
+	static Map<ElementSymbol, Reference> getRuntimeReferences(Criteria crit, Map<Expression, Integer> elementMap) {
+		if (!ValueIteratorProviderCollectorVisitor.getValueIteratorProviders(crit).isEmpty()) {
+			return null;
+		}
+		Map<ElementSymbol, Reference> result = new HashMap<ElementSymbol, Reference>();
+		for (ElementSymbol es : ElementCollectorVisitor.getElements(crit, true)) {
+			if (!elementMap.containsKey(es)) {
+				result.put(es, new Reference(es));
+			}
+		}
+		if (result.isEmpty() && ReferenceCollectorVisitor.getReferences(crit).isEmpty()) {
+			return null;
+		}
+		return result;
+	}
+	
+	/**
+	 * Prune the child subtree, and thus any source queries beneath it, if the criteria cannot be 
+	 * satisfied given the current parameter and correlated reference values.
+	 */
+	@Override
+	public void open() throws TeiidComponentException,
+			TeiidProcessingException {
+		if (this.runtimeReferences != null && getContext().getMetadata() != null) {
+			Criteria crit = (Criteria)this.criteria.clone();
+			ExpressionMappingVisitor.mapExpressions(crit, this.runtimeReferences);
+			try {
+				crit = QueryRewriter.evaluateAndRewrite(crit, getEvaluator(this.elementMap), getContext(), getContext().getMetadata());
+			} catch (TeiidProcessingException e) {
+				//defer to the normal row evaluation
+				LogManager.logDetail(LogConstants.CTX_DQP, e, "Could not evaluate the runtime values of", this.criteria); //$NON-NLS-1$
+			}
+			if (crit.equals(QueryRewriter.FALSE_CRITERIA)) {
+				this.pruned = true;
+				return;
+			}
+		}
+		super.open();
 	}
 	
     /**
@@ -100,6 +162,11 @@ public class SelectNode extends SubqueryAwareRelationalNode {
 	public TupleBatch nextBatchDirect()
 		throws BlockedException, TeiidComponentException, TeiidProcessingException {
 		
+		if (pruned) {
+			terminateBatches();
+			return pullBatch();
+		}
+		
         if(currentBatch == null) {
         	currentBatch = this.getChildren()[0].nextBatch();
         }
@@ -140,6 +207,7 @@ public class SelectNode extends SubqueryAwareRelationalNode {
 		target.elementMap = elementMap;
 		target.projectionIndexes = projectionIndexes;
 		target.projectedExpressions = projectedExpressions;
+		target.runtimeReferences = runtimeReferences;
 	}
     
     public PlanNode getDescriptionProperties() {   
@@ -22,7 +22,6 @@
 
 package org.teiid.query.processor.relational;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.sql.SQLException;
@@ -54,11 +53,17 @@ import org.teiid.query.util.CommandContext;
 
 /**
  * Handles text file processing.
+ * <br/>
+ * The file is read through a reusable char buffer and each line is parsed into
+ * offsets of a shared value buffer, so that only the projected values are 
+ * materialized and integral values are converted directly from the chars.
  * 
  * TODO: allow for a configurable line terminator
  */
 public class TextTableNode extends SubqueryAwareRelationalNode {
 
+	private static final int BUFFER_SIZE = 1 << 13;
+	
 	private TextTable table;
 	
 	//initialized state
@@ -72,7 +77,7 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
     private Map<String, List<String>> parentLines;
 	
     //per file state
-	private BufferedReader reader;
+	private Reader reader;
 	private int textLine = 0;
 	private Map<String, Integer> nameIndexes;
 	private String systemId;
@@ -80,6 +85,15 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 	private boolean cr;
 	private boolean eof;
 	
+	//read and parse buffers
+	private char[] buffer;
+	private int bufferPos;
+	private int bufferLimit;
+	private StringBuilder line = new StringBuilder();
+	private StringBuilder values = new StringBuilder();
+	private int[] valueOffsets = new int[32];
+	private int valueCount;
+	
 	public TextTableNode(int nodeID) {
 		super(nodeID);
 	}
@@ -148,6 +162,8 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 		this.textLine = 0;
 		this.cr = false;
 		this.eof = false;
+		this.bufferPos = 0;
+		this.bufferLimit = 0;
 		if (this.parentLines != null) {
 			for (Map.Entry<String, List<String>> entry : this.parentLines.entrySet()) {
 				entry.setValue(null);
@@ -181,7 +197,7 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 		}
 		
 		while (!isBatchFull()) {
-			String line = readLine(lineWidth, table.isFixedWidth());
+			CharSequence line = readLine(lineWidth, table.isFixedWidth());
 			
 			if (line == null) {
 				terminateBatches();
@@ -189,46 +205,55 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 			}
 			
 			String parentSelector = null;
-			if (table.getSelector() != null && !line.regionMatches(0, table.getSelector(), 0, table.getSelector().length())) {
+			if (table.getSelector() != null && !startsWith(line, table.getSelector())) {
 				if (parentLines == null) {
 					continue; //doesn't match any selector
 				}
-				parentSelector = line.substring(0, table.getSelector().length());
+				if (line.length() < table.getSelector().length()) {
+					continue; //doesn't match any selector
+				}
+				parentSelector = line.subSequence(0, table.getSelector().length()).toString();
 				
 				if (!parentLines.containsKey(parentSelector)) {
 					continue; //doesn't match any selector
 				} 
 			}
 			
-			List<String> vals = parseLine(line);
+			parseLine(line);
 			
 			if (parentSelector != null) {
-				this.parentLines.put(parentSelector, vals);
+				this.parentLines.put(parentSelector, getValues());
 				continue;
-			} else if (table.getSelector() != null && !table.getSelector().equals(vals.get(0))) {
+			} else if (table.getSelector() != null && !valueEquals(0, table.getSelector())) {
 				continue;
 			}
 			
 			List<Object> tuple = new ArrayList<Object>(projectionIndexes.length);
 			for (int output : projectionIndexes) {
 				TextColumn col = table.getColumns().get(output);
-				String val = null;
+				Class<?> type = col.getSymbol().getType();
 				int index = output;
 				
-				if (col.getSelector() != null) {
-					vals = this.parentLines.get(col.getSelector());
-					index = col.getPosition() - 1;
-				} else if (nameIndexes != null) {
-					index = nameIndexes.get(col.getName());
-				}
-				if (vals == null || index >= vals.size()) {
-					//throw new TeiidProcessingException(QueryPlugin.Util.getString("TextTableNode.no_value", col.getName(), textLine, systemId)); //$NON-NLS-1$
-					tuple.add(null);
-					continue;
-				} 
-				val = vals.get(index);
 				try {
-					tuple.add(DataTypeManager.transformValue(val, table.getColumns().get(output).getSymbol().getType()));
+					if (col.getSelector() != null) {
+						List<String> vals = this.parentLines.get(col.getSelector());
+						index = col.getPosition() - 1;
+						if (vals == null || index >= vals.size()) {
+							tuple.add(null);
+							continue;
+						}
+						tuple.add(DataTypeManager.transformValue(vals.get(index), type));
+						continue;
+					} 
+					if (nameIndexes != null) {
+						index = nameIndexes.get(col.getName());
+					}
+					if (index >= valueCount) {
+						//throw new TeiidProcessingException(QueryPlugin.Util.getString("TextTableNode.no_value", col.getName(), textLine, systemId)); //$NON-NLS-1$
+						tuple.add(null);
+						continue;
+					} 
+					tuple.add(getValue(index, type));
 				} catch (TransformationException e) {
 					 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30176, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30176, col.getName(), textLine, systemId));
 				}
@@ -238,12 +263,29 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 		
 		return pullBatch();
 	}
+	
+	private static boolean startsWith(CharSequence line, String prefix) {
+		if (line.length() < prefix.length()) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (line.charAt(i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
 
-	private String readLine(int maxLength, boolean exact) throws TeiidProcessingException {
+	/**
+	 * Read the next line into the reusable line buffer
+	 * @return the line buffer or null if there are no more lines
+	 */
+	private CharSequence readLine(int maxLength, boolean exact) throws TeiidProcessingException {
 		if (eof) {
 			return null;
 		}
-		StringBuilder sb = new StringBuilder(exact ? maxLength : (maxLength >> 4));
+		StringBuilder sb = this.line;
+		sb.setLength(0);
 		while (true) {
 			char c = readChar();
 			if (c == '\n') {
@@ -259,12 +301,12 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 				    if (exact && sb.length() < lineWidth) {
 				    	 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30177, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30177, sb.length(), lineWidth, textLine, systemId));
 				    }
-					return sb.toString();
+					return sb;
 				}
 		    }
 		    sb.append(c);
 		    if (exact && sb.length() == maxLength && !table.isUsingRowDelimiter()) {
-		    	return sb.toString();
+		    	return sb;
 		    }
 		    if (sb.length() > maxLength) {
 		    	if (exact) {
@@ -274,19 +316,40 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 		    		while (readChar() != '\n') {
 		    			
 		    		}
-		    		return sb.toString();
+		    		return sb;
 		    	}
 		    	 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30178, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30178, textLine+1, systemId, maxLength));
 		    }
 		}
 	}
 	
+	private int read() throws IOException {
+		if (bufferPos < bufferLimit) {
+			return buffer[bufferPos++];
+		}
+		if (buffer == null) {
+			buffer = new char[BUFFER_SIZE];
+		}
+		int count = 0;
+		while (count == 0) {
+			count = reader.read(buffer, 0, buffer.length);
+		}
+		if (count < 0) {
+			bufferPos = 0;
+			bufferLimit = 0;
+			return -1;
+		}
+		bufferPos = 1;
+		bufferLimit = count;
+		return buffer[0];
+	}
+	
 	private char readChar() throws TeiidProcessingException {
 		try {
-			int c = reader.read();
+			int c = read();
 		    if (cr) {
 				if (c == '\n') {
-				    c = reader.read();
+				    c = read();
 				}
 				cr = false;
 		    }
@@ -327,12 +390,8 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 					this.systemId = "Unknown"; //$NON-NLS-1$
 				}
 			} 
-			Reader r = file.getCharacterStream();
-			if (!(r instanceof BufferedReader)) {
-				reader = new BufferedReader(r);
-			} else {
-				reader = (BufferedReader)r;
-			}
+			//reads are buffered directly by this node
+			reader = file.getCharacterStream();
 		} catch (SQLException e) {
 			 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30180, e);
 		}
@@ -344,12 +403,13 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 		while (textLine < skip) {
 			boolean isHeader = textLine == header;
 			if (isHeader) {
-				String line = readLine(DataTypeManager.MAX_STRING_LENGTH * 16, false);
+				CharSequence line = readLine(DataTypeManager.MAX_STRING_LENGTH * 16, false);
 				if (line == null) { //just return an empty batch
 					reset();
 					return;
 				}
-				processHeader(parseLine(line));
+				parseLine(line);
+				processHeader(getValues());
 			} else {
 				while (readChar() != '\n') {
 	    			
@@ -376,16 +436,102 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 		}
 	}
 
-	private List<String> parseLine(String line) throws TeiidProcessingException {
+	/**
+	 * Parse the line into the value buffer and offsets
+	 */
+	private void parseLine(CharSequence line) throws TeiidProcessingException {
+		values.setLength(0);
+		valueCount = 0;
 		if (table.isFixedWidth()) {
-			return parseFixedWidth(line);
-		} 
-		return parseDelimitedLine(line);
+			parseFixedWidth(line);
+		} else {
+			parseDelimitedLine(line);
+		}
+	}
+	
+	/**
+	 * @return the String values of the last parsed line
+	 */
+	private List<String> getValues() {
+		List<String> result = new ArrayList<String>(valueCount);
+		for (int i = 0; i < valueCount; i++) {
+			int start = valueOffsets[i << 1];
+			if (start < 0) {
+				result.add(null);
+			} else {
+				result.add(values.substring(start, valueOffsets[(i << 1) + 1]));
+			}
+		}
+		return result;
+	}
+	
+	private boolean valueEquals(int index, String value) {
+		int start = valueOffsets[index << 1];
+		if (start < 0) {
+			return false;
+		}
+		int end = valueOffsets[(index << 1) + 1];
+		if (end - start != value.length()) {
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (values.charAt(start + i) != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Get the value of the last parsed line converted to the given type. 
+	 * Integral values are converted without creating an intermediate String.
+	 */
+	private Object getValue(int index, Class<?> type) throws TransformationException {
+		int start = valueOffsets[index << 1];
+		if (start < 0) {
+			return null;
+		}
+		int end = valueOffsets[(index << 1) + 1];
+		if (type == DataTypeManager.DefaultDataClasses.INTEGER || type == DataTypeManager.DefaultDataClasses.LONG) {
+			long val = parseLong(start, end);
+			if (val != Long.MIN_VALUE) {
+				if (type == DataTypeManager.DefaultDataClasses.LONG) {
+					return Long.valueOf(val);
+				}
+				if (val >= Integer.MIN_VALUE && val <= Integer.MAX_VALUE) {
+					return Integer.valueOf((int)val);
+				}
+			}
+		}
+		return DataTypeManager.transformValue(values.substring(start, end), type);
+	}
+	
+	/**
+	 * Parse a simple optionally negative decimal integer of at most 18 digits.
+	 * @return the value or Long.MIN_VALUE if the chars should be converted by the general transformation 
+	 */
+	private long parseLong(int start, int end) {
+		boolean negative = false;
+		if (start < end && values.charAt(start) == '-') {
+			negative = true;
+			start++;
+		}
+		if (start == end || end - start > 18) {
+			return Long.MIN_VALUE;
+		}
+		long result = 0;
+		for (int i = start; i < end; i++) {
+			char c = values.charAt(i);
+			if (c < '0' || c > '9') {
+				return Long.MIN_VALUE;
+			}
+			result = result * 10 + (c - '0');
+		}
+		return negative?-result:result;
 	}
 
-	private List<String> parseDelimitedLine(String line) throws TeiidProcessingException {
-		ArrayList<String> result = new ArrayList<String>();
-		StringBuilder builder = new StringBuilder();
+	private void parseDelimitedLine(CharSequence line) throws TeiidProcessingException {
+		int valueStart = 0;
 		boolean escaped = false;
 		boolean wasQualified = false;
 		boolean qualified = false;
@@ -394,39 +540,39 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 				if (escaped) {
 					//allow for escaped new lines
 					if (cr) {
-						builder.append('\r'); 
+						values.append('\r'); 
 					}
-					builder.append('\n'); 
+					values.append('\n'); 
 					escaped = false;
 					line = readLine(lineWidth, false);
 					continue;
 				} 
 				if (!qualified) {
 					//close the last entry
-					addValue(result, wasQualified, builder.toString());
-					return result;
+					addValue(wasQualified, valueStart, values.length());
+					return;
 				} 
 				line = readLine(lineWidth, false);
 				if (line == null) {
 					 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30182, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30182, systemId));
 				}
 			}
-			char[] chars = line.toCharArray();
-			for (int i = 0; i < chars.length; i++) {
-				char chr = chars[i];
+			int length = line.length();
+			for (int i = 0; i < length; i++) {
+				char chr = line.charAt(i);
 				if (chr == delimiter) {
 					if (escaped || qualified) {
-						builder.append(chr);
+						values.append(chr);
 						escaped = false;
 					} else {
-						addValue(result, wasQualified, builder.toString());
+						addValue(wasQualified, valueStart, values.length());
 						wasQualified = false;
-						builder = new StringBuilder();  //next entry
+						valueStart = values.length();  //next entry
 					} 
 				} else if (chr == quote) {
 					if (noQuote) { 	//it's the escape char
 						if (escaped) {
-							builder.append(quote);
+							values.append(quote);
 						} 
 						escaped = !escaped;
 					} else {
@@ -435,13 +581,13 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 						} else {
 							if (wasQualified) {
 								qualified = true;
-								builder.append(chr);
+								values.append(chr);
 							} else {
-								if (builder.toString().trim().length() != 0) {
+								if (!isWhitespace(valueStart, values.length())) {
 									 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30183, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30183, textLine, systemId));
 								}
 								qualified = true;
-								builder = new StringBuilder(); //start the entry over
+								values.setLength(valueStart); //start the entry over
 								wasQualified = true;
 							}
 						}
@@ -457,33 +603,59 @@ public class TextTableNode extends SubqueryAwareRelationalNode {
 						}
 						//else just ignore
 					} else {
-						builder.append(chr);
+						values.append(chr);
 					}
 				}
 			}
 			line = null;
 		}
 	}
+	
+	/**
+	 * @return true if the chars would be empty after a String trim
+	 */
+	private boolean isWhitespace(int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (values.charAt(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
 
-	private void addValue(ArrayList<String> result, boolean wasQualified, String val) {
+	/**
+	 * Record the offsets of the value, which is trimmed and
+	 * treated as null if empty when not qualified.
+	 */
+	private void addValue(boolean wasQualified, int start, int end) {
 		if (!wasQualified) {
-			val = val.trim();
-			if (val.length() == 0) {
-				val = null;
+			//same as String.trim
+			while (start < end && values.charAt(start) <= ' ') {
+				start++;
+			}
+			while (start < end && values.charAt(end - 1) <= ' ') {
+				end--;
 			}
+			if (start == end) {
+				start = -1;
+			}
+		}
+		int offset = valueCount << 1;
+		if (offset + 1 >= valueOffsets.length) {
+			valueOffsets = Arrays.copyOf(valueOffsets, valueOffsets.length << 1);
 		}
-		result.add(val);
+		valueOffsets[offset] = start;
+		valueOffsets[offset + 1] = end;
+		valueCount++;
 	}
 
-	private List<String> parseFixedWidth(String line) {
-		ArrayList<String> result = new ArrayList<String>();
+	private void parseFixedWidth(CharSequence line) {
+		values.append(line);
 		int beginIndex = 0;
 		for (TextColumn col : table.getColumns()) {
-			String val = new String(line.substring(beginIndex, beginIndex + col.getWidth()));
-			addValue(result, col.isNoTrim(), val);
+			addValue(col.isNoTrim(), beginIndex, beginIndex + col.getWidth());
 			beginIndex += col.getWidth();
 		}
-		return result;
 	}
 	
 	@Override
@@ -100,6 +100,18 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 	private STree[] rowValueMapping;
 	private IndexedTupleSource outputTs;
 	
+	//streaming state
+	private boolean streaming;
+	private int[] partitionIndexes;
+	private int[] orderIndexes;
+	private List<AggregateFunction> aggs;
+	private List<AggregateFunction> rowValueAggs;
+	private List<ElementSymbol> pendingSchema;
+	private List<?> lastRow;
+	private List<Object> groupValues;
+	private TupleBuffer pending;
+	private TupleBuffer completed;
+	
 	public WindowFunctionProjectNode(int nodeId) {
 		super(nodeId);
 	}
@@ -117,6 +129,15 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		this.valueMapping = null;
 		this.rowValueMapping = null;
 		this.outputTs = null;
+		this.partitionIndexes = null;
+		this.orderIndexes = null;
+		this.aggs = null;
+		this.rowValueAggs = null;
+		this.pendingSchema = null;
+		this.lastRow = null;
+		this.groupValues = null;
+		this.pending = null;
+		this.completed = null;
 	}
 	
 	@Override
@@ -131,6 +152,14 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		valueMapping = null;
 		removeMappings(rowValueMapping);
 		rowValueMapping = null;
+		if (pending != null) {
+			pending.remove();
+			pending = null;
+		}
+		if (completed != null) {
+			completed.remove();
+			completed = null;
+		}
 	}
 
 	private void removeMappings(STree[] mappings) {
@@ -149,9 +178,23 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
         clonedNode.windows = windows;
         clonedNode.expressionIndexes = expressionIndexes;
         clonedNode.passThrough = passThrough;
+        clonedNode.streaming = streaming;
 		return clonedNode;
 	}
 	
+	/**
+	 * Set to true if the input is already grouped by the partition and ordered by the
+	 * order by of the single window specification.  The results will then be computed 
+	 * as the input is read and only the current group of peer rows is held.
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+	
+	public boolean isStreaming() {
+		return streaming;
+	}
+	
 	/**
 	 * This state can be determined prior to initialize and is the same for all nodes,
 	 * so it is moved into it's own init routine
@@ -216,6 +259,10 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 	protected TupleBatch nextBatchDirect() throws BlockedException,
 			TeiidComponentException, TeiidProcessingException {
 		
+		if (streaming) {
+			return nextBatchStreaming();
+		}
+		
 		if (phase == Phase.COLLECT) {
 			saveInput();
 			phase = Phase.PROCESS;
@@ -236,14 +283,7 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 			while (outputTs.hasNext()) {
 				List<?> tuple = outputTs.nextTuple();
 				int rowId = (Integer)tuple.get(tuple.size() - 1);
-				int size = getElements().size();
-				ArrayList<Object> outputRow = new ArrayList<Object>(size);
-				for (int i = 0; i < size; i++) {
-					outputRow.add(null);
-				}
-				for (int[] entry : passThrough) {
-					outputRow.set(entry[0], tuple.get(entry[1]));
-				}
+				List<Object> outputRow = createOutputRow(tuple);
 				List<Map.Entry<WindowSpecification, WindowSpecificationInfo>> specs = new ArrayList<Map.Entry<WindowSpecification,WindowSpecificationInfo>>(windows.entrySet());
 				for (int specIndex = 0; specIndex < specs.size(); specIndex++) {
 					Map.Entry<WindowSpecification, WindowSpecificationInfo> entry = specs.get(specIndex);
@@ -280,6 +320,145 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		}
 		return this.pullBatch();
 	}
+	
+	private List<Object> createOutputRow(List<?> tuple) {
+		int size = getElements().size();
+		ArrayList<Object> outputRow = new ArrayList<Object>(size);
+		for (int i = 0; i < size; i++) {
+			outputRow.add(null);
+		}
+		for (int[] entry : passThrough) {
+			outputRow.set(entry[0], tuple.get(entry[1]));
+		}
+		return outputRow;
+	}
+	
+	/**
+	 * Compute the results in a single pass over input that is already in window order.
+	 * Row value functions are computed per row and the aggregate values are computed 
+	 * once each group of peer rows is complete, so only the current group is buffered. 
+	 */
+	private TupleBatch nextBatchStreaming() throws BlockedException,
+			TeiidComponentException, TeiidProcessingException {
+		WindowSpecificationInfo info = windows.values().iterator().next();
+		if (phase == Phase.COLLECT) {
+			List<ElementSymbol> schema = createInputTupleSource();
+			if (!info.groupIndexes.isEmpty()) {
+				partitionIndexes = toArray(info.groupIndexes);
+			}
+			if (!info.sortIndexes.isEmpty()) {
+				orderIndexes = toArray(info.sortIndexes);
+			}
+			aggs = createAccumulators(info.functions);
+			rowValueAggs = createAccumulators(info.rowValuefunctions);
+			//the pending rows also hold the row values
+			pendingSchema = new ArrayList<ElementSymbol>(schema);
+			for (WindowFunctionInfo wfi : info.rowValuefunctions) {
+				ElementSymbol es = new ElementSymbol(String.valueOf(pendingSchema.size()));
+				es.setType(wfi.function.getType());
+				pendingSchema.add(es);
+			}
+			phase = Phase.PROCESS;
+		}
+		while (true) {
+			if (outputTs != null) {
+				while (outputTs.hasNext()) {
+					addStreamingRow(info, outputTs.nextTuple());
+					if (this.isBatchFull()) {
+						return pullBatch();
+					}
+				}
+				outputTs.closeSource();
+				outputTs = null;
+				completed.remove();
+				completed = null;
+			}
+			if (phase == Phase.OUTPUT) {
+				terminateBatches();
+				return pullBatch();
+			}
+			List<Object> tuple = (List<Object>)inputTs.nextTuple();
+			if (tuple == null) {
+				inputTs.closeSource();
+				inputTs = null;
+				if (lastRow != null) {
+					completeGroup(true);
+				}
+				phase = Phase.OUTPUT;
+				continue;
+			}
+			boolean samePartition = true;
+			if (lastRow != null) {
+				samePartition = GroupingNode.sameGroup(partitionIndexes, tuple, lastRow);
+				if (!aggs.isEmpty() && (!samePartition || !GroupingNode.sameGroup(orderIndexes, tuple, lastRow))) {
+					completeGroup(samePartition);
+				}
+			}
+			lastRow = tuple;
+			for (AggregateFunction function : aggs) {
+				function.addInput(tuple, getContext());
+			}
+			for (AggregateFunction function : rowValueAggs) {
+				if (!samePartition) {
+					function.reset();
+				}
+				function.addInput(tuple, getContext());
+				tuple.add(function.getResult(getContext()));
+			}
+			if (aggs.isEmpty()) {
+				addStreamingRow(info, tuple);
+				if (this.isBatchFull()) {
+					return pullBatch();
+				}
+				continue;
+			}
+			if (pending == null) {
+				pending = this.getBufferManager().createTupleBuffer(pendingSchema, this.getConnectionID(), TupleSourceType.PROCESSOR);
+			}
+			pending.addTuple(tuple);
+		}
+	}
+
+	/**
+	 * Compute the aggregate values for the pending group and make its rows available for output
+	 */
+	private void completeGroup(boolean samePartition)
+			throws FunctionExecutionException, ExpressionEvaluationException,
+			TeiidComponentException, TeiidProcessingException {
+		groupValues = new ArrayList<Object>(aggs.size());
+		for (AggregateFunction function : aggs) {
+			groupValues.add(function.getResult(getContext()));
+			if (!samePartition) {
+				function.reset();
+			}
+		}
+		if (pending != null) {
+			pending.close();
+			completed = pending;
+			pending = null;
+			outputTs = completed.createIndexedTupleSource(true);
+		}
+	}
+
+	private void addStreamingRow(WindowSpecificationInfo info, List<?> tuple) {
+		List<Object> outputRow = createOutputRow(tuple);
+		int rowValueIndex = expressionIndexes.size() + 1;
+		for (int i = 0; i < info.rowValuefunctions.size(); i++) {
+			outputRow.set(info.rowValuefunctions.get(i).outputIndex, tuple.get(rowValueIndex + i));
+		}
+		for (int i = 0; i < info.functions.size(); i++) {
+			outputRow.set(info.functions.get(i).outputIndex, groupValues.get(i));
+		}
+		this.addBatchRow(outputRow);
+	}
+	
+	private static int[] toArray(List<Integer> indexes) {
+		int[] result = new int[indexes.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = indexes.get(i);
+		}
+		return result;
+	}
 
 	/**
 	 * Build the results by maintaining indexes that either map
@@ -396,13 +575,12 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 	 * @return
 	 */
 	private List<AggregateFunction> initializeAccumulators(List<WindowFunctionInfo> functions, int specIndex, boolean rowValues) {
-		List<AggregateFunction> aggs = new ArrayList<AggregateFunction>(functions.size());
+		List<AggregateFunction> aggs = createAccumulators(functions);
 		if (functions.isEmpty()) {
 			return aggs;
 		}
 		List<ElementSymbol> elements = new ArrayList<ElementSymbol>(functions.size());
 		for (WindowFunctionInfo wfi : functions) {
-			aggs.add(GroupingNode.initAccumulator(wfi.function.getFunction(), this, expressionIndexes));
 			Class<?> outputType = wfi.function.getType();
 		    ElementSymbol value = new ElementSymbol("val"); //$NON-NLS-1$
 		    value.setType(outputType);
@@ -415,6 +593,14 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		}
 		return aggs;
 	}
+	
+	private List<AggregateFunction> createAccumulators(List<WindowFunctionInfo> functions) {
+		List<AggregateFunction> result = new ArrayList<AggregateFunction>(functions.size());
+		for (WindowFunctionInfo wfi : functions) {
+			result.add(GroupingNode.initAccumulator(wfi.function.getFunction(), this, expressionIndexes));
+		}
+		return result;
+	}
 
 	/**
 	 * Save the input generating any necessary expressions and adding a row id
@@ -426,32 +612,7 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 	private void saveInput()
 			throws TeiidComponentException, TeiidProcessingException {
 		if (inputTs == null) {
-			List<Expression> collectedExpressions = new ArrayList<Expression>(expressionIndexes.keySet());
-			Evaluator eval = new Evaluator(elementMap, getDataManager(), getContext());
-			final RelationalNode sourceNode = this.getChildren()[0];
-			inputTs = new ProjectingTupleSource(sourceNode, eval, collectedExpressions) {
-				int index = 0;
-				@Override
-				public List<Object> nextTuple() throws TeiidComponentException,
-						TeiidProcessingException {
-					List<Object> tuple = super.nextTuple();
-					if (tuple != null) {
-						tuple.add(index++);
-					}
-					return tuple;
-				}
-			};
-			List<ElementSymbol> schema = new ArrayList<ElementSymbol>(collectedExpressions.size() + 1);
-			int index = 0;
-			for (Expression ex : collectedExpressions) {
-				ElementSymbol es = new ElementSymbol(String.valueOf(index++));
-				es.setType(ex.getType());
-				schema.add(es);
-			}
-			//add in the row id
-			ElementSymbol es = new ElementSymbol(String.valueOf(index++));
-			es.setType(DataTypeManager.DefaultDataClasses.INTEGER);
-			schema.add(es);
+			List<ElementSymbol> schema = createInputTupleSource();
 			tb = this.getBufferManager().createTupleBuffer(schema, this.getConnectionID(), TupleSourceType.PROCESSOR);
 		}
 		
@@ -464,6 +625,40 @@ public class WindowFunctionProjectNode extends SubqueryAwareRelationalNode {
 		inputTs = null;
 	}
 
+	/**
+	 * Create the input tuple source projecting the collected expressions and adding a row id
+	 * @return the schema of the input tuples
+	 */
+	private List<ElementSymbol> createInputTupleSource() {
+		List<Expression> collectedExpressions = new ArrayList<Expression>(expressionIndexes.keySet());
+		Evaluator eval = new Evaluator(elementMap, getDataManager(), getContext());
+		final RelationalNode sourceNode = this.getChildren()[0];
+		inputTs = new ProjectingTupleSource(sourceNode, eval, collectedExpressions) {
+			int index = 0;
+			@Override
+			public List<Object> nextTuple() throws TeiidComponentException,
+					TeiidProcessingException {
+				List<Object> tuple = super.nextTuple();
+				if (tuple != null) {
+					tuple.add(index++);
+				}
+				return tuple;
+			}
+		};
+		List<ElementSymbol> schema = new ArrayList<ElementSymbol>(collectedExpressions.size() + 1);
+		int index = 0;
+		for (Expression ex : collectedExpressions) {
+			ElementSymbol es = new ElementSymbol(String.valueOf(index++));
+			es.setType(ex.getType());
+			schema.add(es);
+		}
+		//add in the row id
+		ElementSymbol es = new ElementSymbol(String.valueOf(index++));
+		es.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		schema.add(es);
+		return schema;
+	}
+
 	@Override
 	public void initialize(CommandContext context, BufferManager bufferManager,
 			ProcessorDataManager dataMgr) {
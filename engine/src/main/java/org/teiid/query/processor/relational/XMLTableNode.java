@@ -28,8 +28,13 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import net.sf.saxon.om.Item;
 import net.sf.saxon.om.NodeInfo;
@@ -70,6 +75,12 @@ import org.teiid.query.xquery.saxon.XQueryEvaluator;
  * 
  * When streaming the results will be fully built and stored in a buffer
  * before being returned
+ * <br/>
+ * When streaming and the column paths only reference the subtree of each row, 
+ * the rows may be detached and their columns evaluated in chunks by executor 
+ * threads - see {@link org.teiid.query.util.Options#XML_TABLE_PARALLELISM}.  
+ * The chunks are added to the buffer in document order.  Outstanding chunks are
+ * canceled once streaming stops.
  */
 public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProcessor {
 
@@ -87,6 +98,13 @@ public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProc
 	
 	private static TeiidRuntimeException EARLY_TERMINATION = new TeiidRuntimeException();
 	
+	static final int CHUNK_SIZE = 64;
+	
+	/**
+	 * Placeholder for a default value, which is evaluated by the streaming thread
+	 */
+	private static final Object DEFAULT_VALUE = new Object();
+	
 	private XMLTable table;
 	private List<XMLColumn> projectedColumns;
 	
@@ -109,6 +127,12 @@ public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProc
 	
 	private int rowLimit = -1;
 	
+	//parallel streaming state
+	private boolean parallel;
+	private int parallelism;
+	private List<NodeInfo> chunk;
+	private LinkedList<FutureTask<List<List<Object>>>> chunks;
+	
 	public XMLTableNode(int nodeID) {
 		super(nodeID);
 	}
@@ -140,6 +164,10 @@ public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProc
 		this.state = State.BUILDING;
 		this.asynchException = null;
 		this.rowLimit = -1;
+		this.parallel = false;
+		this.chunk = null;
+		cancelChunks();
+		this.chunks = null;
 	}
 	
 	public void setTable(XMLTable table) {
@@ -195,7 +223,8 @@ public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProc
 					break;
 				}
 			}
-			addBatchRow(processRow());
+			addBatchRow(processRow(item, rowCount, true));
+			item = null;
 		}
 		return pullBatch();
 	}
@@ -218,11 +247,17 @@ public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProc
 					this.buffer.setForwardOnly(true);
 				}
 			}
+			this.parallelism = this.getContext().getOptions().getXmlTableParallelism();
+			if (this.parallelism > 1 && this.table.getXQueryExpression().hasIndependentRows()) {
+				this.parallel = true;
+				this.chunks = new LinkedList<FutureTask<List<List<Object>>>>();
+			}
 			Runnable r = new Runnable() {
 				@Override
 				public void run() {
 					try {
 						XQueryEvaluator.evaluateXQuery(table.getXQueryExpression(), contextItem, parameters, XMLTableNode.this, getContext());
+						finishChunks();
 					} catch (TeiidException e) {
 						asynchException = new TeiidRuntimeException(e);
 					} catch (TeiidRuntimeException e) {
@@ -233,6 +268,8 @@ public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProc
 						asynchException = new TeiidRuntimeException(e);
 					} finally {
 						synchronized (XMLTableNode.this) {
+							//the row limit, close, or an error stops streaming before all chunks are added
+							cancelChunks();
 							if (buffer != null && asynchException == null) {
 								try {
 									buffer.close();
@@ -257,12 +294,17 @@ public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProc
 		}
 	}
 
-	private List<?> processRow() throws ExpressionEvaluationException, BlockedException,
+	/**
+	 * Evaluate the column paths against the row item
+	 * @param evaluateDefaults if false, then {@link #DEFAULT_VALUE} is used in place of 
+	 * a default value, since default expressions may only be evaluated by the processing or streaming thread 
+	 */
+	private List<Object> processRow(Item item, int rowNumber, boolean evaluateDefaults) throws ExpressionEvaluationException, BlockedException,
 			TeiidComponentException, TeiidProcessingException {
 		List<Object> tuple = new ArrayList<Object>(projectedColumns.size());
 		for (XMLColumn proColumn : projectedColumns) {
 			if (proColumn.isOrdinal()) {
-				tuple.add(rowCount);
+				tuple.add(rowNumber);
 			} else {
 				try {
 					XPathExpression path = proColumn.getPathExpression();
@@ -271,7 +313,7 @@ public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProc
 					Item colItem = pathIter.next();
 					if (colItem == null) {
 						if (proColumn.getDefaultExpression() != null) {
-							tuple.add(getEvaluator(Collections.emptyMap()).evaluate(proColumn.getDefaultExpression(), null));
+							tuple.add(evaluateDefaults?getEvaluator(Collections.emptyMap()).evaluate(proColumn.getDefaultExpression(), null):DEFAULT_VALUE);
 						} else {
 							tuple.add(null);
 						}
@@ -309,7 +351,6 @@ public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProc
 				}
 			}
 		}
-		item = null;
 		return tuple;
 	}
 
@@ -350,24 +391,141 @@ public class XMLTableNode extends SubqueryAwareRelationalNode implements RowProc
 			throw EARLY_TERMINATION;
 		}
 		assert this.state != State.DONE;
-		this.item = row;
 		rowCount++;
 		try {
-			this.buffer.addTuple(processRow());
-			if (this.buffer.getRowCount() == rowLimit) {
-				throw EARLY_TERMINATION;
+			if (!parallel) {
+				addRow(processRow(row, rowCount, true));
+				return;
+			}
+			if (chunk == null) {
+				chunk = new ArrayList<NodeInfo>(CHUNK_SIZE);
 			}
-			if (state == State.BUILDING && hasNextBatch()) {
-				this.state = State.AVAILABLE;
-				this.notifyAll();
+			chunk.add(row);
+			if (chunk.size() == CHUNK_SIZE) {
+				submitChunk(true);
 			}
+			addChunks(chunks.size() >= parallelism);
 		} catch (TeiidException e) {
 			 throw new TeiidRuntimeException(e);
 		}
 	}
+	
+	@Override
+	public boolean requiresDetachedRows() {
+		return parallel;
+	}
+	
+	/**
+	 * @param execute if false, the chunk will only be processed by the streaming thread 
+	 */
+	private void submitChunk(boolean execute) {
+		final List<NodeInfo> rows = chunk;
+		final int startRow = rowCount - rows.size() + 1;
+		chunk = null;
+		FutureTask<List<List<Object>>> task = new FutureTask<List<List<Object>>>(new Callable<List<List<Object>>>() {
+			@Override
+			public List<List<Object>> call() throws Exception {
+				List<List<Object>> result = new ArrayList<List<Object>>(rows.size());
+				for (int i = 0; i < rows.size(); i++) {
+					result.add(processRow(rows.get(i), startRow + i, false));
+				}
+				return result;
+			}
+		});
+		chunks.add(task);
+		if (execute) {
+			try {
+				getContext().getExecutor().execute(task);
+			} catch (RejectedExecutionException e) {
+				//the task will be run by the streaming thread
+			}
+		}
+	}
+	
+	/**
+	 * Add the completed chunks in order
+	 * @param wait if true, the first chunk will be completed by the calling thread if it has not already been started
+	 */
+	private void addChunks(boolean wait) throws TeiidComponentException, TeiidProcessingException {
+		while (!chunks.isEmpty()) {
+			FutureTask<List<List<Object>>> task = chunks.getFirst();
+			if (!task.isDone()) {
+				if (!wait) {
+					return;
+				}
+				task.run();
+			}
+			wait = false;
+			chunks.removeFirst();
+			List<List<Object>> rows = null;
+			try {
+				rows = task.get();
+			} catch (InterruptedException e) {
+				throw new TeiidRuntimeException(QueryPlugin.Event.TEIID30169, e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof TeiidProcessingException) {
+					throw (TeiidProcessingException)e.getCause();
+				}
+				if (e.getCause() instanceof TeiidComponentException) {
+					throw (TeiidComponentException)e.getCause();
+				}
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException)e.getCause();
+				}
+				throw new TeiidRuntimeException(e.getCause());
+			}
+			for (List<Object> tuple : rows) {
+				for (int i = 0; i < tuple.size(); i++) {
+					if (tuple.get(i) == DEFAULT_VALUE) {
+						tuple.set(i, getEvaluator(Collections.emptyMap()).evaluate(projectedColumns.get(i).getDefaultExpression(), null));
+					}
+				}
+				addRow(tuple);
+			}
+		}
+	}
+	
+	/**
+	 * Cancel the chunks that have not been added
+	 */
+	private void cancelChunks() {
+		if (this.chunks == null) {
+			return;
+		}
+		for (FutureTask<List<List<Object>>> task : this.chunks) {
+			task.cancel(false);
+		}
+		this.chunks.clear();
+	}
+	
+	/**
+	 * Add the remaining chunks once the document has been fully streamed
+	 */
+	private synchronized void finishChunks() throws TeiidComponentException, TeiidProcessingException {
+		if (!parallel) {
+			return;
+		}
+		if (chunk != null) {
+			submitChunk(false);
+		}
+		while (!chunks.isEmpty()) {
+			addChunks(true);
+		}
+	}
+
+	private void addRow(List<?> tuple) throws TeiidComponentException {
+		this.buffer.addTuple(tuple);
+		if (this.buffer.getRowCount() == rowLimit) {
+			throw EARLY_TERMINATION;
+		}
+		if (state == State.BUILDING && hasNextBatch()) {
+			this.state = State.AVAILABLE;
+			this.notifyAll();
+		}
+	}
 
 	private boolean hasNextBatch() {
-		return this.outputRow + this.buffer.getBatchSize() <= rowCount + 1;
+		return this.outputRow + this.buffer.getBatchSize() <= this.buffer.getRowCount() + 1;
 	}
 	
 	@Override
@@ -307,6 +307,19 @@ public class SimpleQueryResolver implements CommandResolver {
 			postTableFunctionReference(obj, saved);
         }
         
+        @Override
+        public void visit(JsonTable obj) {
+        	LinkedHashSet<GroupSymbol> saved = preTableFunctionReference(obj);
+        	this.visitNode(obj.getJson());
+        	try {
+				obj.setJson(ResolverUtil.convertExpression(obj.getJson(), DataTypeManager.DefaultDataTypes.CLOB, metadata));
+				obj.compilePaths();
+			} catch (QueryResolverException e) {
+				 throw new TeiidRuntimeException(e);
+			}
+			postTableFunctionReference(obj, saved);
+        }
+        
         @Override
         public void visit(XMLTable obj) {
         	LinkedHashSet<GroupSymbol> saved = preTableFunctionReference(obj);
@@ -149,6 +149,13 @@ public class QueryRewriter {
 		return queryRewriter.rewriteCommand(command, false);
     }
 
+    public static Criteria evaluateAndRewrite(Criteria criteria, Evaluator eval, CommandContext context, QueryMetadataInterface metadata) throws TeiidProcessingException, TeiidComponentException {
+    	QueryRewriter queryRewriter = new QueryRewriter(metadata, context);
+    	queryRewriter.evaluator = eval;
+    	queryRewriter.processing = true;
+		return queryRewriter.rewriteCriteria(criteria);
+    }
+
 	public static Command rewrite(Command command, QueryMetadataInterface metadata, CommandContext context, Map<ElementSymbol, Expression> variableValues) throws TeiidComponentException, TeiidProcessingException{
 		QueryRewriter rewriter = new QueryRewriter(metadata, context);
 		rewriter.rewriteSubcommands = true;
@@ -743,6 +750,9 @@ public class QueryRewriter {
         } else if (clause instanceof ArrayTable) {
         	ArrayTable at = (ArrayTable)clause;
         	at.setArrayValue(rewriteExpressionDirect(at.getArrayValue()));
+        } else if (clause instanceof JsonTable) {
+        	JsonTable jt = (JsonTable)clause;
+        	jt.setJson(rewriteExpressionDirect(jt.getJson()));
         }
         return clause;
 	}
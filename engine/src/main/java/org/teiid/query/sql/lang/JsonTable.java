@@ -0,0 +1,237 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.sql.lang;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.teiid.api.exception.query.QueryResolverException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.core.util.EquivalenceUtil;
+import org.teiid.query.QueryPlugin;
+import org.teiid.query.sql.LanguageVisitor;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * Represents the JSONTABLE table function.
+ * <br/>
+ * Paths are a simple subset of JSONPath - the root path must start with $ and 
+ * may contain .name member steps and [*] array element steps.  Column paths are relative 
+ * to the row and default to the column name.
+ */
+public class JsonTable extends TableFunctionReference {
+	
+	public static class JsonColumn extends ProjectedColumn {
+		private boolean ordinal;
+		private String path;
+		
+		private String[] steps;
+		
+		public JsonColumn(String name) {
+			super(name, DataTypeManager.DefaultDataTypes.INTEGER);
+			this.ordinal = true;
+		}
+		
+		public JsonColumn(String name, String type, String path) {
+			super(name, type);
+			this.path = path;
+		}
+		
+		protected JsonColumn() {
+			
+		}
+		
+		public String getPath() {
+			return path;
+		}
+		
+		public void setPath(String path) {
+			this.path = path;
+		}
+		
+		public boolean isOrdinal() {
+			return ordinal;
+		}
+		
+		public void setOrdinal(boolean ordinal) {
+			this.ordinal = ordinal;
+		}
+		
+		/**
+		 * @return the compiled path steps relative to the row, a null step matches any array element
+		 */
+		public String[] getSteps() {
+			return steps;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!super.equals(obj) || !(obj instanceof JsonColumn)) {
+				return false;
+			}
+			JsonColumn other = (JsonColumn)obj;
+			return this.ordinal == other.ordinal 
+				&& EquivalenceUtil.areEqual(this.path, other.path);
+		}
+		
+		@Override
+		public JsonColumn clone() {
+			JsonColumn clone = new JsonColumn();
+			super.copyTo(clone);
+			clone.ordinal = this.ordinal;
+			clone.path = this.path;
+			clone.steps = this.steps;
+			return clone;
+		}
+	}
+	
+    private Expression json;
+    private String rowPath;
+    private List<JsonColumn> columns = new ArrayList<JsonColumn>();
+    
+    private String[] rowSteps;
+    
+    public Expression getJson() {
+		return json;
+	}
+    
+    public void setJson(Expression json) {
+		this.json = json;
+	}
+    
+    public String getRowPath() {
+		return rowPath;
+	}
+    
+    public void setRowPath(String rowPath) {
+		this.rowPath = rowPath;
+	}
+    
+    public List<JsonColumn> getColumns() {
+		return columns;
+	}
+    
+    public void setColumns(List<JsonColumn> columns) {
+		this.columns = columns;
+	}
+    
+    /**
+     * @return the compiled row path steps, a null step matches any array element
+     */
+    public String[] getRowSteps() {
+		return rowSteps;
+	}
+    
+    public void compilePaths() throws QueryResolverException {
+    	this.rowSteps = parsePath(rowPath, false);
+    	for (JsonColumn column : columns) {
+    		if (column.isOrdinal()) {
+    			continue;
+    		}
+			if (column.getPath() == null) {
+				column.steps = new String[] {column.getName()};
+			} else {
+				column.steps = parsePath(column.getPath(), true);
+			}
+		}
+    }
+    
+    /**
+     * Parse a path of the form $.a[*].b into steps.  
+     * Relative paths may omit the leading $, in which case the first step does not need a leading period.
+     */
+    static String[] parsePath(String path, boolean relative) throws QueryResolverException {
+    	List<String> steps = new ArrayList<String>();
+    	int i = 0;
+    	if (path.startsWith("$")) { //$NON-NLS-1$
+    		i = 1;
+    	} else if (!relative) {
+    		throw new QueryResolverException(QueryPlugin.Event.TEIID31144, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31144, path));
+    	}
+    	boolean first = i == 0;
+    	while (i < path.length()) {
+    		char c = path.charAt(i);
+    		if (c == '[') {
+    			if (!path.startsWith("[*]", i)) { //$NON-NLS-1$
+    				throw new QueryResolverException(QueryPlugin.Event.TEIID31144, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31144, path));
+    			}
+    			steps.add(null);
+    			i += 3;
+    		} else {
+    			if (c == '.') {
+    				i++;
+    			} else if (!first) {
+    				throw new QueryResolverException(QueryPlugin.Event.TEIID31144, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31144, path));
+    			}
+    			int end = i;
+    			while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+    				end++;
+    			}
+    			if (end == i) {
+    				throw new QueryResolverException(QueryPlugin.Event.TEIID31144, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31144, path));
+    			}
+    			steps.add(path.substring(i, end));
+    			i = end;
+    		}
+    		first = false;
+    	}
+    	return steps.toArray(new String[steps.size()]);
+    }
+
+	@Override
+	public void acceptVisitor(LanguageVisitor visitor) {
+		visitor.visit(this);
+	}
+
+	@Override
+	protected JsonTable cloneDirect() {
+		JsonTable clone = new JsonTable();
+		this.copy(clone);
+		clone.setJson((Expression)this.json.clone());
+		clone.rowPath = this.rowPath;
+		clone.rowSteps = this.rowSteps;
+		for (JsonColumn column : columns) {
+			clone.getColumns().add(column.clone());
+		}
+		return clone;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!super.equals(obj) || !(obj instanceof JsonTable)) {
+			return false;
+		}
+		JsonTable other = (JsonTable)obj;
+		return this.columns.equals(other.columns) 
+			&& EquivalenceUtil.areEqual(json, other.json)
+			&& EquivalenceUtil.areEqual(rowPath, other.rowPath);
+	}
+	
+}
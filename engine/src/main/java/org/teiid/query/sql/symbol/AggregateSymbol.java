@@ -68,6 +68,8 @@ public class AggregateSymbol extends Function implements DerivedExpression {
 		RANK,
 		DENSE_RANK,
 		ROW_NUMBER,
+		APPROX_COUNT_DISTINCT,
+		APPROX_PERCENTILE,
 		USER_DEFINED;
 	}
 	
@@ -211,6 +213,10 @@ public class AggregateSymbol extends Function implements DerivedExpression {
 			return this.getFunctionDescriptor().getReturnType();
 		case JSONARRAY_AGG:
 			return DataTypeManager.DefaultDataClasses.CLOB;
+		case APPROX_COUNT_DISTINCT:
+			return DataTypeManager.DefaultDataClasses.LONG;
+		case APPROX_PERCENTILE:
+			return DataTypeManager.DefaultDataClasses.DOUBLE;
 		}
 		if (isBoolean()) {
 			return DataTypeManager.DefaultDataClasses.BOOLEAN;
@@ -240,6 +246,21 @@ public class AggregateSymbol extends Function implements DerivedExpression {
 				|| this.aggregate == Type.ANY;
 	}
 	
+	public boolean isApproximate() {
+		return this.aggregate == Type.APPROX_COUNT_DISTINCT
+		|| this.aggregate == Type.APPROX_PERCENTILE;
+	}
+	
+	/**
+	 * The approximate aggregates are not reserved words and are parsed
+	 * with the generic function syntax.
+	 * @return true if the function name is an approximate aggregate
+	 */
+	public static boolean isApproximate(String name) {
+		Type type = nameMap.get(name);
+		return type == Type.APPROX_COUNT_DISTINCT || type == Type.APPROX_PERCENTILE;
+	}
+	
 	public boolean isEnhancedNumeric() {
 		return this.aggregate == Type.STDDEV_POP 
 		|| this.aggregate == Type.STDDEV_SAMP
@@ -312,6 +333,7 @@ public class AggregateSymbol extends Function implements DerivedExpression {
 		case ANY:
 		case SOME:
 		case EVERY:
+		case APPROX_COUNT_DISTINCT:
 			return false;
 		case USER_DEFINED:
 			return !getFunctionDescriptor().getMethod().getAggregateAttributes().usesDistinctRows();
@@ -347,10 +369,14 @@ public class AggregateSymbol extends Function implements DerivedExpression {
 	}
 	
 	public boolean canStage() {
+		if (isDistinct() && this.getArgs().length != 1) {
+			return false;
+		}
 		switch (this.aggregate) {
 		case TEXTAGG:
 		case ARRAY_AGG:
 		case JSONARRAY_AGG:
+		case APPROX_PERCENTILE:
 			return false;
 		case XMLAGG:
 			return orderBy == null;
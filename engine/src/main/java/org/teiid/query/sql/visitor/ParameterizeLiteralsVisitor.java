@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.sql.visitor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.teiid.query.sql.LanguageVisitor;
+import org.teiid.query.sql.lang.BetweenCriteria;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.QueryCommand;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.navigator.DeepPreOrderNavigator;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Reference;
+
+
+/**
+ * <p>This visitor replaces the literal values used in comparison, between, and in predicates
+ * of an unresolved query with positional references, so that the query can be planned
+ * and cached as if it were a prepared statement.</p>
+ * 
+ * <p>Literals in other locations, such as the select clause, function arguments, or limit, 
+ * are not replaced since their values may affect resolving or planning.</p>
+ * 
+ * <p>Each candidate literal is numbered by its position in the command and the index of 
+ * its reference is that position, so that a caller may choose to leave specific literals inline.</p>
+ */
+public class ParameterizeLiteralsVisitor extends LanguageVisitor {
+
+    private List<Constant> literals = new ArrayList<Constant>();
+    private Set<Integer> inline;
+    
+    public ParameterizeLiteralsVisitor(Set<Integer> inline) {
+    	this.inline = inline;
+	}
+
+    public void visit(CompareCriteria obj) {
+    	if (obj.getLeftExpression() instanceof Constant) {
+    		if (!(obj.getRightExpression() instanceof Constant)) {
+    			obj.setLeftExpression(parameterize(obj.getLeftExpression()));
+    		}
+    	} else if (obj.getRightExpression() instanceof Constant) {
+    		obj.setRightExpression(parameterize(obj.getRightExpression()));
+    	}
+    }
+    
+    public void visit(BetweenCriteria obj) {
+    	if (obj.getExpression() instanceof Constant) {
+    		return;
+    	}
+    	obj.setLowerExpression(parameterize(obj.getLowerExpression()));
+    	obj.setUpperExpression(parameterize(obj.getUpperExpression()));
+    }
+    
+    public void visit(SetCriteria obj) {
+    	if (obj.getExpression() instanceof Constant) {
+    		return;
+    	}
+    	Collection<Expression> setValues = obj.getValues();
+    	List<Expression> newValues = new ArrayList<Expression>(setValues.size());
+    	for (Expression expr : setValues) {
+    		if (!(expr instanceof Constant)) {
+    			return;
+    		}
+    	}
+    	for (Expression expr : setValues) {
+			newValues.add(parameterize(expr));
+		}
+    	obj.setValues(newValues);
+    }
+
+    private Expression parameterize(Expression expr) {
+    	if (!(expr instanceof Constant)) {
+    		return expr;
+    	}
+    	Constant constant = (Constant)expr;
+    	if (constant.getValue() == null || constant.isMultiValued()) {
+    		return expr;
+    	}
+    	int position = literals.size();
+    	literals.add(constant);
+    	if (inline.contains(position)) {
+    		return expr;
+    	}
+    	return new Reference(position);
+    }
+    
+    /**
+     * Replace the literals in the given unresolved command with references.  
+     * @param command
+     * @param inline the positions of the literals that should not be replaced
+     * @return the candidate literals by position, or null if
+     * the command is not a query or already contains references
+     */
+    public static List<Constant> parameterize(Command command, Set<Integer> inline) {
+    	if (!(command instanceof QueryCommand) || !ReferenceCollectorVisitor.getReferences(command).isEmpty()) {
+    		return null;
+    	}
+    	ParameterizeLiteralsVisitor visitor = new ParameterizeLiteralsVisitor(inline);
+    	DeepPreOrderNavigator.doVisit(command, visitor);
+    	return visitor.literals;
+    }
+    
+}
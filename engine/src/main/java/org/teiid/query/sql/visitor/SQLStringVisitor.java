@@ -43,6 +43,7 @@ import org.teiid.query.sql.LanguageObject;
 import org.teiid.query.sql.LanguageVisitor;
 import org.teiid.query.sql.lang.*;
 import org.teiid.query.sql.lang.ExistsCriteria.SubqueryHint;
+import org.teiid.query.sql.lang.JsonTable.JsonColumn;
 import org.teiid.query.sql.lang.ObjectTable.ObjectColumn;
 import org.teiid.query.sql.lang.SourceHint.SpecificHint;
 import org.teiid.query.sql.lang.TableFunctionReference.ProjectedColumn;
@@ -2176,6 +2177,46 @@ public class SQLStringVisitor extends LanguageVisitor {
         outputDisplayName(obj.getName());
     }
     
+    @Override
+    public void visit(JsonTable obj) {
+        addHintComment(obj);
+        append(NonReserved.JSONTABLE);
+        append("("); //$NON-NLS-1$
+        visitNode(obj.getJson());
+        append(","); //$NON-NLS-1$
+        append(SPACE);
+        visitNode(new Constant(obj.getRowPath()));
+        append(SPACE);
+        append(NonReserved.COLUMNS);
+        for (Iterator<JsonColumn> cols = obj.getColumns().iterator(); cols.hasNext();) {
+            JsonColumn col = cols.next();
+            append(SPACE);
+            outputDisplayName(col.getName());
+            append(SPACE);
+            if (col.isOrdinal()) {
+                append(FOR);
+                append(SPACE);
+                append(NonReserved.ORDINALITY);
+            } else {
+                append(col.getType());
+                if (col.getPath() != null) {
+                    append(SPACE);
+                    append(NonReserved.PATH);
+                    append(SPACE);
+                    visitNode(new Constant(col.getPath()));
+                }
+            }
+            if (cols.hasNext()) {
+                append(","); //$NON-NLS-1$
+            }
+        }
+        append(")");//$NON-NLS-1$
+        append(SPACE);
+        append(AS);
+        append(SPACE);
+        outputDisplayName(obj.getName());
+    }
+    
     @Override
     public void visit(AlterProcedure alterProcedure) {
     	append(ALTER);
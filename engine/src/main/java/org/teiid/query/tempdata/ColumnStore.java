@@ -0,0 +1,362 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.tempdata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.common.buffer.ZoneMap;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.logging.MessageLevel;
+import org.teiid.query.eval.Evaluator;
+import org.teiid.query.processor.relational.RelationalNode;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.visitor.ElementCollectorVisitor;
+
+/**
+ * A read-only, column segmented copy of the rows of a {@link TempTable} used for scans.
+ * <br/>
+ * Rows are split into segments of a fixed size and each column of a segment is stored
+ * with run length, dictionary (with bit packed codes), or plain encoding - whichever is 
+ * expected to be the smallest.  Each segment also has a {@link ZoneMap}, which is checked
+ * against the simple predicates of the scan to skip whole segments. 
+ * Only the columns referenced by the scan are decoded.
+ * <br/>
+ * The store is held on the heap and is not maintained by updates, so it is only used for 
+ * tables that are not updatable.  The owning table reserves buffer space for the store, which
+ * is released once by {@link #release()}.
+ */
+class ColumnStore {
+	
+	static final int DEFAULT_SEGMENT_SIZE = 1024;
+	
+	/**
+	 * The values of a single column for a single segment
+	 */
+	static abstract class ColumnSegment {
+		abstract void decode(Object[] values, int count);
+	}
+	
+	static class PlainSegment extends ColumnSegment {
+		private Object[] values;
+		
+		PlainSegment(Object[] values) {
+			this.values = values;
+		}
+		
+		@Override
+		void decode(Object[] target, int count) {
+			System.arraycopy(values, 0, target, 0, count);
+		}
+	}
+	
+	static class RunLengthSegment extends ColumnSegment {
+		private Object[] values;
+		private int[] ends;
+		
+		RunLengthSegment(Object[] values, int[] ends) {
+			this.values = values;
+			this.ends = ends;
+		}
+		
+		@Override
+		void decode(Object[] target, int count) {
+			int start = 0;
+			for (int i = 0; i < ends.length; i++) {
+				Arrays.fill(target, start, ends[i], values[i]);
+				start = ends[i];
+			}
+		}
+	}
+	
+	static class DictionarySegment extends ColumnSegment {
+		private Object[] dictionary;
+		private long[] codes;
+		private int bits;
+		
+		DictionarySegment(Object[] dictionary, int[] codes, int count) {
+			this.dictionary = dictionary;
+			this.bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(dictionary.length - 1));
+			this.codes = new long[(count * bits + 63) / 64];
+			for (int i = 0; i < count; i++) {
+				long bitIndex = (long)i * bits;
+				int word = (int)(bitIndex >>> 6);
+				int offset = (int)(bitIndex & 63);
+				this.codes[word] |= ((long)codes[i]) << offset;
+				if (offset + bits > 64) {
+					this.codes[word + 1] |= ((long)codes[i]) >>> (64 - offset);
+				}
+			}
+		}
+		
+		@Override
+		void decode(Object[] target, int count) {
+			long mask = (1L << bits) - 1;
+			for (int i = 0; i < count; i++) {
+				long bitIndex = (long)i * bits;
+				int word = (int)(bitIndex >>> 6);
+				int offset = (int)(bitIndex & 63);
+				long code = codes[word] >>> offset;
+				if (offset + bits > 64) {
+					code |= codes[word + 1] << (64 - offset);
+				}
+				target[i] = dictionary[(int)(code & mask)];
+			}
+		}
+	}
+	
+	static class Segment {
+		int rowCount;
+		ColumnSegment[] columns;
+		ZoneMap zoneMap;
+	}
+	
+	private List<ElementSymbol> columns;
+	private Map<Expression, Integer> columnMap;
+	private String[] types;
+	private boolean[] comparable;
+	private List<Segment> segments = new ArrayList<Segment>();
+	private int rowCount;
+	private AtomicInteger reserved = new AtomicInteger();
+	
+	ColumnStore(List<ElementSymbol> columns) {
+		this.columns = columns;
+		this.columnMap = RelationalNode.createLookupMap(columns);
+		this.types = TupleBuffer.getTypeNames(columns);
+		this.comparable = ZoneMap.getComparable(types);
+	}
+	
+	/**
+	 * Load the store from the given rows, which must have the same columns as the store
+	 */
+	void load(TupleSource ts, int segmentSize) throws TeiidComponentException, TeiidProcessingException {
+		Object[][] values = new Object[columns.size()][segmentSize];
+		int count = 0;
+		List<?> tuple = null;
+		while ((tuple = ts.nextTuple()) != null) {
+			for (int i = 0; i < values.length; i++) {
+				values[i][count] = tuple.get(i);
+			}
+			if (++count == segmentSize) {
+				addSegment(values, count);
+				count = 0;
+			}
+		}
+		if (count > 0) {
+			addSegment(values, count);
+		}
+		int[] encodings = new int[3];
+		for (Segment segment : segments) {
+			for (ColumnSegment cs : segment.columns) {
+				encodings[cs instanceof RunLengthSegment?0:cs instanceof DictionarySegment?1:2]++;
+			}
+		}
+		LogManager.logDetail(LogConstants.CTX_DQP, "Loaded column store with", rowCount, "rows in", segments.size(), "segments. Run length/dictionary/plain column segments:", encodings[0], encodings[1], encodings[2]); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private void addSegment(Object[][] values, int count) {
+		Segment segment = new Segment();
+		segment.rowCount = count;
+		segment.columns = new ColumnSegment[values.length];
+		segment.zoneMap = new ZoneMap(comparable);
+		for (int i = 0; i < values.length; i++) {
+			for (int j = 0; j < count; j++) {
+				segment.zoneMap.addValue(i, values[i][j]);
+			}
+			segment.columns[i] = encode(values[i], count);
+		}
+		segments.add(segment);
+		rowCount += count;
+	}
+	
+	static ColumnSegment encode(Object[] values, int count) {
+		int runs = 0;
+		HashMap<Object, Integer> dictionary = new HashMap<Object, Integer>();
+		int maxDictionary = count / 2;
+		for (int i = 0; i < count; i++) {
+			Object value = values[i];
+			if (i == 0 || !equals(value, values[i - 1])) {
+				runs++;
+			}
+			if (dictionary != null && !dictionary.containsKey(value)) {
+				if (dictionary.size() == maxDictionary) {
+					dictionary = null;
+				} else {
+					dictionary.put(value, dictionary.size());
+				}
+			}
+		}
+		ColumnSegment result = null;
+		if (runs <= count / 4) {
+			Object[] runValues = new Object[runs];
+			int[] ends = new int[runs];
+			int run = 0;
+			for (int i = 1; i <= count; i++) {
+				if (i == count || !equals(values[i], values[i - 1])) {
+					runValues[run] = values[i - 1];
+					ends[run++] = i;
+				}
+			}
+			result = new RunLengthSegment(runValues, ends);
+		} else if (dictionary != null) {
+			Object[] dictionaryValues = new Object[dictionary.size()];
+			int[] codes = new int[count];
+			for (int i = 0; i < count; i++) {
+				int code = dictionary.get(values[i]);
+				//keep the first instance of each value
+				if (dictionaryValues[code] == null) {
+					dictionaryValues[code] = values[i];
+				}
+				codes[i] = code;
+			}
+			result = new DictionarySegment(dictionaryValues, codes, count);
+		} else {
+			result = new PlainSegment(Arrays.copyOf(values, count));
+		}
+		return result;
+	}
+	
+	private static boolean equals(Object value, Object other) {
+		if (value == null) {
+			return other == null;
+		}
+		return value.equals(other);
+	}
+	
+	int getRowCount() {
+		return rowCount;
+	}
+	
+	void setReserved(int reserved) {
+		this.reserved.set(reserved);
+	}
+	
+	/**
+	 * @return the reserved buffer space to release, which will be 0 if already released
+	 */
+	int release() {
+		return reserved.getAndSet(0);
+	}
+	
+	List<ElementSymbol> getColumns() {
+		return columns;
+	}
+	
+	/**
+	 * Create a scan of the store.  Only the projected columns and those referenced by the condition are decoded.
+	 */
+	TupleSource createTupleSource(List<? extends Expression> projectedCols, final Criteria condition) {
+		final int[] projection = RelationalNode.getProjectionIndexes(columnMap, projectedCols);
+		LinkedHashSet<Integer> neededColumns = new LinkedHashSet<Integer>();
+		for (int i : projection) {
+			neededColumns.add(i);
+		}
+		final List<ZoneMap.Predicate> predicates = ZoneMap.getPredicates(condition, columnMap, types);
+		if (condition != null) {
+			for (ElementSymbol es : ElementCollectorVisitor.getElements(condition, true)) {
+				Integer index = columnMap.get(es);
+				if (index != null) {
+					neededColumns.add(index);
+				}
+			}
+		}
+		final int[] needed = new int[neededColumns.size()];
+		int i = 0;
+		for (Integer index : neededColumns) {
+			needed[i++] = index;
+		}
+		return new TupleSource() {
+			private int segmentIndex = -1;
+			private int row;
+			private Segment segment;
+			private Object[][] decoded = new Object[columns.size()][];
+			private Object[] values = new Object[columns.size()];
+			private List<Object> tuple = Arrays.asList(values);
+			private Evaluator eval = new Evaluator(columnMap, null, null);
+			private int skipped;
+			
+			@Override
+			public List<?> nextTuple() throws TeiidComponentException,
+					TeiidProcessingException {
+				for (;;) {
+					if (segment == null || row == segment.rowCount) {
+						if (!nextSegment()) {
+							return null;
+						}
+					}
+					for (int j = 0; j < needed.length; j++) {
+						values[needed[j]] = decoded[needed[j]][row];
+					}
+					row++;
+					if (condition != null && !eval.evaluate(condition, tuple)) {
+						continue;
+					}
+					return RelationalNode.projectTuple(projection, tuple);
+				}
+			}
+			
+			private boolean nextSegment() {
+				segment = null;
+				while (++segmentIndex < segments.size()) {
+					Segment next = segments.get(segmentIndex);
+					if (!next.zoneMap.mayMatch(predicates)) {
+						skipped++;
+						continue;
+					}
+					for (int j = 0; j < needed.length; j++) {
+						int col = needed[j];
+						if (decoded[col] == null || decoded[col].length < next.rowCount) {
+							decoded[col] = new Object[next.rowCount];
+						}
+						next.columns[col].decode(decoded[col], next.rowCount);
+					}
+					segment = next;
+					row = 0;
+					return true;
+				}
+				if (LogManager.isMessageToBeRecorded(LogConstants.CTX_DQP, MessageLevel.DETAIL)) {
+					LogManager.logDetail(LogConstants.CTX_DQP, "Column store scan skipped", skipped, "of", segments.size(), "segments"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				return false;
+			}
+			
+			@Override
+			public void closeSource() {
+				decoded = null;
+			}
+		};
+	}
+
+}
@@ -50,6 +50,22 @@ public interface GlobalTableStore {
 	Serializable getAddress();
 	
 	List<?> updateMatViewRow(String matTableName, List<?> tuple, boolean delete) throws TeiidComponentException;
+	
+	/**
+	 * Record the modification of a source table row against the materialized views that reference the table,
+	 * so that the views can be incrementally maintained prior to their next use.
+	 * @param tableName the full name of the source table
+	 * @param tuple the full row in table column order
+	 * @param delete
+	 */
+	void sourceRowModified(String tableName, List<?> tuple, boolean delete) throws TeiidComponentException;
+
+	/**
+	 * Read the materialized view from a local snapshot.  The table should then be made available with {@link #loaded(String, TempTable)}
+	 * @param withoutTtl true if a snapshot of a view without a ttl may be used
+	 * @return the restored table or null if there is no usable snapshot
+	 */
+	TempTable restoreSnapshot(String matTableName, boolean withoutTtl);
 
 	TempTable createMatTable(String tableName, GroupSymbol group)
 	throws TeiidComponentException, QueryMetadataException, TeiidProcessingException;
@@ -22,6 +22,11 @@
 
 package org.teiid.query.tempdata;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
@@ -31,10 +36,13 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.teiid.api.exception.query.QueryMetadataException;
@@ -49,6 +57,7 @@ import org.teiid.language.SQLConstants;
 import org.teiid.language.SQLConstants.Reserved;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
+import org.teiid.metadata.AbstractMetadataRecord;
 import org.teiid.metadata.Column;
 import org.teiid.metadata.KeyRecord;
 import org.teiid.metadata.Table;
@@ -73,11 +82,29 @@ import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.sql.util.SymbolMap;
 import org.teiid.query.sql.visitor.ExpressionMappingVisitor;
+import org.teiid.query.tempdata.IncrementalMatViewMaintenance.SourceRowChange;
 import org.teiid.query.tempdata.TempTableStore.TransactionMode;
 
 public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<String> {
 	
 	private static final String TEIID_FBI = "teiid:fbi"; //$NON-NLS-1$
+	/**
+	 * Extension property for mat view indexes, with a value of hash for an in-memory equality index
+	 */
+	public static final String INDEX_TYPE = AbstractMetadataRecord.RELATIONAL_URI + "index-type"; //$NON-NLS-1$
+	/**
+	 * Extension property for mat view indexes, with a comma separated list of additional columns to store with the index
+	 */
+	public static final String INDEX_INCLUDE = AbstractMetadataRecord.RELATIONAL_URI + "index-include"; //$NON-NLS-1$
+	public static final String HASH_INDEX = "hash"; //$NON-NLS-1$
+	/**
+	 * Extension property for mat views, with a value of columnar to keep a column segmented copy of the rows for scans
+	 */
+	public static final String STORAGE = AbstractMetadataRecord.RELATIONAL_URI + "storage"; //$NON-NLS-1$
+	public static final String COLUMNAR_STORAGE = "columnar"; //$NON-NLS-1$
+	static final int MAX_PENDING_CHANGES = 1 << 16;
+	private static final int SNAPSHOT_VERSION = 3;
+	private static final String SNAPSHOT_SUFFIX = ".snapshot"; //$NON-NLS-1$
 
 	public enum MatState {
 		NEEDS_LOADING,
@@ -93,6 +120,10 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		private long ttl = -1;
 		private boolean valid;
 		private boolean asynch; //sub state of loading
+		private List<SourceRowChange> pendingChanges;
+		private boolean pendingOverflow;
+		private long snapshotTime = -1;
+		private boolean snapshot;
 		
 		protected MatTableInfo() {}
 		
@@ -143,9 +174,60 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 			}
 			this.state = state;
 			this.updateTime = System.currentTimeMillis();
+			if (state == MatState.LOADING) {
+				//the load will reflect the prior changes
+				this.pendingChanges = null;
+				this.pendingOverflow = false;
+			}
 			notifyAll();
 		}
 		
+		synchronized void addPendingChange(SourceRowChange change) {
+			if (pendingOverflow) {
+				return;
+			}
+			if (pendingChanges == null) {
+				pendingChanges = new ArrayList<SourceRowChange>();
+			}
+			if (pendingChanges.size() >= MAX_PENDING_CHANGES) {
+				LogManager.logDetail(LogConstants.CTX_MATVIEWS, this, "too many pending changes, a full load will be performed"); //$NON-NLS-1$
+				pendingChanges = null;
+				pendingOverflow = true;
+				return;
+			}
+			pendingChanges.add(change);
+		}
+		
+		/**
+		 * Discard the pending changes and require a full load, as when there are too many changes
+		 */
+		public synchronized void setNeedsFullLoad() {
+			if (state == MatState.LOADED) {
+				pendingChanges = null;
+				pendingOverflow = true;
+			}
+		}
+		
+		public synchronized boolean hasPendingChanges() {
+			return state == MatState.LOADED && (pendingOverflow || pendingChanges != null);
+		}
+		
+		/**
+		 * Remove the pending changes so that they may be applied.
+		 * @return the changes or null if there were too many to apply incrementally
+		 */
+		public synchronized List<SourceRowChange> takePendingChanges() {
+			List<SourceRowChange> result = pendingChanges;
+			if (pendingOverflow) {
+				result = null;
+			} else if (result == null) {
+				result = Collections.emptyList();
+			}
+			pendingChanges = null;
+			pendingOverflow = false;
+			return result;
+		}
+		
 		public synchronized void setAsynchLoad() {
 			assert state == MatState.LOADING;
 			asynch = true;
@@ -178,10 +260,12 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 	}
 	
 	private ConcurrentHashMap<String, MatTableInfo> matTables = new ConcurrentHashMap<String, MatTableInfo>();
+	private ConcurrentHashMap<Object, Set<String>> referencedTables = new ConcurrentHashMap<Object, Set<String>>();
 	private TempTableStore tableStore = new TempTableStore("SYSTEM", TransactionMode.ISOLATE_READS); //$NON-NLS-1$
 	private BufferManager bufferManager;
 	private QueryMetadataInterface metadata;
 	private Serializable localAddress;
+	private File snapshotDirectory;
 	
 	public GlobalTableStoreImpl(BufferManager bufferManager, QueryMetadataInterface metadata) {
 		this.bufferManager = bufferManager;
@@ -363,12 +447,164 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 
 	@Override
 	public void loaded(String matTableName, TempTable table) {
-		swapTempTable(matTableName, table);
-		this.getMatTableInfo(matTableName).setState(MatState.LOADED, true);
+		MatTableInfo info = this.getMatTableInfo(matTableName);
+		long snapshotTime = -1;
+		boolean snapshot = snapshotDirectory != null && matTableName.startsWith(RelationalPlanner.MAT_PREFIX);
+		synchronized (info) {
+			swapTempTable(matTableName, table);
+			info.setState(MatState.LOADED, true);
+			//a restored snapshot retains its original update time
+			snapshotTime = info.snapshotTime;
+			if (snapshotTime != -1) {
+				info.updateTime = snapshotTime;
+				info.snapshotTime = -1;
+			}
+			info.snapshot = snapshot;
+		}
+		if (snapshotTime == -1 && snapshot) {
+			writeSnapshot(matTableName);
+		}
+	}
+	
+	/**
+	 * Set the directory where snapshots of loaded materialized views are kept.  A snapshot is used 
+	 * in place of the initial load of a view if its definition is unchanged and the snapshot is within the ttl.
+	 * The snapshot is removed by the first row level update of the view.
+	 */
+	public void setSnapshotDirectory(File snapshotDirectory) {
+		this.snapshotDirectory = snapshotDirectory;
+	}
+	
+	public File getSnapshotDirectory() {
+		return snapshotDirectory;
+	}
+	
+	private File getSnapshotFile(String matTableName) {
+		String name = matTableName.substring(RelationalPlanner.MAT_PREFIX.length()).replaceAll("[^\\w.-]", "_"); //$NON-NLS-1$ //$NON-NLS-2$
+		return new File(snapshotDirectory, name + SNAPSHOT_SUFFIX);
+	}
+	
+	/**
+	 * The snapshot is only valid for the same definition and columns
+	 */
+	private String getSnapshotFingerprint(Object viewId, TempMetadataID id) throws TeiidComponentException, QueryMetadataException {
+		StringBuilder result = new StringBuilder(metadata.getVirtualPlan(viewId).getQuery());
+		for (TempMetadataID col : id.getElements()) {
+			result.append(' ').append(col.getName()).append(' ').append(DataTypeManager.getDataTypeName(col.getType()));
+		}
+		return result.toString();
+	}
+	
+	void writeSnapshot(String matTableName) {
+		File file = getSnapshotFile(matTableName);
+		File temp = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			Object viewId = this.metadata.getGroupID(matTableName.substring(RelationalPlanner.MAT_PREFIX.length()));
+			String fingerprint = getSnapshotFingerprint(viewId, getGlobalTempTableMetadataId(viewId));
+			snapshotDirectory.mkdirs();
+			ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				oos.writeInt(SNAPSHOT_VERSION);
+				oos.writeObject(fingerprint);
+				sendTable(matTableName, oos, false);
+			} finally {
+				oos.close();
+			}
+			//replace the prior snapshot only once the new one is complete
+			//the rename replaces the target atomically where the platform allows it
+			MatTableInfo info = getMatTableInfo(matTableName);
+			synchronized (info) {
+				if (!info.snapshot) {
+					//the table was modified while writing
+					temp.delete();
+					return;
+				}
+				if (!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file))) {
+					throw new IOException(temp.getPath());
+				}
+			}
+			LogManager.logDetail(LogConstants.CTX_MATVIEWS, "wrote snapshot", file, "for", matTableName); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (Exception e) {
+			temp.delete();
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31140, matTableName, file));
+		}
+	}
+	
+	@Override
+	public TempTable restoreSnapshot(String matTableName, boolean withoutTtl) {
+		if (snapshotDirectory == null || !matTableName.startsWith(RelationalPlanner.MAT_PREFIX)) {
+			return null;
+		}
+		File file = getSnapshotFile(matTableName);
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			TempTable table = null;
+			ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				Object viewId = this.metadata.getGroupID(matTableName.substring(RelationalPlanner.MAT_PREFIX.length()));
+				TempMetadataID id = getGlobalTempTableMetadataId(viewId);
+				if (ois.readInt() != SNAPSHOT_VERSION || !getSnapshotFingerprint(viewId, id).equals(ois.readObject())) {
+					LogManager.logDetail(LogConstants.CTX_MATVIEWS, "ignoring snapshot", file, "since the definition of", matTableName, "has changed"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					return null;
+				}
+				long updateTime = ois.readLong();
+				CacheHint hint = id.getCacheHint();
+				if (hint == null || hint.getTtl() == null) {
+					if (!withoutTtl) {
+						LogManager.logDetail(LogConstants.CTX_MATVIEWS, "ignoring snapshot", file, "since", matTableName, "does not have a ttl"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						return null;
+					}
+				} else if (System.currentTimeMillis() - updateTime > hint.getTtl()) {
+					LogManager.logDetail(LogConstants.CTX_MATVIEWS, "ignoring stale snapshot", file, "for", matTableName); //$NON-NLS-1$ //$NON-NLS-2$
+					return null;
+				}
+				//the loading address and state are from the prior process
+				ois.readObject();
+				ois.readObject();
+				table = readTable(matTableName, ois);
+				MatTableInfo info = this.getMatTableInfo(matTableName);
+				synchronized (info) {
+					info.snapshotTime = updateTime;
+				}
+			} finally {
+				ois.close();
+			}
+			LogManager.logInfo(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31141, matTableName, file));
+			return table;
+		} catch (Exception e) {
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31142, matTableName, file));
+			return null;
+		}
+	}
+	
+	/**
+	 * Remove the snapshot since it no longer reflects the table
+	 */
+	private void removeSnapshot(String matTableName) {
+		MatTableInfo info = this.matTables.get(matTableName);
+		if (info == null) {
+			return;
+		}
+		synchronized (info) {
+			if (!info.snapshot) {
+				return;
+			}
+			info.snapshot = false;
+			File file = getSnapshotFile(matTableName);
+			if (!file.delete() && file.exists()) {
+				LogManager.logWarning(LogConstants.CTX_MATVIEWS, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31146, matTableName, file));
+			}
+		}
 	}
 	
 	private void swapTempTable(String tempTableName, TempTable tempTable) {
-    	this.tableStore.getTempTables().put(tempTableName, tempTable);
+    	TempTable old = this.tableStore.getTempTables().put(tempTableName, tempTable);
+    	if (old != null && old != tempTable) {
+    		//in progress scans retain the store, but it no longer needs to be accounted for
+    		old.removeColumnStore();
+    	}
     }
 
 	@Override
@@ -386,12 +622,50 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 				if (clone) {
 					swapTempTable(matTableName, tempTable);
 				}
+				removeSnapshot(matTableName);
 				return result;
 			}
 		}
 		return null;
 	}
 
+	@Override
+	public void sourceRowModified(String tableName, List<?> tuple,
+			boolean delete) throws TeiidComponentException {
+		SourceRowChange change = new SourceRowChange(tableName, tuple, delete);
+		for (Map.Entry<String, MatTableInfo> entry : this.matTables.entrySet()) {
+			MatTableInfo info = entry.getValue();
+			if (!info.isValid()) {
+				continue;
+			}
+			TempMetadataID id = this.tableStore.getMetadataStore().getTempGroupID(entry.getKey());
+			if (id == null || id.getOriginalMetadataID() == null) {
+				continue;
+			}
+			try {
+				if (references(id.getOriginalMetadataID(), tableName)) {
+					LogManager.logDetail(LogConstants.CTX_MATVIEWS, "recording change to", tableName, "for", entry.getKey()); //$NON-NLS-1$ //$NON-NLS-2$
+					info.addPendingChange(change);
+				}
+			} catch (TeiidProcessingException e) {
+				throw new TeiidComponentException(e);
+			}
+		}
+	}
+
+	private boolean references(Object viewId, String tableName)
+			throws TeiidComponentException, TeiidProcessingException {
+		Set<String> tables = referencedTables.get(viewId);
+		if (tables == null) {
+			GroupSymbol group = new GroupSymbol(metadata.getFullName(viewId));
+			group.setMetadataID(viewId);
+			Command c = QueryResolver.resolveView(group, metadata.getVirtualPlan(viewId), SQLConstants.Reserved.SELECT, metadata).getCommand();
+			tables = IncrementalMatViewMaintenance.getReferencedTables(c, metadata);
+			referencedTables.put(viewId, tables);
+		}
+		return tables.contains(tableName);
+	}
+	
 	@Override
 	public TempTableStore getTempTableStore() {
 		return this.tableStore;
@@ -424,6 +698,17 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		return table;
 	}
 	
+	/**
+	 * Get the extension property value, which may be specified without the namespace
+	 */
+	static String getExtensionProperty(Properties props, String key) {
+		String value = props.getProperty(key);
+		if (value == null) {
+			value = props.getProperty(key.substring(key.indexOf('}') + 1));
+		}
+		return value;
+	}
+	
 	/**
 	 * Return a list of ElementSymbols for the given index/key object
 	 */
@@ -535,6 +820,20 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		long updateTime = ois.readLong();
 		Serializable loadingAddress = (Serializable) ois.readObject();
 		MatState state = (MatState)ois.readObject();
+		TempTable tempTable = readTable(stateId, ois);
+		MatTableInfo info = this.getMatTableInfo(stateId);
+		synchronized (info) {
+			swapTempTable(stateId, tempTable);
+			info.setState(state, true);
+			info.updateTime = updateTime;
+			info.loadingAddress = loadingAddress;
+		}
+	}
+
+	private TempTable readTable(String stateId, ObjectInputStream ois)
+			throws TeiidComponentException, QueryMetadataException,
+			IOException,
+			ClassNotFoundException, TeiidProcessingException {
 		GroupSymbol group = new GroupSymbol(stateId);
 		if (stateId.startsWith(RelationalPlanner.MAT_PREFIX)) {
 			String viewName = stateId.substring(RelationalPlanner.MAT_PREFIX.length());
@@ -552,13 +851,7 @@ public class GlobalTableStoreImpl implements GlobalTableStore, ReplicatedObject<
 		}
 		TempTable tempTable = this.createMatTable(stateId, group);
 		tempTable.readFrom(ois);
-		MatTableInfo info = this.getMatTableInfo(stateId);
-		synchronized (info) {
-			swapTempTable(stateId, tempTable);
-			info.setState(state, true);
-			info.updateTime = updateTime;
-			info.loadingAddress = loadingAddress;
-		}
+		return tempTable;
 	}
 
 	@Override
@@ -0,0 +1,216 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.tempdata;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.function.FunctionMethods;
+import org.teiid.query.processor.relational.RelationalNode;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+
+/**
+ * An in-memory hash index for a {@link TempTable}.
+ * <br/>
+ * The rows of the index are the index columns, followed by the primary key and any included columns.
+ * Only equality lookups against all of the index columns are supported.
+ * <br/>
+ * Unlike the tree based indexes the entries are held on the heap rather than by the buffer manager,
+ * so hash indexes are intended for point lookups against smaller tables, such as code tables.
+ * <br/>
+ * The key values are normalized so that they match as with {@link Constant#COMPARATOR}.  Types that cannot be
+ * normalized, such as strings with a collation locale, cannot be hash indexed.
+ */
+class HashIndex implements SearchableTable, Cloneable {
+	
+	private List<ElementSymbol> columns;
+	private int keyLength;
+	private boolean unique;
+	private int[] pkIndexes;
+	private Map<Expression, Integer> columnMap;
+	private HashMap<List<?>, List<List<?>>> entries = new HashMap<List<?>, List<List<?>>>();
+	private boolean normalize;
+	
+	HashIndex(List<ElementSymbol> columns, int keyLength, boolean unique, int[] pkIndexes) {
+		this.columns = columns;
+		this.keyLength = keyLength;
+		this.unique = unique;
+		this.pkIndexes = pkIndexes;
+		this.columnMap = RelationalNode.createLookupMap(columns);
+		for (int i = 0; i < keyLength; i++) {
+			Class<?> type = columns.get(i).getType();
+			if (type == DataTypeManager.DefaultDataClasses.BIG_DECIMAL 
+					|| (type == DataTypeManager.DefaultDataClasses.STRING && DataTypeManager.PAD_SPACE)) {
+				normalize = true;
+			}
+		}
+	}
+	
+	/**
+	 * @return true if values of the type can be hash indexed consistently with {@link Constant#COMPARATOR}
+	 */
+	static boolean isHashable(Class<?> type) {
+		if (type == DataTypeManager.DefaultDataClasses.STRING) {
+			return Constant.COLLATION_LOCALE == null;
+		}
+		return !(type == DataTypeManager.DefaultDataClasses.BLOB
+				|| type == DataTypeManager.DefaultDataClasses.CLOB
+				|| type == DataTypeManager.DefaultDataClasses.OBJECT);
+	}
+	
+	private List<?> getKey(List<?> row) {
+		if (!normalize) {
+			return row.subList(0, keyLength);
+		}
+		List<Object> key = new ArrayList<Object>(keyLength);
+		for (int i = 0; i < keyLength; i++) {
+			Object value = row.get(i);
+			if (value instanceof BigDecimal) {
+				BigDecimal bd = (BigDecimal)value;
+				//stripTrailingZeros does not change the scale of zero on older jres
+				value = bd.signum() == 0 ? BigDecimal.ZERO : bd.stripTrailingZeros();
+			} else if (value instanceof String && DataTypeManager.PAD_SPACE) {
+				value = FunctionMethods.rightTrim((String)value, ' ', false);
+			}
+			key.add(value);
+		}
+		return key;
+	}
+	
+	/**
+	 * @param row in index column order
+	 * @return false if the index values were already present
+	 */
+	boolean add(List<?> row) {
+		List<?> key = getKey(row);
+		List<List<?>> rows = entries.get(key);
+		boolean result = rows == null;
+		if (result) {
+			rows = new ArrayList<List<?>>(1);
+			entries.put(new ArrayList<Object>(key), rows);
+		}
+		rows.add(row);
+		return result;
+	}
+	
+	/**
+	 * Remove the row with the same primary key
+	 * @param row in index column order
+	 */
+	void remove(List<?> row) {
+		List<?> key = getKey(row);
+		List<List<?>> rows = entries.get(key);
+		if (rows == null) {
+			return;
+		}
+		for (int i = 0; i < rows.size(); i++) {
+			if (samePrimaryKey(rows.get(i), row)) {
+				rows.remove(i);
+				break;
+			}
+		}
+		if (rows.isEmpty()) {
+			entries.remove(key);
+		}
+	}
+	
+	private boolean samePrimaryKey(List<?> row, List<?> other) {
+		for (int index : pkIndexes) {
+			Object value = row.get(index);
+			Object otherValue = other.get(index);
+			if (value == null ? otherValue != null : otherValue == null || Constant.COMPARATOR.compare(value, otherValue) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return the matching rows or null if there are none
+	 */
+	List<List<?>> find(List<?> key) {
+		return entries.get(getKey(key));
+	}
+	
+	List<ElementSymbol> getColumns() {
+		return columns;
+	}
+	
+	int getKeyLength() {
+		return keyLength;
+	}
+	
+	boolean isUnique() {
+		return unique;
+	}
+	
+	int[] getPkIndexes() {
+		return pkIndexes;
+	}
+	
+	@Override
+	public Map<Expression, Integer> getColumnMap() {
+		return columnMap;
+	}
+	
+	@Override
+	public int getPkLength() {
+		return keyLength;
+	}
+	
+	@Override
+	public boolean matchesPkColumn(int pkIndex, Expression ex) {
+		return columns.get(pkIndex).equals(ex);
+	}
+	
+	@Override
+	public boolean supportsOrdering(int pkIndex, Expression ex) {
+		return false;
+	}
+	
+	@Override
+	public HashIndex clone() {
+		try {
+			HashIndex clone = (HashIndex) super.clone();
+			clone.entries = new HashMap<List<?>, List<List<?>>>(entries.size());
+			for (Map.Entry<List<?>, List<List<?>>> entry : entries.entrySet()) {
+				clone.entries.put(entry.getKey(), new ArrayList<List<?>>(entry.getValue()));
+			}
+			return clone;
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "HashIndex " + columns.subList(0, keyLength); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,390 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+
+package org.teiid.query.tempdata;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.language.SQLConstants;
+import org.teiid.language.SQLConstants.Reserved;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.metadata.FunctionMethod.Determinism;
+import org.teiid.query.metadata.QueryMetadataInterface;
+import org.teiid.query.metadata.TempMetadataID;
+import org.teiid.query.processor.BatchCollector;
+import org.teiid.query.processor.QueryProcessor;
+import org.teiid.query.resolver.QueryResolver;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.Criteria;
+import org.teiid.query.sql.lang.FromClause;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.JoinPredicate;
+import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.lang.Query;
+import org.teiid.query.sql.navigator.DeepPreOrderNavigator;
+import org.teiid.query.sql.symbol.AggregateSymbol;
+import org.teiid.query.sql.symbol.Constant;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.sql.symbol.Function;
+import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.sql.symbol.WindowFunction;
+import org.teiid.query.sql.util.SymbolMap;
+import org.teiid.query.sql.visitor.AggregateSymbolCollectorVisitor;
+import org.teiid.query.sql.visitor.CommandCollectorVisitor;
+import org.teiid.query.sql.visitor.FunctionCollectorVisitor;
+import org.teiid.query.sql.visitor.GroupCollectorVisitor;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Incrementally maintains an internal materialized view from the {@link SourceRowChange}s recorded against it.
+ * <br/>
+ * Rather than evaluating delta rules for each operator, the view rows affected by a change are found by 
+ * their primary key and recomputed from the view definition.  This handles select/project/join/group by definitions 
+ * alike and is idempotent, so it does not matter if a change is already reflected in the materialized table.
+ * <br/>
+ * The affected keys are taken directly from the changed row if all of the key columns are projected from the changed table.
+ * Otherwise the view columns projected from the changed table are used to find the affected keys in both the 
+ * materialized table (rows that may be removed) and the view (rows that may be added).
+ * <br/>
+ * Definitions with window functions, non-deterministic functions, or nested commands referencing the changed table 
+ * are not maintained incrementally.
+ */
+class IncrementalMatViewMaintenance {
+	
+	/**
+	 * A modification of a source table row 
+	 */
+	public static class SourceRowChange {
+		private String tableName;
+		private List<?> tuple;
+		private boolean delete;
+		
+		public SourceRowChange(String tableName, List<?> tuple, boolean delete) {
+			this.tableName = tableName;
+			this.tuple = tuple;
+			this.delete = delete;
+		}
+		
+		public String getTableName() {
+			return tableName;
+		}
+		
+		public List<?> getTuple() {
+			return tuple;
+		}
+		
+		public boolean isDelete() {
+			return delete;
+		}
+		
+		@Override
+		public String toString() {
+			return (delete?"DELETE ":"INSERT ") + tableName + " " + tuple; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+	
+	private CommandContext context;
+	private GlobalTableStore globalStore;
+	private String matTableName;
+	private QueryMetadataInterface metadata;
+	
+	private TempTable table;
+	private String viewName;
+	private Query query;
+	private List<?> viewColumns;
+	private List<Integer> keyIndexes;
+	private List<ElementSymbol> matColumns;
+	private Set<String> nestedTables;
+	
+	IncrementalMatViewMaintenance(CommandContext context, GlobalTableStore globalStore, String matTableName) {
+		this.context = context;
+		this.globalStore = globalStore;
+		this.matTableName = matTableName;
+		this.metadata = context.getMetadata();
+	}
+	
+	/**
+	 * Apply the changes to the materialized table
+	 * @return the number of view rows recomputed or -1 if the changes cannot be applied incrementally
+	 */
+	int apply(List<SourceRowChange> changes) throws TeiidComponentException, TeiidProcessingException {
+		if (!initialize()) {
+			return -1;
+		}
+		Set<List<?>> keys = new LinkedHashSet<List<?>>();
+		for (SourceRowChange change : changes) {
+			if (!addAffectedKeys(change, keys)) {
+				LogManager.logDetail(LogConstants.CTX_MATVIEWS, "cannot incrementally apply", change, "to", matTableName); //$NON-NLS-1$ //$NON-NLS-2$
+				return -1;
+			}
+		}
+		StringBuilder sql = new StringBuilder();
+		sql.append(Reserved.SELECT).append(' ');
+		//the table is in key order
+		List<Integer> columnIndexes = new ArrayList<Integer>(keyIndexes);
+		for (int i = 0; i < viewColumns.size(); i++) {
+			if (!keyIndexes.contains(i)) {
+				columnIndexes.add(i);
+			}
+		}
+		appendColumns(sql, columnIndexes);
+		sql.append(' ').append(Reserved.FROM).append(' ').append(viewName).append(' ').append(Reserved.WHERE).append(' ');
+		for (int i = 0; i < keyIndexes.size(); i++) {
+			if (i > 0) {
+				sql.append(' ').append(Reserved.AND).append(' ');
+			}
+			sql.append(metadata.getFullName(viewColumns.get(keyIndexes.get(i)))).append(" = ?"); //$NON-NLS-1$
+		}
+		sql.append(' ').append(Reserved.OPTION).append(' ').append(Reserved.NOCACHE);
+		String recompute = sql.toString();
+		for (List<?> key : keys) {
+			TupleSource ts = execute(recompute, key);
+			try {
+				List<?> tuple = ts.nextTuple();
+				if (tuple == null) {
+					globalStore.updateMatViewRow(matTableName, key, true);
+				} else {
+					globalStore.updateMatViewRow(matTableName, new ArrayList<Object>(tuple), false);
+				}
+			} finally {
+				ts.closeSource();
+			}
+		}
+		LogManager.logDetail(LogConstants.CTX_MATVIEWS, "incrementally applied", changes.size(), "changes to", matTableName, "recomputing", keys.size(), "rows"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		return keys.size();
+	}
+
+	private boolean initialize() throws TeiidComponentException, TeiidProcessingException {
+		table = globalStore.getTempTableStore().getTempTable(matTableName);
+		TempMetadataID id = globalStore.getTempTableStore().getMetadataStore().getTempGroupID(matTableName);
+		if (table == null || id == null || !table.isUpdatable() || id.getOriginalMetadataID() == null) {
+			return false;
+		}
+		Object viewID = id.getOriginalMetadataID();
+		viewColumns = metadata.getElementIDsInGroupID(viewID);
+		//function based index columns are not maintained
+		Object pk = metadata.getPrimaryKey(viewID);
+		if (pk == null || id.getElements().size() != viewColumns.size()) {
+			return false;
+		}
+		keyIndexes = new ArrayList<Integer>();
+		for (Object col : metadata.getElementIDsInKey(pk)) {
+			keyIndexes.add(metadata.getPosition(col) - 1);
+		}
+		viewName = metadata.getFullName(viewID);
+		GroupSymbol group = new GroupSymbol(viewName);
+		group.setMetadataID(viewID);
+		Command command = QueryResolver.resolveView(group, metadata.getVirtualPlan(viewID), SQLConstants.Reserved.SELECT, metadata).getCommand();
+		if (!(command instanceof Query)) {
+			return false;
+		}
+		query = (Query)command;
+		if (query.getFrom() == null || query.getLimit() != null) {
+			return false;
+		}
+		//window functions depend upon other rows and non-deterministic functions would not reproduce the other rows
+		List<WindowFunction> windowFunctions = new ArrayList<WindowFunction>(1);
+		AggregateSymbolCollectorVisitor.getAggregates(query.getSelect(), new ArrayList<AggregateSymbol>(), null, null, windowFunctions, null);
+		if (!windowFunctions.isEmpty()) {
+			return false;
+		}
+		for (Function function : FunctionCollectorVisitor.getFunctions(query, true, true)) {
+			if (function.getFunctionDescriptor().getDeterministic().compareTo(Determinism.VDB_DETERMINISTIC) < 0) {
+				return false;
+			}
+		}
+		//tables referenced by subqueries and inline views, which may be affected by a change without a matching key
+		nestedTables = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+		for (Command nested : CommandCollectorVisitor.getCommands(query)) {
+			nestedTables.addAll(getReferencedTables(nested, metadata));
+		}
+		//outer joins could add or remove rows without values from the changed row
+		for (FromClause clause : query.getFrom().getClauses()) {
+			if (!isInnerJoin(clause)) {
+				return false;
+			}
+		}
+		//only the key columns of the table are guaranteed to be resolved, so match by name
+		matColumns = new ArrayList<ElementSymbol>(viewColumns.size());
+		for (TempMetadataID colId : id.getElements()) {
+			for (ElementSymbol es : table.getColumns()) {
+				if (colId.getID().equalsIgnoreCase(es.getName())) {
+					matColumns.add(es);
+					break;
+				}
+			}
+		}
+		return matColumns.size() == viewColumns.size();
+	}
+	
+	private boolean isInnerJoin(FromClause clause) {
+		if (!(clause instanceof JoinPredicate)) {
+			return true;
+		}
+		JoinPredicate jp = (JoinPredicate)clause;
+		if (jp.getJoinType() != JoinType.JOIN_INNER && jp.getJoinType() != JoinType.JOIN_CROSS) {
+			return false;
+		}
+		return isInnerJoin(jp.getLeftClause()) && isInnerJoin(jp.getRightClause());
+	}
+	
+	private boolean addAffectedKeys(SourceRowChange change, Set<List<?>> keys) throws TeiidComponentException, TeiidProcessingException {
+		if (nestedTables.contains(change.getTableName())) {
+			return false;
+		}
+		GroupSymbol changed = null;
+		for (GroupSymbol gs : query.getFrom().getGroups()) {
+			if (gs.isTempGroupSymbol() || !metadata.getFullName(gs.getMetadataID()).equalsIgnoreCase(change.getTableName())) {
+				continue;
+			}
+			if (changed != null) {
+				return false; //self join
+			}
+			changed = gs;
+		}
+		if (changed == null) {
+			return false; //referenced in a nested command
+		}
+		//the view column index to the value from the changed row
+		Map<Integer, Object> values = new LinkedHashMap<Integer, Object>();
+		List<Expression> projected = query.getProjectedSymbols();
+		for (int i = 0; i < projected.size(); i++) {
+			Expression ex = SymbolMap.getExpression(projected.get(i));
+			if (!(ex instanceof ElementSymbol) || !changed.equals(((ElementSymbol)ex).getGroupSymbol())) {
+				continue;
+			}
+			int position = metadata.getPosition(((ElementSymbol)ex).getMetadataID()) - 1;
+			if (position >= change.getTuple().size()) {
+				return false;
+			}
+			values.put(i, DataTypeManager.transformValue(change.getTuple().get(position), ex.getType()));
+		}
+		if (values.isEmpty()) {
+			return false;
+		}
+		if (values.keySet().containsAll(keyIndexes)) {
+			List<Object> key = new ArrayList<Object>(keyIndexes.size());
+			for (Integer index : keyIndexes) {
+				key.add(values.get(index));
+			}
+			keys.add(key);
+			return true;
+		}
+		//rows that may no longer exist
+		List<Criteria> parts = new ArrayList<Criteria>(values.size());
+		for (Map.Entry<Integer, Object> entry : values.entrySet()) {
+			ElementSymbol column = matColumns.get(entry.getKey());
+			if (entry.getValue() == null) {
+				parts.add(new IsNullCriteria(column));
+			} else {
+				parts.add(new CompareCriteria(column, CompareCriteria.EQ, new Constant(entry.getValue(), column.getType())));
+			}
+		}
+		List<ElementSymbol> keyColumns = new ArrayList<ElementSymbol>(keyIndexes.size());
+		for (Integer index : keyIndexes) {
+			keyColumns.add(matColumns.get(index));
+		}
+		addKeys(table.createTupleSource(keyColumns, Criteria.combineCriteria(parts), null), keys);
+		//rows that may be new
+		StringBuilder sql = new StringBuilder();
+		sql.append(Reserved.SELECT).append(' ');
+		appendColumns(sql, keyIndexes);
+		sql.append(' ').append(Reserved.FROM).append(' ').append(viewName).append(' ').append(Reserved.WHERE).append(' ');
+		List<Object> params = new ArrayList<Object>(values.size());
+		boolean first = true;
+		for (Map.Entry<Integer, Object> entry : values.entrySet()) {
+			if (!first) {
+				sql.append(' ').append(Reserved.AND).append(' ');
+			}
+			first = false;
+			sql.append(metadata.getFullName(viewColumns.get(entry.getKey())));
+			if (entry.getValue() == null) {
+				sql.append(' ').append(Reserved.IS).append(' ').append(Reserved.NULL);
+			} else {
+				sql.append(" = ?"); //$NON-NLS-1$
+				params.add(entry.getValue());
+			}
+		}
+		sql.append(' ').append(Reserved.OPTION).append(' ').append(Reserved.NOCACHE);
+		addKeys(execute(sql.toString(), params), keys);
+		return true;
+	}
+	
+	/**
+	 * Get the names of the physical tables referenced by the command, including those in nested commands
+	 */
+	static Set<String> getReferencedTables(Command command, QueryMetadataInterface metadata) throws TeiidComponentException {
+		Set<GroupSymbol> groups = new HashSet<GroupSymbol>();
+		DeepPreOrderNavigator.doVisit(command, new GroupCollectorVisitor(groups));
+		Set<String> result = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+		for (GroupSymbol gs : groups) {
+			if (!gs.isTempGroupSymbol() && !(gs.getMetadataID() instanceof TempMetadataID)) {
+				result.add(metadata.getFullName(gs.getMetadataID()));
+			}
+		}
+		return result;
+	}
+	
+	private void addKeys(TupleSource ts, Set<List<?>> keys) throws TeiidComponentException, TeiidProcessingException {
+		try {
+			List<?> tuple = null;
+			while ((tuple = ts.nextTuple()) != null) {
+				keys.add(new ArrayList<Object>(tuple));
+			}
+		} finally {
+			ts.closeSource();
+		}
+	}
+
+	private void appendColumns(StringBuilder sql, List<Integer> indexes)
+			throws TeiidComponentException {
+		for (int i = 0; i < indexes.size(); i++) {
+			if (i > 0) {
+				sql.append(", "); //$NON-NLS-1$
+			}
+			sql.append(metadata.getFullName(viewColumns.get(indexes.get(i))));
+		}
+	}
+	
+	private TupleSource execute(String sql, List<?> params) throws TeiidProcessingException, TeiidComponentException {
+		QueryProcessor qp = context.getQueryProcessorFactory().createQueryProcessor(sql, viewName.toUpperCase(), context, params.toArray());
+		qp.setNonBlocking(true);
+		qp.getContext().setDataObjects(null);
+		return new BatchCollector.BatchProducerTupleSource(qp);
+	}
+
+}
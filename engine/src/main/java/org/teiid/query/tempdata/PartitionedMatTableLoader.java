@@ -0,0 +1,343 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * See the COPYRIGHT.txt file distributed with this work for information
+ * regarding copyright ownership.  Some portions may be licensed
+ * to Red Hat, Inc. under one or more contributor license agreements.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ */
+
+package org.teiid.query.tempdata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.teiid.common.buffer.BufferManager;
+import org.teiid.common.buffer.BufferManager.TupleSourceType;
+import org.teiid.common.buffer.TupleBuffer;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.core.TeiidComponentException;
+import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.TeiidRuntimeException;
+import org.teiid.core.types.DataTypeManager;
+import org.teiid.dqp.internal.process.DQPWorkContext;
+import org.teiid.logging.LogConstants;
+import org.teiid.logging.LogManager;
+import org.teiid.query.processor.BatchCollector;
+import org.teiid.query.processor.QueryProcessor;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
+import org.teiid.query.processor.relational.SortUtility;
+import org.teiid.query.processor.relational.SortUtility.Mode;
+import org.teiid.query.sql.lang.Command;
+import org.teiid.query.sql.lang.OrderBy;
+import org.teiid.query.sql.lang.QueryCommand;
+import org.teiid.query.sql.lang.SetQuery;
+import org.teiid.query.sql.lang.SetQuery.Operation;
+import org.teiid.query.sql.symbol.ElementSymbol;
+import org.teiid.query.sql.symbol.Expression;
+import org.teiid.query.util.CommandContext;
+
+/**
+ * Loads an internal materialized view by running the partitions of its definition concurrently.
+ * <br/>
+ * The partitions are the branches of a top level union all.  Each partition is sorted by the primary key
+ * as it is read, then the sorted runs are merged and appended to the table, which avoids searching the tree for each row.
+ * <br/>
+ * The loading thread also processes partitions, so the load completes even if the executor has no free threads.
+ * Without an executor the partitions are loaded serially.
+ */
+class PartitionedMatTableLoader {
+	
+	private CommandContext context;
+	private TempTable table;
+	private List<ElementSymbol> allColumns;
+	private String fullName;
+	private int parallelism = 1;
+	
+	private volatile boolean canceled;
+	private List<QueryProcessor> processors;
+	
+	PartitionedMatTableLoader(CommandContext context, TempTable table, List<ElementSymbol> allColumns, String fullName) {
+		this.context = context;
+		this.table = table;
+		this.allColumns = allColumns;
+		this.fullName = fullName;
+	}
+	
+	void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Get the partitions of the view definition 
+	 * @return the partition queries or null if the definition cannot be partitioned
+	 */
+	static List<String> getPartitions(Command command) {
+		if (!(command instanceof SetQuery)) {
+			return null;
+		}
+		List<String> result = new ArrayList<String>();
+		collectPartitions((SetQuery)command, result);
+		if (result.size() < 2) {
+			return null;
+		}
+		return result;
+	}
+
+	private static void collectPartitions(QueryCommand command, List<String> result) {
+		if (command.getWith() != null || command.getLimit() != null) {
+			result.clear();
+			return;
+		}
+		if (command instanceof SetQuery) {
+			SetQuery setQuery = (SetQuery)command;
+			if (setQuery.getOperation() != Operation.UNION || !setQuery.isAll() || setQuery.getOrderBy() != null) {
+				result.clear();
+				return;
+			}
+			for (QueryCommand branch : setQuery.getQueryCommands()) {
+				collectPartitions(branch, result);
+				if (result.isEmpty()) {
+					return;
+				}
+			}
+			return;
+		}
+		result.add(command.toString());
+	}
+	
+	/**
+	 * Load the table
+	 * @return the row count 
+	 */
+	int load(List<String> partitions) throws TeiidComponentException, TeiidProcessingException {
+		List<FutureTask<TupleBuffer>> tasks = new ArrayList<FutureTask<TupleBuffer>>(partitions.size());
+		processors = new ArrayList<QueryProcessor>(partitions.size());
+		for (String partition : partitions) {
+			final QueryProcessor qp = context.getQueryProcessorFactory().createQueryProcessor(partition, fullName, context);
+			qp.setNonBlocking(true);
+			qp.getContext().setDataObjects(null);
+			processors.add(qp);
+			tasks.add(new FutureTask<TupleBuffer>(new Callable<TupleBuffer>() {
+				@Override
+				public TupleBuffer call() throws Exception {
+					if (canceled) {
+						qp.closeProcessing();
+						return null;
+					}
+					return loadPartition(qp);
+				}
+			}));
+		}
+		final List<FutureTask<TupleBuffer>> work = tasks;
+		final DQPWorkContext workContext = DQPWorkContext.getWorkContext();
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				workContext.runInContext(new Runnable() {
+					@Override
+					public void run() {
+						//tasks already started or completed will not be run again
+						for (FutureTask<TupleBuffer> task : work) {
+							task.run();
+						}
+					}
+				});
+			}
+		};
+		Executor executor = context.getExecutor();
+		if (executor != null) {
+			int threads = Math.min(parallelism, partitions.size()) - 1;
+			for (int i = 0; i < threads; i++) {
+				executor.execute(worker);
+			}
+		}
+		List<TupleBuffer> runs = new ArrayList<TupleBuffer>(partitions.size());
+		try {
+			for (FutureTask<TupleBuffer> task : tasks) {
+				task.run();
+				runs.add(getResult(task));
+			}
+			LogManager.logDetail(LogConstants.CTX_MATVIEWS, "merging", runs.size(), "partitions of", fullName); //$NON-NLS-1$ //$NON-NLS-2$
+			return table.insertOrdered(new MergeTupleSource(runs, table.getPkLength() > 0?table.getTree().getComparator():null));
+		} finally {
+			if (runs.size() < tasks.size()) {
+				canceled = true;
+				for (QueryProcessor qp : processors) {
+					qp.requestCanceled();
+				}
+				for (int i = runs.size(), size = tasks.size(); i < size; i++) {
+					FutureTask<TupleBuffer> task = tasks.get(i);
+					task.run();
+					try {
+						runs.add(task.get());
+					} catch (InterruptedException e) {
+						break;
+					} catch (ExecutionException e) {
+						//already failed
+					}
+				}
+			}
+			for (TupleBuffer run : runs) {
+				if (run != null) {
+					run.remove();
+				}
+			}
+		}
+	}
+
+	private TupleBuffer getResult(FutureTask<TupleBuffer> task)
+			throws TeiidComponentException, TeiidProcessingException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			throw new TeiidComponentException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof TeiidProcessingException) {
+				throw (TeiidProcessingException)e.getCause();
+			}
+			if (e.getCause() instanceof TeiidComponentException) {
+				throw (TeiidComponentException)e.getCause();
+			}
+			throw new TeiidRuntimeException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Read the partition into a {@link TupleBuffer} in table column order sorted by the primary key
+	 */
+	TupleBuffer loadPartition(QueryProcessor qp) throws TeiidComponentException, TeiidProcessingException {
+		BufferManager bm = context.getBufferManager();
+		List<ElementSymbol> columns = table.getColumns();
+		final int[] indexes = new int[columns.size()];
+		final Class<?>[] types = new Class<?>[columns.size()];
+		List<? extends Expression> output = qp.getOutputElements();
+		for (int i = 0; i < columns.size(); i++) {
+			indexes[i] = allColumns.indexOf(columns.get(i));
+			if (output.get(indexes[i]).getType() != columns.get(i).getType()) {
+				types[i] = columns.get(i).getType();
+			}
+		}
+		final TupleSource source = new BatchCollector.BatchProducerTupleSource(qp);
+		TupleSource ts = new TupleSource() {
+			
+			@Override
+			public List<?> nextTuple() throws TeiidComponentException,
+					TeiidProcessingException {
+				List<?> tuple = source.nextTuple();
+				if (tuple == null) {
+					return null;
+				}
+				List<Object> result = new ArrayList<Object>(indexes.length);
+				for (int i = 0; i < indexes.length; i++) {
+					Object value = tuple.get(indexes[i]);
+					if (types[i] != null) {
+						value = DataTypeManager.transformValue(value, types[i]);
+					}
+					result.add(value);
+				}
+				return result;
+			}
+			
+			@Override
+			public void closeSource() {
+				
+			}
+		};
+		try {
+			int pkLength = table.getPkLength();
+			if (pkLength > 0) {
+				return new SortUtility(ts, columns.subList(0, pkLength), Collections.nCopies(pkLength, OrderBy.ASC), Mode.SORT, bm, context.getConnectionId(), columns).sort();
+			}
+			TupleBuffer result = bm.createTupleBuffer(columns, context.getConnectionId(), TupleSourceType.PROCESSOR);
+			List<?> tuple = null;
+			while ((tuple = ts.nextTuple()) != null) {
+				result.addTuple(tuple);
+			}
+			result.close();
+			return result;
+		} finally {
+			qp.closeProcessing();
+		}
+	}
+	
+	/**
+	 * Merges the sorted runs, or concatenates them if there is no comparator
+	 */
+	static class MergeTupleSource implements TupleSource {
+		
+		private List<TupleSource> sources;
+		private List<List<?>> heads;
+		private ListNestedSortComparator comparator;
+		private int current;
+		
+		MergeTupleSource(List<TupleBuffer> runs, ListNestedSortComparator comparator) {
+			this.comparator = comparator;
+			this.sources = new ArrayList<TupleSource>(runs.size());
+			for (TupleBuffer run : runs) {
+				this.sources.add(run.createIndexedTupleSource(true));
+			}
+		}
+
+		@Override
+		public List<?> nextTuple() throws TeiidComponentException,
+				TeiidProcessingException {
+			if (comparator == null) {
+				while (current < sources.size()) {
+					List<?> tuple = sources.get(current).nextTuple();
+					if (tuple != null) {
+						return tuple;
+					}
+					current++;
+				}
+				return null;
+			}
+			if (heads == null) {
+				heads = new ArrayList<List<?>>(sources.size());
+				for (TupleSource source : sources) {
+					heads.add(source.nextTuple());
+				}
+			}
+			int min = -1;
+			for (int i = 0; i < heads.size(); i++) {
+				List<?> head = heads.get(i);
+				if (head != null && (min == -1 || comparator.compare(head, heads.get(min)) < 0)) {
+					min = i;
+				}
+			}
+			if (min == -1) {
+				return null;
+			}
+			List<?> result = heads.get(min);
+			heads.set(min, sources.get(min).nextTuple());
+			return result;
+		}
+
+		@Override
+		public void closeSource() {
+			for (TupleSource source : sources) {
+				source.closeSource();
+			}
+		}
+		
+	}
+
+}
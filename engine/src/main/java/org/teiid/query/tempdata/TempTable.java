@@ -49,6 +49,7 @@ import org.teiid.common.buffer.STree.InsertMode;
 import org.teiid.common.buffer.TupleBrowser;
 import org.teiid.common.buffer.TupleBuffer;
 import org.teiid.common.buffer.TupleSource;
+import org.teiid.common.buffer.ZoneMap;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidException;
 import org.teiid.core.TeiidProcessingException;
@@ -60,6 +61,7 @@ import org.teiid.query.QueryPlugin;
 import org.teiid.query.eval.Evaluator;
 import org.teiid.query.metadata.TempMetadataID;
 import org.teiid.query.processor.CollectionTupleSource;
+import org.teiid.query.processor.relational.ListNestedSortComparator;
 import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.SortUtility;
 import org.teiid.query.processor.relational.SortUtility.Mode;
@@ -325,6 +327,8 @@ public class TempTable implements Cloneable, SearchableTable {
 	private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 	private boolean updatable = true;
 	private LinkedHashMap<List<ElementSymbol>, TempTable> indexTables;
+	private List<HashIndex> hashIndexes;
+	private volatile ColumnStore columnStore;
 	
 	private int keyBatchSize;
 	private int leafBatchSize;
@@ -391,6 +395,12 @@ public class TempTable implements Cloneable, SearchableTable {
 					entry.setValue(indexClone);
 				}
 			}
+			if (clone.hashIndexes != null) {
+				clone.hashIndexes = new ArrayList<HashIndex>(clone.hashIndexes.size());
+				for (HashIndex index : this.hashIndexes) {
+					clone.hashIndexes.add(index.clone());
+				}
+			}
 			clone.tree = tree.clone();
 			clone.activeReaders = new AtomicInteger();
 			return clone;
@@ -406,11 +416,19 @@ public class TempTable implements Cloneable, SearchableTable {
 	}
 	
 	void addIndex(List<ElementSymbol> indexColumns, boolean unique) throws TeiidComponentException, TeiidProcessingException {
+		addIndex(indexColumns, unique, null);
+	}
+	
+	/**
+	 * Add a secondary index
+	 * @param includeColumns additional columns to store with the index so that it may cover more queries, may be null
+	 */
+	void addIndex(List<ElementSymbol> indexColumns, boolean unique, List<ElementSymbol> includeColumns) throws TeiidComponentException, TeiidProcessingException {
 		List<ElementSymbol> keyColumns = columns.subList(0, tree.getKeyLength());
 		if (keyColumns.equals(indexColumns) || (indexTables != null && indexTables.containsKey(indexColumns))) {
 			return;
 		}
-		TempTable indexTable = createIndexTable(indexColumns, unique);
+		TempTable indexTable = createIndexTable(indexColumns, unique, includeColumns);
 		//TODO: ordered insert optimization
 		TupleSource ts = createTupleSource(indexTable.getColumns(), null, null);
 		indexTable.insert(ts, indexTable.getColumns(), false, null);
@@ -418,14 +436,13 @@ public class TempTable implements Cloneable, SearchableTable {
 	}
 
 	private TempTable createIndexTable(List<ElementSymbol> indexColumns,
-			boolean unique) {
-		List<ElementSymbol> allColumns = new ArrayList<ElementSymbol>(indexColumns);
-		for (ElementSymbol elementSymbol : columns.subList(0, tree.getKeyLength())) {
-			if (allColumns.indexOf(elementSymbol) < 0) {
-				allColumns.add(elementSymbol);
-			}
+			boolean unique, List<ElementSymbol> includeColumns) {
+		List<ElementSymbol> allColumns = appendColumns(indexColumns, columns.subList(0, tree.getKeyLength()));
+		int keyLength = allColumns.size();
+		if (includeColumns != null) {
+			allColumns = appendColumns(allColumns, includeColumns);
 		}
-		TempTable indexTable = new TempTable(new TempMetadataID("idx", Collections.EMPTY_LIST), this.bm, allColumns, allColumns.size(), this.sessionID); //$NON-NLS-1$
+		TempTable indexTable = new TempTable(new TempMetadataID("idx", Collections.EMPTY_LIST), this.bm, allColumns, keyLength, this.sessionID); //$NON-NLS-1$
 		indexTable.setPreferMemory(this.tree.isPreferMemory());
 		indexTable.lock = this.lock;
 		if (unique) {
@@ -433,12 +450,116 @@ public class TempTable implements Cloneable, SearchableTable {
 		}
 		if (indexTables == null) {
 			indexTables = new LinkedHashMap<List<ElementSymbol>, TempTable>();
-			indexTables.put(indexColumns, indexTable);
 		}
+		indexTables.put(indexColumns, indexTable);
 		indexTable.setUpdatable(this.updatable);
 		return indexTable;
 	}
 	
+	private static List<ElementSymbol> appendColumns(List<ElementSymbol> indexColumns, List<ElementSymbol> additionalColumns) {
+		List<ElementSymbol> allColumns = new ArrayList<ElementSymbol>(indexColumns);
+		for (ElementSymbol elementSymbol : additionalColumns) {
+			if (allColumns.indexOf(elementSymbol) < 0) {
+				allColumns.add(elementSymbol);
+			}
+		}
+		return allColumns;
+	}
+	
+	/**
+	 * Add an in-memory hash index for equality lookups
+	 * @param includeColumns additional columns to store with the index so that it may cover more queries, may be null
+	 * @return false if the table or column types cannot be hash indexed
+	 */
+	boolean addHashIndex(List<ElementSymbol> indexColumns, boolean unique, List<ElementSymbol> includeColumns) throws TeiidComponentException, TeiidProcessingException {
+		if (rowId != null) {
+			return false;
+		}
+		for (ElementSymbol column : indexColumns) {
+			if (!HashIndex.isHashable(column.getType())) {
+				LogManager.logDetail(LogConstants.CTX_DQP, "Not creating a hash index on", this.tid.getID(), "since the type of", column, "cannot be hashed"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				return false;
+			}
+		}
+		if (hashIndexes != null) {
+			for (HashIndex index : hashIndexes) {
+				if (index.getColumns().subList(0, index.getKeyLength()).equals(indexColumns)) {
+					return true;
+				}
+			}
+		}
+		List<ElementSymbol> pkColumns = columns.subList(0, tree.getKeyLength());
+		List<ElementSymbol> allColumns = appendColumns(indexColumns, pkColumns);
+		if (includeColumns != null) {
+			allColumns = appendColumns(allColumns, includeColumns);
+		}
+		int[] pkIndexes = new int[pkColumns.size()];
+		for (int i = 0; i < pkIndexes.length; i++) {
+			pkIndexes[i] = allColumns.indexOf(pkColumns.get(i));
+		}
+		HashIndex index = new HashIndex(allColumns, indexColumns.size(), unique, pkIndexes);
+		TupleSource ts = createTupleSource(allColumns, null, null);
+		try {
+			List<?> tuple = null;
+			while ((tuple = ts.nextTuple()) != null) {
+				if (!index.add(tuple) && unique) {
+					throw new TeiidProcessingException(QueryPlugin.Event.TEIID30238, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30238, this.tid.getID()));
+				}
+			}
+		} finally {
+			ts.closeSource();
+		}
+		if (hashIndexes == null) {
+			hashIndexes = new ArrayList<HashIndex>(2);
+		}
+		hashIndexes.add(index);
+		return true;
+	}
+	
+	/**
+	 * Add a column segmented copy of the rows to use for scans.  Not used if the table is updatable.
+	 * <br/>
+	 * The copy is held on the heap, so its estimated size is reserved from the buffer manager 
+	 * and the store is not created if that much is not available.
+	 */
+	void addColumnStore() throws TeiidComponentException, TeiidProcessingException {
+		if (updatable || columnStore != null) {
+			return;
+		}
+		List<ElementSymbol> cols = getColumns();
+		long size = (long)bm.getSchemaSize(cols) * getRowCount() / bm.getProcessorBatchSize(cols);
+		int reserved = 0;
+		if (size > 0 && (size > Integer.MAX_VALUE || (reserved = bm.reserveBuffers((int)size, BufferReserveMode.NO_WAIT)) == 0)) {
+			LogManager.logDetail(LogConstants.CTX_DQP, "Not creating a column store for", tid.getID(), "since the estimated", size, "bytes are not available"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			return;
+		}
+		ColumnStore store = new ColumnStore(cols);
+		store.setReserved(reserved);
+		boolean success = false;
+		TupleSource ts = createTupleSource(cols, null, null);
+		try {
+			store.load(ts, ColumnStore.DEFAULT_SEGMENT_SIZE);
+			success = true;
+		} finally {
+			ts.closeSource();
+			if (!success) {
+				bm.releaseBuffers(store.release());
+			}
+		}
+		this.columnStore = store;
+	}
+	
+	/**
+	 * Discard the column store and release its reserved buffer space
+	 */
+	void removeColumnStore() {
+		ColumnStore store = columnStore;
+		columnStore = null;
+		if (store != null) {
+			bm.releaseBuffers(store.release());
+		}
+	}
+	
 	private int reserveBuffers() {
 		return bm.reserveBuffers(leafBatchSize + (tree.getHeight() - 1)*keyBatchSize, BufferReserveMode.FORCE);
 	}
@@ -460,6 +581,37 @@ public class TempTable implements Cloneable, SearchableTable {
 			orderBy = null;
 		}
 		IndexInfo primary = new IndexInfo(this, projectedCols, condition, orderBy, true);
+		if (hashIndexes != null && condition != null && !agg) {
+			for (HashIndex index : hashIndexes) {
+				BaseIndexInfo<HashIndex> hashInfo = new BaseIndexInfo<HashIndex>(index, projectedCols, condition, orderBy, false);
+				//prefer the primary key unless the hash index is covering
+				if (isFullKeyMatch(hashInfo) && (hashInfo.covering || !isFullKeyMatch(primary))) {
+					LogManager.logDetail(LogConstants.CTX_DQP, "Choose hash index", index, "covering:", hashInfo.covering); //$NON-NLS-1$ //$NON-NLS-2$
+					return createTupleSource(projectedCols, condition, orderBy, hashInfo);
+				}
+			}
+		}
+		ColumnStore store = this.columnStore;
+		if (store != null && !agg && isScan(primary) && primary.ordering == null) {
+			boolean scan = true;
+			if (indexTables != null && condition != null) {
+				for (TempTable table : this.indexTables.values()) {
+					if (!isScan(new IndexInfo(table, projectedCols, condition, null, false))) {
+						scan = false;
+						break;
+					}
+				}
+			}
+			if (scan) {
+				LogManager.logDetail(LogConstants.CTX_DQP, "Using the column store of", this, "for query", projectedCols, condition, orderBy); //$NON-NLS-1$ //$NON-NLS-2$
+				TupleSource ts = store.createTupleSource(projectedCols, condition);
+				if (orderBy == null) {
+					return ts;
+				}
+				TupleBuffer tb = new SortUtility(ts, orderBy.getOrderByItems(), Mode.SORT, bm, sessionID, projectedCols).sort();
+				return tb.createIndexedTupleSource(true);
+			}
+		}
 		IndexInfo ii = primary;
 		if (indexTables != null && (condition != null || orderBy != null) && ii.valueSet.size() != 1) {
 			LogManager.logDetail(LogConstants.CTX_DQP, "Considering indexes on table", this, "for query", projectedCols, condition, orderBy); //$NON-NLS-1$ //$NON-NLS-2$
@@ -502,6 +654,9 @@ public class TempTable implements Cloneable, SearchableTable {
 			final Criteria condition, OrderBy orderBy, IndexInfo ii, boolean agg)
 			throws TeiidComponentException, TeiidProcessingException {
 		TupleBrowser browser = ii.createTupleBrowser();
+		if (condition != null) {
+			browser.setZoneMapPredicates(ZoneMap.getPredicates(condition, columnMap, tree.getTypes()));
+		}
 		TupleSource ts = new QueryTupleSource(browser, columnMap, agg?getColumns():projectedCols, condition);
 		
 		boolean usingQueryTupleSource = false;
@@ -536,6 +691,70 @@ public class TempTable implements Cloneable, SearchableTable {
 		}
 	}
 
+	private static boolean isScan(BaseIndexInfo<?> ii) {
+		return ii.valueSet.isEmpty() && ii.lower == null && ii.upper == null;
+	}
+
+	private static boolean isFullKeyMatch(BaseIndexInfo<?> ii) {
+		return !ii.valueSet.isEmpty() && ii.valueSet.get(0).size() == ii.table.getPkLength();
+	}
+	
+	/**
+	 * Use the hash index values, which are looked up eagerly
+	 */
+	private TupleSource createTupleSource(final List<? extends Expression> projectedCols, 
+			final Criteria condition, OrderBy orderBy, BaseIndexInfo<HashIndex> ii) throws TeiidComponentException, TeiidProcessingException {
+		HashIndex index = ii.table;
+		List<List<?>> rows = new ArrayList<List<?>>();
+		if (updatable) {
+			lock.readLock().lock();
+		}
+		try {
+			for (List<Object> key : ii.valueSet) {
+				List<List<?>> matches = index.find(key);
+				if (matches != null) {
+					rows.addAll(matches);
+				}
+			}
+		} finally {
+			if (updatable) {
+				lock.readLock().unlock();
+			}
+		}
+		Evaluator eval = new Evaluator(index.getColumnMap(), null, null);
+		if (ii.covering) {
+			int[] projection = RelationalNode.getProjectionIndexes(index.getColumnMap(), projectedCols);
+			List<List<?>> result = new ArrayList<List<?>>(rows.size());
+			for (List<?> row : rows) {
+				if (eval.evaluate(condition, row)) {
+					result.add(RelationalNode.projectTuple(projection, row));
+				}
+			}
+			TupleSource ts = new CollectionTupleSource(result.iterator());
+			if (orderBy == null || result.size() < 2) {
+				return ts;
+			}
+			TupleBuffer tb = new SortUtility(ts, orderBy.getOrderByItems(), Mode.SORT, bm, sessionID, projectedCols).sort();
+			return tb.createIndexedTupleSource(true);
+		}
+		//lookup the rows by primary key, in key order to localize the lookups
+		List<List<?>> keys = new ArrayList<List<?>>(rows.size());
+		int[] pkIndexes = index.getPkIndexes();
+		for (List<?> row : rows) {
+			if (ii.coveredCriteria == null || eval.evaluate(ii.coveredCriteria, row)) {
+				keys.add(RelationalNode.projectTuple(pkIndexes, row));
+			}
+		}
+		int[] sortOn = new int[pkIndexes.length];
+		for (int i = 0; i < sortOn.length; i++) {
+			sortOn[i] = i;
+		}
+		Collections.sort(keys, new ListNestedSortComparator(sortOn, OrderBy.ASC));
+		IndexInfo primary = new IndexInfo(this, projectedCols, null, null, true);
+		primary.valueTs = new CollectionTupleSource(keys.iterator());
+		return createTupleSource(projectedCols, ii.nonCoveredCriteria, orderBy, primary, false);
+	}
+
 	/**
 	 * TODO: this could easily use statistics - the tree level 1 would be an ideal place
 	 * to compute them, since it minimizes page loads, and is a random sample.
@@ -585,6 +804,7 @@ public class TempTable implements Cloneable, SearchableTable {
 	
 	public int truncate(boolean force) {
 		this.tid.getTableData().dataModified(tree.getRowCount());
+		removeColumnStore();
 		return tree.truncate(force);
 	}
 	
@@ -593,6 +813,7 @@ public class TempTable implements Cloneable, SearchableTable {
 		try {
 			tid.getTableData().removed();
 			tree.remove();
+			removeColumnStore();
 			if (this.indexTables != null) {
 				for (TempTable indexTable : this.indexTables.values()) {
 					indexTable.remove();
@@ -659,6 +880,44 @@ public class TempTable implements Cloneable, SearchableTable {
         return CollectionTupleSource.createUpdateCountTupleSource(updateCount);
     }
 	
+	/**
+	 * Bulk load tuples in table column order that are already sorted by the primary key.
+	 * The tree is built by appending rather than searching for each insert point.
+	 * @return the number of rows inserted
+	 */
+	int insertOrdered(TupleSource tuples) throws TeiidComponentException, TeiidProcessingException {
+		tree.setBatchInsert(true);
+		int rows = 0;
+		try {
+			List<?> last = null;
+			List<?> tuple = null;
+			while ((tuple = tuples.nextTuple()) != null) {
+				if (rowId != null) {
+					List<Object> newTuple = new ArrayList<Object>(columns.size());
+					newTuple.add(rowId.getAndIncrement());
+					newTuple.addAll(tuple);
+					tuple = newTuple;
+				} else if (last != null && tree.getComparator().compare(last, tuple) >= 0) {
+					throw new TeiidProcessingException(QueryPlugin.Event.TEIID30238, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30238, this.tid.getID()));
+				}
+				for (int i = 0; i < notNull.length; i++) {
+					if (tuple.get(notNull[i]) == null) {
+						 throw new TeiidProcessingException(QueryPlugin.Event.TEIID30236, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30236, columns.get(notNull[i])));
+					}
+				}
+				tree.insert(tuple, InsertMode.ORDERED, -1);
+				last = tuple;
+				rows++;
+			}
+		} finally {
+			tree.setBatchInsert(false);
+			tuples.closeSource();
+		}
+		tid.setCardinality(tree.getRowCount());
+		tid.getTableData().dataModified(rows);
+		return rows;
+	}
+
 	public TupleSource update(Criteria crit, final SetClauseList update) throws TeiidComponentException, ExpressionEvaluationException, TeiidProcessingException {
 		final boolean primaryKeyChangePossible = canChangePrimaryKey(update);
 		final TupleBrowser browser = createTupleBrower(crit, OrderBy.ASC);
@@ -779,57 +1038,93 @@ public class TempTable implements Cloneable, SearchableTable {
 				oos.writeInt(this.indexTables.size());
 				for (Map.Entry<List<ElementSymbol>, TempTable> entry : this.indexTables.entrySet()) {
 					oos.writeBoolean(entry.getValue().uniqueColIndex > 0);
-					oos.writeInt(entry.getKey().size());
-					for (ElementSymbol es : entry.getKey()) {
-						oos.writeInt(this.columnMap.get(es));
-					}
-					entry.getValue().writeTo(oos);
+					writeColumns(oos, entry.getKey());
+					TempTable indexTable = entry.getValue();
+					writeColumns(oos, indexTable.columns.subList(indexTable.tree.getKeyLength(), indexTable.columns.size()));
+					indexTable.writeTo(oos);
+				}
+			}
+			//hash indexes are rebuilt from the table
+			if (this.hashIndexes == null) {
+				oos.writeInt(0);
+			} else {
+				oos.writeInt(this.hashIndexes.size());
+				for (HashIndex index : this.hashIndexes) {
+					oos.writeBoolean(index.isUnique());
+					writeColumns(oos, index.getColumns().subList(0, index.getKeyLength()));
+					writeColumns(oos, index.getColumns().subList(index.getKeyLength(), index.getColumns().size()));
 				}
 			}
+			//as is the column store
+			oos.writeBoolean(this.columnStore != null);
 		} finally {
 			this.lock.readLock().unlock();
 		}
 	}
 	
+	private void writeColumns(ObjectOutputStream oos, List<ElementSymbol> cols) throws IOException {
+		oos.writeInt(cols.size());
+		for (ElementSymbol es : cols) {
+			oos.writeInt(this.columnMap.get(es));
+		}
+	}
+	
 	void readFrom(ObjectInputStream ois) throws TeiidComponentException, IOException, ClassNotFoundException {
 		this.tree.readValuesFrom(ois);
 		int numIdx = ois.readInt();
 		for (int i = 0; i < numIdx; i++) {
 			boolean unique = ois.readBoolean();
-			int numCols = ois.readInt();
-			ArrayList<ElementSymbol> indexColumns = new ArrayList<ElementSymbol>(numCols);
-			for (int j = 0; j < numCols; j++) {
-				int colIndex = ois.readInt();
-				indexColumns.add(this.columns.get(colIndex));
-			}
-			TempTable tt = this.createIndexTable(indexColumns, unique);
+			List<ElementSymbol> indexColumns = readColumns(ois);
+			List<ElementSymbol> includeColumns = readColumns(ois);
+			TempTable tt = this.createIndexTable(indexColumns, unique, includeColumns);
 			tt.readFrom(ois);
 		}
+		int numHashIdx = ois.readInt();
+		for (int i = 0; i < numHashIdx; i++) {
+			boolean unique = ois.readBoolean();
+			List<ElementSymbol> indexColumns = readColumns(ois);
+			List<ElementSymbol> includeColumns = readColumns(ois);
+			try {
+				this.addHashIndex(indexColumns, unique, includeColumns);
+			} catch (TeiidProcessingException e) {
+				throw new TeiidComponentException(e);
+			}
+		}
+		if (ois.readBoolean()) {
+			try {
+				this.addColumnStore();
+			} catch (TeiidProcessingException e) {
+				throw new TeiidComponentException(e);
+			}
+		}
+	}
+	
+	private List<ElementSymbol> readColumns(ObjectInputStream ois) throws IOException {
+		int numCols = ois.readInt();
+		ArrayList<ElementSymbol> result = new ArrayList<ElementSymbol>(numCols);
+		for (int j = 0; j < numCols; j++) {
+			result.add(this.columns.get(ois.readInt()));
+		}
+		return result;
 	}
 	
 	List<?> updateTuple(List<?> tuple, boolean remove) throws TeiidComponentException {
 		try {
 			lock.writeLock().lock();
+			List<?> result = null;
 			if (remove) {
-				List<?> result = tree.remove(tuple);
+				result = tree.remove(tuple);
 				if (result == null) {
 					return null;
 				}
-				if (indexTables != null) {
-					for (TempTable index : this.indexTables.values()) {
-						tuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(index.getColumnMap(), index.columns), result);
-						index.tree.remove(tuple);
-					}
-				}
-				tid.getTableData().dataModified(1);
-				return result;
-			} 
-			List<?> result = tree.insert(tuple, InsertMode.UPDATE, -1);
-			if (indexTables != null) {
-				for (TempTable index : this.indexTables.values()) {
-					tuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(index.getColumnMap(), index.columns), tuple);
-					index.tree.insert(tuple, InsertMode.UPDATE, -1);
-				}
+			} else {
+				result = tree.insert(tuple, InsertMode.UPDATE, -1);
+			}
+			if (result != null) {
+				updateIndexes(result, true);
+			}
+			if (!remove) {
+				updateIndexes(tuple, false);
 			}
 			tid.getTableData().dataModified(1);
 			return result;
@@ -838,6 +1133,34 @@ public class TempTable implements Cloneable, SearchableTable {
 		}
 	}
 	
+	/**
+	 * Add or remove the index entries for the given table row
+	 */
+	private void updateIndexes(List<?> tuple, boolean remove) throws TeiidComponentException {
+		//the column store is not maintained
+		removeColumnStore();
+		if (indexTables != null) {
+			for (TempTable index : this.indexTables.values()) {
+				List<?> indexTuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(columnMap, index.columns), tuple);
+				if (remove) {
+					index.tree.remove(indexTuple);
+				} else {
+					index.tree.insert(indexTuple, InsertMode.UPDATE, -1);
+				}
+			}
+		}
+		if (hashIndexes != null) {
+			for (HashIndex index : this.hashIndexes) {
+				List<?> indexTuple = RelationalNode.projectTuple(RelationalNode.getProjectionIndexes(columnMap, index.getColumns()), tuple);
+				if (remove) {
+					index.remove(indexTuple);
+				} else {
+					index.add(indexTuple);
+				}
+			}
+		}
+	}
+	
 	private void updateTuple(List<?> tuple) throws TeiidComponentException {
 		if (tree.insert(tuple, InsertMode.UPDATE, -1) == null) {
 			throw new AssertionError("Update failed"); //$NON-NLS-1$
@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Properties;
 
 import org.teiid.adminapi.impl.SessionMetadata;
 import org.teiid.adminapi.impl.VDBMetaData;
@@ -56,9 +57,11 @@ import org.teiid.language.SQLConstants;
 import org.teiid.language.SQLConstants.Reserved;
 import org.teiid.logging.LogConstants;
 import org.teiid.logging.LogManager;
+import org.teiid.metadata.AbstractMetadataRecord;
 import org.teiid.metadata.FunctionMethod.Determinism;
 import org.teiid.query.QueryPlugin;
 import org.teiid.query.eval.Evaluator;
+import org.teiid.query.mapping.relational.QueryNode;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
 import org.teiid.query.metadata.TempMetadataID;
@@ -69,6 +72,7 @@ import org.teiid.query.processor.CollectionTupleSource;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.QueryProcessor;
 import org.teiid.query.processor.RegisterRequestParameter;
+import org.teiid.query.resolver.QueryResolver;
 import org.teiid.query.resolver.util.ResolverUtil;
 import org.teiid.query.sql.lang.*;
 import org.teiid.query.sql.symbol.Constant;
@@ -77,6 +81,7 @@ import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.sql.symbol.GroupSymbol;
 import org.teiid.query.sql.symbol.Reference;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
+import org.teiid.query.tempdata.IncrementalMatViewMaintenance.SourceRowChange;
 import org.teiid.query.util.CommandContext;
 
 /**
@@ -398,6 +403,18 @@ public class TempTableDataManager implements ProcessorDataManager {
 					}
 				}
 			}
+			if (!load && info.hasPendingChanges()) {
+				load = !applyPendingChanges(context, tableName, globalStore, info)
+					&& globalStore.needsLoading(tableName, globalStore.getAddress(), true, true, false) 
+					&& globalStore.needsLoading(tableName, globalStore.getAddress(), false, false, false);
+			}
+			if (load && globalStore.getTempTableStore().getTempTable(tableName) == null) {
+				TempTable restored = globalStore.restoreSnapshot(tableName, context.getOptions().isMatViewSnapshotWithoutTtl());
+				if (restored != null) {
+					globalStore.loaded(tableName, restored);
+					load = false;
+				}
+			}
 			if (load) {
 				if (!info.isValid() || executor == null) {
 					//blocking load
@@ -421,6 +438,33 @@ public class TempTableDataManager implements ProcessorDataManager {
 		return table.createTupleSource(query.getProjectedSymbols(), query.getCriteria(), query.getOrderBy());
 	}
 
+	/**
+	 * Incrementally apply the source changes recorded for the materialized view
+	 * @return true if the changes were applied, false if a full load is needed
+	 */
+	private boolean applyPendingChanges(CommandContext context, String tableName,
+			GlobalTableStore globalStore, MatTableInfo info) throws TeiidComponentException {
+		List<SourceRowChange> changes = info.takePendingChanges();
+		if (changes == null) {
+			return false;
+		}
+		if (changes.isEmpty()) {
+			return true;
+		}
+		boolean applied = false;
+		try {
+			applied = new IncrementalMatViewMaintenance(context, globalStore, tableName).apply(changes) >= 0;
+		} catch (Exception e) {
+			LogManager.logWarning(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31139, tableName));
+		} finally {
+			if (!applied) {
+				//the changes have already been taken and may be partially applied 
+				info.setNeedsFullLoad();
+			}
+		}
+		return applied;
+	}
+
 	private void loadAsynch(final CommandContext context, final String tableName) {
 		SessionMetadata session = createTemporarySession(context.getUserName(), "asynch-mat-view-load", context.getDQPWorkContext().getVDB()); //$NON-NLS-1$
 		session.setSubject(context.getSubject());
@@ -454,28 +498,65 @@ public class TempTableDataManager implements ProcessorDataManager {
 		int rowCount = -1;
 		try {
 			String fullName = metadata.getFullName(group.getMetadataID());
-			String transformation = metadata.getVirtualPlan(group.getMetadataID()).getQuery();
-			QueryProcessor qp = context.getQueryProcessorFactory().createQueryProcessor(transformation, fullName, context);
-			qp.setNonBlocking(true);
-			qp.getContext().setDataObjects(null);
-			TupleSource ts = new BatchCollector.BatchProducerTupleSource(qp);
-			
-			table.insert(ts, allColumns, false, null);
+			QueryNode node = metadata.getVirtualPlan(group.getMetadataID());
+			List<String> partitions = null;
+			int parallelism = context.getOptions().getMatViewLoadParallelism();
+			if (parallelism > 1) {
+				partitions = PartitionedMatTableLoader.getPartitions(QueryResolver.resolveView(group, node, SQLConstants.Reserved.SELECT, metadata).getCommand());
+			}
+			if (partitions != null) {
+				PartitionedMatTableLoader loader = new PartitionedMatTableLoader(context, table, allColumns, fullName);
+				loader.setParallelism(parallelism);
+				loader.load(partitions);
+			} else {
+				QueryProcessor qp = context.getQueryProcessorFactory().createQueryProcessor(node.getQuery(), fullName, context);
+				qp.setNonBlocking(true);
+				qp.getContext().setDataObjects(null);
+				TupleSource ts = new BatchCollector.BatchProducerTupleSource(qp);
+				
+				table.insert(ts, allColumns, false, null);
+			}
 			table.getTree().compact();
 			rowCount = table.getRowCount();
 			//TODO: could pre-process indexes to remove overlap
+			Object originalGroupId = group.getMetadataID();
+			if (originalGroupId instanceof TempMetadataID && ((TempMetadataID)originalGroupId).getOriginalMetadataID() != null) {
+				originalGroupId = ((TempMetadataID)originalGroupId).getOriginalMetadataID();
+			}
 			for (Object index : metadata.getIndexesInGroup(group.getMetadataID())) {
-				List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, index);
-				table.addIndex(columns, false);
+				Object record = index;
+				if (index instanceof TempMetadataID) {
+					record = ((TempMetadataID)index).getOriginalMetadataID();
+				}
+				addIndex(metadata, table, allColumns, index, record, false);
 			}
 			for (Object key : metadata.getUniqueKeysInGroup(group.getMetadataID())) {
-				List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, key);
-				table.addIndex(columns, true);
+				Object record = key;
+				if (!(key instanceof AbstractMetadataRecord) && originalGroupId != group.getMetadataID()) {
+					//temp unique keys don't retain the original, so match by columns
+					record = null;
+					List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, key);
+					for (Object originalKey : metadata.getUniqueKeysInGroup(originalGroupId)) {
+						if (columns.equals(GlobalTableStoreImpl.resolveIndex(metadata, allColumns, originalKey))) {
+							record = originalKey;
+							break;
+						}
+					}
+				}
+				addIndex(metadata, table, allColumns, key, record, true);
+			}
+			if (tableName.startsWith(CODE_PREFIX) && table.getPkLength() > 0 && rowCount <= context.getOptions().getCodeTableHashIndexMaxRows()) {
+				//lookups are always equality against the key, but the hash index is held on heap so it is limited to small tables
+				table.addHashIndex(table.getColumns().subList(0, table.getPkLength()), true, table.getColumns());
 			}
 			CacheHint hint = table.getCacheHint();
 			if (hint != null && table.getPkLength() > 0) {
 				table.setUpdatable(hint.isUpdatable(false));
 			}
+			if (originalGroupId instanceof AbstractMetadataRecord 
+					&& GlobalTableStoreImpl.COLUMNAR_STORAGE.equalsIgnoreCase(GlobalTableStoreImpl.getExtensionProperty(metadata.getExtensionProperties(originalGroupId), GlobalTableStoreImpl.STORAGE))) {
+				table.addColumnStore();
+			}
 		} catch (TeiidComponentException e) {
 			LogManager.logError(LogConstants.CTX_MATVIEWS, e, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID30015, tableName));
 			throw e;
@@ -493,6 +574,45 @@ public class TempTableDataManager implements ProcessorDataManager {
 		return rowCount;
 	}
 
+	/**
+	 * Add the index for the given key, using the index-type and index-include extension properties of the 
+	 * key record
+	 */
+	private void addIndex(QueryMetadataInterface metadata, TempTable table,
+			List<ElementSymbol> allColumns, Object key, Object record, boolean unique)
+			throws TeiidComponentException, TeiidProcessingException {
+		List<ElementSymbol> columns = GlobalTableStoreImpl.resolveIndex(metadata, allColumns, key);
+		List<ElementSymbol> includeColumns = null;
+		if (!(record instanceof AbstractMetadataRecord)) {
+			//temp metadata keys have no properties
+			table.addIndex(columns, unique);
+			return;
+		}
+		Properties props = metadata.getExtensionProperties(record);
+		String include = GlobalTableStoreImpl.getExtensionProperty(props, GlobalTableStoreImpl.INDEX_INCLUDE);
+		if (include != null) {
+			includeColumns = new ArrayList<ElementSymbol>();
+			for (String name : StringUtil.split(include, ",")) { //$NON-NLS-1$
+				ElementSymbol column = null;
+				for (ElementSymbol es : allColumns) {
+					if (es.getShortName().equalsIgnoreCase(name.trim())) {
+						column = es;
+						break;
+					}
+				}
+				if (column == null) {
+					throw new QueryProcessingException(QueryPlugin.Event.TEIID31143, QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31143, name.trim(), metadata.getName(record)));
+				}
+				includeColumns.add(column);
+			}
+		}
+		//fall back to a tree index if a hash index cannot be used for the columns
+		if (!GlobalTableStoreImpl.HASH_INDEX.equalsIgnoreCase(GlobalTableStoreImpl.getExtensionProperty(props, GlobalTableStoreImpl.INDEX_TYPE))
+				|| !table.addHashIndex(columns, unique, includeColumns)) {
+			table.addIndex(columns, unique, includeColumns);
+		}
+	}
+
 	public Object lookupCodeValue(CommandContext context, String codeTableName,
 			String returnElementName, String keyElementName, Object keyValue)
 			throws BlockedException, TeiidComponentException,
@@ -73,6 +73,14 @@ import org.teiid.translator.ReusableExecution;
  */
 public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	
+	/**
+	 * Something that processing has blocked on that can report when 
+	 * processing should be resumed.
+	 */
+	public interface BlockedCondition {
+		boolean isReady();
+	}
+	
 	private static class GlobalState {
 	    /** Uniquely identify the command being processed */
 	    private Object processorID;
@@ -110,6 +118,8 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	    
 	    private long timeoutEnd = Long.MAX_VALUE;
 	    
+	    private long planningEnd = Long.MAX_VALUE;
+	    
 	    private QueryMetadataInterface metadata; 
 	    
 	    private boolean validateXML;
@@ -137,8 +147,6 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 		private Executor executor = ExecutorUtils.getDirectExecutor();
 		Map<Object, List<ReusableExecution<?>>> reusableExecutions;
 	    Set<CommandListener> commandListeners = null;
-	    private LRUCache<String, DecimalFormat> decimalFormatCache;
-		private LRUCache<String, SimpleDateFormat> dateFormatCache;
 		private AtomicLong reuseCount = null;
 		private ClassLoader classLoader;
 		
@@ -147,6 +155,9 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	    private Options options = null;
 	    private boolean returnAutoGeneratedKeys;
 	    private GeneratedKeysImpl generatedKeys;
+	    
+	    private List<BlockedCondition> blockedConditions;
+	    private Map<String, int[]> blockedCounts;
 	}
 	
 	private GlobalState globalState = new GlobalState();
@@ -158,6 +169,9 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
     private HashSet<Object> planningObjects;
     private HashSet<Object> dataObjects = this.globalState.dataObjects;
     private TupleSourceCache tupleSourceCache;
+    //the formats are not thread-safe, so they are not shared with clones that may be processed concurrently
+    private LRUCache<String, DecimalFormat> decimalFormatCache;
+    private LRUCache<String, SimpleDateFormat> dateFormatCache;
 
     /**
      * Construct a new context.
@@ -452,6 +466,18 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	public void setTimeoutEnd(long timeoutEnd) {
 		globalState.timeoutEnd = timeoutEnd;
 	}
+	
+	/**
+	 * Set the time after which planning should prefer cheaper heuristics
+	 * over exhaustive or cost based decisions
+	 */
+	public void setPlanningEnd(long planningEnd) {
+		globalState.planningEnd = planningEnd;
+	}
+	
+	public boolean isPlanningTimeExceeded() {
+		return globalState.planningEnd != Long.MAX_VALUE && System.currentTimeMillis() > globalState.planningEnd;
+	}
 
 	public void setMetadata(QueryMetadataInterface metadata) {
 		globalState.metadata = metadata;
@@ -726,17 +752,17 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	public static DecimalFormat getDecimalFormat(CommandContext context, String format) {
 		DecimalFormat result = null;
 		if (context != null) {
-			if (context.globalState.decimalFormatCache == null) {
-				context.globalState.decimalFormatCache = new LRUCache<String, DecimalFormat>(32);
+			if (context.decimalFormatCache == null) {
+				context.decimalFormatCache = new LRUCache<String, DecimalFormat>(32);
 			} else {
-				result = context.globalState.decimalFormatCache.get(format);
+				result = context.decimalFormatCache.get(format);
 			}
 		}
 		if (result == null) {
 			result = new DecimalFormat(format); //TODO: could be locale sensitive
 			result.setParseBigDecimal(true);
 			if (context != null) {
-				context.globalState.decimalFormatCache.put(format, result);
+				context.decimalFormatCache.put(format, result);
 			}
 		}
 		return result;
@@ -745,16 +771,16 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 	public static SimpleDateFormat getDateFormat(CommandContext context, String format) {
 		SimpleDateFormat result = null;
 		if (context != null) {
-			if (context.globalState.dateFormatCache == null) {
-				context.globalState.dateFormatCache = new LRUCache<String, SimpleDateFormat>(32);
+			if (context.dateFormatCache == null) {
+				context.dateFormatCache = new LRUCache<String, SimpleDateFormat>(32);
 			} else {
-				result = context.globalState.dateFormatCache.get(format);
+				result = context.dateFormatCache.get(format);
 			}
 		}
 		if (result == null) {
 			result = new SimpleDateFormat(format); //TODO: could be locale sensitive
 			if (context != null) {
-				context.globalState.dateFormatCache.put(format, result);
+				context.dateFormatCache.put(format, result);
 			}
 		}
 		return result;
@@ -864,4 +890,82 @@ public class CommandContext implements Cloneable, org.teiid.CommandContext {
 		}
 	}
 	
+	/**
+	 * Record a {@link BlockedCondition} for the current pass of processing 
+	 */
+	public void addBlockedCondition(BlockedCondition condition) {
+		synchronized (this.globalState) {
+			if (this.globalState.blockedConditions == null) {
+				this.globalState.blockedConditions = new ArrayList<BlockedCondition>(2);
+			}
+			this.globalState.blockedConditions.add(condition);
+		}
+	}
+	
+	public int getBlockedConditionCount() {
+		synchronized (this.globalState) {
+			if (this.globalState.blockedConditions == null) {
+				return 0;
+			}
+			return this.globalState.blockedConditions.size();
+		}
+	}
+	
+	public void clearBlockedConditions() {
+		synchronized (this.globalState) {
+			this.globalState.blockedConditions = null;
+		}
+	}
+	
+	/**
+	 * @return true if the last pass of processing blocked only on {@link BlockedCondition}s 
+	 * and none of them are ready, such that another pass would just block again.
+	 */
+	public boolean isBlockedOnConditions() {
+		synchronized (this.globalState) {
+			if (this.globalState.blockedConditions == null || this.globalState.blockedConditions.isEmpty()) {
+				return false;
+			}
+			for (BlockedCondition condition : this.globalState.blockedConditions) {
+				if (condition.isReady()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	/**
+	 * Count a {@link BlockedException} passing through the given type of node 
+	 */
+	public void recordBlocked(String type) {
+		synchronized (this.globalState) {
+			if (this.globalState.blockedCounts == null) {
+				this.globalState.blockedCounts = new TreeMap<String, int[]>();
+			}
+			int[] count = this.globalState.blockedCounts.get(type);
+			if (count == null) {
+				count = new int[1];
+				this.globalState.blockedCounts.put(type, count);
+			}
+			count[0]++;
+		}
+	}
+	
+	/**
+	 * @return the counts of {@link BlockedException}s by the type of the node they were thrown through
+	 */
+	public Map<String, Integer> getBlockedCounts() {
+		synchronized (this.globalState) {
+			if (this.globalState.blockedCounts == null) {
+				return Collections.emptyMap();
+			}
+			Map<String, Integer> result = new TreeMap<String, Integer>();
+			for (Map.Entry<String, int[]> entry : this.globalState.blockedCounts.entrySet()) {
+				result.put(entry.getKey(), entry.getValue()[0]);
+			}
+			return result;
+		}
+	}
+	
 }
@@ -33,12 +33,42 @@ public class Options {
 	public static final String PUSHDOWN_DEFAULT_NULL_ORDER = "org.teiid.pushdownDefaultNullOrder"; //$NON-NLS-1$
 	public static final String IMPLICIT_MULTISOURCE_JOIN = "org.teiid.implicitMultiSourceJoin"; //$NON-NLS-1$
 	public static final String JOIN_PREFETCH_BATCHES = "org.teiid.joinPrefetchBatches"; //$NON-NLS-1$
+	public static final String SHARED_SOURCE_QUERIES = "org.teiid.sharedSourceQueries"; //$NON-NLS-1$
+	public static final String SHARED_SOURCE_QUERY_MAX_WAIT = "org.teiid.sharedSourceQueryMaxWait"; //$NON-NLS-1$
+	public static final String SUBSUMPTION_CACHE_LOOKUP = "org.teiid.subsumptionCacheLookup"; //$NON-NLS-1$
+	public static final String SOURCE_PREFETCH_BATCHES = "org.teiid.sourcePrefetchBatches"; //$NON-NLS-1$
+	public static final String COLLECT_SOURCE_STATISTICS = "org.teiid.collectSourceStatistics"; //$NON-NLS-1$
+	public static final String COLLECT_SOURCE_STATISTICS_INTERVAL = "org.teiid.collectSourceStatisticsInterval"; //$NON-NLS-1$
+	public static final String CARDINALITY_FEEDBACK = "org.teiid.cardinalityFeedback"; //$NON-NLS-1$
+	public static final String JOIN_ENUMERATION_MAX_GROUPS = "org.teiid.joinEnumerationMaxGroups"; //$NON-NLS-1$
+	public static final String MAX_DEPENDENT_QUERIES = "org.teiid.maxDependentQueries"; //$NON-NLS-1$
+	public static final String AUTO_PARAMETERIZE = "org.teiid.autoParameterize"; //$NON-NLS-1$
+	public static final String PLANNING_TIME_BUDGET = "org.teiid.planningTimeBudget"; //$NON-NLS-1$
+	public static final String MAT_VIEW_LOAD_PARALLELISM = "org.teiid.matViewLoadParallelism"; //$NON-NLS-1$
+	public static final String CODE_TABLE_HASH_INDEX_MAX_ROWS = "org.teiid.codeTableHashIndexMaxRows"; //$NON-NLS-1$
+	public static final String XML_TABLE_PARALLELISM = "org.teiid.xmlTableParallelism"; //$NON-NLS-1$
+	public static final String MAT_VIEW_SNAPSHOT_WITHOUT_TTL = "org.teiid.matViewSnapshotWithoutTtl"; //$NON-NLS-1$
 
 	private Properties properties;
 	private boolean subqueryUnnestDefault;
 	private boolean pushdownDefaultNullOrder;
 	private boolean implicitMultiSourceJoin = true;
 	private int joinPrefetchBatches = 10;
+	private boolean sharedSourceQueries;
+	private int sharedSourceQueryMaxWait = 30000;
+	private boolean subsumptionCacheLookup;
+	private int sourcePrefetchBatches = 1;
+	private boolean collectSourceStatistics;
+	private int collectSourceStatisticsInterval = 3600000;
+	private boolean cardinalityFeedback;
+	private int joinEnumerationMaxGroups = 12;
+	private int maxDependentQueries = 1000;
+	private boolean autoParameterize;
+	private int planningTimeBudget;
+	private int matViewLoadParallelism = 1;
+	private int codeTableHashIndexMaxRows;
+	private int xmlTableParallelism = 1;
+	private boolean matViewSnapshotWithoutTtl;
 	
 	public Properties getProperties() {
 		return properties;
@@ -99,5 +129,200 @@ public class Options {
 		this.joinPrefetchBatches = i;
 		return this;
 	}
+	
+	public void setSharedSourceQueries(boolean sharedSourceQueries) {
+		this.sharedSourceQueries = sharedSourceQueries;
+	}
+	
+	public boolean isSharedSourceQueries() {
+		return sharedSourceQueries;
+	}
+	
+	public Options sharedSourceQueries(boolean b) {
+		this.sharedSourceQueries = b;
+		return this;
+	}
+	
+	public void setSharedSourceQueryMaxWait(int sharedSourceQueryMaxWait) {
+		this.sharedSourceQueryMaxWait = sharedSourceQueryMaxWait;
+	}
+	
+	public int getSharedSourceQueryMaxWait() {
+		return sharedSourceQueryMaxWait;
+	}
+	
+	public Options sharedSourceQueryMaxWait(int i) {
+		this.sharedSourceQueryMaxWait = i;
+		return this;
+	}
+
+	public void setSubsumptionCacheLookup(boolean subsumptionCacheLookup) {
+		this.subsumptionCacheLookup = subsumptionCacheLookup;
+	}
+	
+	public boolean isSubsumptionCacheLookup() {
+		return subsumptionCacheLookup;
+	}
+	
+	public Options subsumptionCacheLookup(boolean b) {
+		this.subsumptionCacheLookup = b;
+		return this;
+	}
+
+	public void setSourcePrefetchBatches(int sourcePrefetchBatches) {
+		this.sourcePrefetchBatches = sourcePrefetchBatches;
+	}
+	
+	public int getSourcePrefetchBatches() {
+		return sourcePrefetchBatches;
+	}
+	
+	public Options sourcePrefetchBatches(int i) {
+		this.sourcePrefetchBatches = i;
+		return this;
+	}
+	
+	public void setCollectSourceStatistics(boolean collectSourceStatistics) {
+		this.collectSourceStatistics = collectSourceStatistics;
+	}
+	
+	public boolean isCollectSourceStatistics() {
+		return collectSourceStatistics;
+	}
+	
+	public Options collectSourceStatistics(boolean b) {
+		this.collectSourceStatistics = b;
+		return this;
+	}
+	
+	public void setCollectSourceStatisticsInterval(int collectSourceStatisticsInterval) {
+		this.collectSourceStatisticsInterval = collectSourceStatisticsInterval;
+	}
+	
+	public int getCollectSourceStatisticsInterval() {
+		return collectSourceStatisticsInterval;
+	}
+	
+	public Options collectSourceStatisticsInterval(int i) {
+		this.collectSourceStatisticsInterval = i;
+		return this;
+	}
+	
+	public void setCardinalityFeedback(boolean cardinalityFeedback) {
+		this.cardinalityFeedback = cardinalityFeedback;
+	}
+	
+	public boolean isCardinalityFeedback() {
+		return cardinalityFeedback;
+	}
+	
+	public Options cardinalityFeedback(boolean b) {
+		this.cardinalityFeedback = b;
+		return this;
+	}
+	
+	public void setJoinEnumerationMaxGroups(int joinEnumerationMaxGroups) {
+		this.joinEnumerationMaxGroups = joinEnumerationMaxGroups;
+	}
+	
+	public int getJoinEnumerationMaxGroups() {
+		return joinEnumerationMaxGroups;
+	}
+	
+	public Options joinEnumerationMaxGroups(int i) {
+		this.joinEnumerationMaxGroups = i;
+		return this;
+	}
+	
+	public void setMaxDependentQueries(int maxDependentQueries) {
+		this.maxDependentQueries = maxDependentQueries;
+	}
+	
+	public int getMaxDependentQueries() {
+		return maxDependentQueries;
+	}
+	
+	public Options maxDependentQueries(int i) {
+		this.maxDependentQueries = i;
+		return this;
+	}
+	
+	public void setAutoParameterize(boolean autoParameterize) {
+		this.autoParameterize = autoParameterize;
+	}
+	
+	public boolean isAutoParameterize() {
+		return autoParameterize;
+	}
+	
+	public Options autoParameterize(boolean b) {
+		this.autoParameterize = b;
+		return this;
+	}
+	
+	public void setPlanningTimeBudget(int planningTimeBudget) {
+		this.planningTimeBudget = planningTimeBudget;
+	}
+	
+	public int getPlanningTimeBudget() {
+		return planningTimeBudget;
+	}
+	
+	public Options planningTimeBudget(int i) {
+		this.planningTimeBudget = i;
+		return this;
+	}
+	
+	public void setMatViewLoadParallelism(int matViewLoadParallelism) {
+		this.matViewLoadParallelism = matViewLoadParallelism;
+	}
+	
+	public int getMatViewLoadParallelism() {
+		return matViewLoadParallelism;
+	}
+	
+	public Options matViewLoadParallelism(int i) {
+		this.matViewLoadParallelism = i;
+		return this;
+	}
+	
+	public void setCodeTableHashIndexMaxRows(int codeTableHashIndexMaxRows) {
+		this.codeTableHashIndexMaxRows = codeTableHashIndexMaxRows;
+	}
+	
+	public int getCodeTableHashIndexMaxRows() {
+		return codeTableHashIndexMaxRows;
+	}
+	
+	public Options codeTableHashIndexMaxRows(int i) {
+		this.codeTableHashIndexMaxRows = i;
+		return this;
+	}
+	
+	public void setXmlTableParallelism(int xmlTableParallelism) {
+		this.xmlTableParallelism = xmlTableParallelism;
+	}
+	
+	public int getXmlTableParallelism() {
+		return xmlTableParallelism;
+	}
+	
+	public Options xmlTableParallelism(int i) {
+		this.xmlTableParallelism = i;
+		return this;
+	}
+
+	public void setMatViewSnapshotWithoutTtl(boolean matViewSnapshotWithoutTtl) {
+		this.matViewSnapshotWithoutTtl = matViewSnapshotWithoutTtl;
+	}
+	
+	public boolean isMatViewSnapshotWithoutTtl() {
+		return matViewSnapshotWithoutTtl;
+	}
+	
+	public Options matViewSnapshotWithoutTtl(boolean b) {
+		this.matViewSnapshotWithoutTtl = b;
+		return this;
+	}
 
 }
@@ -1119,6 +1119,9 @@ public class ValidationVisitor extends AbstractValidationVisitor {
     		validateNoSubqueriesOrOuterReferences(condition);
     	}
         Expression[] aggExps = obj.getArgs();
+        if (obj.isApproximate() && !validateApproximate(obj)) {
+        	return;
+        }
         
         for (Expression expression : aggExps) {
             validateNoNestedAggs(expression);
@@ -1170,6 +1173,30 @@ public class ValidationVisitor extends AbstractValidationVisitor {
     	}
     }
 
+	private boolean validateApproximate(AggregateSymbol obj) {
+		Expression[] aggExps = obj.getArgs();
+		int expected = obj.getAggregateFunction() == Type.APPROX_PERCENTILE?2:1;
+		if (aggExps.length != expected) {
+			handleValidationError(QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31137, obj.getAggregateFunction(), expected, obj), obj);
+			return false;
+		}
+		if (obj.getAggregateFunction() != Type.APPROX_PERCENTILE) {
+			return true;
+		}
+		if (!Number.class.isAssignableFrom(aggExps[0].getType())) {
+			handleValidationError(QueryPlugin.Util.getString("ERR.015.012.0041", new Object[] {obj.getAggregateFunction(), obj}), obj); //$NON-NLS-1$
+		}
+		if (!(aggExps[1] instanceof Constant) || !(((Constant)aggExps[1]).getValue() instanceof Number)) {
+			handleValidationError(QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31138, obj), obj);
+			return false;
+		}
+		double percentile = ((Number)((Constant)aggExps[1]).getValue()).doubleValue();
+		if (percentile < 0 || percentile > 1) {
+			handleValidationError(QueryPlugin.Util.gs(QueryPlugin.Event.TEIID31138, obj), obj);
+		}
+		return true;
+	}
+
 	private void validateJSONValue(LanguageObject obj, Expression expr) {
 		if (expr.getType() != DataTypeManager.DefaultDataClasses.STRING && !DataTypeManager.isTransformable(expr.getType(), DataTypeManager.DefaultDataClasses.STRING)) {
 			handleValidationError(QueryPlugin.Util.getString("ValidationVisitor.invalid_json_value", expr, obj), obj); //$NON-NLS-1$
@@ -1274,6 +1301,21 @@ public class ValidationVisitor extends AbstractValidationVisitor {
 		}
     }
     
+    @Override
+    public void visit(JsonTable obj) {
+    	boolean hasOrdinal = false;
+    	for (JsonTable.JsonColumn column : obj.getColumns()) {
+			if (!column.isOrdinal()) {
+				continue;
+			}
+			if (hasOrdinal) {
+				handleValidationError(QueryPlugin.Util.getString("ValidationVisitor.one_ordinal"), obj); //$NON-NLS-1$
+				break;
+			}
+			hasOrdinal = true;
+		}
+    }
+    
     @Override
     public void visit(ObjectTable obj) {
     	List<DerivedColumn> passing = obj.getPassing();
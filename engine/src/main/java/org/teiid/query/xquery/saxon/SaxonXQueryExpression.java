@@ -107,6 +107,12 @@ public class SaxonXQueryExpression {
 	public interface RowProcessor {
 		
 		void processRow(NodeInfo row);
+		
+		/**
+		 * @return true if the rows may be used after processRow returns, in which case
+		 * each row is detached from the document being streamed
+		 */
+		boolean requiresDetachedRows();
 
 	}
 	
@@ -184,6 +190,7 @@ public class SaxonXQueryExpression {
 	Configuration config = new Configuration();
 	PathMapRoot contextRoot;
 	String streamingPath;
+	boolean independentRows;
 
     public SaxonXQueryExpression(String xQueryString, XMLNamespaces namespaces, List<DerivedColumn> passing, List<XMLTable.XMLColumn> columns) 
     throws QueryResolverException {
@@ -244,6 +251,7 @@ public class SaxonXQueryExpression {
     	clone.contextRoot = contextRoot;
     	clone.namespaceMap = namespaceMap;
     	clone.streamingPath = streamingPath;
+    	clone.independentRows = independentRows;
     	return clone;
     }
     
@@ -260,6 +268,7 @@ public class SaxonXQueryExpression {
 			}
 		}
 		this.contextRoot = null;
+		this.independentRows = true;
 		//we'll use a new pathmap, since we don't want to modify the one associated with the xquery.
 		PathMap map = null;
 		if (columns == null) {
@@ -431,6 +440,7 @@ public class SaxonXQueryExpression {
 						return false;
 					}
 					ancestor = true; 
+					independentRows = false;
 				} else {
 					if (record.recordAnnotations()) {
 						record.addAnnotation(XQUERY_PLANNING, "The column path may not reference an ancestor or subtree " + xmlColumn.getPath(), "Document streaming will not be used", Priority.MEDIUM); //$NON-NLS-1$ //$NON-NLS-2$
@@ -559,5 +569,13 @@ public class SaxonXQueryExpression {
 	public boolean isStreaming() {
 		return streamingPath != null;
 	}
+	
+	/**
+	 * @return true if streaming and the column paths only reference the subtree of each row,
+	 * so that the rows may be processed independently of the document
+	 */
+	public boolean hasIndependentRows() {
+		return streamingPath != null && independentRows;
+	}
 
 }
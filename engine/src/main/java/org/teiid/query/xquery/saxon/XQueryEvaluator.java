@@ -44,6 +44,7 @@ import net.sf.saxon.trans.XPathException;
 import net.sf.saxon.value.HexBinaryValue;
 import nu.xom.Builder;
 import nu.xom.DocType;
+import nu.xom.Document;
 import nu.xom.Element;
 import nu.xom.Node;
 import nu.xom.Nodes;
@@ -122,7 +123,13 @@ public class XQueryEvaluator {
 						
 						final StreamingTransform myTransform = new StreamingTransform() {
 							public Nodes transform(Element elem) {
-								processor.processRow(XQueryEvaluator.wrap(elem, xquery.config));
+								Node row = elem;
+								if (processor.requiresDetachedRows()) {
+									//the row will be used after the document is further built and pruned
+									row = elem.copy();
+									new Document((Element)row);
+								}
+								processor.processRow(XQueryEvaluator.wrap(row, xquery.config));
 								return NONE;
 							}
 						};
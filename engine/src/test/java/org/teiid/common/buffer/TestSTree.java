@@ -35,6 +35,9 @@ import org.teiid.common.buffer.impl.BufferManagerImpl;
 import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
 import org.teiid.query.processor.CollectionTupleSource;
+import org.teiid.query.processor.relational.RelationalNode;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 
 @SuppressWarnings({"nls", "unchecked"})
@@ -157,4 +160,44 @@ public class TestSTree {
 		}
 	}
 	
+	@Test public void testZoneMapBrowsing() throws Exception {
+		BufferManagerImpl bm = BufferManagerFactory.createBufferManager();
+		bm.setProcessorBatchSize(32);
+		ElementSymbol e1 = new ElementSymbol("x");
+		e1.setType(Integer.class);
+		ElementSymbol e2 = new ElementSymbol("y");
+		e2.setType(Integer.class);
+		List<ElementSymbol> elements = Arrays.asList(e1, e2);
+		STree map = bm.createSTree(elements, "1", 1);
+		int size = 10000;
+		for (int i = 0; i < size; i++) {
+			assertNull(map.insert(Arrays.asList(i, i), InsertMode.ORDERED, size));
+		}
+		List<ZoneMap.Predicate> predicates = ZoneMap.getPredicates(new CompareCriteria(e2, CompareCriteria.GE, new Constant(size - 10)), 
+				RelationalNode.createLookupMap(elements), map.getTypes());
+		//the zone maps are computed on the first pass
+		assertEquals(size, browse(map, predicates, size - 10, 10));
+		int count = browse(map, predicates, size - 10, 10);
+		assertTrue(count < size/10);
+		//the change clears the zone map of the page
+		map.insert(Arrays.asList(0, size), InsertMode.UPDATE, -1);
+		assertTrue(browse(map, predicates, size - 10, 11) > count);
+	}
+
+	private int browse(STree map, List<ZoneMap.Predicate> predicates, int min, int expectedMatches) throws Exception {
+		TupleBrowser tb = new TupleBrowser(map, null, null, true);
+		tb.setZoneMapPredicates(predicates);
+		int count = 0;
+		int matches = 0;
+		List<?> tuple = null;
+		while ((tuple = tb.nextTuple()) != null) {
+			count++;
+			if ((Integer)tuple.get(1) >= min) {
+				matches++;
+			}
+		}
+		assertEquals(expectedMatches, matches);
+		return count;
+	}
+	
 }
@@ -25,7 +25,9 @@ package org.teiid.common.buffer;
 import static org.junit.Assert.*;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import javax.sql.rowset.serial.SerialClob;
 
@@ -33,6 +35,10 @@ import org.junit.Test;
 import org.teiid.common.buffer.BufferManager.TupleSourceType;
 import org.teiid.core.types.ClobType;
 import org.teiid.core.types.DataTypeManager;
+import org.teiid.query.sql.lang.CompareCriteria;
+import org.teiid.query.sql.lang.IsNullCriteria;
+import org.teiid.query.sql.lang.SetCriteria;
+import org.teiid.query.sql.symbol.Constant;
 import org.teiid.query.sql.symbol.ElementSymbol;
 
 public class TestTupleBuffer {
@@ -98,4 +104,34 @@ public class TestTupleBuffer {
 		assertNotNull(tb.getLobReference(c.getReferenceStreamId()));
 	}
 	
+	@Test public void testZoneMaps() throws Exception {
+		ElementSymbol x = new ElementSymbol("x"); //$NON-NLS-1$
+		x.setType(DataTypeManager.DefaultDataClasses.INTEGER);
+		List<ElementSymbol> schema = Arrays.asList(x);
+		TupleBuffer tb = BufferManagerFactory.getStandaloneBufferManager().createTupleBuffer(schema, "x", TupleSourceType.PROCESSOR); //$NON-NLS-1$
+		tb.setBatchSize(4);
+		tb.setZoneMaps(true);
+		for (int i = 1; i <= 20; i++) {
+			tb.addTuple(Arrays.asList(i));
+		}
+		tb.close();
+		Map<ElementSymbol, Integer> map = Collections.singletonMap(x, 0);
+		assertEquals(4, countRows(tb.createFilteredTupleSource(ZoneMap.getPredicates(new CompareCriteria(x, CompareCriteria.GE, new Constant(17)), map, tb.getTypes()))));
+		assertEquals(8, countRows(tb.createFilteredTupleSource(ZoneMap.getPredicates(new SetCriteria(x, Arrays.asList(new Constant(2), new Constant(18))), map, tb.getTypes()))));
+		assertEquals(0, countRows(tb.createFilteredTupleSource(ZoneMap.getPredicates(new IsNullCriteria(x), map, tb.getTypes()))));
+		//not a usable predicate
+		assertEquals(20, countRows(tb.createFilteredTupleSource(ZoneMap.getPredicates(new CompareCriteria(x, CompareCriteria.NE, new Constant(17)), map, tb.getTypes()))));
+		tb.truncateTo(10);
+		assertEquals(2, countRows(tb.createFilteredTupleSource(ZoneMap.getPredicates(new CompareCriteria(new Constant(9), CompareCriteria.LE, x), map, tb.getTypes()))));
+	}
+
+	private int countRows(TupleSource ts) throws Exception {
+		int count = 0;
+		while (ts.nextTuple() != null) {
+			count++;
+		}
+		ts.closeSource();
+		return count;
+	}
+	
 }
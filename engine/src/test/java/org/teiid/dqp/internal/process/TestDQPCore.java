@@ -25,6 +25,7 @@ package org.teiid.dqp.internal.process;
 import static org.junit.Assert.*;
 
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -596,6 +597,64 @@ public class TestDQPCore {
         assertEquals(1, this.core.getRsCache().getCacheHitCount());
     }
     
+    @Test public void testSubsumptionCacheLookup() throws Exception {
+    	core.getOptions().subsumptionCacheLookup(true);
+    	agds.setUseIntCounter(true);
+        RequestMessage reqMsg = exampleRequestMessage("select IntKey, IntNum FROM BQT1.SmallA"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        ResultsMessage rm = execute("1", 1, reqMsg); //$NON-NLS-1$
+        assertEquals(10, rm.getResultsList().size());
+        assertEquals(1, agds.getExecuteCount().get());
+        closeAndWait(reqMsg);
+        
+        reqMsg = exampleRequestMessage("select IntKey FROM BQT1.SmallA where IntKey < 5"); //$NON-NLS-1$
+        reqMsg.setExecutionId(102);
+        reqMsg.setUseResultSetCache(true);
+        rm = execute("1", 1, reqMsg); //$NON-NLS-1$
+        assertEquals(5, rm.getResultsList().size());
+        assertEquals(Arrays.asList(4), rm.getResultsList().get(4));
+        assertEquals(1, agds.getExecuteCount().get());
+        
+        //not answerable from the cached columns
+        reqMsg = exampleRequestMessage("select IntKey FROM BQT1.SmallA where StringKey = 'a'"); //$NON-NLS-1$
+        reqMsg.setExecutionId(103);
+        reqMsg.setUseResultSetCache(true);
+        rm = execute("1", 1, reqMsg); //$NON-NLS-1$
+        assertEquals(2, agds.getExecuteCount().get());
+        
+        //user scoped functions cannot be evaluated against the cached results
+        reqMsg = exampleRequestMessage("select IntKey, user() FROM BQT1.SmallA where IntKey < 5"); //$NON-NLS-1$
+        reqMsg.setExecutionId(104);
+        reqMsg.setUseResultSetCache(true);
+        rm = execute("1", 1, reqMsg); //$NON-NLS-1$
+        assertEquals(3, agds.getExecuteCount().get());
+    }
+    
+    @Test public void testSubsumptionCacheLookupRollup() throws Exception {
+    	core.getOptions().subsumptionCacheLookup(true);
+    	agds.setUseIntCounter(true);
+        RequestMessage reqMsg = exampleRequestMessage("select IntKey, count(*), max(IntNum) FROM BQT1.SmallA group by IntKey"); //$NON-NLS-1$
+        reqMsg.setUseResultSetCache(true);
+        ResultsMessage rm = execute("1", 1, reqMsg); //$NON-NLS-1$
+        assertEquals(10, rm.getResultsList().size());
+        assertEquals(1, agds.getExecuteCount().get());
+        closeAndWait(reqMsg);
+        
+        reqMsg = exampleRequestMessage("select count(*), max(IntNum) FROM BQT1.SmallA where IntKey >= 3"); //$NON-NLS-1$
+        reqMsg.setExecutionId(102);
+        reqMsg.setUseResultSetCache(true);
+        rm = execute("1", 1, reqMsg); //$NON-NLS-1$
+        assertEquals(Arrays.asList(Arrays.asList(7, 9)), rm.getResultsList());
+        assertEquals(1, agds.getExecuteCount().get());
+        
+        //avg cannot be rolled up
+        reqMsg = exampleRequestMessage("select avg(IntNum) FROM BQT1.SmallA"); //$NON-NLS-1$
+        reqMsg.setExecutionId(103);
+        reqMsg.setUseResultSetCache(true);
+        rm = execute("1", 1, reqMsg); //$NON-NLS-1$
+        assertEquals(2, agds.getExecuteCount().get());
+    }
+    
     @Test public void testLobConcurrency() throws Exception {
     	RequestMessage reqMsg = exampleRequestMessage("select to_bytes(stringkey, 'utf-8') FROM BQT1.SmallA"); 
         reqMsg.setTxnAutoWrapMode(RequestMessage.TXN_WRAP_OFF);
@@ -715,6 +774,16 @@ public class TestDQPCore {
         return results;
     }
 
+	/**
+	 * Close the request and wait for its results to be fully cached
+	 */
+	private void closeAndWait(RequestMessage reqMsg) throws Exception {
+		core.closeRequest(reqMsg.getExecutionId());
+		for (int i = 0; i < 1000 && !core.getRequests().isEmpty(); i++) {
+			Thread.sleep(10);
+		}
+	}
+	
 	private ResultsMessage execute(String userName, int sessionid, RequestMessage reqMsg)
 			throws InterruptedException, ExecutionException, TimeoutException, TeiidProcessingException {
 		DQPWorkContext.getWorkContext().getSession().setSessionId(String.valueOf(sessionid));
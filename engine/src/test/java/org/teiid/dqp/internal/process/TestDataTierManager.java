@@ -25,6 +25,8 @@ package org.teiid.dqp.internal.process;
 import static org.junit.Assert.*;
 
 import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import javax.xml.transform.stax.StAXSource;
@@ -58,7 +60,11 @@ import org.teiid.dqp.message.AtomicRequestMessage;
 import org.teiid.dqp.message.RequestID;
 import org.teiid.dqp.service.AutoGenDataService;
 import org.teiid.dqp.service.FakeBufferService;
+import org.teiid.metadata.Column;
+import org.teiid.metadata.ColumnStats;
+import org.teiid.metadata.Table;
 import org.teiid.query.metadata.QueryMetadataInterface;
+import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.parser.QueryParser;
 import org.teiid.query.processor.RegisterRequestParameter;
@@ -225,6 +231,108 @@ public class TestDataTierManager {
 		return i;
 	}
     
+    @Test public void testPrefetch() throws Exception {
+    	connectorManager.setRows(100);
+    	connectorManager.batchSize = 10;
+    	connectorManager.setUseIntCounter(true);
+    	helpSetupDataTierManager();
+        AtomicRequestMessage request = helpSetupRequest("SELECT IntKey FROM BQT1.SmallA", 1, RealMetadataFactory.exampleBQTCached()); //$NON-NLS-1$
+        context.getOptions().sourcePrefetchBatches(4);
+        DataTierTupleSource info = new DataTierTupleSource(request, workItem, connectorManager.registerRequest(request), dtm, limit);
+        for (int i = 0; i < 100 && connectorManager.getMoreCount().get() < 4; i++) {
+        	Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        //the source should be ahead of the processor, but not beyond the prefetch depth 
+        assertEquals(4, connectorManager.getMoreCount().get());
+        for (int i = 0; i < 100;) {
+	    	try {
+	    		List<?> tuple = info.nextTuple();
+	    		assertEquals(Arrays.asList(i++), tuple);
+	    	} catch (BlockedException e) {
+	    		Thread.sleep(10);
+	    	}
+        }
+        assertNull(info.nextTuple());
+        info.closeSource();
+    }
+    
+    @Test public void testBlockedCondition() throws Exception {
+    	connectorManager.setSleep(100);
+    	DataTierTupleSource info = helpSetup(1);
+    	int blockCount = BlockedException.getBlockCount();
+    	try {
+    		info.nextTuple();
+    		fail();
+    	} catch (BlockedException e) {
+    		//expected
+    	}
+    	assertEquals(blockCount + 1, BlockedException.getBlockCount());
+    	assertEquals(1, context.getBlockedConditionCount());
+    	assertTrue(context.isBlockedOnConditions());
+    	for (int i = 0; i < 100 && !info.isReady(); i++) {
+    		Thread.sleep(10);
+    	}
+    	assertFalse(context.isBlockedOnConditions());
+    	assertEquals(10, pullTuples(info, 10));
+    	info.closeSource();
+    }
+
+    @Test public void testCollectStatistics() throws Exception {
+    	TransformationMetadata metadata = RealMetadataFactory.exampleBQT();
+    	helpSetupDataTierManager();
+    	AtomicRequestMessage request = helpSetupRequest("SELECT IntKey, StringKey FROM BQT1.SmallA", 1, metadata);
+    	DataTierTupleSource info = new DataTierTupleSource(request, workItem, connectorManager.registerRequest(request), dtm, limit);
+    	info.setStatisticsCollector(DataTierManagerImpl.getStatisticsCollector(request.getCommand(), new RegisterRequestParameter()));
+    	assertEquals(10, pullTuples(info, -1));
+    	info.closeSource();
+    	Table table = metadata.getGroupID("BQT1.SmallA");
+    	assertEquals(10, table.getCardinality());
+    	Column column = metadata.getElementID("BQT1.SmallA.IntKey");
+    	assertEquals(0, column.getNullValues());
+    	assertEquals(1, column.getDistinctValues());
+    	assertEquals("0", column.getMinimumValue());
+    	assertEquals("0", column.getMaximumValue());
+    	assertEquals(Collections.nCopies(10, "0"), column.getHistogram());
+    }
+    
+    @Test public void testStatisticsCollectorSample() throws Exception {
+    	TransformationMetadata metadata = RealMetadataFactory.exampleBQTCached();
+    	Column column = metadata.getElementID("BQT1.SmallA.IntKey");
+    	TableStatisticsCollector collector = new TableStatisticsCollector(metadata.getGroupID("BQT1.SmallA"), Arrays.asList(column), 20, 4);
+    	for (int i = 0; i < 100; i++) {
+    		collector.addTuple(Arrays.asList(i%10==0?null:i));
+    	}
+    	assertEquals(100, collector.getTableStats().getCardinality().intValue());
+    	ColumnStats stats = collector.getColumnStats().get(0);
+    	assertEquals(10, stats.getNullValues().intValue());
+    	assertEquals("1", stats.getMinimumValue());
+    	assertEquals("99", stats.getMaximumValue());
+    	//estimated from the sample of unique values
+    	assertTrue(stats.getDistinctValues() > 20 && stats.getDistinctValues() <= 90);
+    	List<String> histogram = stats.getHistogram();
+    	assertEquals(5, histogram.size());
+    	assertEquals("1", histogram.get(0));
+    	assertEquals("99", histogram.get(4));
+    }
+    
+    @Test public void testCollectStatisticsInterval() throws Exception {
+    	Table table = RealMetadataFactory.exampleBQTCached().getGroupID("BQT1.SmallA");
+    	DataTierManagerImpl manager = new DataTierManagerImpl(null, null, false);
+    	assertTrue(manager.reserveStatisticsCollection(table, 60000));
+    	assertFalse(manager.reserveStatisticsCollection(table, 60000));
+    	assertTrue(manager.reserveStatisticsCollection(table, 0));
+    }
+    
+    @Test public void testCollectStatisticsNotFullScan() throws Exception {
+    	QueryMetadataInterface metadata = RealMetadataFactory.exampleBQTCached();
+    	assertNull(DataTierManagerImpl.getStatisticsCollector(helpGetCommand("SELECT IntKey FROM BQT1.SmallA WHERE IntNum = 1", metadata), new RegisterRequestParameter()));
+    	assertNull(DataTierManagerImpl.getStatisticsCollector(helpGetCommand("SELECT DISTINCT IntKey FROM BQT1.SmallA", metadata), new RegisterRequestParameter()));
+    	assertNull(DataTierManagerImpl.getStatisticsCollector(helpGetCommand("SELECT IntKey + 1 FROM BQT1.SmallA", metadata), new RegisterRequestParameter()));
+    	assertNotNull(DataTierManagerImpl.getStatisticsCollector(helpGetCommand("SELECT IntKey FROM BQT1.SmallA ORDER BY IntKey", metadata), new RegisterRequestParameter()));
+    	assertNull(DataTierManagerImpl.getStatisticsCollector(helpGetCommand("SELECT IntKey FROM BQT1.SmallA", metadata), new RegisterRequestParameter(null, 1, 10)));
+    }
+
     @Test public void testPartialResults() throws Exception {
     	DataTierTupleSource info = helpSetup(1);
     	connectorManager.throwExceptionOnExecute = true;
@@ -352,6 +460,87 @@ public class TestDataTierManager {
     	assertEquals(2, this.rm.getRsCache().getTotalCacheEntries());
     }
     
+    @Test public void testSharedSourceQueries() throws Exception {
+    	QueryMetadataInterface metadata = RealMetadataFactory.exampleBQTCached();
+    	helpSetupDataTierManager();
+    	Command command = helpSetupRequest("SELECT stringkey from bqt1.smalla", 1, metadata).getCommand();
+    	context.getOptions().sharedSourceQueries(true);
+    	RegisterRequestParameter rrp = new RegisterRequestParameter();
+    	rrp.connectorBindingId = "x";
+    	TupleSource owner = dtm.registerRequest(context, command, "foo", rrp);
+    	
+    	//another request, but the same user
+    	command = helpSetupRequest("SELECT stringkey from bqt1.smalla", 1, metadata).getCommand();
+    	context.getOptions().sharedSourceQueries(true);
+    	rrp = new RegisterRequestParameter();
+    	rrp.connectorBindingId = "x";
+    	TupleSource attached = dtm.registerRequest(context, command, "foo", rrp);
+    	try {
+    		attached.nextTuple();
+    		fail();
+    	} catch (BlockedException e) {
+    		
+    	}
+    	assertEquals(10, pullTuples(owner, -1));
+    	assertEquals(10, pullTuples(attached, -1));
+    	assertEquals(1, connectorManager.getExecuteCount().get());
+    	owner.closeSource();
+    	attached.closeSource();
+    	
+    	//no longer in-flight
+    	command = helpSetupRequest("SELECT stringkey from bqt1.smalla", 1, metadata).getCommand();
+    	context.getOptions().sharedSourceQueries(true);
+    	rrp = new RegisterRequestParameter();
+    	rrp.connectorBindingId = "x";
+    	TupleSource ts = dtm.registerRequest(context, command, "foo", rrp);
+    	assertEquals(10, pullTuples(ts, -1));
+    	assertEquals(2, connectorManager.getExecuteCount().get());
+    	ts.closeSource();
+    }
+    
+    @Test public void testSharedSourceQueriesSameRequest() throws Exception {
+    	QueryMetadataInterface metadata = RealMetadataFactory.exampleBQTCached();
+    	helpSetupDataTierManager();
+    	Command command = helpSetupRequest("SELECT stringkey from bqt1.smalla", 1, metadata).getCommand();
+    	context.getOptions().sharedSourceQueries(true);
+    	RegisterRequestParameter rrp = new RegisterRequestParameter();
+    	rrp.connectorBindingId = "x";
+    	TupleSource owner = dtm.registerRequest(context, command, "foo", rrp);
+    	
+    	//the same request, such as a self join, should not wait on itself
+    	rrp = new RegisterRequestParameter();
+    	rrp.connectorBindingId = "x";
+    	TupleSource other = dtm.registerRequest(context, command, "foo", rrp);
+    	assertEquals(10, pullTuples(other, -1));
+    	assertEquals(10, pullTuples(owner, -1));
+    	assertEquals(2, connectorManager.getExecuteCount().get());
+    	owner.closeSource();
+    	other.closeSource();
+    }
+    
+    @Test public void testSharedSourceQueriesOwnerClosed() throws Exception {
+    	QueryMetadataInterface metadata = RealMetadataFactory.exampleBQTCached();
+    	helpSetupDataTierManager();
+    	Command command = helpSetupRequest("SELECT stringkey from bqt1.smalla", 1, metadata).getCommand();
+    	context.getOptions().sharedSourceQueries(true);
+    	RegisterRequestParameter rrp = new RegisterRequestParameter();
+    	rrp.connectorBindingId = "x";
+    	TupleSource owner = dtm.registerRequest(context, command, "foo", rrp);
+    	
+    	command = helpSetupRequest("SELECT stringkey from bqt1.smalla", 1, metadata).getCommand();
+    	context.getOptions().sharedSourceQueries(true);
+    	rrp = new RegisterRequestParameter();
+    	rrp.connectorBindingId = "x";
+    	TupleSource attached = dtm.registerRequest(context, command, "foo", rrp);
+    	assertEquals(1, pullTuples(owner, 1));
+    	owner.closeSource();
+    	
+    	//should issue its own query
+    	assertEquals(10, pullTuples(attached, -1));
+    	assertEquals(2, connectorManager.getExecuteCount().get());
+    	attached.closeSource();
+    }
+    
     @Test public void testTypeConversion() throws Exception {
     	BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
     	
@@ -53,6 +53,7 @@ import org.teiid.query.processor.FakeDataManager;
 import org.teiid.query.processor.HardcodedDataManager;
 import org.teiid.query.processor.ProcessorDataManager;
 import org.teiid.query.processor.TestProcessor;
+import org.teiid.query.sql.lang.Command;
 import org.teiid.query.unittest.RealMetadataFactory;
 
 @SuppressWarnings({"nls", "unchecked"})
@@ -446,4 +447,87 @@ public class TestPreparedStatement {
 		helpTestProcessing(preparedSql, values, expected, dataManager, new DefaultCapabilitiesFinder(caps), metadata, null, false, false, false, RealMetadataFactory.example1VDB());
     }
     
+    @Test public void testAutoParameterize() throws Exception {
+		QueryMetadataInterface metadata = RealMetadataFactory.example1Cached();
+        HardcodedDataManager dataManager = new HardcodedDataManager(metadata);
+        dataManager.addData("SELECT g_0.e1 FROM g1 AS g_0 WHERE g_0.e2 = 1 AND g_0.e1 IN ('a', 'b')", new List[] {Arrays.asList("a")});
+        dataManager.addData("SELECT g_0.e1 FROM g1 AS g_0 WHERE g_0.e2 = 2 AND g_0.e1 IN ('c', 'd')", new List[] {Arrays.asList("c")});
+        BasicSourceCapabilities caps = TestOptimizer.getTypicalCapabilities();
+        SessionAwareCache<PreparedPlan> prepPlanCache = new SessionAwareCache<PreparedPlan>("preparedplan", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.PREPAREDPLAN, 0); //$NON-NLS-1$
+        
+        PreparedStatementRequest plan = helpGetAutoParameterizedPlan("SELECT e1 FROM pm1.g1 WHERE e2 = 1 and e1 in ('a', 'b')", new DefaultCapabilitiesFinder(caps), metadata, prepPlanCache); //$NON-NLS-1$
+        TestProcessor.doProcess(plan.processPlan, dataManager, new List[] {Arrays.asList("a")}, plan.context); //$NON-NLS-1$
+        assertEquals(0, prepPlanCache.getCacheHitCount());
+        
+        //the same shape with different literals should reuse the plan
+        plan = helpGetAutoParameterizedPlan("SELECT e1 FROM pm1.g1 WHERE e2 = 2 and e1 in ('c', 'd')", new DefaultCapabilitiesFinder(caps), metadata, prepPlanCache); //$NON-NLS-1$
+        assertEquals(1, prepPlanCache.getCacheHitCount());
+        TestProcessor.doProcess(plan.processPlan, dataManager, new List[] {Arrays.asList("c")}, plan.context); //$NON-NLS-1$
+        
+        //a different number of in values is a different plan
+        helpGetAutoParameterizedPlan("SELECT e1 FROM pm1.g1 WHERE e2 = 2 and e1 in ('c')", new DefaultCapabilitiesFinder(caps), metadata, prepPlanCache); //$NON-NLS-1$
+        assertEquals(1, prepPlanCache.getCacheHitCount());
+    }
+    
+    @Test public void testAutoParameterizeConvertedLiteral() throws Exception {
+		QueryMetadataInterface metadata = RealMetadataFactory.example1Cached();
+        HardcodedDataManager dataManager = new HardcodedDataManager(metadata);
+        dataManager.addData("SELECT g_0.e2, g_0.e1 FROM g1 AS g_0 WHERE g_0.e1 = 'a'", new List[] {Arrays.asList(1, "a"), Arrays.asList(2, "a")});
+        CapabilitiesFinder capFinder = new DefaultCapabilitiesFinder(TestOptimizer.getTypicalCapabilities());
+        SessionAwareCache<PreparedPlan> prepPlanCache = new SessionAwareCache<PreparedPlan>("preparedplan", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.PREPAREDPLAN, 0); //$NON-NLS-1$
+        
+        //the decimal is not narrowed to the integer column type
+        PreparedStatementRequest plan = helpGetAutoParameterizedPlan("SELECT e1 FROM pm1.g1 WHERE e2 = 1.5 and e1 = 'a'", capFinder, metadata, prepPlanCache); //$NON-NLS-1$
+        TestProcessor.doProcess(plan.processPlan, dataManager, new List[0], plan.context);
+        assertEquals(0, prepPlanCache.getCacheHitCount());
+        
+        //the converted literal is part of the key
+        helpGetAutoParameterizedPlan("SELECT e1 FROM pm1.g1 WHERE e2 = 1.5 and e1 = 'b'", capFinder, metadata, prepPlanCache); //$NON-NLS-1$
+        assertEquals(1, prepPlanCache.getCacheHitCount());
+        helpGetAutoParameterizedPlan("SELECT e1 FROM pm1.g1 WHERE e2 = 2.5 and e1 = 'b'", capFinder, metadata, prepPlanCache); //$NON-NLS-1$
+        assertEquals(1, prepPlanCache.getCacheHitCount());
+        
+        //as are the literal types
+        helpGetAutoParameterizedPlan("SELECT e1 FROM pm1.g1 WHERE e2 = 1 and e1 = 'b'", capFinder, metadata, prepPlanCache); //$NON-NLS-1$
+        helpGetAutoParameterizedPlan("SELECT e1 FROM pm1.g1 WHERE e2 = 2 and e1 = 'b'", capFinder, metadata, prepPlanCache); //$NON-NLS-1$
+        assertEquals(2, prepPlanCache.getCacheHitCount());
+    }
+    
+    @Test(expected=QueryValidatorException.class) public void testAutoParameterizeWithReference() throws Exception {
+        helpGetAutoParameterizedPlan("SELECT e1 FROM pm1.g1 WHERE e2 = ?", new DefaultCapabilitiesFinder(), RealMetadataFactory.example1Cached(), new SessionAwareCache<PreparedPlan>("preparedplan", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.PREPAREDPLAN, 0)); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @Test public void testRuntimePartitionPruning() throws Exception {
+    	String preparedSql = "SELECT e1 FROM (SELECT e1, e2 FROM pm1.g1 WHERE e2 IN (1, 2) UNION ALL SELECT e1, e2 FROM pm2.g1 WHERE e2 IN (3, 4)) v WHERE e2 = ?"; //$NON-NLS-1$
+		QueryMetadataInterface metadata = RealMetadataFactory.example1Cached();
+        HardcodedDataManager dataManager = new HardcodedDataManager(metadata);
+        //the criteria is not pushed, so only the pm2 branch can be pruned at runtime
+        dataManager.addData("SELECT g1.e2, g1.e1 FROM g1", new List[] {Arrays.asList(3, "a")}); //$NON-NLS-1$
+        
+        helpTestProcessing(preparedSql, Arrays.asList(3), new List[] {Arrays.asList("a")}, dataManager, new DefaultCapabilitiesFinder(new BasicSourceCapabilities()), metadata, null, false, false, false, RealMetadataFactory.example1VDB()); //$NON-NLS-1$
+        assertEquals(2, dataManager.getCommandHistory().size());
+        for (Command command : dataManager.getCommandHistory()) {
+        	assertEquals("SELECT pm2.g1.e2, pm2.g1.e1 FROM pm2.g1", command.toString()); //$NON-NLS-1$
+        }
+        
+        //neither branch can match
+        helpTestProcessing(preparedSql, Arrays.asList(5), new List[] {}, dataManager, new DefaultCapabilitiesFinder(new BasicSourceCapabilities()), metadata, null, false, false, false, RealMetadataFactory.example1VDB());
+        assertEquals(2, dataManager.getCommandHistory().size());
+    }
+
+	private PreparedStatementRequest helpGetAutoParameterizedPlan(String sql, CapabilitiesFinder capFinder, QueryMetadataInterface metadata, SessionAwareCache<PreparedPlan> prepPlanCache)
+			throws TeiidComponentException, TeiidProcessingException {
+		RequestMessage request = new RequestMessage(sql);
+        DQPWorkContext workContext = RealMetadataFactory.buildWorkContext(metadata, RealMetadataFactory.example1VDB());
+        workContext.getSession().setSessionId(String.valueOf(SESSION_ID)); 
+        PreparedStatementRequest serverRequest = new PreparedStatementRequest(prepPlanCache);
+        serverRequest.setAutoParameterize(true);
+        serverRequest.initialize(request, BufferManagerFactory.getStandaloneBufferManager(), null, new FakeTransactionService(), null, workContext, prepPlanCache);
+        serverRequest.setMetadata(capFinder, metadata);
+        serverRequest.setAuthorizationValidator(new DefaultAuthorizationValidator());
+        serverRequest.processRequest();
+        assertNotNull(serverRequest.processPlan);
+		return serverRequest;
+	}
+    
 }
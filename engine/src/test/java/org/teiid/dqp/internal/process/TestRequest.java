@@ -30,7 +30,9 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.teiid.cache.DefaultCacheFactory;
 import org.teiid.client.RequestMessage;
+import org.teiid.client.RequestMessage.ShowPlan;
 import org.teiid.client.RequestMessage.StatementType;
+import org.teiid.client.plan.Annotation;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManagerFactory;
 import org.teiid.core.TeiidComponentException;
@@ -117,6 +119,26 @@ public class TestRequest {
         assertEquals("1", request.context.getConnectionId()); //$NON-NLS-1$
         assertNotNull(request.context.getTransactionContext());
     }
+    
+    @Test public void testPlannerProfile() throws Exception {
+        QueryMetadataInterface metadata = RealMetadataFactory.example1Cached();
+        RequestMessage message = new RequestMessage("SELECT * FROM pm1.g1, pm1.g2 where pm1.g1.e1 = pm1.g2.e1"); //$NON-NLS-1$
+        message.setShowPlan(ShowPlan.ON);
+        DQPWorkContext workContext = RealMetadataFactory.buildWorkContext(metadata, RealMetadataFactory.example1VDB());
+        
+        Request request = helpProcessMessage(message, null, workContext);
+        assertTrue(request.planningTime >= 0);
+        long[] profile = request.analysisRecord.getRuleProfile().get("PlanJoins"); //$NON-NLS-1$
+        assertEquals(1, profile[0]);
+        assertTrue(profile[2] > 0);
+        boolean found = false;
+        for (Annotation annotation : request.analysisRecord.getAnnotations()) {
+			if (annotation.getAnnotation().startsWith("Planner rule profile")) { //$NON-NLS-1$
+				found = true;
+			}
+		}
+        assertTrue(found);
+    }
 
     private Request helpProcessMessage(RequestMessage message, SessionAwareCache<PreparedPlan> cache, DQPWorkContext workContext) throws TeiidComponentException,
                                                            TeiidProcessingException {
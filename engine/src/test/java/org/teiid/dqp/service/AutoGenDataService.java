@@ -75,6 +75,8 @@ public class AutoGenDataService extends ConnectorManager{
 	public boolean copyLobs;
 	public CacheDirective cacheDirective;
 	public boolean dataAvailable;
+	public int batchSize;
+	private final AtomicInteger moreCount = new AtomicInteger();
 
     public AutoGenDataService() {
     	super("FakeConnector","FakeConnector"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -112,10 +114,12 @@ public class AutoGenDataService extends ConnectorManager{
                 
         final AtomicResultsMessage msg = ConnectorWorkItem.createResultsMessage(results);
         msg.setFinalRow(rows);
+        final List[] allResults = results;
         return new ConnectorWork() {
         	
         	RequestWorkItem item;
         	boolean returnedInitial;
+        	int index;
         	
         	@Override
         	public boolean isDataAvailable() {
@@ -144,6 +148,16 @@ public class AutoGenDataService extends ConnectorManager{
 				if (addWarning) {
 					msg.setWarnings(Arrays.asList(new Exception()));
 				}
+				moreCount.incrementAndGet();
+				if (batchSize > 0 && index < allResults.length) {
+					int end = Math.min(allResults.length, index + batchSize);
+					AtomicResultsMessage batch = ConnectorWorkItem.createResultsMessage(Arrays.copyOfRange(allResults, index, end));
+					index = end;
+					if (end == allResults.length) {
+						batch.setFinalRow(end);
+					}
+					return batch;
+				}
 				if (!returnedInitial) {
 					returnedInitial = true;
 					return msg;
@@ -194,6 +208,10 @@ public class AutoGenDataService extends ConnectorManager{
 		};
     }
     
+    public AtomicInteger getMoreCount() {
+		return moreCount;
+	}
+    
     public AtomicInteger getExecuteCount() {
 		return executeCount;
 	}
@@ -1147,6 +1147,15 @@ public class TestFunction {
     	assertEquals(TimestampUtil.createTime(15, 0, 0), FunctionMethods.parseTimestamp(new CommandContext(), " 15:00:00 ", "HH:mm:ss")); //$NON-NLS-1$ //$NON-NLS-2$
     }
     
+    @Test public void testFormatCachesNotShared() throws Exception {
+    	CommandContext context = new CommandContext();
+    	CommandContext clone = context.clone();
+    	assertSame(CommandContext.getDateFormat(context, "yyyy-MM"), CommandContext.getDateFormat(context, "yyyy-MM")); //$NON-NLS-1$ //$NON-NLS-2$
+    	assertNotSame(CommandContext.getDateFormat(context, "yyyy-MM"), CommandContext.getDateFormat(clone, "yyyy-MM")); //$NON-NLS-1$ //$NON-NLS-2$
+    	assertSame(CommandContext.getDecimalFormat(context, "#"), CommandContext.getDecimalFormat(context, "#")); //$NON-NLS-1$ //$NON-NLS-2$
+    	assertNotSame(CommandContext.getDecimalFormat(context, "#"), CommandContext.getDecimalFormat(clone, "#")); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    
     @Test public void testMod() {
         assertEquals(new BigDecimal("-1.1"), FunctionMethods.mod(new BigDecimal("-3.1"), new BigDecimal("2")));   //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
     }
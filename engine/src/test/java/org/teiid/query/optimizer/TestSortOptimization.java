@@ -32,11 +32,16 @@ import org.teiid.query.optimizer.capabilities.BasicSourceCapabilities;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.FakeCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
+import org.teiid.query.optimizer.relational.rules.CapabilitiesUtil;
 import org.teiid.query.processor.ProcessorPlan;
+import org.teiid.query.processor.relational.EnhancedSortMergeJoinStrategy;
 import org.teiid.query.processor.relational.LimitNode;
+import org.teiid.query.processor.relational.MergeJoinStrategy;
 import org.teiid.query.processor.relational.ProjectNode;
 import org.teiid.query.processor.relational.RelationalPlan;
+import org.teiid.query.processor.relational.SortNode;
 import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.translator.ExecutionFactory.NullOrder;
 
 
 public class TestSortOptimization {
@@ -322,4 +327,116 @@ public class TestSortOptimization {
         checkNodeTypes(plan, new int[] {0}, new Class[] {DupRemoveSortNode.class});
     }
 
+    @Test public void testSortRemovedOverMergeJoins() throws Exception { 
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+        capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+        capFinder.addCapabilities("pm2", caps); //$NON-NLS-1$
+
+        String sql = "select pm1.g1.e1, pm1.g2.e2 from pm1.g1, pm1.g2, pm2.g1 where pm1.g1.e1 = pm1.g2.e1 and pm1.g1.e1 = pm2.g1.e1 order by pm1.g1.e1"; //$NON-NLS-1$
+
+        ProcessorPlan plan = helpPlan(sql, RealMetadataFactory.example1Cached(), null, capFinder, 
+                                      new String[] {"SELECT pm1.g1.e1 FROM pm1.g1 ORDER BY pm1.g1.e1", "SELECT pm1.g2.e1, pm1.g2.e2 FROM pm1.g2 ORDER BY pm1.g2.e1", "SELECT pm2.g1.e1 FROM pm2.g1 ORDER BY pm2.g1.e1"}, ComparisonMode.EXACT_COMMAND_STRING); //$NON-NLS-1$
+        
+        //the upper join uses the ordering of the lower join and the sort is satisfied by the joins
+        checkNodeTypes(plan, new int[] {0, 2, 0}, new Class[] {SortNode.class, MergeJoinStrategy.class, EnhancedSortMergeJoinStrategy.class});
+    }
+    
+    @Test public void testSortRemovedOverPushedOrder() throws Exception { 
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+        caps.setSourceProperty(Capability.QUERY_ORDERBY_DEFAULT_NULL_ORDER, NullOrder.LOW);
+        caps.setSourceProperty(Capability.COLLATION_LOCALE, CapabilitiesUtil.getEngineCollation());
+        capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+
+        String sql = "select x.e1, x.e2 from (select e1, e2 from pm1.g1 order by e1 limit 10) x order by x.e1"; //$NON-NLS-1$
+
+        ProcessorPlan plan = helpPlan(sql, RealMetadataFactory.example1Cached(), null, capFinder, 
+                                      new String[] {"SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1 ORDER BY pm1.g1.e1"}, ComparisonMode.EXACT_COMMAND_STRING); //$NON-NLS-1$
+        
+        checkNodeTypes(plan, new int[] {0, 1}, new Class[] {SortNode.class, LimitNode.class});
+    }
+    
+    @Test public void testSortNotRemovedWithDifferentCollation() throws Exception { 
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+        caps.setSourceProperty(Capability.QUERY_ORDERBY_DEFAULT_NULL_ORDER, NullOrder.LOW);
+        capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+
+        String sql = "select x.e1, x.e2 from (select e1, e2 from pm1.g1 order by e1 limit 10) x order by x.e1"; //$NON-NLS-1$
+
+        //the source collation is unknown
+        ProcessorPlan plan = helpPlan(sql, RealMetadataFactory.example1Cached(), null, capFinder, 
+                                      new String[] {"SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1 ORDER BY pm1.g1.e1"}, ComparisonMode.EXACT_COMMAND_STRING); //$NON-NLS-1$
+        checkNodeTypes(plan, new int[] {1}, new Class[] {SortNode.class});
+        
+        //or different
+        caps.setSourceProperty(Capability.COLLATION_LOCALE, "xx_" + CapabilitiesUtil.getEngineCollation()); //$NON-NLS-1$
+        plan = helpPlan(sql, RealMetadataFactory.example1Cached(), null, capFinder, 
+                new String[] {"SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1 ORDER BY pm1.g1.e1"}, ComparisonMode.EXACT_COMMAND_STRING); //$NON-NLS-1$
+        checkNodeTypes(plan, new int[] {1}, new Class[] {SortNode.class});
+        
+        //but non-string ordering does not depend on the collation
+        sql = "select x.e1, x.e2 from (select e1, e2 from pm1.g1 order by e2 limit 10) x order by x.e2"; //$NON-NLS-1$
+        plan = helpPlan(sql, RealMetadataFactory.example1Cached(), null, capFinder, 
+                new String[] {"SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1 ORDER BY pm1.g1.e2"}, ComparisonMode.EXACT_COMMAND_STRING); //$NON-NLS-1$
+        checkNodeTypes(plan, new int[] {0}, new Class[] {SortNode.class});
+    }
+    
+    @Test public void testSortNotRemovedWithSourceNullOrder() throws Exception { 
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+        caps.setSourceProperty(Capability.QUERY_ORDERBY_DEFAULT_NULL_ORDER, NullOrder.HIGH);
+        capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+
+        String sql = "select x.e1, x.e2 from (select e1, e2 from pm1.g1 order by e1 limit 10) x order by x.e1"; //$NON-NLS-1$
+
+        ProcessorPlan plan = helpPlan(sql, RealMetadataFactory.example1Cached(), null, capFinder, 
+                                      new String[] {"SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1 ORDER BY pm1.g1.e1"}, ComparisonMode.EXACT_COMMAND_STRING); //$NON-NLS-1$
+        
+        //the source sorts nulls high
+        checkNodeTypes(plan, new int[] {1}, new Class[] {SortNode.class});
+        
+        //or the null order is unknown
+        caps.setSourceProperty(Capability.QUERY_ORDERBY_DEFAULT_NULL_ORDER, NullOrder.UNKNOWN);
+        plan = helpPlan(sql, RealMetadataFactory.example1Cached(), null, capFinder, 
+                new String[] {"SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1 ORDER BY pm1.g1.e1"}, ComparisonMode.EXACT_COMMAND_STRING); //$NON-NLS-1$
+        checkNodeTypes(plan, new int[] {1}, new Class[] {SortNode.class});
+    }
+    
+    @Test public void testSortRemovedWithSourceNullOrdering() throws Exception { 
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+        caps.setCapabilitySupport(Capability.QUERY_ORDERBY_NULL_ORDERING, true);
+        caps.setSourceProperty(Capability.QUERY_ORDERBY_DEFAULT_NULL_ORDER, NullOrder.HIGH);
+        caps.setSourceProperty(Capability.COLLATION_LOCALE, CapabilitiesUtil.getEngineCollation());
+        capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+
+        String sql = "select x.e1, x.e2 from (select e1, e2 from pm1.g1 order by e1 nulls first limit 10) x order by x.e1"; //$NON-NLS-1$
+
+        ProcessorPlan plan = helpPlan(sql, RealMetadataFactory.example1Cached(), null, capFinder, 
+                                      new String[] {"SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1 ORDER BY pm1.g1.e1 NULLS FIRST"}, ComparisonMode.EXACT_COMMAND_STRING); //$NON-NLS-1$
+        
+        checkNodeTypes(plan, new int[] {0, 1}, new Class[] {SortNode.class, LimitNode.class});
+    }
+    
+    @Test public void testSortNotRemovedWithDifferentNullOrder() throws Exception { 
+        FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+        BasicSourceCapabilities caps = new BasicSourceCapabilities();
+        caps.setCapabilitySupport(Capability.QUERY_ORDERBY, true);
+        capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+
+        String sql = "select x.e1, x.e2 from (select e1, e2 from pm1.g1 order by e1 limit 10) x order by x.e1 nulls last"; //$NON-NLS-1$
+
+        ProcessorPlan plan = helpPlan(sql, RealMetadataFactory.example1Cached(), null, capFinder, 
+                                      new String[] {"SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1 ORDER BY pm1.g1.e1"}, ComparisonMode.EXACT_COMMAND_STRING); //$NON-NLS-1$
+        
+        checkNodeTypes(plan, new int[] {1}, new Class[] {SortNode.class});
+    }
+
 }
@@ -25,6 +25,7 @@ package org.teiid.query.optimizer.relational.rules;
 import static org.junit.Assert.*;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -36,17 +37,25 @@ import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.TestOptimizer;
 import org.teiid.query.optimizer.TestOptimizer.ComparisonMode;
+import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
 import org.teiid.query.optimizer.relational.plantree.NodeConstants;
 import org.teiid.query.optimizer.relational.plantree.NodeFactory;
 import org.teiid.query.optimizer.relational.plantree.PlanNode;
 import org.teiid.query.parser.QueryParser;
+import org.teiid.query.processor.HardcodedDataManager;
+import org.teiid.query.processor.TestProcessor;
 import org.teiid.query.processor.TestVirtualDepJoin;
+import org.teiid.query.processor.relational.AccessNode;
+import org.teiid.query.processor.relational.DependentAccessNode;
+import org.teiid.query.processor.relational.JoinNode;
+import org.teiid.query.processor.relational.RelationalNode;
 import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.resolver.QueryResolver;
 import org.teiid.query.rewriter.QueryRewriter;
 import org.teiid.query.sql.lang.Criteria;
 import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.visitor.GroupsUsedByElementsVisitor;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
 
@@ -617,6 +626,83 @@ public class TestCalculateCostUtil {
         helpTestEstimateCost(critString, 100, 33, metadata);
     }
 
+    @Test public void testEstimateCostOfCriteriaHistogram() throws Exception {
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        Column e2 = metadata.getElementID("pm1.g1.e2"); //$NON-NLS-1$
+        e2.setMinimumValue("0"); //$NON-NLS-1$
+        e2.setMaximumValue("100"); //$NON-NLS-1$
+        e2.setHistogram(Arrays.asList("0", "1", "2", "3", "100")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        
+        helpTestEstimateCost("pm1.g1.e2 < 2", 100, 50, metadata); //$NON-NLS-1$
+        helpTestEstimateCost("pm1.g1.e2 > 50", 100, 12, metadata); //$NON-NLS-1$
+        helpTestEstimateCost("pm1.g1.e2 >= 200", 100, 1, metadata); //$NON-NLS-1$
+        helpTestEstimateCost("pm1.g1.e2 <= 200", 100, 100, metadata); //$NON-NLS-1$
+    }
+    
+    @Test public void testEstimateCostOfCriteriaHistogramEquality() throws Exception {
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        Column e2 = metadata.getElementID("pm1.g1.e2"); //$NON-NLS-1$
+        e2.setDistinctValues(10);
+        e2.setHistogram(Arrays.asList("1", "1", "1", "5", "10")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        
+        helpTestEstimateCost("pm1.g1.e2 = 1", 100, 50, metadata); //$NON-NLS-1$
+        helpTestEstimateCost("pm1.g1.e2 <> 1", 100, 50, metadata); //$NON-NLS-1$
+        //not a frequent value, so the ndv is used
+        helpTestEstimateCost("pm1.g1.e2 = 5", 100, 10, metadata); //$NON-NLS-1$
+    }
+
+    @Test public void testCardinalityFeedback() throws Exception {
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        String sql = "SELECT pm1.g1.e1, pm2.g1.e1 FROM pm1.g1, pm2.g1 WHERE pm1.g1.e2 = pm2.g1.e2 AND pm1.g1.e3 = true"; //$NON-NLS-1$
+        CommandContext cc = TestProcessor.createCommandContext();
+        cc.getOptions().cardinalityFeedback(true);
+        RelationalPlan plan = (RelationalPlan)TestProcessor.helpGetPlan(QueryParser.getQueryParser().parseCommand(sql), metadata, new DefaultCapabilitiesFinder(TestOptimizer.getTypicalCapabilities()), cc);
+        assertEquals(-1f, getJoinNode(plan).getEstimateNodeCardinality().floatValue(), 0);
+        
+        HardcodedDataManager dataManager = new HardcodedDataManager();
+        dataManager.addData("SELECT g_0.e2 AS c_0, g_0.e1 AS c_1 FROM pm1.g1 AS g_0 WHERE g_0.e3 = TRUE ORDER BY c_0", new List<?>[] {Arrays.asList(1, "a"), Arrays.asList(2, "b")}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        dataManager.addData("SELECT g_0.e2 AS c_0, g_0.e1 AS c_1 FROM pm2.g1 AS g_0 ORDER BY c_0", new List<?>[] {Arrays.asList(1, "c"), Arrays.asList(1, "d"), Arrays.asList(3, "e")}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        TestProcessor.helpProcess(plan, cc, dataManager, new List<?>[] {Arrays.asList("a", "c"), Arrays.asList("a", "d")}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        
+        //the observed cardinalities should be used for the same shape
+        cc = TestProcessor.createCommandContext();
+        plan = (RelationalPlan)TestProcessor.helpGetPlan(QueryParser.getQueryParser().parseCommand(sql), metadata, new DefaultCapabilitiesFinder(TestOptimizer.getTypicalCapabilities()), cc);
+        RelationalNode joinNode = getJoinNode(plan);
+        assertEquals(2f, joinNode.getEstimateNodeCardinality().floatValue(), 0);
+        AccessNode accessNode = (AccessNode)joinNode.getChildren()[0];
+        assertEquals(2f, accessNode.getEstimateNodeCardinality().floatValue(), 0);
+        //which makes the larger side dependent
+        assertTrue(joinNode.getChildren()[1] instanceof DependentAccessNode);
+        
+        //a different shape is not affected
+        plan = (RelationalPlan)TestProcessor.helpGetPlan(QueryParser.getQueryParser().parseCommand(sql.replace("true", "false")), metadata, new DefaultCapabilitiesFinder(TestOptimizer.getTypicalCapabilities()), cc); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals(-1f, getJoinNode(plan).getEstimateNodeCardinality().floatValue(), 0);
+    }
+    
+    @Test public void testCardinalityFeedbackWithReferences() throws Exception {
+        TransformationMetadata metadata = RealMetadataFactory.example1();
+        assertNotNull(CardinalityFeedback.getFeedback(helpGetSelectNode("pm1.g1.e2 = 1", metadata))); //$NON-NLS-1$
+        //the cardinality depends upon the parameter value
+        assertNull(CardinalityFeedback.getFeedback(helpGetSelectNode("pm1.g1.e2 = ?", metadata))); //$NON-NLS-1$
+    }
+    
+    private PlanNode helpGetSelectNode(String critString, QueryMetadataInterface metadata) throws Exception {
+        Criteria crit = helpGetCriteria(critString, metadata);
+        PlanNode select = RelationalPlanner.createSelectNode(crit, false);
+        PlanNode source = NodeFactory.getNewNode(NodeConstants.Types.SOURCE);
+        source.addGroups(GroupsUsedByElementsVisitor.getGroups(crit));
+        select.addFirstChild(source);
+        return select;
+    }
+    
+    private RelationalNode getJoinNode(RelationalPlan plan) {
+    	RelationalNode node = plan.getRootNode();
+    	while (!(node instanceof JoinNode)) {
+    		node = node.getChildren()[0];
+    	}
+    	return node;
+    }
+
     @Test public void testNDVEstimate() throws Exception {
         String crit = "US.accounts.account = 10"; //$NON-NLS-1$
         
@@ -23,6 +23,8 @@
 package org.teiid.query.optimizer.relational.rules;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.teiid.query.optimizer.relational.plantree.NodeConstants;
@@ -31,6 +33,10 @@ import org.teiid.query.optimizer.relational.plantree.PlanNode;
 import org.teiid.query.optimizer.relational.rules.JoinRegion;
 import org.teiid.query.optimizer.relational.rules.RulePlanJoins;
 import org.teiid.query.sql.lang.JoinType;
+import org.teiid.query.sql.symbol.GroupSymbol;
+import org.teiid.query.unittest.RealMetadataFactory;
+import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Permutation;
 
 
 import junit.framework.TestCase;
@@ -118,4 +124,67 @@ public class TestJoinRegion extends TestCase {
         assertEquals(NodeConstants.Types.ACCESS, region.getJoinRoot().getType());
     }
     
+    /**
+     * A star join over 8 sources should find the same order as the exhaustive search
+     */
+    public void testEnumerateJoinOrders() throws Exception {
+        JoinRegion region = new JoinRegion();
+        float[] cardinalities = new float[] {1000, 1000000, 50, 5000, 20, 100000, 300, 10};
+        PlanNode[] sources = new PlanNode[cardinalities.length];
+        for (int i = 0; i < cardinalities.length; i++) {
+            sources[i] = NodeFactory.getNewNode(NodeConstants.Types.SOURCE);
+            sources[i].addGroup(new GroupSymbol("g" + i)); //$NON-NLS-1$
+            sources[i].setProperty(NodeConstants.Info.EST_CARDINALITY, cardinalities[i]);
+            sources[i].setProperty(NodeConstants.Info.MAKE_NOT_DEP, Boolean.TRUE);
+            region.addJoinSourceNode(sources[i]);
+        }
+        //g1 is the fact table
+        for (int i = 0; i < cardinalities.length; i++) {
+            if (i == 1) {
+                continue;
+            }
+            PlanNode crit = NodeFactory.getNewNode(NodeConstants.Types.SELECT);
+            crit.addGroups(sources[1].getGroups());
+            crit.addGroups(sources[i].getGroups());
+            crit.setProperty(NodeConstants.Info.EST_SELECTIVITY, 1/(cardinalities[i] * 10));
+            region.getCriteriaNodes().add(crit);
+        }
+        CommandContext cc = new CommandContext();
+        RulePlanJoins rule = new RulePlanJoins();
+        Object[] order = rule.findBestJoinOrder(region, RealMetadataFactory.example1Cached(), null, cc);
+        double score = region.scoreRegion(order, 0, RealMetadataFactory.example1Cached(), null, cc);
+        
+        double bestScore = Double.MAX_VALUE;
+        for (Iterator<Object[]> i = new Permutation(new Integer[] {0, 1, 2, 3, 4, 5, 6, 7}).generate(8); i.hasNext();) {
+            bestScore = Math.min(bestScore, region.scoreRegion(i.next(), 0, RealMetadataFactory.example1Cached(), null, cc));
+        }
+        assertEquals(bestScore, score, 0);
+        //the most selective dimension is joined to the fact table first
+        //the smallest dimensions are joined before the fact table
+        assertEquals(Arrays.asList(7, 4, 1), Arrays.asList(order).subList(0, 3));
+        
+        cc.getOptions().joinEnumerationMaxGroups(0);
+        Object[] greedyOrder = rule.findBestJoinOrder(region, RealMetadataFactory.example1Cached(), null, cc);
+        assertTrue(region.scoreRegion(greedyOrder, 0, RealMetadataFactory.example1Cached(), null, cc) >= score);
+    }
+    
+    public void testPlanningTimeBudget() throws Exception {
+        JoinRegion region = new JoinRegion();
+        for (int i = 0; i < 8; i++) {
+            PlanNode source = NodeFactory.getNewNode(NodeConstants.Types.SOURCE);
+            source.addGroup(new GroupSymbol("g" + i)); //$NON-NLS-1$
+            source.setProperty(NodeConstants.Info.EST_CARDINALITY, (float)(8 - i) * 100);
+            source.setProperty(NodeConstants.Info.MAKE_NOT_DEP, Boolean.TRUE);
+            region.addJoinSourceNode(source);
+        }
+        CommandContext cc = new CommandContext();
+        cc.setPlanningEnd(System.currentTimeMillis() - 1);
+        assertTrue(cc.isPlanningTimeExceeded());
+        //cross joins are planned greedily by increasing cardinality
+        Object[] order = new RulePlanJoins().findBestJoinOrder(region, RealMetadataFactory.example1Cached(), null, cc);
+        assertEquals(Arrays.asList(7, 6, 5, 4, 3, 2, 1, 0), Arrays.asList(order));
+        cc.setPlanningEnd(Long.MAX_VALUE);
+        assertFalse(cc.isPlanningTimeExceeded());
+    }
+    
 }
@@ -5117,6 +5117,23 @@ public class TestParser {
         helpTest(sql, "SELECT * FROM ARRAYTABLE(null COLUMNS x string, y date) AS x", query);
     }
     
+    @Test public void testJsonTable() throws Exception {
+    	String sql = "SELECT * from jsontable(e1, '$.a[*]' columns x for ordinality, y date path 'b.c', z string) as x"; //$NON-NLS-1$
+        Query query = new Query();
+        query.setSelect(new Select(Arrays.asList(new MultipleElementSymbol())));
+        JsonTable tt = new JsonTable();
+        tt.setJson(new ElementSymbol("e1"));
+        tt.setRowPath("$.a[*]");
+        List<JsonTable.JsonColumn> columns = new ArrayList<JsonTable.JsonColumn>();
+        columns.add(new JsonTable.JsonColumn("x"));
+        columns.add(new JsonTable.JsonColumn("y", "date", "b.c"));
+        columns.add(new JsonTable.JsonColumn("z", "string", null));
+        tt.setColumns(columns);
+        tt.setName("x");
+        query.setFrom(new From(Arrays.asList(tt)));
+        helpTest(sql, "SELECT * FROM JSONTABLE(e1, '$.a[*]' COLUMNS x FOR ORDINALITY, y date PATH 'b.c', z string) AS x", query);
+    }
+    
     @Test public void testPositionalReference() throws Exception {
     	String sql = "select $1";
     	Query query = new Query();
@@ -42,6 +42,8 @@ import org.teiid.metadata.FunctionMethod;
 import org.teiid.metadata.FunctionParameter;
 import org.teiid.metadata.MetadataStore;
 import org.teiid.metadata.Schema;
+import org.teiid.query.function.aggregate.ApproxCountDistinct;
+import org.teiid.query.function.aggregate.ApproxPercentile;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.TestAggregatePushdown;
@@ -320,6 +322,39 @@ public class TestAggregateProcessing {
     	helpProcess(plan, dataManager, expected);
     }
 	
+    /**
+     * The distinct values from each branch are passed through to the final count, 
+     * since overlapping values should only be counted once
+     */
+	@Test public void testCountDistinctOverUnionPushdown() {
+    	Command command = helpParse("select e1, count(distinct e2), count(*) from (select e1, e2 from pm1.g1 union all select e1, e2 from pm1.g2) z group by e1"); //$NON-NLS-1$
+    	
+    	FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
+    	BasicSourceCapabilities caps = TestAggregatePushdown.getAggregateCapabilities();
+    	capFinder.addCapabilities("pm1", caps); //$NON-NLS-1$
+    	HardcodedDataManager dataManager = new HardcodedDataManager();
+    	
+    	dataManager.addData("SELECT g_0.e1, g_0.e2, COUNT(*) FROM pm1.g1 AS g_0 GROUP BY g_0.e1, g_0.e2 HAVING COUNT(*) > 0", //$NON-NLS-1$ 
+    			new List[] {
+    				Arrays.asList("a", Integer.valueOf(1), Integer.valueOf(2)), //$NON-NLS-1$
+    				Arrays.asList("a", Integer.valueOf(2), Integer.valueOf(1)), //$NON-NLS-1$
+    			});
+    	dataManager.addData("SELECT g_0.e1, g_0.e2, COUNT(*) FROM pm1.g2 AS g_0 GROUP BY g_0.e1, g_0.e2 HAVING COUNT(*) > 0", //$NON-NLS-1$ 
+    			new List[] {
+    				Arrays.asList("a", Integer.valueOf(2), Integer.valueOf(3)), //$NON-NLS-1$
+    				Arrays.asList("b", Integer.valueOf(3), Integer.valueOf(1)), //$NON-NLS-1$
+    			});
+    	
+    	ProcessorPlan plan = helpGetPlan(command, RealMetadataFactory.example1Cached(), capFinder);
+    	
+    	List[] expected = new List[] { 
+                Arrays.asList("a", Integer.valueOf(2), Integer.valueOf(6)), //$NON-NLS-1$
+                Arrays.asList("b", Integer.valueOf(1), Integer.valueOf(1)), //$NON-NLS-1$
+            };    
+    	
+    	helpProcess(plan, dataManager, expected);
+    }
+	
     @Test public void testPushDownOverUnionMixed1() throws Exception {
         FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
         BasicSourceCapabilities caps = TestAggregatePushdown.getAggregateCapabilities();
@@ -386,6 +421,39 @@ public class TestAggregateProcessing {
         helpProcess(plan, dataManager, expected);
     }
     
+    @Test public void testApproximateFunctions() {
+    	String sql = "select approx_count_distinct(e2), approx_percentile(e2, .5), approx_percentile(e4, 1) from pm1.g1"; //$NON-NLS-1$
+    	
+        List[] expected = new List[] {
+        		Arrays.asList(4L, 1.0, 7.0),
+        };    
+    
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData1(dataManager);
+        
+        ProcessorPlan plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached());
+        
+        helpProcess(plan, dataManager, expected);
+    }
+    
+    @Test public void testApproximateFunctionsAccuracy() throws Exception {
+    	ApproxCountDistinct countDistinct = new ApproxCountDistinct();
+    	countDistinct.setArgIndexes(new int[] {0});
+    	ApproxPercentile percentile = new ApproxPercentile();
+    	percentile.setArgIndexes(new int[] {0, 1});
+    	for (int i = 0; i < 1000000; i++) {
+    		countDistinct.addInput(Arrays.asList(String.valueOf(i % 200000)), null);
+    		percentile.addInput(Arrays.asList((i * 7919L) % 1000000, .9), null);
+    	}
+    	assertEquals(200000, (Long)countDistinct.getResult(null), 200000 * .03);
+    	assertEquals(900000, (Double)percentile.getResult(null), 1000000 * .02);
+    	
+    	countDistinct.reset();
+    	percentile.reset();
+    	assertEquals(0L, countDistinct.getResult(null));
+    	assertNull(percentile.getResult(null));
+    }
+    
 	@Test public void testJira1621() throws Exception {
 		// Create query
 		String sql = "SELECT sum(t2.e4) as s, max(t1.e1 || t2.e1) FROM pm1.g1 as t1, pm1.g2 as t2, pm1.g3 as t3 WHERE t1.e1 = coalesce(t2.e1, 'b') AND t2.e2 = t3.e2 GROUP BY t2.e2, t2.e3, t3.e2 ORDER BY s"; //$NON-NLS-1$
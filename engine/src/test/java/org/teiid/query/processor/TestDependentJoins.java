@@ -684,7 +684,11 @@ public class TestDependentJoins {
         ProcessorPlan plan = TestProcessor.helpGetPlan(command, fakeMetadata, capFinder);
 
         // Run query
-        TestProcessor.helpProcess(plan, dataManager, expected);
+        CommandContext cc = TestProcessor.createCommandContext();
+        //the hint should prevent backing off of the dependent join
+        cc.getOptions().maxDependentQueries(1);
+        TestProcessor.helpProcess(plan, cc, dataManager, expected);
+        assertTrue(dataManager.getQueries().size() > 2);
     }
 
     @Test public void testLargeSetInDepAccessMultiJoinCriteria() throws Exception {
@@ -918,6 +922,16 @@ public class TestDependentJoins {
         assertEquals(4, new HashSet<String>(dataManager.getQueries()).size());
     }
     
+    @Test public void testDependentJoinBackoffMaxQueries() throws Exception {
+    	CommandContext cc = TestProcessor.createCommandContext();
+    	cc.getOptions().maxDependentQueries(1);
+        FakeDataManager dataManager = helpTestBackoff(false, cc);
+        
+        //note that the dependent join was not actually performed since it would require too many queries
+        assertEquals(new HashSet<String>(Arrays.asList("SELECT pm6.g1.e1, pm6.g1.e2 FROM pm6.g1 ORDER BY pm6.g1.e1, pm6.g1.e2", "SELECT pm1.g1.e1, pm1.g1.e2 FROM pm1.g1")), 
+        		new HashSet<String>(dataManager.getQueries()));
+    }
+    
     @Test public void testIssue1899() throws Exception {
     	String sql = "SELECT pm1.g1.e1 FROM pm1.g1, pm3.g1 WHERE pm1.g1.e1=pm3.g1.e1"; //$NON-NLS-1$
 
@@ -961,6 +975,12 @@ public class TestDependentJoins {
 	private FakeDataManager helpTestBackoff(boolean setNdv) throws Exception,
 			QueryMetadataException, TeiidComponentException,
 			TeiidProcessingException {
+		return helpTestBackoff(setNdv, null);
+	}
+
+	private FakeDataManager helpTestBackoff(boolean setNdv, CommandContext cc) throws Exception,
+			QueryMetadataException, TeiidComponentException,
+			TeiidProcessingException {
 		// Create query 
         String sql = "SELECT pm1.g1.e1 FROM pm1.g1, pm6.g1 WHERE pm1.g1.e1=pm6.g1.e1 and pm1.g1.e2=pm6.g1.e2"; //$NON-NLS-1$
 
@@ -1003,7 +1023,11 @@ public class TestDependentJoins {
         }, capFinder, ComparisonMode.EXACT_COMMAND_STRING);
 
         // Run query
-        TestProcessor.helpProcess(plan, dataManager, expected);
+        if (cc == null) {
+        	TestProcessor.helpProcess(plan, dataManager, expected);
+        } else {
+        	TestProcessor.helpProcess(plan, cc, dataManager, expected);
+        }
 		return dataManager;
 	}
     
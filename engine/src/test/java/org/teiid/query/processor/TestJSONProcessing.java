@@ -29,10 +29,14 @@ import java.util.Arrays;
 import java.util.List;
 
 import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
 
 import org.junit.Test;
+import org.teiid.api.exception.query.QueryResolverException;
 import org.teiid.core.types.BlobType;
+import org.teiid.core.types.ClobType;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
+import org.teiid.query.resolver.QueryResolver;
 import org.teiid.query.unittest.RealMetadataFactory;
 
 @SuppressWarnings("nls")
@@ -87,4 +91,55 @@ public class TestJSONProcessing {
         helpProcess(plan, fdm, expected);
 	}
 	
+	@Test public void testJsonTable() throws Exception {
+    	String sql = "select x.* from jsontable(jsonParse('{\"items\":[{\"a\":1,\"b\":{\"c\":\"x\"},\"d\":[1,{\"e\":\"\\\"\"}]},{\"a\":2,\"e\":true,\"a\":3}],\"a\":4}', true), '$.items[*]' COLUMNS idx FOR ORDINALITY, a integer, c string PATH 'b.c', d string, e boolean) x"; //$NON-NLS-1$
+    	
+        List<?>[] expected = new List[] {
+        		Arrays.asList(1, 1, "x", "[1,{\"e\":\"\\\"\"}]", null),
+        		Arrays.asList(2, 2, null, null, true),
+        };    
+    
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached());
+        helpProcess(plan, new HardcodedDataManager(), expected);
+	}
+	
+	@Test public void testJsonTablePrimitiveRows() throws Exception {
+    	String sql = "select x.* from jsontable('[1,2.5,\"a\",null,[3]]', '$[*]' COLUMNS x string PATH '$') x"; //$NON-NLS-1$
+    	
+        List<?>[] expected = new List[] {
+        		Arrays.asList("1"),
+        		Arrays.asList("2.5"),
+        		Arrays.asList("a"),
+        		Arrays.asList((String)null),
+        		Arrays.asList("[3]"),
+        };    
+    
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached());
+        helpProcess(plan, new HardcodedDataManager(), expected);
+	}
+	
+	@Test public void testJsonTableStreaming() throws Exception {
+		StringBuilder json = new StringBuilder("{\"rows\":[");
+		for (int i = 0; i < 5000; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"id\":").append(i).append(",\"nested\":{\"values\":[").append(i).append(",\"x\"]}}");
+		}
+		json.append("]}");
+    	String sql = "select count(*), sum(id), max(v) from jsontable(cast(? as clob), '$.rows[*]' COLUMNS id integer, v string PATH 'nested.values') x"; //$NON-NLS-1$
+    	
+        List<?>[] expected = new List[] {
+        		Arrays.asList(5000, 12497500L, "[999,\"x\"]"),
+        };    
+    
+        processPreparedStatement(sql, expected, new HardcodedDataManager(), new DefaultCapabilitiesFinder(), RealMetadataFactory.example1Cached(), Arrays.asList(new ClobType(new SerialClob(json.toString().toCharArray()))));
+	}
+	
+	@Test(expected=QueryResolverException.class) public void testJsonTableInvalidPath() throws Exception {
+    	String sql = "select x.* from jsontable('[]', '[*]' COLUMNS x string) x"; //$NON-NLS-1$
+    	
+        QueryResolver.resolveCommand(helpParse(sql), RealMetadataFactory.example1Cached());
+	}
+	
 }
@@ -27,30 +27,46 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.teiid.cache.DefaultCacheFactory;
+import org.teiid.common.buffer.BlockedException;
 import org.teiid.common.buffer.BufferManager;
 import org.teiid.common.buffer.BufferManagerFactory;
+import org.teiid.common.buffer.TupleSource;
+import org.teiid.common.buffer.impl.BufferManagerImpl;
+import org.teiid.core.TeiidComponentException;
 import org.teiid.core.TeiidProcessingException;
+import org.teiid.core.util.FileUtils;
+import org.teiid.core.util.UnitTestUtil;
 import org.teiid.dqp.internal.process.CachedResults;
 import org.teiid.dqp.internal.process.QueryProcessorFactoryImpl;
 import org.teiid.dqp.internal.process.SessionAwareCache;
+import org.teiid.events.EventDistributor;
 import org.teiid.query.metadata.QueryMetadataInterface;
 import org.teiid.query.metadata.TempMetadataAdapter;
+import org.teiid.query.metadata.TransformationMetadata;
 import org.teiid.query.optimizer.capabilities.CapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.relational.RelationalPlanner;
+import org.teiid.query.sql.lang.Command;
 import org.teiid.query.tempdata.GlobalTableStoreImpl;
 import org.teiid.query.tempdata.TempTableDataManager;
 import org.teiid.query.tempdata.TempTableStore;
+import org.teiid.query.tempdata.GlobalTableStoreImpl.MatState;
 import org.teiid.query.tempdata.GlobalTableStoreImpl.MatTableInfo;
 import org.teiid.query.tempdata.TempTableStore.TransactionMode;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 @SuppressWarnings({"nls", "unchecked"})
 public class TestMaterialization {
@@ -61,21 +77,28 @@ public class TestMaterialization {
 	private GlobalTableStoreImpl globalStore;
 	private ProcessorPlan previousPlan;
 	private HardcodedDataManager hdm;
+	private Executor executor;
+	private Options options;
 	
 	@Before public void setUp() {
-		tempStore = new TempTableStore("1", TransactionMode.ISOLATE_WRITES); //$NON-NLS-1$
-	    BufferManager bm = BufferManagerFactory.getStandaloneBufferManager();
-	    QueryMetadataInterface actualMetadata = RealMetadataFactory.exampleMaterializedView();
-	    globalStore = new GlobalTableStoreImpl(bm, actualMetadata);
-		metadata = new TempMetadataAdapter(actualMetadata, tempStore.getMetadataStore());
 		hdm = new HardcodedDataManager();
 		hdm.addData("SELECT MatSrc.MatSrc.x FROM MatSrc.MatSrc", new List[] {Arrays.asList((String)null), Arrays.asList("one"), Arrays.asList("two"), Arrays.asList("three")});
 		hdm.addData("SELECT MatTable.info.e1, MatTable.info.e2 FROM MatTable.info", new List[] {Arrays.asList("a", 1), Arrays.asList("a", 2)});
 		hdm.addData("SELECT MatTable.info.e2, MatTable.info.e1 FROM MatTable.info", new List[] {Arrays.asList(1, "a"), Arrays.asList(2, "a")});
-		
+		setUp(RealMetadataFactory.exampleMaterializedView(), hdm);
+	}
+
+	private void setUp(QueryMetadataInterface actualMetadata, ProcessorDataManager pdm) {
+		setUp(actualMetadata, pdm, BufferManagerFactory.getStandaloneBufferManager());
+	}
+
+	private void setUp(QueryMetadataInterface actualMetadata, ProcessorDataManager pdm, BufferManager bm) {
+		tempStore = new TempTableStore("1", TransactionMode.ISOLATE_WRITES); //$NON-NLS-1$
+	    globalStore = new GlobalTableStoreImpl(bm, actualMetadata);
+		metadata = new TempMetadataAdapter(actualMetadata, tempStore.getMetadataStore());
 	    SessionAwareCache<CachedResults> cache = new SessionAwareCache<CachedResults>("resultset", DefaultCacheFactory.INSTANCE, SessionAwareCache.Type.RESULTSET, 0);
 	    cache.setTupleBufferCache(bm);
-		dataManager = new TempTableDataManager(hdm, bm, cache);
+		dataManager = new TempTableDataManager(pdm, bm, cache);
 	}
 	
 	private void execute(String sql, List<?>... expectedResults) throws Exception {
@@ -83,6 +106,12 @@ public class TestMaterialization {
 		cc.setTempTableStore(tempStore);
 		cc.setGlobalTableStore(globalStore);
 		cc.setMetadata(metadata);
+		if (executor != null) {
+			cc.setExecutor(executor);
+		}
+		if (options != null) {
+			cc.setOptions(options);
+		}
 		CapabilitiesFinder finder = new DefaultCapabilitiesFinder();
 		previousPlan = TestProcessor.helpGetPlan(TestProcessor.helpParse(sql), metadata, finder, cc);
 		cc.setQueryProcessorFactory(new QueryProcessorFactoryImpl(BufferManagerFactory.getStandaloneBufferManager(), dataManager, finder, null, metadata));
@@ -127,6 +156,14 @@ public class TestMaterialization {
     	assertEquals(1, hdm.getCommandHistory().size());
     }
     
+    @Test public void testCodeTableHashIndex() throws Exception {
+    	options = new Options().codeTableHashIndexMaxRows(10);
+    	execute("select lookup('mattable.info', 'e1', 'e2', 5)", Arrays.asList((String)null));
+    	execute("select lookup('mattable.info', 'e1', 'e2', 1)", Arrays.asList("a"));
+    	execute("select lookup('mattable.info', 'e1', 'e2', 2)", Arrays.asList("a"));
+    	assertEquals(1, hdm.getCommandHistory().size());
+    }
+    
 	@Test public void testTtl() throws Exception {
 		execute("SELECT * from vgroup4 where x = 'one'", Arrays.asList("one"));
 		assertEquals(1, hdm.getCommandHistory().size());
@@ -170,4 +207,334 @@ public class TestMaterialization {
 		execute("SELECT * from vgroup7 where y is null", Arrays.asList("1", null, 1));
 	}
     
+	@Test public void testSnapshot() throws Exception {
+		File dir = new File(UnitTestUtil.getTestScratchPath(), "matsnapshot");
+		FileUtils.removeDirectoryAndChildren(dir);
+		globalStore.setSnapshotDirectory(dir);
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		execute("SELECT * from vgroup4 where x = 'one'", Arrays.asList("one"));
+		assertEquals(2, hdm.getCommandHistory().size());
+		String matTableName = RelationalPlanner.MAT_PREFIX + "MATVIEW.VGROUP3";
+		long updateTime = globalStore.getMatTableInfo(matTableName).getUpdateTime();
+		File snapshot = new File(dir, "MATVIEW.VGROUP3.snapshot");
+		assertTrue(snapshot.exists());
+		long lastModified = snapshot.lastModified();
+		
+		//simulate a restart
+		setUp();
+		globalStore.setSnapshotDirectory(dir);
+		//vgroup3 does not have a ttl, so the snapshot is only used with the option
+		options = new Options().matViewSnapshotWithoutTtl(true);
+		execute("SELECT * from vgroup3 where y = 'zne'", Arrays.asList("one", "zne"));
+		assertEquals(0, hdm.getCommandHistory().size());
+		
+		//the restore is published as a load, but keeps the snapshot time and file
+		MatTableInfo info = globalStore.getMatTableInfo(matTableName);
+		assertEquals(MatState.LOADED, info.getState());
+		assertEquals(updateTime, info.getUpdateTime());
+		assertEquals(lastModified, snapshot.lastModified());
+		
+		//the snapshot is older than the ttl
+		Thread.sleep(150);
+		execute("SELECT * from vgroup4 where x = 'one'", Arrays.asList("one"));
+		assertEquals(1, hdm.getCommandHistory().size());
+		
+		//a row update removes the snapshot
+		globalStore.updateMatViewRow(matTableName, Arrays.asList("four", "zour"), false);
+		assertFalse(snapshot.exists());
+		
+		setUp();
+		globalStore.setSnapshotDirectory(dir);
+		execute("SELECT * from vgroup3 where y = 'zne'", Arrays.asList("one", "zne"));
+		assertEquals(1, hdm.getCommandHistory().size());
+		assertTrue(snapshot.exists());
+	}
+	
+	@Test public void testSnapshotWithoutTtl() throws Exception {
+		File dir = new File(UnitTestUtil.getTestScratchPath(), "matsnapshot");
+		FileUtils.removeDirectoryAndChildren(dir);
+		globalStore.setSnapshotDirectory(dir);
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		assertEquals(1, hdm.getCommandHistory().size());
+		assertTrue(new File(dir, "MATVIEW.VGROUP3.snapshot").exists());
+		
+		//simulate a restart, the snapshot of a view without a ttl is not used by default
+		setUp();
+		globalStore.setSnapshotDirectory(dir);
+		execute("SELECT * from vgroup3 where x = 'one'", Arrays.asList("one", "zne"));
+		assertEquals(1, hdm.getCommandHistory().size());
+	}
+	
+	@Test public void testIncrementalMaintenance() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL("CREATE FOREIGN TABLE orders (id integer primary key, customer string, amount integer); "
+				+ "CREATE FOREIGN TABLE customers (name string primary key, region string); "
+				+ "CREATE VIEW totals (customer string primary key, region string, cnt integer, total long) OPTIONS (MATERIALIZED true) AS /*+ cache(updatable) */ "
+				+ "SELECT o.customer, c.region, count(*), sum(o.amount) FROM orders o, customers c WHERE o.customer = c.name GROUP BY o.customer, c.region; "
+				+ "CREATE VIEW details (id integer primary key, name string, region string) OPTIONS (MATERIALIZED true) AS /*+ cache(updatable) */ "
+				+ "SELECT o.id, c.name, c.region FROM orders o, customers c WHERE o.customer = c.name; "
+				+ "CREATE VIEW regions (region string primary key, total long) OPTIONS (MATERIALIZED true) AS /*+ cache(updatable) */ "
+				+ "SELECT c.region, sum(o.amount) FROM orders o, customers c WHERE o.customer = c.name GROUP BY c.region;", "x", "y");
+		FakeDataManager fdm = new FakeDataManager();
+		fdm.setRecordingCommands(true);
+		fdm.registerTuples(tm, "orders", new List<?>[] {Arrays.asList(1, "a", 10), Arrays.asList(2, "a", 5), Arrays.asList(3, "b", 1)});
+		fdm.registerTuples(tm, "customers", new List<?>[] {Arrays.asList("a", "east"), Arrays.asList("b", "west")});
+		setUp(tm, fdm);
+		
+		execute("select * from totals order by customer", Arrays.asList("a", "east", 2, 15L), Arrays.asList("b", "west", 1, 1L));
+		execute("select * from details order by id", Arrays.asList(1, "a", "east"), Arrays.asList(2, "a", "east"), Arrays.asList(3, "b", "west"));
+		execute("select * from regions order by region", Arrays.asList("east", 15L), Arrays.asList("west", 1L));
+		
+		//new order for b and a changed region for a
+		fdm.registerTuples(tm, "orders", new List<?>[] {Arrays.asList(1, "a", 10), Arrays.asList(2, "a", 5), Arrays.asList(3, "b", 1), Arrays.asList(4, "b", 2)});
+		fdm.registerTuples(tm, "customers", new List<?>[] {Arrays.asList("a", "north"), Arrays.asList("b", "west")});
+		globalStore.sourceRowModified("y.orders", Arrays.asList(4, "b", 2), false);
+		globalStore.sourceRowModified("y.customers", Arrays.asList("a", "east"), true);
+		globalStore.sourceRowModified("y.customers", Arrays.asList("a", "north"), false);
+		
+		MatTableInfo totals = globalStore.getMatTableInfo(RelationalPlanner.MAT_PREFIX + "Y.TOTALS");
+		MatTableInfo details = globalStore.getMatTableInfo(RelationalPlanner.MAT_PREFIX + "Y.DETAILS");
+		MatTableInfo regions = globalStore.getMatTableInfo(RelationalPlanner.MAT_PREFIX + "Y.REGIONS");
+		long time = regions.getUpdateTime();
+		assertTrue(totals.hasPendingChanges());
+		Thread.sleep(10);
+		
+		//the key is from the changed row
+		execute("select * from totals order by customer", Arrays.asList("a", "north", 2, 15L), Arrays.asList("b", "west", 2, 3L));
+		assertFalse(totals.hasPendingChanges());
+		assertTrue(totals.getUpdateTime() <= time);
+		
+		//the keys are found by the values of the changed rows
+		execute("select * from details order by id", Arrays.asList(1, "a", "north"), Arrays.asList(2, "a", "north"), Arrays.asList(3, "b", "west"), Arrays.asList(4, "b", "west"));
+		assertTrue(details.getUpdateTime() <= time);
+		
+		//no key can be determined from the orders change, so the view is reloaded
+		execute("select * from regions order by region", Arrays.asList("north", 15L), Arrays.asList("west", 3L));
+		assertTrue(regions.getUpdateTime() > time);
+		
+		fdm.clearQueries();
+		execute("select * from totals order by customer", Arrays.asList("a", "north", 2, 15L), Arrays.asList("b", "west", 2, 3L));
+		assertTrue(fdm.getQueries().isEmpty());
+	}
+	
+	@Test public void testIncrementalMaintenanceFallback() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL("CREATE FOREIGN TABLE orders (id integer primary key, customer string, amount integer); "
+				+ "CREATE VIEW ranked (id integer primary key, rnk integer) OPTIONS (MATERIALIZED true) AS /*+ cache(updatable) */ "
+				+ "SELECT o.id, rank() over (order by o.amount) FROM orders o; "
+				+ "CREATE VIEW counted (id integer primary key, cnt integer) OPTIONS (MATERIALIZED true) AS /*+ cache(updatable) */ "
+				+ "SELECT o.id, (SELECT count(*) FROM orders o1 WHERE o1.customer = o.customer) FROM orders o; "
+				+ "CREATE VIEW totals (customer string primary key, total long) OPTIONS (MATERIALIZED true) AS /*+ cache(updatable) */ "
+				+ "SELECT x.customer, x.total FROM (SELECT o.customer, sum(o.amount) AS total FROM orders o GROUP BY o.customer) AS x; "
+				+ "CREATE VIEW sampled (id integer primary key, r double) OPTIONS (MATERIALIZED true) AS /*+ cache(updatable) */ "
+				+ "SELECT o.id, rand() FROM orders o;", "x", "y");
+		FakeDataManager fdm = new FakeDataManager();
+		fdm.registerTuples(tm, "orders", new List<?>[] {Arrays.asList(1, "a", 10), Arrays.asList(2, "a", 5)});
+		setUp(tm, fdm);
+		
+		execute("select * from ranked order by id", Arrays.asList(1, 2), Arrays.asList(2, 1));
+		execute("select * from counted order by id", Arrays.asList(1, 2), Arrays.asList(2, 2));
+		execute("select * from totals", Arrays.asList("a", 15L));
+		execute("select id from sampled order by id", Arrays.asList(1), Arrays.asList(2));
+		
+		fdm.registerTuples(tm, "orders", new List<?>[] {Arrays.asList(1, "a", 10), Arrays.asList(2, "a", 5), Arrays.asList(3, "a", 1)});
+		globalStore.sourceRowModified("y.orders", Arrays.asList(3, "a", 1), false);
+		
+		String[] views = new String[] {"RANKED", "COUNTED", "TOTALS", "SAMPLED"};
+		long[] times = new long[views.length];
+		for (int i = 0; i < views.length; i++) {
+			MatTableInfo info = globalStore.getMatTableInfo(RelationalPlanner.MAT_PREFIX + "Y." + views[i]);
+			assertTrue(views[i], info.hasPendingChanges());
+			times[i] = info.getUpdateTime();
+		}
+		Thread.sleep(10);
+		
+		//none of the views can be maintained from just the affected keys, so each is reloaded
+		execute("select * from ranked order by id", Arrays.asList(1, 3), Arrays.asList(2, 2), Arrays.asList(3, 1));
+		execute("select * from counted order by id", Arrays.asList(1, 3), Arrays.asList(2, 3), Arrays.asList(3, 3));
+		execute("select * from totals", Arrays.asList("a", 16L));
+		execute("select id from sampled order by id", Arrays.asList(1), Arrays.asList(2), Arrays.asList(3));
+		for (int i = 0; i < views.length; i++) {
+			assertTrue(views[i], globalStore.getMatTableInfo(RelationalPlanner.MAT_PREFIX + "Y." + views[i]).getUpdateTime() > times[i]);
+		}
+	}
+	
+	@Test public void testPartitionedLoad() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL("CREATE FOREIGN TABLE orders1 (id integer primary key, customer string); "
+				+ "CREATE FOREIGN TABLE orders2 (id integer primary key, customer string); "
+				+ "CREATE FOREIGN TABLE orders3 (id integer primary key, customer string); "
+				+ "CREATE VIEW orders (id integer primary key, customer string) OPTIONS (MATERIALIZED true) AS "
+				+ "SELECT id, customer FROM orders1 UNION ALL (SELECT id, customer FROM orders2 UNION ALL SELECT id, customer FROM orders3); "
+				+ "CREATE VIEW dups (id integer primary key, customer string) OPTIONS (MATERIALIZED true) AS "
+				+ "SELECT id, customer FROM orders1 UNION ALL SELECT id, customer FROM orders1;", "x", "y");
+		FakeDataManager fdm = new FakeDataManager();
+		fdm.setRecordingCommands(false);
+		fdm.registerTuples(tm, "orders1", new List<?>[] {Arrays.asList(5, "a"), Arrays.asList(1, "b")});
+		fdm.registerTuples(tm, "orders2", new List<?>[] {Arrays.asList(4, "c"), Arrays.asList(2, "d")});
+		fdm.registerTuples(tm, "orders3", new List<?>[] {Arrays.asList(3, "e")});
+		setUp(tm, fdm);
+		options = new Options().matViewLoadParallelism(4);
+		ExecutorService service = Executors.newFixedThreadPool(2);
+		executor = service;
+		try {
+			execute("select * from orders", Arrays.asList(1, "b"), Arrays.asList(2, "d"), Arrays.asList(3, "e"), Arrays.asList(4, "c"), Arrays.asList(5, "a"));
+			execute("select customer from orders where id = 4", Arrays.asList("c"));
+			try {
+				execute("select * from dups");
+				fail("expected duplicate key");
+			} catch (TeiidProcessingException e) {
+				
+			}
+		} finally {
+			service.shutdown();
+		}
+	}
+	
+	@Test public void testPartitionedLoadWithoutExecutor() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL("CREATE FOREIGN TABLE orders1 (id integer primary key, customer string); "
+				+ "CREATE FOREIGN TABLE orders2 (id integer primary key, customer string); "
+				+ "CREATE VIEW orders (id integer primary key, customer string) OPTIONS (MATERIALIZED true) AS "
+				+ "SELECT id, customer FROM orders1 UNION ALL SELECT id, customer FROM orders2;", "x", "y");
+		FakeDataManager fdm = new FakeDataManager();
+		fdm.setRecordingCommands(false);
+		fdm.registerTuples(tm, "orders1", new List<?>[] {Arrays.asList(3, "a"), Arrays.asList(1, "b")});
+		fdm.registerTuples(tm, "orders2", new List<?>[] {Arrays.asList(2, "c")});
+		setUp(tm, fdm);
+		options = new Options().matViewLoadParallelism(4);
+		execute("select * from orders", Arrays.asList(1, "b"), Arrays.asList(2, "c"), Arrays.asList(3, "a"));
+	}
+	
+	@Test public void testHashAndIncludeIndexes() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL("CREATE FOREIGN TABLE t (id integer primary key, a string, b string, c integer); "
+				+ "CREATE VIEW v (id integer primary key, a string, b string, c integer, INDEX(a) OPTIONS (\"teiid_rel:index-type\" 'hash', \"teiid_rel:index-include\" 'b'), "
+				+ "INDEX(c) OPTIONS (\"teiid_rel:index-include\" 'a')) OPTIONS (MATERIALIZED true) AS /*+ cache(updatable) */ SELECT id, a, b, c FROM t;", "x", "y");
+		FakeDataManager fdm = new FakeDataManager();
+		fdm.registerTuples(tm, "t", new List<?>[] {Arrays.asList(1, "x", "one", 3), Arrays.asList(2, "y", "two", 2), Arrays.asList(3, "x", "three", 1)});
+		setUp(tm, fdm);
+		
+		//covering hash lookup with a sort
+		execute("select b from v where a = 'x' order by b", Arrays.asList("one"), Arrays.asList("three"));
+		//non-covering hash lookup
+		execute("select id, c from v where a = 'x' and c < 3", Arrays.asList(3, 1));
+		//covering tree index
+		execute("select a from v where c > 1 order by c", Arrays.asList("y"), Arrays.asList("x"));
+		
+		//the indexes are maintained with the row
+		globalStore.updateMatViewRow(RelationalPlanner.MAT_PREFIX + "Y.V", Arrays.asList(3, "y", "three", 4), false);
+		execute("select b from v where a = 'x'", Arrays.asList("one"));
+		execute("select id from v where a = 'y' order by id", Arrays.asList(2), Arrays.asList(3));
+		execute("select a from v where c > 1 order by c", Arrays.asList("y"), Arrays.asList("x"), Arrays.asList("y"));
+		globalStore.updateMatViewRow(RelationalPlanner.MAT_PREFIX + "Y.V", Arrays.asList(2), true);
+		execute("select b from v where a = 'y'", Arrays.asList("three"));
+		execute("select a from v where c = 2");
+	}
+	
+	@Test public void testHashIndexNormalizedKeys() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL("CREATE FOREIGN TABLE t (id integer primary key, d decimal, b string); "
+				+ "CREATE VIEW v (id integer primary key, d decimal, b string, INDEX(d) OPTIONS (\"teiid_rel:index-type\" 'hash')) OPTIONS (MATERIALIZED true) AS /*+ cache(updatable) */ SELECT id, d, b FROM t;", "x", "y");
+		FakeDataManager fdm = new FakeDataManager();
+		fdm.registerTuples(tm, "t", new List<?>[] {Arrays.asList(1, new BigDecimal("1.00"), "one"), Arrays.asList(2, new BigDecimal("2.5"), "two"), Arrays.asList(3, new BigDecimal("0.000"), "zero")});
+		setUp(tm, fdm);
+		
+		//decimal values that compare as equal must be found regardless of scale
+		execute("select b from v where d = cast('1.0' as decimal)", Arrays.asList("one"));
+		execute("select b from v where d = cast('2.50' as decimal)", Arrays.asList("two"));
+		execute("select b from v where d = cast('0' as decimal)", Arrays.asList("zero"));
+		
+		globalStore.updateMatViewRow(RelationalPlanner.MAT_PREFIX + "Y.V", Arrays.asList(1, new BigDecimal("1"), "uno"), false);
+		execute("select b from v where d = cast('1.000' as decimal)", Arrays.asList("uno"));
+	}
+	
+	@Test public void testColumnStore() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL("CREATE FOREIGN TABLE t (id integer primary key, a string, b integer, c string); "
+				+ "CREATE VIEW v (id integer primary key, a string, b integer, c string) OPTIONS (MATERIALIZED true, \"teiid_rel:storage\" 'columnar') AS SELECT id, a, b, c FROM t;", "x", "y");
+		FakeDataManager fdm = new FakeDataManager();
+		List<?>[] rows = new List<?>[3000];
+		for (int i = 0; i < rows.length; i++) {
+			//a is run length, b is dictionary, and c is plain encoded
+			rows[i] = Arrays.asList(i, "a" + (i/1500), i%10 == 0?null:i%7, "c" + i);
+		}
+		fdm.registerTuples(tm, "t", rows);
+		setUp(tm, fdm);
+		
+		//scans with segments skipped
+		execute("select id, c from v where a = 'a0' and b = 3 and c < 'c102' order by id", Arrays.asList(101, "c101"), Arrays.asList(1004, "c1004"), Arrays.asList(1011, "c1011"), Arrays.asList(1018, "c1018"));
+		execute("select id from v where a = 'a1' and b = 0 and c like 'c150%' order by c desc", Arrays.asList(1505));
+		execute("select id from v where c in ('c2999', 'c5', 'x') order by c", Arrays.asList(2999), Arrays.asList(5));
+		execute("select b, a from v where 'c2998' = c", Arrays.asList(2998%7, "a1"));
+		execute("select count(*) from v where b is null", Arrays.asList(300));
+		//key lookups still use the tree
+		execute("select b from v where id = 2998", Arrays.asList(2998%7));
+	}
+	
+	@Test public void testColumnStoreReservation() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL("CREATE FOREIGN TABLE t (id integer primary key, a string); "
+				+ "CREATE VIEW v (id integer primary key, a string) OPTIONS (MATERIALIZED true, \"teiid_rel:storage\" 'columnar') AS SELECT id, a FROM t;", "x", "y");
+		FakeDataManager fdm = new FakeDataManager();
+		List<?>[] rows = new List<?>[3000];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = Arrays.asList(i, "a" + i);
+		}
+		fdm.registerTuples(tm, "t", rows);
+		BufferManagerImpl bm = BufferManagerFactory.getTestBufferManager(1 << 22, 256);
+		long available = bm.getReserveBatchBytes();
+		setUp(tm, fdm, bm);
+		execute("select id from v where a = 'a5'", Arrays.asList(5));
+		//the estimated size of the store is reserved
+		assertTrue(available - bm.getReserveBatchBytes() > rows.length * 100);
+		globalStore.getTempTableStore().removeTempTables();
+		assertEquals(available, bm.getReserveBatchBytes());
+		
+		//not enough space for the store, the table is still usable
+		bm = BufferManagerFactory.getTestBufferManager(1 << 10, 256);
+		available = bm.getReserveBatchBytes();
+		setUp(tm, fdm, bm);
+		execute("select id from v where a = 'a5'", Arrays.asList(5));
+		globalStore.getTempTableStore().removeTempTables();
+		assertEquals(available, bm.getReserveBatchBytes());
+	}
+	
+	@Test public void testIncrementalMaintenanceFailure() throws Exception {
+		TransformationMetadata tm = RealMetadataFactory.fromDDL("CREATE FOREIGN TABLE orders (id integer primary key, customer string, amount integer); "
+				+ "CREATE VIEW totals (customer string primary key, total long) OPTIONS (MATERIALIZED true) AS /*+ cache(updatable) */ "
+				+ "SELECT o.customer, sum(o.amount) FROM orders o GROUP BY o.customer;", "x", "y");
+		final FakeDataManager fdm = new FakeDataManager();
+		fdm.registerTuples(tm, "orders", new List<?>[] {Arrays.asList(1, "a", 10), Arrays.asList(2, "b", 1)});
+		final boolean[] fail = new boolean[1];
+		setUp(tm, new ProcessorDataManager() {
+			
+			@Override
+			public TupleSource registerRequest(CommandContext context, Command command, String modelName, RegisterRequestParameter parameterObject) throws TeiidComponentException, TeiidProcessingException {
+				if (fail[0]) {
+					fail[0] = false;
+					throw new IllegalStateException();
+				}
+				return fdm.registerRequest(context, command, modelName, parameterObject);
+			}
+			
+			@Override
+			public Object lookupCodeValue(CommandContext context, String codeTableName, String returnElementName, String keyElementName, Object keyValue) throws BlockedException, TeiidComponentException, TeiidProcessingException {
+				return fdm.lookupCodeValue(context, codeTableName, returnElementName, keyElementName, keyValue);
+			}
+			
+			@Override
+			public EventDistributor getEventDistributor() {
+				return null;
+			}
+		});
+		
+		execute("select * from totals order by customer", Arrays.asList("a", 10L), Arrays.asList("b", 1L));
+		
+		fdm.registerTuples(tm, "orders", new List<?>[] {Arrays.asList(1, "a", 10), Arrays.asList(2, "b", 1), Arrays.asList(3, "b", 2)});
+		globalStore.sourceRowModified("y.orders", Arrays.asList(3, "b", 2), false);
+		MatTableInfo totals = globalStore.getMatTableInfo(RelationalPlanner.MAT_PREFIX + "Y.TOTALS");
+		long time = totals.getUpdateTime();
+		Thread.sleep(10);
+		
+		//the incremental query fails, so the view is fully reloaded rather than losing the change
+		fail[0] = true;
+		execute("select * from totals order by customer", Arrays.asList("a", 10L), Arrays.asList("b", 3L));
+		assertFalse(fail[0]);
+		assertFalse(totals.hasPendingChanges());
+		assertTrue(totals.getUpdateTime() > time);
+	}
+	
 }
@@ -7485,6 +7485,18 @@ public class TestProcessor {
         helpProcess(plan, hdm, expected);
     }
     
+    @Test public void testBlockedCounts() throws Exception {
+        HardcodedDataManager dataManager = new HardcodedDataManager();
+        dataManager.setBlockOnce(true);
+        dataManager.addData("SELECT pm1.g1.e1 FROM pm1.g1", new List[] {Arrays.asList("a")}); //$NON-NLS-1$
+        ProcessorPlan plan = helpGetPlan("select e1 from pm1.g1", RealMetadataFactory.example1Cached()); //$NON-NLS-1$
+        CommandContext cc = createCommandContext();
+        doProcess(plan, dataManager, new List[] {Arrays.asList("a")}, cc);
+        Map<String, Integer> counts = cc.getBlockedCounts();
+        assertEquals(1, counts.size());
+        assertEquals(Integer.valueOf(1), counts.get("AccessNode")); //$NON-NLS-1$
+    }
+    
     @Test public void testNonDeterministicScalarSubquery() throws Exception {
         FakeCapabilitiesFinder capFinder = new FakeCapabilitiesFinder();
         QueryMetadataInterface metadata = RealMetadataFactory.example1Cached();
@@ -59,6 +59,7 @@ import org.teiid.query.sql.symbol.Expression;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.query.unittest.TimestampUtil;
 import org.teiid.query.util.CommandContext;
+import org.teiid.query.util.Options;
 
 @SuppressWarnings({"nls", "unchecked"})
 public class TestSQLXMLProcessing {
@@ -578,6 +579,33 @@ public class TestSQLXMLProcessing {
         process(sql, expected);
     }
     
+    @Test public void testXmlTableStreamingChunks() throws Exception {
+    	StringBuilder doc = new StringBuilder("<a>");
+    	List<?>[] expected = new List<?>[200];
+    	for (int i = 0; i < expected.length; i++) {
+    		if (i % 3 == 0) {
+    			doc.append("<b/>");
+    			expected[i] = Arrays.asList(i + 1, -1);
+    		} else {
+    			doc.append("<b x=''").append(i).append("''/>");
+    			expected[i] = Arrays.asList(i + 1, i);
+    		}
+    	}
+    	doc.append("</a>");
+        String sql = "select * from xmltable('/a/b' passing xmlparse(document '" + doc + "') columns y for ordinality, x integer default -1 path '@x') as x"; //$NON-NLS-1$
+        CommandContext cc = createCommandContext();
+        cc.setOptions(new Options().xmlTableParallelism(4));
+        ProcessorPlan plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached(), new DefaultCapabilitiesFinder(), cc);
+        helpProcess(plan, cc, dataManager, expected);
+        
+        //the row limit stops streaming with chunks outstanding
+        sql += " limit 70"; //$NON-NLS-1$
+        cc = createCommandContext();
+        cc.setOptions(new Options().xmlTableParallelism(4));
+        plan = helpGetPlan(helpParse(sql), RealMetadataFactory.example1Cached(), new DefaultCapabilitiesFinder(), cc);
+        helpProcess(plan, cc, dataManager, Arrays.copyOf(expected, 70));
+    }
+    
     @Test public void testXmlTableStreamingParentAttributes() throws Exception {
         String sql = "select * from xmltable('/a/b' passing xmlparse(document '<a x=''1''><b>foo</b></a>') columns y string path '.', x integer path '../@x') as x"; //$NON-NLS-1$
         List<?>[] expected = new List<?>[] {
@@ -450,4 +450,39 @@ public class TestTextTable {
         processPreparedStatement(sql, null, dataManager, new DefaultCapabilitiesFinder(), RealMetadataFactory.example1Cached(), Arrays.asList(new ClobType(new SerialClob(data))));
     }
 	
+	@Test public void testIntegralValues() throws Exception {
+    	String sql = "select * from texttable('1, -2 ,\" 3\",99999999999,-9223372036854775808' COLUMNS a integer, b long, c integer, d long, e long) x"; //$NON-NLS-1$
+    	
+        List[] expected = new List[] {
+        		Arrays.asList(1, -2L, 3, 99999999999L, Long.MIN_VALUE),
+        };    
+    
+        process(sql, expected);
+    }
+	
+	@Test(expected=TeiidProcessingException.class) public void testIntegerOverflow() throws Exception {
+    	String sql = "select * from texttable('99999999999' COLUMNS a integer) x"; //$NON-NLS-1$
+    	
+        process(sql, new List[] {});
+    }
+	
+	@Test public void testTextTableLarge() throws Exception {
+    	String sql = "select count(*), sum(x), max(y) from texttable(? COLUMNS x integer, y string) x"; //$NON-NLS-1$
+    	
+        StringBuilder data = new StringBuilder();
+        long sum = 0;
+        for (int i = 0; i < 5000; i++) {
+        	data.append(i).append(",\"value ").append(i).append("\"\r\n");
+        	sum += i;
+        }
+        List[] expected = new List[] {
+        		Arrays.asList(5000, sum, "value 999"),
+        };    
+        
+        FakeDataManager dataManager = new FakeDataManager();
+        sampleData1(dataManager);
+        
+        processPreparedStatement(sql, expected, dataManager, new DefaultCapabilitiesFinder(), RealMetadataFactory.example1Cached(), Arrays.asList(new ClobType(new SerialClob(data.toString().toCharArray()))));
+    }
+	
 }
@@ -22,6 +22,7 @@
 
 package org.teiid.query.processor;
 
+import static org.junit.Assert.*;
 import static org.teiid.query.optimizer.TestOptimizer.*;
 import static org.teiid.query.processor.TestProcessor.*;
 
@@ -34,8 +35,10 @@ import org.teiid.query.optimizer.TestOptimizer.ComparisonMode;
 import org.teiid.query.optimizer.capabilities.BasicSourceCapabilities;
 import org.teiid.query.optimizer.capabilities.DefaultCapabilitiesFinder;
 import org.teiid.query.optimizer.capabilities.SourceCapabilities.Capability;
+import org.teiid.query.optimizer.relational.rules.CapabilitiesUtil;
 import org.teiid.query.processor.relational.AccessNode;
 import org.teiid.query.processor.relational.ProjectNode;
+import org.teiid.query.processor.relational.RelationalPlan;
 import org.teiid.query.processor.relational.WindowFunctionProjectNode;
 import org.teiid.query.unittest.RealMetadataFactory;
 import org.teiid.translator.ExecutionFactory.NullOrder;
@@ -302,6 +305,32 @@ public class TestWindowFunctions {
         
         helpProcess(plan, dataManager, expected);
     }
-
+    
+    @Test public void testStreamingRunningAggregates() throws Exception {
+    	String sql = "select e1, e2, row_number() over (partition by e1 order by e2) as r, rank() over (partition by e1 order by e2) as rk, sum(e2) over (partition by e1 order by e2) as s from pm1.g1 order by e1, e2";
+        
+    	List<?>[] expected = new List[] {
+        		Arrays.asList("a", 0, 1, 1, Long.valueOf(0)),
+        		Arrays.asList("a", 1, 2, 2, Long.valueOf(2)),
+        		Arrays.asList("a", 1, 3, 2, Long.valueOf(2)),
+        		Arrays.asList("a", 3, 4, 4, Long.valueOf(5)),
+        		Arrays.asList("b", 2, 1, 1, Long.valueOf(2)),
+        		Arrays.asList("c", 1, 1, 1, Long.valueOf(1)),
+        		Arrays.asList("c", 4, 2, 2, Long.valueOf(5)),
+        };
+    	
+    	HardcodedDataManager dataManager = new HardcodedDataManager();
+    	dataManager.addData("SELECT g_0.e1 AS c_0, g_0.e2 AS c_1 FROM pm1.g1 AS g_0 ORDER BY c_0, c_1", new List[] {
+    			Arrays.asList("a", 0), Arrays.asList("a", 1), Arrays.asList("a", 1), Arrays.asList("a", 3), 
+    			Arrays.asList("b", 2), Arrays.asList("c", 1), Arrays.asList("c", 4)});
+        BasicSourceCapabilities caps = TestOptimizer.getTypicalCapabilities();
+        caps.setSourceProperty(Capability.QUERY_ORDERBY_DEFAULT_NULL_ORDER, NullOrder.LOW);
+        caps.setSourceProperty(Capability.COLLATION_LOCALE, CapabilitiesUtil.getEngineCollation());
+        ProcessorPlan plan = helpGetPlan(sql, RealMetadataFactory.example1Cached(), new DefaultCapabilitiesFinder(caps));
+        WindowFunctionProjectNode node = (WindowFunctionProjectNode)((RelationalPlan)plan).getRootNode().getChildren()[0];
+        assertTrue(node.isStreaming());
+        
+        helpProcess(plan, dataManager, expected);
+    }
     
 }
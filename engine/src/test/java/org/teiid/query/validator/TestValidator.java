@@ -1638,6 +1638,10 @@ public class TestValidator {
         helpValidate("SELECT stddev_pop(distinct e2) from pm1.g1", new String[] {"STDDEV_POP(DISTINCT e2)"}, RealMetadataFactory.example1Cached()); //$NON-NLS-1$ //$NON-NLS-2$
 	}
     
+    @Test public void testValidateApproximateAgg() {        
+        helpValidate("SELECT approx_percentile(e2, 2), approx_percentile(e1, .5), approx_count_distinct(e1, e2) from pm1.g1", new String[] {"APPROX_PERCENTILE(e2, 2)", "APPROX_PERCENTILE(e1, 0.5)", "APPROX_COUNT_DISTINCT(e1, e2)"}, RealMetadataFactory.example1Cached()); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+    
     @Test public void testValidateScalarSubqueryTooManyColumns() {        
         helpValidate("SELECT e2, (SELECT e1, e2 FROM pm1.g1 WHERE e2 = '3') FROM pm1.g2", new String[] {"SELECT e1, e2 FROM pm1.g1 WHERE e2 = '3'"}, RealMetadataFactory.example1Cached()); //$NON-NLS-1$ //$NON-NLS-2$
     }
@@ -102,6 +102,23 @@ public abstract class EventDistributorImpl implements EventDistributor {
 		updateModified(true, vdbName, vdbVersion, schema, tableNames);
 	}
 	
+	@Override
+	public void dataModification(String vdbName, int vdbVersion, String schema,
+			String tableName, List<?> tuple, boolean delete) {
+		updateModified(true, vdbName, vdbVersion, schema, tableName);
+		VDBMetaData metadata = getVdbRepository().getLiveVDB(vdbName, vdbVersion);
+		if (metadata != null) {
+			GlobalTableStore gts = metadata.getAttachment(GlobalTableStore.class);
+			if (gts != null) {
+				try {
+					gts.sourceRowModified(schema + '.' + tableName, tuple, delete);
+				} catch (TeiidComponentException e) {
+					LogManager.logError(LogConstants.CTX_RUNTIME, e, RuntimePlugin.Util.gs(RuntimePlugin.Event.TEIID40013, "dataModification")); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+	
 	private void updateModified(boolean data, String vdbName, int vdbVersion, String schema,
 			String... objectNames) {
 		Schema s = getSchema(vdbName, vdbVersion, schema);
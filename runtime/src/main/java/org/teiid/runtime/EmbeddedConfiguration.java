@@ -91,6 +91,7 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 	private int maxResultSetCacheStaleness = 60;
 	private String infinispanConfigFile = "infinispan-config.xml"; //$NON-NLS-1$
 	private String jgroupsConfigFile;
+	private String materializationSnapshotDirectory;
 	
 	private DefaultCacheManager manager;
 	private SimpleChannelFactory channelFactory;
@@ -212,6 +213,16 @@ public class EmbeddedConfiguration extends DQPConfiguration {
 	public void setJgroupsConfigFile(String jgroupsConfigFile) {
 		this.jgroupsConfigFile = jgroupsConfigFile;
 	}	
+	public String getMaterializationSnapshotDirectory() {
+		return materializationSnapshotDirectory;
+	}
+	/**
+	 * Set the directory used to persist internal materialized views across restarts.
+	 * If not set, internal materialized views are always loaded from their sources.
+	 */
+	public void setMaterializationSnapshotDirectory(String materializationSnapshotDirectory) {
+		this.materializationSnapshotDirectory = materializationSnapshotDirectory;
+	}
 	
 	protected void stop() {
 		if (manager != null) {
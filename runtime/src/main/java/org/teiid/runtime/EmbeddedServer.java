@@ -23,6 +23,7 @@
 package org.teiid.runtime;
 
 
+import java.io.File;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
@@ -369,7 +370,11 @@ public class EmbeddedServer extends AbstractVDBDeployer implements EventDistribu
 				if (!vdb.getVDB().getStatus().equals(Status.ACTIVE)) {
 					return;
 				}
-				GlobalTableStore gts = new GlobalTableStoreImpl(dqp.getBufferManager(), vdb.getVDB().getAttachment(TransformationMetadata.class));
+				GlobalTableStoreImpl gtsImpl = new GlobalTableStoreImpl(dqp.getBufferManager(), vdb.getVDB().getAttachment(TransformationMetadata.class));
+				if (config.getMaterializationSnapshotDirectory() != null) {
+					gtsImpl.setSnapshotDirectory(new File(config.getMaterializationSnapshotDirectory(), name + "_" + version)); //$NON-NLS-1$
+				}
+				GlobalTableStore gts = gtsImpl;
 				if (replicator != null) {
 					try {
 						gts = replicator.replicate(name + version, GlobalTableStore.class, gts, 300000);